@@ -0,0 +1,394 @@
+/**
+ * Copyright (C) 2013 - 2015 Contributors.
+ *
+ * FormulaJ is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * FormulaJ is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see [http://www.gnu.org/licenses/].
+ *
+ * Contact: formulaj-user-list@googlegroups.com.
+ */
+package formulaj.common.base;
+
+import java.lang.reflect.Array;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.RandomAccess;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Estimates the heap memory retained by a graph of objects, following the layout of a 64-bit JVM with compressed references: a 12-byte object
+ * header, 4-byte references, 16-byte array headers and sizes aligned to 8 bytes. Each object is counted once, even if it's shared by many
+ * roots, so the estimate of many expressions that share interned subtrees counts the shared nodes once.
+ * <p>
+ * The fields of the classes outside the JDK are read by reflection. The JDK classes are not inspected: {@link String}s, arrays, numbers,
+ * {@link Collection}s and {@link Map}s are estimated from their size, and the other classes count their own fields only.
+ */
+public final class MemoryFootprint
+{
+    /**
+     * The size of an object header, in bytes.
+     */
+    private static final int OBJECT_HEADER = 12;
+
+    /**
+     * The size of an array header, in bytes.
+     */
+    private static final int ARRAY_HEADER = 16;
+
+    /**
+     * The size of a reference, in bytes.
+     */
+    private static final int REFERENCE = 4;
+
+    /**
+     * The alignment of the objects, in bytes.
+     */
+    private static final int ALIGNMENT = 8;
+
+    /**
+     * The size of an entry of a linked or hashed collection, in bytes.
+     */
+    private static final int ENTRY = 32;
+
+    /**
+     * The shallow size of each class already inspected.
+     */
+    private static final Map<Class<?>, Long> SHALLOW_SIZES = new ConcurrentHashMap<>();
+
+    /**
+     * The reference fields of each class already inspected.
+     */
+    private static final Map<Class<?>, List<Field>> REFERENCE_FIELDS = new ConcurrentHashMap<>();
+
+    /**
+     * Private constructor to avoid instance of this class.
+     */
+    private MemoryFootprint()
+    {
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * Returns the estimated number of bytes retained by the given objects and by all the objects that they reference. The classes and the enum
+     * constants are not counted, since they are shared by the whole JVM.
+     * 
+     * @param roots
+     *            The roots of the graph. The <code>null</code> roots are ignored.
+     * @return The estimated number of bytes of the graph.
+     */
+    public static long of(Object... roots)
+    {
+        Map<Object, Boolean> visited = new IdentityHashMap<>();
+        Deque<Object> pending = new ArrayDeque<>();
+        long bytes = 0;
+
+        for (Object root : roots)
+        {
+            if (root != null)
+            {
+                pending.push(root);
+            }
+        }
+
+        while (!pending.isEmpty())
+        {
+            Object object = pending.pop();
+
+            if (object instanceof Class || object instanceof Enum || visited.put(object, Boolean.TRUE) != null)
+            {
+                continue;
+            }
+
+            bytes += size(object, pending);
+        }
+
+        return bytes;
+    }
+
+    /**
+     * Returns the size of an object, adding the objects that it references to the pending ones.
+     * 
+     * @param object
+     *            The object.
+     * @param pending
+     *            The objects to be counted.
+     * @return The size of the object, in bytes.
+     */
+    private static long size(Object object, Deque<Object> pending)
+    {
+        Class<?> type = object.getClass();
+
+        if (type.isArray())
+        {
+            int length = Array.getLength(object);
+
+            if (!type.getComponentType().isPrimitive())
+            {
+                for (Object element : (Object[]) object)
+                {
+                    push(element, pending);
+                }
+            }
+            return align(ARRAY_HEADER + (long) length * fieldSize(type.getComponentType()));
+        }
+        else if (object instanceof String)
+        {
+            String text = (String) object;
+            return shallowSize(type) + align(ARRAY_HEADER + (long) text.length() * (isLatin1(text) ? 1 : 2));
+        }
+        else if (object instanceof BigDecimal)
+        {
+            BigInteger unscaled = ((BigDecimal) object).unscaledValue();
+            return shallowSize(type) + (unscaled.bitLength() < Long.SIZE ? 0 : bigIntegerSize(unscaled));
+        }
+        else if (object instanceof BigInteger)
+        {
+            return bigIntegerSize((BigInteger) object);
+        }
+        else if (isJdkClass(type))
+        {
+            return shallowSize(type) + containerSize(object, pending);
+        }
+
+        for (Field field : referenceFields(type))
+        {
+            try
+            {
+                push(field.get(object), pending);
+            }
+            catch (IllegalAccessException | RuntimeException exception)
+            {
+                continue;
+            }
+        }
+        return shallowSize(type);
+    }
+
+    /**
+     * Returns the size of the internal structure of a {@link Collection} or of a {@link Map}, adding their elements to the pending objects.
+     * 
+     * @param object
+     *            A JDK object.
+     * @param pending
+     *            The objects to be counted.
+     * @return The size of the internal structure or zero if the object is not a {@link Collection} or a {@link Map}.
+     */
+    private static long containerSize(Object object, Deque<Object> pending)
+    {
+        if (object instanceof Collection)
+        {
+            Collection<?> collection = (Collection<?>) object;
+
+            for (Object element : collection)
+            {
+                push(element, pending);
+            }
+            return object instanceof RandomAccess ? align(ARRAY_HEADER + (long) collection.size() * REFERENCE) : hashedSize(collection.size());
+        }
+        else if (object instanceof Map)
+        {
+            Map<?, ?> map = (Map<?, ?>) object;
+
+            for (Map.Entry<?, ?> entry : map.entrySet())
+            {
+                push(entry.getKey(), pending);
+                push(entry.getValue(), pending);
+            }
+            return hashedSize(map.size());
+        }
+        return 0;
+    }
+
+    /**
+     * Returns the size of the table and of the entries of a hashed collection.
+     * 
+     * @param size
+     *            The number of entries.
+     * @return The size of the table and of the entries, in bytes.
+     */
+    private static long hashedSize(int size)
+    {
+        return align(ARRAY_HEADER + (long) size * 4 / 3 * REFERENCE) + (long) size * ENTRY;
+    }
+
+    /**
+     * Returns the size of a {@link BigInteger} and of its magnitude.
+     * 
+     * @param value
+     *            The value.
+     * @return The size of the value, in bytes.
+     */
+    private static long bigIntegerSize(BigInteger value)
+    {
+        return shallowSize(BigInteger.class) + align(ARRAY_HEADER + (value.bitLength() + 31) / 32 * 4L);
+    }
+
+    /**
+     * Adds an object to the pending ones.
+     * 
+     * @param object
+     *            The object. It may be <code>null</code>.
+     * @param pending
+     *            The objects to be counted.
+     */
+    private static void push(Object object, Deque<Object> pending)
+    {
+        if (object != null)
+        {
+            pending.push(object);
+        }
+    }
+
+    /**
+     * Returns <code>true</code> if all characters of a text are stored in one byte by the compact strings of the JVM.
+     * 
+     * @param text
+     *            The text.
+     * @return <code>true</code> if all characters are less than 256.
+     */
+    private static boolean isLatin1(String text)
+    {
+        for (int i = 0; i < text.length(); i++)
+        {
+            if (text.charAt(i) > 0xFF)
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns <code>true</code> if a class belongs to the JDK, whose fields are not read.
+     * 
+     * @param type
+     *            The class.
+     * @return <code>true</code> if the class belongs to the JDK.
+     */
+    private static boolean isJdkClass(Class<?> type)
+    {
+        String name = type.getName();
+        return name.startsWith("java.") || name.startsWith("javax.") || name.startsWith("sun.") || name.startsWith("jdk.");
+    }
+
+    /**
+     * Returns the size of an instance of a class without the objects that it references.
+     * 
+     * @param type
+     *            The class.
+     * @return The size of an instance of the class, in bytes.
+     */
+    private static long shallowSize(Class<?> type)
+    {
+        Long size = SHALLOW_SIZES.get(type);
+
+        if (size == null)
+        {
+            long bytes = OBJECT_HEADER;
+
+            for (Class<?> c = type; c != null; c = c.getSuperclass())
+            {
+                for (Field field : c.getDeclaredFields())
+                {
+                    if (!Modifier.isStatic(field.getModifiers()))
+                    {
+                        bytes += fieldSize(field.getType());
+                    }
+                }
+            }
+
+            size = align(bytes);
+            SHALLOW_SIZES.put(type, size);
+        }
+        return size;
+    }
+
+    /**
+     * Returns the non-static reference fields of a class and of its superclasses, accessible by reflection.
+     * 
+     * @param type
+     *            The class.
+     * @return The reference fields of the class.
+     */
+    private static List<Field> referenceFields(Class<?> type)
+    {
+        List<Field> fields = REFERENCE_FIELDS.get(type);
+
+        if (fields == null)
+        {
+            fields = new ArrayList<>();
+
+            for (Class<?> c = type; c != null && !isJdkClass(c); c = c.getSuperclass())
+            {
+                for (Field field : c.getDeclaredFields())
+                {
+                    if (!Modifier.isStatic(field.getModifiers()) && !field.getType().isPrimitive())
+                    {
+                        field.setAccessible(true);
+                        fields.add(field);
+                    }
+                }
+            }
+            REFERENCE_FIELDS.put(type, fields);
+        }
+        return fields;
+    }
+
+    /**
+     * Returns the size of a field or of an array element of a given type.
+     * 
+     * @param type
+     *            The type of the field.
+     * @return The size of the field, in bytes.
+     */
+    private static int fieldSize(Class<?> type)
+    {
+        if (type == long.class || type == double.class)
+        {
+            return 8;
+        }
+        else if (type == int.class || type == float.class)
+        {
+            return 4;
+        }
+        else if (type == short.class || type == char.class)
+        {
+            return 2;
+        }
+        else if (type == byte.class || type == boolean.class)
+        {
+            return 1;
+        }
+        return REFERENCE;
+    }
+
+    /**
+     * Aligns a size to {@link #ALIGNMENT}.
+     * 
+     * @param size
+     *            The size, in bytes.
+     * @return The aligned size.
+     */
+    private static long align(long size)
+    {
+        return (size + ALIGNMENT - 1) / ALIGNMENT * ALIGNMENT;
+    }
+}
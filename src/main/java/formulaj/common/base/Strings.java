@@ -37,6 +37,16 @@ public final class Strings
      */
     public static final String RETURN = "\r";
 
+    /**
+     * The offset basis of the 64-bit FNV-1a hash.
+     */
+    private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+
+    /**
+     * The prime of the 64-bit FNV-1a hash.
+     */
+    private static final long FNV_PRIME = 0x100000001b3L;
+
     /**
      * Private constructor. It's never invoked.
      */
@@ -101,4 +111,26 @@ public final class Strings
         }
         return value;
     }
+
+    /**
+     * Returns a 64-bit fingerprint (FNV-1a) of a given text. Unlike {@link String#hashCode()} the fingerprint has a low collision rate and it's
+     * stable across virtual machines.
+     * 
+     * @param value
+     *            The text to compute the fingerprint. Might not be <code>null</code>.
+     * @return The 64-bit fingerprint of the given text.
+     */
+    public static long fingerprint(CharSequence value)
+    {
+        long hash = FNV_OFFSET_BASIS;
+
+        for (int i = 0; i < value.length(); i++)
+        {
+            char c = value.charAt(i);
+            hash = (hash ^ (c & 0xff)) * FNV_PRIME;
+            hash = (hash ^ (c >>> 8)) * FNV_PRIME;
+        }
+
+        return hash;
+    }
 }
@@ -0,0 +1,97 @@
+/**
+ * Copyright (C) 2013 - 2015 Contributors.
+ *
+ * FormulaJ is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * FormulaJ is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see [http://www.gnu.org/licenses/].
+ *
+ * Contact: formulaj-user-list@googlegroups.com.
+ */
+package formulaj.expression;
+
+import formulaj.expression.EvaluationBudget.Limit;
+
+/**
+ * Thrown when an evaluation or a compilation exceeds a limit of its {@link EvaluationBudget}, such as the number of visited nodes or the
+ * precision of an intermediate value.
+ */
+public class BudgetExceededException extends EvaluationException
+{
+    /**
+     * Serial code version <code>serialVersionUID</code>.
+     */
+    private static final long serialVersionUID = -2417436903152946387L;
+
+    /**
+     * The limit that was exceeded.
+     */
+    private final Limit limit;
+
+    /**
+     * The maximum value of the limit.
+     */
+    private final long maximum;
+
+    /**
+     * The value that exceeded the limit.
+     */
+    private final long actual;
+
+    /**
+     * Creates a {@link BudgetExceededException}.
+     * 
+     * @param exceededLimit
+     *            The limit that was exceeded.
+     * @param max
+     *            The maximum value of the limit.
+     * @param value
+     *            The value that exceeded the limit.
+     */
+    public BudgetExceededException(Limit exceededLimit, long max, long value)
+    {
+        super(String.format("The evaluation budget was exceeded: %s is %d, but the maximum is %d!", exceededLimit, value, max));
+
+        this.limit = exceededLimit;
+        this.maximum = max;
+        this.actual = value;
+    }
+
+    /**
+     * Returns the limit that was exceeded.
+     * 
+     * @return The limit that was exceeded.
+     */
+    public Limit getLimit()
+    {
+        return limit;
+    }
+
+    /**
+     * Returns the maximum value of the limit.
+     * 
+     * @return The maximum value of the limit.
+     */
+    public long getMaximum()
+    {
+        return maximum;
+    }
+
+    /**
+     * Returns the value that exceeded the limit. For {@link Limit#DEADLINE} it's the elapsed time, in milliseconds.
+     * 
+     * @return The value that exceeded the limit.
+     */
+    public long getActual()
+    {
+        return actual;
+    }
+}
@@ -18,9 +18,15 @@
  */
 package formulaj.expression;
 
+import java.io.IOException;
+import java.io.InvalidObjectException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamField;
 import java.io.Serializable;
 import java.math.BigDecimal;
 import java.math.BigInteger;
+import java.math.MathContext;
 import java.math.RoundingMode;
 import java.util.Collection;
 
@@ -38,6 +44,52 @@ import java.util.Collection;
  */
 public final class Decimal extends Number implements Comparable<Decimal>, Serializable
 {
+    /**
+     * The value of {@link #unscaled} of a {@link Decimal} whose unscaled value does not fit a <code>long</code>.
+     */
+    static final long INFLATED = Long.MIN_VALUE;
+
+    /**
+     * The powers of ten that fit a <code>long</code>.
+     */
+    private static final long[] TEN_POWERS = { 1L, 10L, 100L, 1000L, 10000L, 100000L, 1000000L, 10000000L, 100000000L, 1000000000L,
+            10000000000L, 100000000000L, 1000000000000L, 10000000000000L, 100000000000000L, 1000000000000000L, 10000000000000000L,
+            100000000000000000L, 1000000000000000000L };
+
+    /**
+     * The powers of ten that are exact <code>double</code> values.
+     */
+    private static final double[] DOUBLE_TEN_POWERS = { 1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11, 1e12, 1e13, 1e14, 1e15,
+            1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22 };
+
+    /**
+     * The largest magnitude of a <code>long</code> that is an exact <code>double</code> value.
+     */
+    private static final long MAX_EXACT_DOUBLE = 1L << 53;
+
+    /**
+     * The smallest integer of the {@link #CACHE}.
+     */
+    private static final int CACHE_LOW = -128;
+
+    /**
+     * The largest integer of the {@link #CACHE}.
+     */
+    private static final int CACHE_HIGH = 1024;
+
+    /**
+     * The integers from {@link #CACHE_LOW} to {@link #CACHE_HIGH}, with scale zero, returned by {@link #from(long)} instead of new instances.
+     */
+    private static final Decimal[] CACHE = new Decimal[CACHE_HIGH - CACHE_LOW + 1];
+
+    static
+    {
+        for (int i = 0; i < CACHE.length; i++)
+        {
+            CACHE[i] = new Decimal(i + CACHE_LOW, 0);
+        }
+    }
+
     /**
      * An approximation to Euler's number, to 15 decimal places.
      */
@@ -69,9 +121,35 @@ public final class Decimal extends Number implements Comparable<Decimal>, Serial
     private static final long serialVersionUID = 2446641773739054340L;
 
     /**
-     * The effective value of this class.
+     * The serialized fields: the value as a {@link BigDecimal}, whatever its representation in memory.
+     */
+    private static final ObjectStreamField[] serialPersistentFields = { new ObjectStreamField("value", BigDecimal.class) };
+
+    /**
+     * The unscaled value, if it fits a <code>long</code>, or {@link #INFLATED}. The value of this {@link Decimal} is
+     * <code>unscaled &times; 10<sup>-scale</sup></code>.
+     */
+    private final transient long unscaled;
+
+    /**
+     * The scale of a compact value.
+     */
+    private final transient int scale;
+
+    /**
+     * The value of this class if its unscaled value does not fit a <code>long</code>; otherwise <code>null</code>.
+     */
+    private final transient BigDecimal inflated;
+
+    /**
+     * The {@link BigDecimal} of a compact value, created when it's requested.
+     */
+    private transient BigDecimal cache;
+
+    /**
+     * The value read by the deserialization, replaced by a new instance in {@link #readResolve()}.
      */
-    private final BigDecimal value;
+    private transient BigDecimal serialized;
 
     /**
      * @param aValue
@@ -84,7 +162,34 @@ public final class Decimal extends Number implements Comparable<Decimal>, Serial
             throw new NullPointerException();
         }
 
-        this.value = aValue;
+        if (isCompact(aValue))
+        {
+            this.unscaled = aValue.unscaledValue().longValue();
+            this.scale = aValue.scale();
+            this.inflated = null;
+            this.cache = aValue;
+        }
+        else
+        {
+            this.unscaled = INFLATED;
+            this.scale = 0;
+            this.inflated = aValue;
+        }
+    }
+
+    /**
+     * Creates a compact {@link Decimal}.
+     * 
+     * @param unscaledValue
+     *            The unscaled value. It must not be {@link #INFLATED}.
+     * @param valueScale
+     *            The scale of the value.
+     */
+    private Decimal(long unscaledValue, int valueScale)
+    {
+        this.unscaled = unscaledValue;
+        this.scale = valueScale;
+        this.inflated = null;
     }
 
     /**
@@ -100,6 +205,116 @@ public final class Decimal extends Number implements Comparable<Decimal>, Serial
         this(new BigDecimal(aValue));
     }
 
+    /**
+     * Returns a {@link Decimal} of an unscaled value and a scale, reusing the cached integers.
+     * 
+     * @param unscaledValue
+     *            The unscaled value. It must not be {@link #INFLATED}.
+     * @param valueScale
+     *            The scale of the value.
+     * @return A {@link Decimal} whose value is <code>unscaledValue &times; 10<sup>-valueScale</sup></code>.
+     */
+    static Decimal of(long unscaledValue, int valueScale)
+    {
+        if (valueScale == 0 && unscaledValue >= CACHE_LOW && unscaledValue <= CACHE_HIGH)
+        {
+            return CACHE[(int) unscaledValue - CACHE_LOW];
+        }
+        return new Decimal(unscaledValue, valueScale);
+    }
+
+    /**
+     * Returns <code>true</code> if the unscaled value of a {@link BigDecimal} fits the compact form of a {@link Decimal}.
+     * 
+     * @param value
+     *            The value to be checked.
+     * @return <code>true</code> if the unscaled value has less digits than the largest power of ten of a <code>long</code>.
+     */
+    static boolean isCompact(BigDecimal value)
+    {
+        return value.precision() < TEN_POWERS.length;
+    }
+
+    /**
+     * Returns the unscaled value of this {@link Decimal} if it fits a <code>long</code>.
+     * 
+     * @return The unscaled value or {@link #INFLATED}.
+     */
+    long compactUnscaled()
+    {
+        return unscaled;
+    }
+
+    /**
+     * Returns the scale of this {@link Decimal} if its unscaled value fits a <code>long</code>.
+     * 
+     * @return The scale of a compact value.
+     */
+    int compactScale()
+    {
+        return scale;
+    }
+
+    /**
+     * Returns <code>true</code> if the unscaled value of this {@link Decimal} fits a <code>long</code>.
+     * 
+     * @return <code>true</code> if this value is compact.
+     */
+    private boolean isCompact()
+    {
+        return unscaled != INFLATED;
+    }
+
+    /**
+     * Returns an unscaled value multiplied by a power of ten.
+     * 
+     * @param value
+     *            The unscaled value.
+     * @param n
+     *            The exponent of the power of ten. It must not be negative.
+     * @return The product or {@link #INFLATED} if it does not fit a <code>long</code>.
+     */
+    static long scaleUp(long value, long n)
+    {
+        if (n >= TEN_POWERS.length || Math.abs(value) > Long.MAX_VALUE / TEN_POWERS[(int) n])
+        {
+            return value == 0 ? 0 : INFLATED;
+        }
+        return value * TEN_POWERS[(int) n];
+    }
+
+    /**
+     * Returns the sum of two compact values or <code>null</code> if it does not fit a <code>long</code>.
+     * 
+     * @param a
+     *            The unscaled value of the first operand.
+     * @param aScale
+     *            The scale of the first operand.
+     * @param b
+     *            The unscaled value of the second operand.
+     * @param bScale
+     *            The scale of the second operand.
+     * @return The sum, whose scale is the largest of the operands' ones, or <code>null</code> if it does not fit a <code>long</code>.
+     */
+    private static Decimal add(long a, int aScale, long b, int bScale)
+    {
+        long x = aScale < bScale ? scaleUp(a, (long) bScale - aScale) : a;
+        long y = bScale < aScale ? scaleUp(b, (long) aScale - bScale) : b;
+
+        if (x == INFLATED || y == INFLATED)
+        {
+            return null;
+        }
+
+        long sum = x + y;
+
+        if (((x ^ sum) & (y ^ sum)) < 0 || sum == INFLATED)
+        {
+            return null;
+        }
+        return of(sum, Math.max(aScale, bScale));
+    }
+
     /**
      * Returns the absolute value of the class.
      * 
@@ -107,11 +322,17 @@ public final class Decimal extends Number implements Comparable<Decimal>, Serial
      */
     public Decimal abs()
     {
-        return from(this.value.abs());
+        if (isCompact())
+        {
+            return unscaled >= 0 ? this : of(-unscaled, scale);
+        }
+        return from(this.inflated.abs());
     }
 
     /**
-     * Returns a {@link Decimal} whose value is (this / divisor).
+     * Returns a {@link Decimal} whose value is (this / divisor), rounded to the context of the <code>/</code> operator of the
+     * {@link PrecisionPolicy#current()} policy. By default, a quotient that does not terminate, such as <code>1/3</code>, is rounded to
+     * {@link MathContext#DECIMAL128}.
      * 
      * @param divisor
      *            Value which this {@link Decimal} is to be divided. Might not be <code>null</code>.
@@ -119,7 +340,24 @@ public final class Decimal extends Number implements Comparable<Decimal>, Serial
      */
     public Decimal div(Decimal divisor)
     {
-        return from(this.value.divide(divisor.value));
+        return div(divisor, PrecisionPolicy.current().context("/"));
+    }
+
+    /**
+     * Returns a {@link Decimal} whose value is (this / divisor), rounded according to the given context. The quotient is exact if it fits the
+     * precision of the context.
+     * 
+     * @param divisor
+     *            Value which this {@link Decimal} is to be divided. Might not be <code>null</code>.
+     * @param context
+     *            The precision and the rounding mode of the quotient. Might not be <code>null</code>.
+     * @return this / divisor.
+     * @throws ArithmeticException
+     *             If the divisor is zero or if the precision of the context is unlimited and the quotient does not terminate.
+     */
+    public Decimal div(Decimal divisor, MathContext context)
+    {
+        return from(this.bigDecimalValue().divide(divisor.bigDecimalValue(), context));
     }
 
     /**
@@ -157,7 +395,7 @@ public final class Decimal extends Number implements Comparable<Decimal>, Serial
      */
     public boolean eq(Decimal that)
     {
-        return this.value.compareTo(that.value) == 0;
+        return this.compareTo(that) == 0;
     }
 
     /**
@@ -327,7 +565,7 @@ public final class Decimal extends Number implements Comparable<Decimal>, Serial
      */
     public boolean lteq(double that)
     {
-        return lteq(that);
+        return lteq(from(that));
     }
 
     /**
@@ -339,7 +577,7 @@ public final class Decimal extends Number implements Comparable<Decimal>, Serial
      */
     public boolean lteq(long that)
     {
-        return lteq(that);
+        return lteq(from(that));
     }
 
     /**
@@ -381,7 +619,30 @@ public final class Decimal extends Number implements Comparable<Decimal>, Serial
      */
     public Decimal minus(Decimal subtrahend)
     {
-        return from(this.value.subtract(subtrahend.value));
+        if (isCompact() && subtrahend.isCompact())
+        {
+            Decimal difference = add(unscaled, scale, -subtrahend.unscaled, subtrahend.scale);
+
+            if (difference != null)
+            {
+                return difference;
+            }
+        }
+        return from(this.bigDecimalValue().subtract(subtrahend.bigDecimalValue()));
+    }
+
+    /**
+     * Returns a {@link Decimal} whose value is (this - subtrahend), rounded according to the given context.
+     * 
+     * @param subtrahend
+     *            The value to be subtracted from this {@link Decimal}.
+     * @param context
+     *            The precision and the rounding mode of the result. Might not be <code>null</code>.
+     * @return A {@link Decimal} whose value is (this - subtrahend).
+     */
+    public Decimal minus(Decimal subtrahend, MathContext context)
+    {
+        return from(this.bigDecimalValue().subtract(subtrahend.bigDecimalValue(), context));
     }
 
     /**
@@ -415,7 +676,7 @@ public final class Decimal extends Number implements Comparable<Decimal>, Serial
      */
     public Decimal negate()
     {
-        return from(this.value.negate());
+        return isCompact() ? of(-unscaled, scale) : from(this.inflated.negate());
     }
 
     /**
@@ -425,7 +686,7 @@ public final class Decimal extends Number implements Comparable<Decimal>, Serial
      */
     public Decimal plus()
     {
-        return from(this.value.plus());
+        return this;
     }
 
     /**
@@ -437,7 +698,30 @@ public final class Decimal extends Number implements Comparable<Decimal>, Serial
      */
     public Decimal plus(Decimal augend)
     {
-        return from(this.value.add(augend.value));
+        if (isCompact() && augend.isCompact())
+        {
+            Decimal sum = add(unscaled, scale, augend.unscaled, augend.scale);
+
+            if (sum != null)
+            {
+                return sum;
+            }
+        }
+        return from(this.bigDecimalValue().add(augend.bigDecimalValue()));
+    }
+
+    /**
+     * Returns a {@link Decimal} whose value is this {@link Decimal} + {@code augend}, rounded according to the given context.
+     * 
+     * @param augend
+     *            Value to be added to this {@link Decimal}. Might not be <code>null</code>.
+     * @param context
+     *            The precision and the rounding mode of the result. Might not be <code>null</code>.
+     * @return This {@link Decimal} + {@code augend}.
+     */
+    public Decimal plus(Decimal augend, MathContext context)
+    {
+        return from(this.bigDecimalValue().add(augend.bigDecimalValue(), context));
     }
 
     /**
@@ -474,7 +758,7 @@ public final class Decimal extends Number implements Comparable<Decimal>, Serial
      */
     public Decimal pow(Decimal n)
     {
-        return from(this.value.pow(n.intValue()));
+        return from(this.bigDecimalValue().pow(n.intValue()));
     }
 
     /**
@@ -486,7 +770,7 @@ public final class Decimal extends Number implements Comparable<Decimal>, Serial
      */
     public Decimal pow(double n)
     {
-        return from(Math.pow(this.value.doubleValue(), n));
+        return from(Math.pow(this.doubleValue(), n));
     }
 
     /**
@@ -502,6 +786,21 @@ public final class Decimal extends Number implements Comparable<Decimal>, Serial
         return pow(from(n));
     }
 
+    /**
+     * Returns a {@link Decimal} whose value is (this ^ {@code n}), rounded according to the given context. With a limited precision the power is
+     * computed with bounded intermediate values and {@code n} may be negative, in the range -999999999 through 999999999.
+     * 
+     * @param n
+     *            power to raise this {@link Decimal} to.
+     * @param context
+     *            The precision and the rounding mode of the result. Might not be <code>null</code>.
+     * @return A {@link Decimal} whose value is (this ^ {@code n}).
+     */
+    public Decimal pow(int n, MathContext context)
+    {
+        return from(this.bigDecimalValue().pow(n, context));
+    }
+
     /**
      * Returns the square root of this {@link Decimal} but only if it's a positive value. If value of this decimal is negative this method returns
      * <code>null</code>.
@@ -510,7 +809,7 @@ public final class Decimal extends Number implements Comparable<Decimal>, Serial
      */
     public Decimal sqrt()
     {
-        return isPositive() ? from(Math.sqrt(this.value.doubleValue())) : null;
+        return isPositive() ? from(Math.sqrt(this.doubleValue())) : null;
     }
 
     /**
@@ -557,7 +856,21 @@ public final class Decimal extends Number implements Comparable<Decimal>, Serial
      */
     public Decimal round(int numberOfDecimals, RoundingMode roundingMode)
     {
-        return from(this.value.setScale(numberOfDecimals, roundingMode));
+        return from(this.bigDecimalValue().setScale(numberOfDecimals, roundingMode));
+    }
+
+    /**
+     * Returns a {@link Decimal} whose value is this value rounded to the precision of the given context.
+     * 
+     * @param context
+     *            The precision and the rounding mode. Might not be <code>null</code>.
+     * @return This {@link Decimal} if it fits the precision of the context, otherwise the rounded value.
+     */
+    public Decimal round(MathContext context)
+    {
+        BigDecimal value = this.bigDecimalValue();
+        BigDecimal rounded = value.round(context);
+        return rounded == value ? this : from(rounded);
     }
 
     /**
@@ -569,14 +882,14 @@ public final class Decimal extends Number implements Comparable<Decimal>, Serial
      */
     public Decimal sum(Iterable<Decimal> decimals)
     {
-        Decimal sum = this;
+        MutableDecimal sum = new MutableDecimal(this);
 
         for (Decimal val : decimals)
         {
-            sum = sum.plus(val);
+            sum.add(val);
         }
 
-        return sum;
+        return sum.toDecimal();
     }
 
     /**
@@ -588,7 +901,33 @@ public final class Decimal extends Number implements Comparable<Decimal>, Serial
      */
     public Decimal times(Decimal multiplicand)
     {
-        return from(this.value.multiply(multiplicand.value));
+        if (isCompact() && multiplicand.isCompact())
+        {
+            long a = unscaled;
+            long b = multiplicand.unscaled;
+            long product = a * b;
+            long productScale = (long) scale + multiplicand.scale;
+
+            if (((Math.abs(a) | Math.abs(b)) >>> 31 == 0 || b == 0 || product / b == a) && product != INFLATED && productScale == (int) productScale)
+            {
+                return of(product, (int) productScale);
+            }
+        }
+        return from(this.bigDecimalValue().multiply(multiplicand.bigDecimalValue()));
+    }
+
+    /**
+     * Returns a {@link Decimal} whose value is (this times {@code multiplicand}), rounded according to the given context.
+     * 
+     * @param multiplicand
+     *            Value to be multiplied by this {@link Decimal}.
+     * @param context
+     *            The precision and the rounding mode of the result. Might not be <code>null</code>.
+     * @return A {@link Decimal} whose value is (this times {@code multiplicand}).
+     */
+    public Decimal times(Decimal multiplicand, MathContext context)
+    {
+        return from(this.bigDecimalValue().multiply(multiplicand.bigDecimalValue(), context));
     }
 
     /**
@@ -618,42 +957,99 @@ public final class Decimal extends Number implements Comparable<Decimal>, Serial
     @Override
     public int compareTo(Decimal that)
     {
-        return this.value.compareTo(that.value);
+        if (isCompact() && that.isCompact())
+        {
+            long x = scale < that.scale ? scaleUp(unscaled, (long) that.scale - scale) : unscaled;
+            long y = that.scale < scale ? scaleUp(that.unscaled, (long) scale - that.scale) : that.unscaled;
+
+            if (x != INFLATED && y != INFLATED)
+            {
+                return x < y ? -1 : x == y ? 0 : 1;
+            }
+        }
+        return this.bigDecimalValue().compareTo(that.bigDecimalValue());
     }
 
     @Override
     public double doubleValue()
     {
-        return this.value.doubleValue();
+        if (isCompact() && Math.abs(unscaled) <= MAX_EXACT_DOUBLE && Math.abs(scale) < DOUBLE_TEN_POWERS.length)
+        {
+            // both operands are exact, so the single operation is correctly rounded, as BigDecimal#doubleValue()
+            return scale >= 0 ? unscaled / DOUBLE_TEN_POWERS[scale] : unscaled * DOUBLE_TEN_POWERS[-scale];
+        }
+        return this.bigDecimalValue().doubleValue();
     }
 
     @Override
     public float floatValue()
     {
-        return this.value.floatValue();
+        return this.bigDecimalValue().floatValue();
     }
 
     @Override
     public int intValue()
     {
-        return this.value.intValue();
+        return isCompact() && scale == 0 ? (int) unscaled : this.bigDecimalValue().intValue();
     }
 
     @Override
     public long longValue()
     {
-        return this.value.longValue();
+        return isCompact() && scale == 0 ? unscaled : this.bigDecimalValue().longValue();
     }
     
+    /**
+     * Returns a hash code that agrees with {@link #equals(Object)}: values that are equal but have a different scale, like 2.0 and 2.00, have
+     * the same hash code. The zero is tested apart because {@link BigDecimal#stripTrailingZeros()} keeps the scale of a zero.
+     * 
+     * @return The hash code of this value.
+     */
     @Override
     public int hashCode()
     {
         final int prime = 31;
         int result = 1;
-        result = prime * result + ((value == null) ? 0 : value.hashCode());
+
+        if (isCompact())
+        {
+            long u = unscaled;
+            long s = scale;
+
+            while (u != 0 && u % 10 == 0)
+            {
+                u /= 10;
+                s--;
+            }
+            result = prime * result + (u == 0 ? 0 : hash(u, s));
+        }
+        else
+        {
+            BigDecimal stripped = inflated.stripTrailingZeros();
+            result = prime * result + (stripped.signum() == 0 ? 0 : stripped.precision() < TEN_POWERS.length ? hash(stripped.unscaledValue()
+                    .longValue(), stripped.scale()) : stripped.hashCode());
+        }
         return result;
     }
 
+    /**
+     * Returns the hash code of a value without trailing zeros.
+     * 
+     * @param u
+     *            The unscaled value, without trailing zeros.
+     * @param s
+     *            The scale of the value.
+     * @return The hash code of the value.
+     */
+    private static int hash(long u, long s)
+    {
+        if (Math.abs(u) >= TEN_POWERS[TEN_POWERS.length - 1] || s != (int) s)
+        {
+            return BigDecimal.valueOf(u, (int) s).hashCode();
+        }
+        return 31 * (int) (u ^ (u >>> 32)) + (int) s;
+    }
+
     @Override
     public boolean equals(Object obj)
     {
@@ -673,7 +1069,7 @@ public final class Decimal extends Number implements Comparable<Decimal>, Serial
     @Override
     public String toString()
     {
-        return this.value.toString();
+        return this.bigDecimalValue().toString();
     }
 
     /**
@@ -683,7 +1079,7 @@ public final class Decimal extends Number implements Comparable<Decimal>, Serial
      */
     public BigInteger bigIntegerValue()
     {
-        return this.value.toBigInteger();
+        return this.bigDecimalValue().toBigInteger();
     }
 
     /**
@@ -693,7 +1089,64 @@ public final class Decimal extends Number implements Comparable<Decimal>, Serial
      */
     public BigDecimal bigDecimalValue()
     {
-        return this.value;
+        if (!isCompact())
+        {
+            return this.inflated;
+        }
+
+        BigDecimal value = this.cache;
+
+        if (value == null)
+        {
+            value = BigDecimal.valueOf(unscaled, scale);
+            this.cache = value;
+        }
+        return value;
+    }
+
+    /**
+     * Writes the value of this {@link Decimal} as a {@link BigDecimal}, so the serialized form does not depend on the representation in memory.
+     * 
+     * @param out
+     *            The stream to write the value.
+     * @throws IOException
+     *             If the value cannot be written.
+     */
+    private void writeObject(ObjectOutputStream out) throws IOException
+    {
+        ObjectOutputStream.PutField fields = out.putFields();
+        fields.put("value", bigDecimalValue());
+        out.writeFields();
+    }
+
+    /**
+     * Reads the value written by {@link #writeObject(ObjectOutputStream)}.
+     * 
+     * @param in
+     *            The stream to read the value.
+     * @throws IOException
+     *             If the value cannot be read.
+     * @throws ClassNotFoundException
+     *             If the class of the value is unknown.
+     */
+    private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException
+    {
+        this.serialized = (BigDecimal) in.readFields().get("value", null);
+
+        if (this.serialized == null)
+        {
+            throw new InvalidObjectException("The value of a Decimal might not be null!");
+        }
+    }
+
+    /**
+     * Replaces the deserialized instance by one with the representation of its value.
+     * 
+     * @return A {@link Decimal} with the deserialized value.
+     */
+    private Object readResolve()
+    {
+        return from(serialized);
     }
 
     /**
@@ -733,7 +1186,7 @@ public final class Decimal extends Number implements Comparable<Decimal>, Serial
      */
     public static Decimal from(long val)
     {
-        return from(BigDecimal.valueOf(val));
+        return val == INFLATED ? from(BigDecimal.valueOf(val)) : of(val, 0);
     }
 
     /**
@@ -759,14 +1212,14 @@ public final class Decimal extends Number implements Comparable<Decimal>, Serial
      */
     public static Decimal sum(Collection<Decimal> decimals)
     {
-        Decimal sum = ZERO;
+        MutableDecimal sum = new MutableDecimal();
 
         for (Decimal val : decimals)
         {
-            sum = sum.plus(val);
+            sum.add(val);
         }
 
-        return sum;
+        return sum.toDecimal();
     }
 
     /**
@@ -0,0 +1,411 @@
+/**
+ * Copyright (C) 2013 - 2015 Contributors.
+ *
+ * FormulaJ is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * FormulaJ is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see [http://www.gnu.org/licenses/].
+ *
+ * Contact: formulaj-user-list@googlegroups.com.
+ */
+package formulaj.expression;
+
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The limits of the work done by one evaluation, so that an untrusted expression cannot hold a thread for a long time: the number of visited
+ * nodes, the precision and the scale of the intermediate values, the exponent of a power and the time of the evaluation. An evaluation that
+ * exceeds a limit is aborted with a {@link BudgetExceededException}.
+ * <p>
+ * A budget is immutable, so the same instance can be shared by many evaluators. Each evaluation takes its own {@link Meter} with
+ * {@link #start()}. The time is checked cooperatively, every {@link #DEADLINE_CHECK_INTERVAL} nodes, so a single operation that takes longer
+ * than the deadline is not interrupted; the limits of the precision and of the exponent bound the time of a single operation.
+ */
+public final class EvaluationBudget
+{
+    /**
+     * The limits of an {@link EvaluationBudget}.
+     */
+    public static enum Limit
+    {
+        /**
+         * The number of nodes visited by an evaluation.
+         */
+        NODE_VISITS,
+
+        /**
+         * The number of digits of a value.
+         */
+        PRECISION,
+
+        /**
+         * The absolute scale of a value.
+         */
+        SCALE,
+
+        /**
+         * The absolute value of an exponent.
+         */
+        EXPONENT,
+
+        /**
+         * The time of an evaluation, in milliseconds.
+         */
+        DEADLINE;
+    }
+
+    /**
+     * The number of visited nodes between two checks of the deadline.
+     */
+    public static final int DEADLINE_CHECK_INTERVAL = 256;
+
+    /**
+     * The budget without limits, used when no one is given.
+     */
+    public static final EvaluationBudget UNLIMITED = new EvaluationBudget(Long.MAX_VALUE, Integer.MAX_VALUE, Integer.MAX_VALUE, Integer.MAX_VALUE,
+            0L);
+
+    /**
+     * The maximum number of visited nodes.
+     */
+    private final long maxNodeVisits;
+
+    /**
+     * The maximum number of digits of a value.
+     */
+    private final int maxPrecision;
+
+    /**
+     * The maximum absolute scale of a value.
+     */
+    private final int maxScale;
+
+    /**
+     * The maximum absolute value of an exponent.
+     */
+    private final int maxExponent;
+
+    /**
+     * The maximum time of an evaluation, in nanoseconds, or zero if there is no deadline.
+     */
+    private final long timeoutNanos;
+
+    /**
+     * Creates an {@link EvaluationBudget}.
+     * 
+     * @param nodeVisits
+     *            The maximum number of visited nodes. It must be positive.
+     * @param precision
+     *            The maximum number of digits of a value. It must be positive.
+     * @param scale
+     *            The maximum absolute scale of a value. It must not be negative.
+     * @param exponent
+     *            The maximum absolute value of an exponent. It must not be negative.
+     * @param timeout
+     *            The maximum time of an evaluation, in nanoseconds, or zero if there is no deadline. It must not be negative.
+     */
+    public EvaluationBudget(long nodeVisits, int precision, int scale, int exponent, long timeout)
+    {
+        if (nodeVisits <= 0 || precision <= 0 || scale < 0 || exponent < 0 || timeout < 0)
+        {
+            throw new IllegalArgumentException(String.format("Invalid budget: nodes=%d, precision=%d, scale=%d, exponent=%d, timeout=%d", nodeVisits,
+                    precision, scale, exponent, timeout));
+        }
+
+        this.maxNodeVisits = nodeVisits;
+        this.maxPrecision = precision;
+        this.maxScale = scale;
+        this.maxExponent = exponent;
+        this.timeoutNanos = timeout;
+    }
+
+    /**
+     * Returns a copy of this budget with another maximum number of visited nodes.
+     * 
+     * @param nodeVisits
+     *            The maximum number of visited nodes. It must be positive.
+     * @return A copy of this budget with the given limit.
+     */
+    public EvaluationBudget withMaxNodeVisits(long nodeVisits)
+    {
+        return new EvaluationBudget(nodeVisits, maxPrecision, maxScale, maxExponent, timeoutNanos);
+    }
+
+    /**
+     * Returns a copy of this budget with another maximum precision of the values.
+     * 
+     * @param precision
+     *            The maximum number of digits of a value. It must be positive.
+     * @return A copy of this budget with the given limit.
+     */
+    public EvaluationBudget withMaxPrecision(int precision)
+    {
+        return new EvaluationBudget(maxNodeVisits, precision, maxScale, maxExponent, timeoutNanos);
+    }
+
+    /**
+     * Returns a copy of this budget with another maximum scale of the values.
+     * 
+     * @param scale
+     *            The maximum absolute scale of a value. It must not be negative.
+     * @return A copy of this budget with the given limit.
+     */
+    public EvaluationBudget withMaxScale(int scale)
+    {
+        return new EvaluationBudget(maxNodeVisits, maxPrecision, scale, maxExponent, timeoutNanos);
+    }
+
+    /**
+     * Returns a copy of this budget with another maximum exponent.
+     * 
+     * @param exponent
+     *            The maximum absolute value of an exponent. It must not be negative.
+     * @return A copy of this budget with the given limit.
+     */
+    public EvaluationBudget withMaxExponent(int exponent)
+    {
+        return new EvaluationBudget(maxNodeVisits, maxPrecision, maxScale, exponent, timeoutNanos);
+    }
+
+    /**
+     * Returns a copy of this budget with another deadline.
+     * 
+     * @param timeout
+     *            The maximum time of an evaluation or zero if there is no deadline. It must not be negative.
+     * @param unit
+     *            The unit of the time. Might not be <code>null</code>.
+     * @return A copy of this budget with the given limit.
+     */
+    public EvaluationBudget withTimeout(long timeout, TimeUnit unit)
+    {
+        return new EvaluationBudget(maxNodeVisits, maxPrecision, maxScale, maxExponent, unit.toNanos(timeout));
+    }
+
+    /**
+     * Returns the maximum number of visited nodes.
+     * 
+     * @return The maximum number of visited nodes.
+     */
+    public long getMaxNodeVisits()
+    {
+        return maxNodeVisits;
+    }
+
+    /**
+     * Returns the maximum number of digits of a value.
+     * 
+     * @return The maximum number of digits of a value.
+     */
+    public int getMaxPrecision()
+    {
+        return maxPrecision;
+    }
+
+    /**
+     * Returns the maximum absolute scale of a value.
+     * 
+     * @return The maximum absolute scale of a value.
+     */
+    public int getMaxScale()
+    {
+        return maxScale;
+    }
+
+    /**
+     * Returns the maximum absolute value of an exponent.
+     * 
+     * @return The maximum absolute value of an exponent.
+     */
+    public int getMaxExponent()
+    {
+        return maxExponent;
+    }
+
+    /**
+     * Returns the maximum time of an evaluation.
+     * 
+     * @return The maximum time of an evaluation, in nanoseconds, or zero if there is no deadline.
+     */
+    public long getTimeoutNanos()
+    {
+        return timeoutNanos;
+    }
+
+    /**
+     * Starts the accounting of an evaluation. The deadline counts from now.
+     * 
+     * @return The {@link Meter} of a new evaluation.
+     */
+    public Meter start()
+    {
+        return new Meter(this);
+    }
+
+    /**
+     * Checks that a value is within the limits of precision and scale.
+     * 
+     * @param value
+     *            The value to be checked. A {@link Computable} is unwrapped and anything else than a {@link Decimal} or a {@link BigDecimal} is
+     *            ignored.
+     * @throws BudgetExceededException
+     *             If the value has more digits or a larger scale than allowed.
+     */
+    public void checkValue(Object value) throws BudgetExceededException
+    {
+        BigDecimal decimal = decimal(value);
+
+        if (decimal != null)
+        {
+            if (decimal.precision() > maxPrecision)
+            {
+                throw new BudgetExceededException(Limit.PRECISION, maxPrecision, decimal.precision());
+            }
+
+            if (Math.abs((long) decimal.scale()) > maxScale)
+            {
+                throw new BudgetExceededException(Limit.SCALE, maxScale, Math.abs((long) decimal.scale()));
+            }
+        }
+    }
+
+    /**
+     * Checks that an exponent is within the limit.
+     * 
+     * @param exponent
+     *            The exponent to be checked. A {@link Computable} is unwrapped and anything else than a {@link Decimal} or a {@link BigDecimal} is
+     *            ignored.
+     * @throws BudgetExceededException
+     *             If the absolute value of the exponent is larger than allowed.
+     */
+    public void checkExponent(Object exponent) throws BudgetExceededException
+    {
+        BigDecimal decimal = decimal(exponent);
+
+        if (decimal != null && decimal.abs().compareTo(BigDecimal.valueOf(maxExponent)) > 0)
+        {
+            long actual = decimal.abs().compareTo(BigDecimal.valueOf(Long.MAX_VALUE)) > 0 ? Long.MAX_VALUE : decimal.abs().longValue();
+            throw new BudgetExceededException(Limit.EXPONENT, maxExponent, actual);
+        }
+    }
+
+    /**
+     * Returns the {@link BigDecimal} of a value.
+     * 
+     * @param value
+     *            The value. A {@link Computable} is unwrapped.
+     * @return The {@link BigDecimal} of the value or <code>null</code> if it's not a {@link Decimal} or a {@link BigDecimal}.
+     */
+    private static BigDecimal decimal(Object value)
+    {
+        Object v = value;
+
+        while (v instanceof Computable)
+        {
+            v = ((Computable<?>) v).getValue();
+        }
+
+        if (v instanceof Decimal)
+        {
+            return ((Decimal) v).bigDecimalValue();
+        }
+        return v instanceof BigDecimal ? (BigDecimal) v : null;
+    }
+
+    /**
+     * The accounting of one evaluation. A {@link Meter} is not thread-safe: it belongs to the thread that evaluates the expression.
+     */
+    public static final class Meter
+    {
+        /**
+         * The limits of the evaluation.
+         */
+        private final EvaluationBudget budget;
+
+        /**
+         * The time when the evaluation started, in nanoseconds.
+         */
+        private final long start;
+
+        /**
+         * The number of nodes visited.
+         */
+        private long visits;
+
+        /**
+         * Creates a {@link Meter}.
+         * 
+         * @param evaluationBudget
+         *            The limits of the evaluation.
+         */
+        private Meter(EvaluationBudget evaluationBudget)
+        {
+            this.budget = evaluationBudget;
+            this.start = evaluationBudget.timeoutNanos > 0 ? System.nanoTime() : 0L;
+        }
+
+        /**
+         * Counts the visit of a node and checks the deadline every {@link EvaluationBudget#DEADLINE_CHECK_INTERVAL} visits.
+         * 
+         * @throws BudgetExceededException
+         *             If the evaluation visited more nodes than allowed or if it passed its deadline.
+         */
+        public void step() throws BudgetExceededException
+        {
+            if (++visits > budget.maxNodeVisits)
+            {
+                throw new BudgetExceededException(Limit.NODE_VISITS, budget.maxNodeVisits, visits);
+            }
+
+            if (budget.timeoutNanos > 0 && visits % DEADLINE_CHECK_INTERVAL == 0)
+            {
+                checkDeadline();
+            }
+        }
+
+        /**
+         * Checks that the evaluation did not pass its deadline.
+         * 
+         * @throws BudgetExceededException
+         *             If the evaluation passed its deadline.
+         */
+        public void checkDeadline() throws BudgetExceededException
+        {
+            long elapsed = System.nanoTime() - start;
+
+            if (budget.timeoutNanos > 0 && elapsed > budget.timeoutNanos)
+            {
+                throw new BudgetExceededException(Limit.DEADLINE, TimeUnit.NANOSECONDS.toMillis(budget.timeoutNanos), TimeUnit.NANOSECONDS
+                        .toMillis(elapsed));
+            }
+        }
+
+        /**
+         * Returns the number of nodes visited.
+         * 
+         * @return The number of nodes visited.
+         */
+        public long getVisits()
+        {
+            return visits;
+        }
+
+        /**
+         * Returns the budget of this evaluation.
+         * 
+         * @return The budget of this evaluation.
+         */
+        public EvaluationBudget getBudget()
+        {
+            return budget;
+        }
+    }
+}
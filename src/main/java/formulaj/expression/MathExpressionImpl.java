@@ -27,17 +27,33 @@ import formulaj.Expression;
 import formulaj.MathExpression;
 import formulaj.common.base.ClassUtils;
 import formulaj.common.base.Strings;
+import formulaj.expression.compiler.CompiledExpression;
+import formulaj.expression.compiler.ExpressionCache;
 import formulaj.expression.evaluator.Evaluator;
 import formulaj.expression.evaluator.impl.Evaluators;
+import formulaj.expression.evaluator.impl.ExpressionEvaluator;
 import formulaj.expression.function.Function;
 import formulaj.expression.function.Functions;
+import formulaj.expression.parser.RecognitionException;
 
 public final class MathExpressionImpl<T> implements MathExpression<T>
 {
     /**
      * The math expression to be evaluated.
      */
-    private StringBuilder expression;
+    private final String expression;
+
+    /**
+     * The tree of an expression composed by {@link #divide(MathExpression)}, {@link #multiply(MathExpression)} or {@link #pow(MathExpression)}.
+     * It's <code>null</code> if the expression was created from its text, which is compiled by the evaluator.
+     */
+    private final CompiledExpression<T> compiled;
+
+    /**
+     * The compiled form of an expression created from its text that calls a stateful function, kept so that the state of its calls belongs
+     * to this expression. It's <code>null</code> until the expression is compiled.
+     */
+    private volatile CompiledExpression<T> stateful;
 
     /**
      * The expression evaluator to be used when no one had be defined.
@@ -78,14 +94,69 @@ public final class MathExpressionImpl<T> implements MathExpression<T>
      */
     public MathExpressionImpl(String mathExpression, Evaluator<Expression<T>, Value<T>> eval)
     {
-        this.expression = new StringBuilder(mathExpression);
+        this.expression = mathExpression;
+        this.compiled = null;
+        this.evaluator = eval;
+    }
+
+    /**
+     * Creates a {@link MathExpression} from an expression already compiled.
+     * 
+     * @param compiledExpression
+     *            The compiled expression. Might not be <code>null</code>.
+     * @param eval
+     *            The {@link Evaluator} to be used in the evaluation process. Might not be <code>null</code>.
+     */
+    private MathExpressionImpl(CompiledExpression<T> compiledExpression, Evaluator<Expression<T>, Value<T>> eval)
+    {
+        this.expression = compiledExpression.expression();
+        this.compiled = compiledExpression;
         this.evaluator = eval;
     }
 
     @Override
     public String expression()
     {
-        return this.expression.toString();
+        return this.expression;
+    }
+
+    /**
+     * Returns the compiled form of this expression. The tree of a composed expression is returned as is, and the text of the other ones is
+     * compiled by the given cache. The tree of an expression that keeps state between the evaluations is compiled once and kept by this
+     * expression.
+     * 
+     * @param cache
+     *            The cache that compiles the text of this expression. Might not be <code>null</code>.
+     * @return The compiled form of this expression.
+     * @throws RecognitionException
+     *             If the text of this expression is invalid.
+     */
+    public CompiledExpression<T> compile(ExpressionCache cache) throws RecognitionException
+    {
+        if (this.compiled != null)
+        {
+            return this.compiled;
+        }
+
+        CompiledExpression<T> tree = this.stateful;
+
+        if (tree == null)
+        {
+            tree = cache.<T> get(this.expression);
+
+            if (tree.hasState())
+            {
+                synchronized (this)
+                {
+                    if (this.stateful == null)
+                    {
+                        this.stateful = tree;
+                    }
+                    tree = this.stateful;
+                }
+            }
+        }
+        return tree;
     }
 
     @Override
@@ -110,39 +181,132 @@ public final class MathExpressionImpl<T> implements MathExpression<T>
             eval.register(var);
         }
 
-        Value<T> result = eval.eval(this);
-        this.variables.putAll(eval.variables());
-        return result;
+        return this.evaluate0(eval);
     }
 
     @Override
     public Value<T> evaluate() throws EvaluationException
     {
-        Value<T> result = this.evaluator.eval(this);
-        this.variables.putAll(this.evaluator.variables());
+        return this.evaluate0(this.evaluator);
+    }
+
+    /**
+     * Evaluates this expression and keeps the variables that it assigns. The other variables of the evaluator are not kept, so evaluating the
+     * same expression many times does not grow its state.
+     * 
+     * @param eval
+     *            The {@link Evaluator} to be used.
+     * @return The value of this expression.
+     * @throws EvaluationException
+     *             If the expression is invalid.
+     */
+    private Value<T> evaluate0(Evaluator<Expression<T>, Value<T>> eval) throws EvaluationException
+    {
+        Map<String, Variable<?>> before = new HashMap<>(eval.variables());
+        Value<T> result = eval.eval(this);
+
+        for (Variable<?> var : eval.variables().values())
+        {
+            if (before.get(var.name()) != var)
+            {
+                this.variables.put(var.name(), var);
+            }
+        }
 
         return result;
     }
 
+    /**
+     * Returns a new expression that applies a binary operator to this expression and another one. The compiled trees of both expressions are
+     * joined as the operands of the operator, without parsing them again, and the new expression has the variables of both. It's evaluated by
+     * a new evaluator like the one of this expression, with the same cache and budget, and keeps the precision policy of the operands. Neither
+     * this expression nor the other one is modified.
+     * 
+     * @param operator
+     *            The symbol of the operator.
+     * @param other
+     *            The right operand. Might not be <code>null</code>.
+     * @return A new expression with the value of <code>(this) operator (other)</code>.
+     * @throws IllegalArgumentException
+     *             If the text of an operand is invalid, if an operand is an assignment or if the operands have different precision policies.
+     */
+    private MathExpression<T> compose(String operator, MathExpression<T> other)
+    {
+        Evaluator<Expression<T>, Value<T>> eval = this.evaluator instanceof ExpressionEvaluator ? ((ExpressionEvaluator<T>) this.evaluator)
+                .newInstance() : Evaluators.<Expression<T>, Value<T>> get(MathExpression.class);
+        MathExpressionImpl<T> composed = new MathExpressionImpl<>(CompiledExpression.combine(compiled(this), operator, compiled(other)), eval);
+        composed.merge(this);
+
+        if (other instanceof MathExpressionImpl)
+        {
+            composed.merge((MathExpressionImpl<T>) other);
+        }
+        else
+        {
+            for (Variable<?> var : other.variables())
+            {
+                composed.variables.put(var.name(), var);
+            }
+        }
+
+        return composed;
+    }
+
+    /**
+     * Returns the compiled form of an operand, compiling its text without caching it if it was not composed.
+     * 
+     * @param operand
+     *            The operand. Might not be <code>null</code>.
+     * @param <T>
+     *            The type of the value returned by the expression.
+     * @return The compiled form of the operand.
+     * @throws IllegalArgumentException
+     *             If the text of the operand is invalid.
+     */
+    private static <T> CompiledExpression<T> compiled(MathExpression<T> operand)
+    {
+        try
+        {
+            return operand instanceof MathExpressionImpl ? ((MathExpressionImpl<T>) operand).compile(new ExpressionCache(0)) : CompiledExpression
+                    .<T> compile(operand.expression());
+        }
+        catch (RecognitionException exception)
+        {
+            throw new IllegalArgumentException(String.format("The expression %s is invalid!", operand.expression()), exception);
+        }
+    }
+
+    /**
+     * Copies the variables registered in another expression and the ones that it assigned to this expression.
+     * 
+     * @param other
+     *            The expression whose variables are copied.
+     */
+    private void merge(MathExpressionImpl<T> other)
+    {
+        for (Variable<?> var : other.evaluator.variables().values())
+        {
+            this.evaluator.register(var);
+        }
+        this.variables.putAll(other.variables);
+    }
+
     @Override
     public MathExpression<T> divide(MathExpression<T> divisor)
     {
-        this.expression.append("/").append(divisor.expression());
-        return this;
+        return this.compose("/", divisor);
     }
 
     @Override
     public MathExpression<T> multiply(MathExpression<T> multiplicand)
     {
-        this.expression.append("*").append(multiplicand.expression());
-        return this;
+        return this.compose("*", multiplicand);
     }
 
     @Override
     public MathExpression<T> pow(MathExpression<T> exp)
     {
-        this.expression.append("^").append(exp.expression());
-        return this;
+        return this.compose("^", exp);
     }
 
     @Override
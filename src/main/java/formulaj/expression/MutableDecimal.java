@@ -0,0 +1,260 @@
+/**
+ * Copyright (C) 2013 - 2015 Contributors.
+ *
+ * FormulaJ is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * FormulaJ is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see [http://www.gnu.org/licenses/].
+ *
+ * Contact: formulaj-user-list@googlegroups.com.
+ */
+package formulaj.expression;
+
+import java.math.BigDecimal;
+
+/**
+ * A mutable accumulator of {@link Decimal} values. While the value fits a <code>long</code> with a scale, as the {@link Decimal}s it adds,
+ * the operations update it in place without creating any object; otherwise it falls back to a {@link BigDecimal}, and comes back to the
+ * compact form when the value fits again. The additions are exact, so the order of the values does not change the result.
+ * <p>
+ * An instance is not thread-safe: each thread accumulates its own values and the partial results are added with {@link #add(MutableDecimal)}.
+ */
+public final class MutableDecimal
+{
+    /**
+     * The unscaled value, if it fits a <code>long</code>, or {@link Decimal#INFLATED}.
+     */
+    private long unscaled;
+
+    /**
+     * The scale of a compact value.
+     */
+    private int scale;
+
+    /**
+     * The value if its unscaled value does not fit a <code>long</code>; otherwise <code>null</code>.
+     */
+    private BigDecimal inflated;
+
+    /**
+     * Creates a {@link MutableDecimal} whose value is zero.
+     */
+    public MutableDecimal()
+    {
+        this.reset();
+    }
+
+    /**
+     * Creates a {@link MutableDecimal} with an initial value.
+     * 
+     * @param initial
+     *            The initial value. Might not be <code>null</code>.
+     */
+    public MutableDecimal(Decimal initial)
+    {
+        this.set(initial);
+    }
+
+    /**
+     * Sets the value to zero.
+     * 
+     * @return This accumulator.
+     */
+    public MutableDecimal reset()
+    {
+        this.unscaled = 0;
+        this.scale = 0;
+        this.inflated = null;
+        return this;
+    }
+
+    /**
+     * Sets the value.
+     * 
+     * @param value
+     *            The new value. Might not be <code>null</code>.
+     * @return This accumulator.
+     */
+    public MutableDecimal set(Decimal value)
+    {
+        this.unscaled = value.compactUnscaled();
+        this.scale = value.compactScale();
+        this.inflated = unscaled == Decimal.INFLATED ? value.bigDecimalValue() : null;
+        return this;
+    }
+
+    /**
+     * Adds a value.
+     * 
+     * @param value
+     *            The value to be added. Might not be <code>null</code>.
+     * @return This accumulator.
+     */
+    public MutableDecimal add(Decimal value)
+    {
+        long u = value.compactUnscaled();
+
+        if (u == Decimal.INFLATED || !add(u, value.compactScale()))
+        {
+            inflate(value.bigDecimalValue());
+        }
+        return this;
+    }
+
+    /**
+     * Subtracts a value.
+     * 
+     * @param value
+     *            The value to be subtracted. Might not be <code>null</code>.
+     * @return This accumulator.
+     */
+    public MutableDecimal subtract(Decimal value)
+    {
+        long u = value.compactUnscaled();
+
+        if (u == Decimal.INFLATED || !add(-u, value.compactScale()))
+        {
+            inflate(value.bigDecimalValue().negate());
+        }
+        return this;
+    }
+
+    /**
+     * Adds the value of another accumulator.
+     * 
+     * @param other
+     *            The accumulator whose value is added. It's not changed.
+     * @return This accumulator.
+     */
+    public MutableDecimal add(MutableDecimal other)
+    {
+        if (other.inflated != null || !add(other.unscaled, other.scale))
+        {
+            inflate(other.bigDecimalValue());
+        }
+        return this;
+    }
+
+    /**
+     * Adds the product of two values, without creating the {@link Decimal} of the product.
+     * 
+     * @param multiplier
+     *            The first factor. Might not be <code>null</code>.
+     * @param multiplicand
+     *            The second factor. Might not be <code>null</code>.
+     * @return This accumulator.
+     */
+    public MutableDecimal multiplyAdd(Decimal multiplier, Decimal multiplicand)
+    {
+        long a = multiplier.compactUnscaled();
+        long b = multiplicand.compactUnscaled();
+
+        if (a != Decimal.INFLATED && b != Decimal.INFLATED)
+        {
+            long product = a * b;
+            long productScale = (long) multiplier.compactScale() + multiplicand.compactScale();
+
+            if (((Math.abs(a) | Math.abs(b)) >>> 31 == 0 || b == 0 || product / b == a) && product != Decimal.INFLATED
+                    && productScale == (int) productScale && add(product, (int) productScale))
+            {
+                return this;
+            }
+        }
+
+        inflate(multiplier.bigDecimalValue().multiply(multiplicand.bigDecimalValue()));
+        return this;
+    }
+
+    /**
+     * Adds a compact value in place, if both this value and the sum fit a <code>long</code>.
+     * 
+     * @param u
+     *            The unscaled value to be added. It must not be {@link Decimal#INFLATED}.
+     * @param s
+     *            The scale of the value to be added.
+     * @return <code>true</code> if the value was added; <code>false</code> if this value is not changed.
+     */
+    private boolean add(long u, int s)
+    {
+        if (inflated != null)
+        {
+            return false;
+        }
+
+        long x = scale < s ? Decimal.scaleUp(unscaled, (long) s - scale) : unscaled;
+        long y = s < scale ? Decimal.scaleUp(u, (long) scale - s) : u;
+
+        if (x == Decimal.INFLATED || y == Decimal.INFLATED)
+        {
+            return false;
+        }
+
+        long sum = x + y;
+
+        if (((x ^ sum) & (y ^ sum)) < 0 || sum == Decimal.INFLATED)
+        {
+            return false;
+        }
+
+        this.unscaled = sum;
+        this.scale = Math.max(scale, s);
+        return true;
+    }
+
+    /**
+     * Adds a value with the arithmetic of {@link BigDecimal}, and returns to the compact form if the sum fits a <code>long</code>.
+     * 
+     * @param value
+     *            The value to be added.
+     */
+    private void inflate(BigDecimal value)
+    {
+        BigDecimal sum = bigDecimalValue().add(value);
+
+        if (Decimal.isCompact(sum))
+        {
+            this.unscaled = sum.unscaledValue().longValue();
+            this.scale = sum.scale();
+            this.inflated = null;
+        }
+        else
+        {
+            this.unscaled = Decimal.INFLATED;
+            this.inflated = sum;
+        }
+    }
+
+    /**
+     * Returns the current value as a {@link BigDecimal}.
+     * 
+     * @return The current value.
+     */
+    public BigDecimal bigDecimalValue()
+    {
+        return inflated != null ? inflated : BigDecimal.valueOf(unscaled, scale);
+    }
+
+    /**
+     * Returns the current value as an immutable {@link Decimal}.
+     * 
+     * @return The current value.
+     */
+    public Decimal toDecimal()
+    {
+        return inflated != null ? Decimal.from(inflated) : Decimal.of(unscaled, scale);
+    }
+
+    @Override
+    public String toString()
+    {
+        return bigDecimalValue().toString();
+    }
+}
@@ -0,0 +1,275 @@
+/**
+ * Copyright (C) 2013 - 2015 Contributors.
+ *
+ * FormulaJ is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * FormulaJ is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see [http://www.gnu.org/licenses/].
+ *
+ * Contact: formulaj-user-list@googlegroups.com.
+ */
+package formulaj.expression;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.MathContext;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * The {@link MathContext} of the {@link Decimal} arithmetic: the number of significant digits and the rounding mode of the results. A policy
+ * has a context for all operators and, optionally, a context for each operator symbol, such as <code>/</code> or <code>^</code>.
+ * <p>
+ * The policy of an evaluation is the one given to the expression (see
+ * {@link formulaj.expression.compiler.CompiledExpression#withPrecision(PrecisionPolicy)}) or, if there isn't one, the global
+ * {@link #getDefault()} policy. The {@link #DEFAULT} policy keeps the exact results of addition, subtraction, multiplication and power, and
+ * rounds the quotients that do not terminate, such as <code>1/3</code>, to {@link MathContext#DECIMAL128}. A bounded policy, such as
+ * <code>PrecisionPolicy.of(MathContext.DECIMAL64)</code>, bounds the size of every intermediate value and so the cost of long formulas.
+ * <p>
+ * A policy is immutable.
+ */
+public final class PrecisionPolicy
+{
+    /**
+     * The policy with exact results, except for the quotients, which are rounded to {@link MathContext#DECIMAL128}.
+     */
+    public static final PrecisionPolicy DEFAULT = of(MathContext.UNLIMITED).withOperator("/", MathContext.DECIMAL128);
+
+    /**
+     * The global policy.
+     */
+    private static volatile PrecisionPolicy global = DEFAULT;
+
+    /**
+     * The policy of the evaluation running in the current thread, if it's not the global one.
+     */
+    private static final ThreadLocal<PrecisionPolicy> CURRENT = new ThreadLocal<>();
+
+    /**
+     * The context of the operators without their own context.
+     */
+    private final MathContext context;
+
+    /**
+     * The context of each operator symbol.
+     */
+    private final Map<String, MathContext> operators;
+
+    /**
+     * The hash code of this policy, computed once because the policy is part of the keys of the caches of the evaluations.
+     */
+    private final int hash;
+
+    /**
+     * Creates a {@link PrecisionPolicy}.
+     * 
+     * @param mathContext
+     *            The context of the operators without their own context.
+     * @param operatorContexts
+     *            The context of each operator symbol.
+     */
+    private PrecisionPolicy(MathContext mathContext, Map<String, MathContext> operatorContexts)
+    {
+        this.context = mathContext;
+        this.operators = operatorContexts;
+        this.hash = 31 * mathContext.hashCode() + operatorContexts.hashCode();
+    }
+
+    /**
+     * Returns a policy that applies the same {@link MathContext} to all operators.
+     * 
+     * @param context
+     *            The context of the operators. Might not be <code>null</code>.
+     * @return A policy with the given context.
+     */
+    public static PrecisionPolicy of(MathContext context)
+    {
+        return new PrecisionPolicy(Objects.requireNonNull(context), Collections.<String, MathContext> emptyMap());
+    }
+
+    /**
+     * Returns a copy of this policy with the context of an operator.
+     * 
+     * @param symbol
+     *            The symbol of the operator, such as <code>/</code>. Might not be <code>null</code>.
+     * @param operatorContext
+     *            The context of the operator. Might not be <code>null</code>.
+     * @return A copy of this policy with the given context for the operator.
+     */
+    public PrecisionPolicy withOperator(String symbol, MathContext operatorContext)
+    {
+        Map<String, MathContext> contexts = new HashMap<>(operators);
+        contexts.put(Objects.requireNonNull(symbol), Objects.requireNonNull(operatorContext));
+        return new PrecisionPolicy(context, Collections.unmodifiableMap(contexts));
+    }
+
+    /**
+     * Returns the context of the operators without their own context and of the functions' values.
+     * 
+     * @return The context of the operators without their own context.
+     */
+    public MathContext context()
+    {
+        return context;
+    }
+
+    /**
+     * Returns the context of an operator.
+     * 
+     * @param symbol
+     *            The symbol of the operator.
+     * @return The context of the given operator or {@link #context()} if the operator does not have its own context.
+     */
+    public MathContext context(String symbol)
+    {
+        MathContext operatorContext = operators.get(symbol);
+        return operatorContext == null ? context : operatorContext;
+    }
+
+    /**
+     * Rounds a value to the {@link #context()} of this policy.
+     * 
+     * @param value
+     *            The value to be rounded. It may be <code>null</code>.
+     * @return The rounded value, which is the same instance if it already fits the context.
+     */
+    public Decimal round(Decimal value)
+    {
+        return value == null || context.getPrecision() == 0 ? value : value.round(context);
+    }
+
+    /**
+     * Converts the value of an operand or of a function's argument to a {@link Decimal} rounded to the {@link #context()} of this policy. The
+     * numbers are converted without parsing their text.
+     * 
+     * @param value
+     *            The value to be converted. Might not be <code>null</code>.
+     * @return The value as a {@link Decimal}.
+     * @throws NumberFormatException
+     *             If the value is not a number.
+     */
+    public Decimal toDecimal(Object value)
+    {
+        Decimal decimal;
+
+        if (value instanceof Decimal)
+        {
+            decimal = (Decimal) value;
+        }
+        else if (value instanceof BigDecimal)
+        {
+            decimal = Decimal.from((BigDecimal) value);
+        }
+        else if (value instanceof BigInteger)
+        {
+            decimal = Decimal.from(new BigDecimal((BigInteger) value));
+        }
+        else if (value instanceof Long || value instanceof Integer || value instanceof Short || value instanceof Byte)
+        {
+            decimal = Decimal.from(((Number) value).longValue());
+        }
+        else if (value instanceof Double || value instanceof Float)
+        {
+            decimal = Decimal.from(((Number) value).doubleValue());
+        }
+        else
+        {
+            decimal = Decimal.from(value.toString());
+        }
+        return round(decimal);
+    }
+
+    /**
+     * Returns the global policy, used by the evaluations without a policy of their own.
+     * 
+     * @return The global policy.
+     */
+    public static PrecisionPolicy getDefault()
+    {
+        return global;
+    }
+
+    /**
+     * Defines the global policy, used by the evaluations without a policy of their own.
+     * 
+     * @param policy
+     *            The global policy. Might not be <code>null</code>.
+     */
+    public static void setDefault(PrecisionPolicy policy)
+    {
+        global = Objects.requireNonNull(policy);
+    }
+
+    /**
+     * Returns the policy of the evaluation running in the current thread or the global one.
+     * 
+     * @return The policy of the current evaluation.
+     */
+    public static PrecisionPolicy current()
+    {
+        PrecisionPolicy policy = CURRENT.get();
+        return policy == null ? global : policy;
+    }
+
+    /**
+     * Defines the policy of the evaluation running in the current thread. The caller must restore the previous policy when the evaluation
+     * finishes.
+     * 
+     * @param policy
+     *            The policy of the evaluation or <code>null</code> to use the global one.
+     * @return The previous policy of the current thread, which is <code>null</code> if it was the global one.
+     */
+    public static PrecisionPolicy enter(PrecisionPolicy policy)
+    {
+        PrecisionPolicy previous = CURRENT.get();
+
+        if (policy == null)
+        {
+            CURRENT.remove();
+        }
+        else
+        {
+            CURRENT.set(policy);
+        }
+        return previous;
+    }
+
+    @Override
+    public int hashCode()
+    {
+        return hash;
+    }
+
+    @Override
+    public boolean equals(Object obj)
+    {
+        if (this == obj)
+        {
+            return true;
+        }
+
+        if (!(obj instanceof PrecisionPolicy))
+        {
+            return false;
+        }
+
+        PrecisionPolicy other = (PrecisionPolicy) obj;
+        return context.equals(other.context) && operators.equals(other.operators);
+    }
+
+    @Override
+    public String toString()
+    {
+        return operators.isEmpty() ? context.toString() : context + " " + operators;
+    }
+}
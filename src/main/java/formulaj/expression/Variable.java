@@ -18,6 +18,10 @@
  */
 package formulaj.expression;
 
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CopyOnWriteArrayList;
+
 import formulaj.common.base.Strings;
 
 public class Variable<T> implements Computable<Value<T>>
@@ -30,7 +34,12 @@ public class Variable<T> implements Computable<Value<T>>
     /**
      * The value of the variable.
      */
-    private Value<T> value;
+    private volatile Value<T> value;
+
+    /**
+     * The listeners of the value's changes. It's created when the first listener is added.
+     */
+    private volatile List<VariableListener<T>> listeners;
 
     /***
      * The type of the variable.
@@ -114,7 +123,52 @@ public class Variable<T> implements Computable<Value<T>>
      */
     public void setValue(Value<T> newValue)
     {
+        Value<T> oldValue = this.value;
         this.value = newValue;
+
+        List<VariableListener<T>> toNotify = this.listeners;
+
+        if (toNotify != null)
+        {
+            for (VariableListener<T> listener : toNotify)
+            {
+                listener.valueChanged(this, oldValue, newValue);
+            }
+        }
+    }
+
+    /**
+     * Adds a listener to be notified when a new value is assigned to this variable.
+     * 
+     * @param listener
+     *            The listener to be added. Might not be <code>null</code>.
+     */
+    public void addListener(VariableListener<T> listener)
+    {
+        Objects.requireNonNull(listener);
+
+        synchronized (this)
+        {
+            if (listeners == null)
+            {
+                listeners = new CopyOnWriteArrayList<>();
+            }
+        }
+
+        listeners.add(listener);
+    }
+
+    /**
+     * Removes a listener of this variable.
+     * 
+     * @param listener
+     *            The listener to be removed.
+     * @return <code>true</code> if the listener was registered.
+     */
+    public boolean removeListener(VariableListener<T> listener)
+    {
+        List<VariableListener<T>> registered = this.listeners;
+        return registered != null && registered.remove(listener);
     }
 
     /**
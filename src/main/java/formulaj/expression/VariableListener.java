@@ -0,0 +1,41 @@
+/**
+ * Copyright (C) 2013 - 2015 Contributors.
+ *
+ * FormulaJ is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * FormulaJ is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see [http://www.gnu.org/licenses/].
+ *
+ * Contact: formulaj-user-list@googlegroups.com.
+ */
+package formulaj.expression;
+
+/**
+ * Receives the changes of the value of a {@link Variable}.
+ * 
+ * @param <T>
+ *            The type of the variable's value.
+ */
+public interface VariableListener<T>
+{
+    /**
+     * Notifies that a new value was assigned to a variable. It's called by the thread that assigned the value.
+     * 
+     * @param variable
+     *            The variable whose value changed.
+     * @param oldValue
+     *            The previous value of the variable. It may be <code>null</code>.
+     * @param newValue
+     *            The value assigned to the variable, which might not be its value anymore if another thread assigned it again. It may be
+     *            <code>null</code>.
+     */
+    void valueChanged(Variable<T> variable, Value<T> oldValue, Value<T> newValue);
+}
@@ -0,0 +1,82 @@
+/**
+ * Copyright (C) 2013 - 2015 Contributors.
+ *
+ * FormulaJ is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * FormulaJ is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see [http://www.gnu.org/licenses/].
+ *
+ * Contact: formulaj-user-list@googlegroups.com.
+ */
+package formulaj.expression.batch;
+
+import formulaj.expression.function.Function;
+import formulaj.expression.function.math.Max;
+import formulaj.expression.function.math.Min;
+import formulaj.expression.function.math.Sum;
+
+/**
+ * The aggregations computed for each group by a {@link GroupedAggregation}. The rows without a value ({@link Double#NaN} or missing in a
+ * {@link NullableColumn}) are not aggregated.
+ */
+public enum Aggregation
+{
+    /**
+     * The number of values of the group.
+     */
+    COUNT,
+
+    /**
+     * The sum of the values of the group, as the {@link Sum} function.
+     */
+    SUM,
+
+    /**
+     * The average of the values of the group.
+     */
+    AVG,
+
+    /**
+     * The smallest value of the group, as the {@link Min} function.
+     */
+    MIN,
+
+    /**
+     * The largest value of the group, as the {@link Max} function.
+     */
+    MAX;
+
+    /**
+     * Returns the aggregation that computes a function over the values of a group.
+     * 
+     * @param function
+     *            The {@link Sum}, {@link Min} or {@link Max} function, as registered in {@link formulaj.expression.function.Functions}.
+     * @return The aggregation of the given function.
+     * @throws IllegalArgumentException
+     *             If the function is not an aggregation.
+     */
+    public static Aggregation of(Function<?> function)
+    {
+        if (function instanceof Sum)
+        {
+            return SUM;
+        }
+        else if (function instanceof Min)
+        {
+            return MIN;
+        }
+        else if (function instanceof Max)
+        {
+            return MAX;
+        }
+        throw new IllegalArgumentException(String.format("The function %s is not an aggregation!", function.name()));
+    }
+}
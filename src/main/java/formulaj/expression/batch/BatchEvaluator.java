@@ -0,0 +1,46 @@
+/**
+ * Copyright (C) 2013 - 2015 Contributors.
+ *
+ * FormulaJ is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * FormulaJ is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see [http://www.gnu.org/licenses/].
+ *
+ * Contact: formulaj-user-list@googlegroups.com.
+ */
+package formulaj.expression.batch;
+
+import java.util.Map;
+
+import formulaj.expression.EvaluationException;
+import formulaj.expression.compiler.CompiledExpression;
+
+/**
+ * Evaluates an expression over many rows at once. Each variable of the expression is bound to a {@link Column} and the value of each row is
+ * written in the same position of an output array.
+ */
+public interface BatchEvaluator
+{
+    /**
+     * Evaluates an expression for each row of its columns.
+     * 
+     * @param expression
+     *            The expression to be evaluated. Might not be <code>null</code>.
+     * @param columns
+     *            The columns of the expression's variables. The key is the variable's name. Each column must have at least
+     *            <code>output.length</code> rows.
+     * @param output
+     *            The array that receives the values. Its length is the number of rows evaluated.
+     * @throws EvaluationException
+     *             If the expression uses an undefined variable or function.
+     */
+    void evaluate(CompiledExpression<?> expression, Map<String, ? extends Column> columns, double[] output) throws EvaluationException;
+}
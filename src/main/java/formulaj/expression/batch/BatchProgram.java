@@ -0,0 +1,823 @@
+/**
+ * Copyright (C) 2013 - 2015 Contributors.
+ *
+ * FormulaJ is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * FormulaJ is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see [http://www.gnu.org/licenses/].
+ *
+ * Contact: formulaj-user-list@googlegroups.com.
+ */
+package formulaj.expression.batch;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import formulaj.expression.Computable;
+import formulaj.expression.Decimal;
+import formulaj.expression.EvaluationException;
+import formulaj.expression.UndefinedFunctionException;
+import formulaj.expression.UndefinedVariableException;
+import formulaj.expression.Value;
+import formulaj.expression.compiler.CompiledExpression;
+import formulaj.expression.function.Function;
+import formulaj.expression.function.Functions;
+import formulaj.expression.function.math.Abs;
+import formulaj.expression.function.math.Acos;
+import formulaj.expression.function.math.Asin;
+import formulaj.expression.function.math.Atan;
+import formulaj.expression.function.math.Atan2;
+import formulaj.expression.function.math.Ceil;
+import formulaj.expression.function.math.Cos;
+import formulaj.expression.function.math.Floor;
+import formulaj.expression.function.math.Log;
+import formulaj.expression.function.math.Max;
+import formulaj.expression.function.math.Min;
+import formulaj.expression.function.math.Pi;
+import formulaj.expression.function.math.Pow;
+import formulaj.expression.function.math.Round;
+import formulaj.expression.function.math.Sin;
+import formulaj.expression.function.math.Sqrt;
+import formulaj.expression.function.math.Square;
+import formulaj.expression.function.math.StatefulFunction;
+import formulaj.expression.function.math.Tan;
+import formulaj.expression.operators.Operator;
+import formulaj.expression.operators.Operators;
+import formulaj.expression.operators.arithmetical.AdditionOperator;
+import formulaj.expression.operators.arithmetical.DivisionOperator;
+import formulaj.expression.operators.arithmetical.ExponentialOperator;
+import formulaj.expression.operators.arithmetical.ModulusOperator;
+import formulaj.expression.operators.arithmetical.MultiplicationOperator;
+import formulaj.expression.operators.arithmetical.SubtractionOperator;
+import formulaj.expression.operators.logical.BooleanAndOperator;
+import formulaj.expression.operators.logical.BooleanNotOperator;
+import formulaj.expression.operators.logical.BooleanOrOperator;
+import formulaj.expression.operators.relational.EqualOperator;
+import formulaj.expression.operators.relational.GreaterThanOperator;
+import formulaj.expression.operators.relational.GreaterThanOrEqualOperator;
+import formulaj.expression.operators.relational.LessThanOperator;
+import formulaj.expression.operators.relational.LessThanOrEqualOperator;
+import formulaj.expression.operators.relational.NotEqualOperator;
+import formulaj.expression.parser.AST;
+import formulaj.expression.token.AssignToken;
+import formulaj.expression.token.BinaryOperatorToken;
+import formulaj.expression.token.FunctionToken;
+import formulaj.expression.token.NumberToken;
+import formulaj.expression.token.UnaryToken;
+import formulaj.expression.token.VarToken;
+
+/**
+ * The postfix program of a {@link CompiledExpression} for batch evaluation. Each variable of the expression is bound to a {@link Column} and
+ * the program is executed over blocks of rows: every instruction processes all rows of the block before the next one starts, writing its result
+ * in a vector of a stack of scratch vectors. The built-in operators and functions run as {@link VectorKernels} over the vectors; the other
+ * operators and functions are called row by row through their {@link Operator} and {@link Function} instances.
+ * <p>
+ * The batch evaluation uses <code>double</code> arithmetic, so its results might differ from the {@link Decimal} results in the last digits. As
+ * in the {@link Decimal} evaluation, the exponent of a power is truncated to an integer.
+ * <p>
+ * A {@link BatchProgram} is immutable, so it can be executed by many threads at the same time.
+ */
+public final class BatchProgram
+{
+    /**
+     * The default number of rows of a block.
+     */
+    public static final int DEFAULT_BLOCK_SIZE = 1024;
+
+    /**
+     * Pushes the values of a column. The operand is the index of the column.
+     */
+    static final int LOAD = 0;
+
+    /**
+     * Pushes a constant. The operand is the index of the constant.
+     */
+    static final int CONST = 1;
+
+    /**
+     * Calls a function row by row. The operand is the index of the function.
+     */
+    static final int CALL = 2;
+
+    /**
+     * Applies an operator row by row. The operand is the index of the operator.
+     */
+    static final int APPLY = 3;
+
+    /**
+     * Applies a {@link VectorOperation} with the {@link VectorKernels}. The operand is the ordinal of the operation.
+     */
+    static final int VECTOR = 4;
+
+    /**
+     * The vector operation of the built-in binary operators. The key is the operator's class.
+     */
+    private static final Map<Class<?>, VectorOperation> BINARY_OPERATORS = new HashMap<>();
+
+    /**
+     * The vector operation of the built-in functions. The key is the function's class.
+     */
+    private static final Map<Class<?>, VectorOperation> FUNCTIONS = new HashMap<>();
+
+    /**
+     * The vector operations. The index is the operation's ordinal.
+     */
+    private static final VectorOperation[] OPERATIONS = VectorOperation.values();
+
+    static
+    {
+        BINARY_OPERATORS.put(AdditionOperator.class, VectorOperation.ADD);
+        BINARY_OPERATORS.put(SubtractionOperator.class, VectorOperation.SUB);
+        BINARY_OPERATORS.put(MultiplicationOperator.class, VectorOperation.MUL);
+        BINARY_OPERATORS.put(DivisionOperator.class, VectorOperation.DIV);
+        BINARY_OPERATORS.put(ModulusOperator.class, VectorOperation.MOD);
+        BINARY_OPERATORS.put(ExponentialOperator.class, VectorOperation.POW);
+        BINARY_OPERATORS.put(EqualOperator.class, VectorOperation.EQ);
+        BINARY_OPERATORS.put(NotEqualOperator.class, VectorOperation.NE);
+        BINARY_OPERATORS.put(LessThanOperator.class, VectorOperation.LT);
+        BINARY_OPERATORS.put(LessThanOrEqualOperator.class, VectorOperation.LE);
+        BINARY_OPERATORS.put(GreaterThanOperator.class, VectorOperation.GT);
+        BINARY_OPERATORS.put(GreaterThanOrEqualOperator.class, VectorOperation.GE);
+        BINARY_OPERATORS.put(BooleanAndOperator.class, VectorOperation.AND);
+        BINARY_OPERATORS.put(BooleanOrOperator.class, VectorOperation.OR);
+
+        FUNCTIONS.put(Abs.class, VectorOperation.ABS);
+        FUNCTIONS.put(Acos.class, VectorOperation.ACOS);
+        FUNCTIONS.put(Asin.class, VectorOperation.ASIN);
+        FUNCTIONS.put(Atan.class, VectorOperation.ATAN);
+        FUNCTIONS.put(Atan2.class, VectorOperation.ATAN2);
+        FUNCTIONS.put(Ceil.class, VectorOperation.CEIL);
+        FUNCTIONS.put(Cos.class, VectorOperation.COS);
+        FUNCTIONS.put(Floor.class, VectorOperation.FLOOR);
+        FUNCTIONS.put(Log.class, VectorOperation.LOG);
+        FUNCTIONS.put(Max.class, VectorOperation.MAX);
+        FUNCTIONS.put(Min.class, VectorOperation.MIN);
+        FUNCTIONS.put(Pow.class, VectorOperation.POW);
+        FUNCTIONS.put(Round.class, VectorOperation.ROUND);
+        FUNCTIONS.put(Sin.class, VectorOperation.SIN);
+        FUNCTIONS.put(Sqrt.class, VectorOperation.SQRT);
+        FUNCTIONS.put(Square.class, VectorOperation.SQUARE);
+        FUNCTIONS.put(Tan.class, VectorOperation.TAN);
+    }
+
+    /**
+     * The expression of this program.
+     */
+    private final CompiledExpression<?> expression;
+
+    /**
+     * The instructions. Each instruction has two positions: its code and its operand.
+     */
+    private final int[] code;
+
+    /**
+     * The constants of the program.
+     */
+    private final double[] constants;
+
+    /**
+     * The operators and functions called row by row.
+     */
+    private final Object[] callables;
+
+    /**
+     * The number of arguments of each operator or function called row by row.
+     */
+    private final int[] arities;
+
+    /**
+     * The names of the variables. The index of a name is the index of the variable's column.
+     */
+    private final String[] variables;
+
+    /**
+     * The maximum number of vectors in the stack.
+     */
+    private final int maxDepth;
+
+    /**
+     * The kernels of the vector operations.
+     */
+    private final VectorKernels kernels;
+
+    /**
+     * Creates a {@link BatchProgram}.
+     * 
+     * @param compiled
+     *            The expression of the program.
+     * @param compiler
+     *            The compiler with the program's instructions.
+     */
+    private BatchProgram(CompiledExpression<?> compiled, Compiler compiler)
+    {
+        this.expression = compiled;
+        this.code = new int[compiler.code.size()];
+
+        for (int i = 0; i < code.length; i++)
+        {
+            code[i] = compiler.code.get(i);
+        }
+
+        this.constants = new double[compiler.constants.size()];
+
+        for (int i = 0; i < constants.length; i++)
+        {
+            constants[i] = compiler.constants.get(i);
+        }
+
+        this.callables = compiler.callables.toArray();
+        this.arities = new int[callables.length];
+
+        for (int i = 0; i < arities.length; i++)
+        {
+            arities[i] = compiler.arities.get(i);
+        }
+
+        this.variables = compiler.slots.keySet().toArray(new String[compiler.slots.size()]);
+        this.maxDepth = compiler.maxDepth;
+        this.kernels = Kernels.get();
+    }
+
+    /**
+     * Translates a {@link CompiledExpression} to a {@link BatchProgram}.
+     * 
+     * @param expression
+     *            The expression to be translated. Might not be <code>null</code>.
+     * @return The {@link BatchProgram} of the given expression.
+     * @throws EvaluationException
+     *             If the expression calls an undefined function or operator.
+     */
+    public static BatchProgram compile(CompiledExpression<?> expression) throws EvaluationException
+    {
+        Compiler compiler = new Compiler();
+        compiler.emit(expression.root());
+
+        return new BatchProgram(expression, compiler);
+    }
+
+    /**
+     * Returns the columns of the given {@link Map} in the order of the variables of this program.
+     * 
+     * @param columns
+     *            The columns of the variables. The key is the variable's name.
+     * @return The columns of the variables in the order of {@link #variables()}.
+     * @throws UndefinedVariableException
+     *             If there is no column for a variable.
+     */
+    public Column[] bind(Map<String, ? extends Column> columns) throws UndefinedVariableException
+    {
+        Column[] bound = new Column[variables.length];
+
+        for (int i = 0; i < bound.length; i++)
+        {
+            bound[i] = columns.get(variables[i]);
+
+            if (bound[i] == null)
+            {
+                throw new UndefinedVariableException(String.format("Undefined variable: %s!", variables[i]));
+            }
+        }
+
+        return bound;
+    }
+
+    /**
+     * Evaluates the rows of a range and writes their values in the same positions of the output.
+     * 
+     * @param columns
+     *            The columns in the order of {@link #variables()}.
+     * @param from
+     *            The index of the first row, inclusive.
+     * @param to
+     *            The index of the last row, exclusive.
+     * @param output
+     *            The array that receives the values.
+     * @throws EvaluationException
+     *             If an operator or a function called row by row fails.
+     */
+    public void evaluate(Column[] columns, int from, int to, double[] output) throws EvaluationException
+    {
+        checkRange(columns, from, to, output);
+
+        double[][] stack = newStack(Math.min(DEFAULT_BLOCK_SIZE, to - from));
+
+        for (int start = from; start < to; start += DEFAULT_BLOCK_SIZE)
+        {
+            evaluateBlock(columns, start, Math.min(DEFAULT_BLOCK_SIZE, to - start), stack, output);
+        }
+    }
+
+    /**
+     * Evaluates a range of rows and writes the values to the same rows of an {@link OutputColumn}, block by block.
+     * 
+     * @param columns
+     *            The columns in the order of {@link #variables()}.
+     * @param from
+     *            The index of the first row, inclusive.
+     * @param to
+     *            The index of the last row, exclusive.
+     * @param output
+     *            The column that receives the values.
+     * @throws EvaluationException
+     *             If an operator or a function called row by row fails.
+     */
+    public void evaluate(Column[] columns, int from, int to, OutputColumn output) throws EvaluationException
+    {
+        checkRange(columns, from, to, output.size());
+
+        double[][] stack = newStack(Math.min(DEFAULT_BLOCK_SIZE, to - from));
+
+        for (int start = from; start < to; start += DEFAULT_BLOCK_SIZE)
+        {
+            int length = Math.min(DEFAULT_BLOCK_SIZE, to - start);
+            output.write(start, computeBlock(columns, start, length, stack), length);
+        }
+    }
+
+    /**
+     * Checks that the columns and the output have the rows of a range.
+     * 
+     * @param columns
+     *            The columns in the order of {@link #variables()}.
+     * @param from
+     *            The index of the first row, inclusive.
+     * @param to
+     *            The index of the last row, exclusive.
+     * @param output
+     *            The array that receives the values.
+     */
+    void checkRange(Column[] columns, int from, int to, double[] output)
+    {
+        checkRange(columns, from, to, output.length);
+    }
+
+    /**
+     * Checks that the columns and an output of the given size have the rows of a range.
+     * 
+     * @param columns
+     *            The columns in the order of {@link #variables()}.
+     * @param from
+     *            The index of the first row, inclusive.
+     * @param to
+     *            The index of the last row, exclusive.
+     * @param outputSize
+     *            The number of rows of the output.
+     */
+    void checkRange(Column[] columns, int from, int to, int outputSize)
+    {
+        if (columns.length != variables.length)
+        {
+            throw new IllegalArgumentException(String.format("The expression %s requires %d columns!", expression, variables.length));
+        }
+
+        if (from < 0 || from > to || to > outputSize)
+        {
+            throw new IndexOutOfBoundsException(String.format("Invalid range [%d, %d) of %d rows!", from, to, outputSize));
+        }
+
+        for (int i = 0; i < columns.length; i++)
+        {
+            if (columns[i].size() < to)
+            {
+                throw new IllegalArgumentException(String.format("The column of %s has %d rows, but %d are required!", variables[i],
+                        columns[i].size(), to));
+            }
+        }
+    }
+
+    /**
+     * Creates the stack of scratch vectors of this program.
+     * 
+     * @param blockSize
+     *            The number of rows of a block.
+     * @return The stack of scratch vectors of this program.
+     */
+    double[][] newStack(int blockSize)
+    {
+        return new double[Math.max(1, maxDepth)][Math.max(1, blockSize)];
+    }
+
+    /**
+     * Evaluates a block of rows.
+     * 
+     * @param columns
+     *            The columns in the order of {@link #variables()}.
+     * @param from
+     *            The index of the first row.
+     * @param length
+     *            The number of rows of the block. It's not greater than the length of the scratch vectors.
+     * @param stack
+     *            The scratch vectors.
+     * @param output
+     *            The array that receives the values, in the positions of the rows.
+     * @throws EvaluationException
+     *             If an operator or a function called row by row fails.
+     */
+    void evaluateBlock(Column[] columns, int from, int length, double[][] stack, double[] output) throws EvaluationException
+    {
+        System.arraycopy(computeBlock(columns, from, length, stack), 0, output, from, length);
+    }
+
+    /**
+     * Evaluates a block of rows into the first scratch vector.
+     * 
+     * @param columns
+     *            The columns in the order of {@link #variables()}.
+     * @param from
+     *            The index of the first row.
+     * @param length
+     *            The number of rows of the block. It's not greater than the length of the scratch vectors.
+     * @param stack
+     *            The scratch vectors.
+     * @return The scratch vector with the values of the block, from its first position.
+     * @throws EvaluationException
+     *             If an operator or a function called row by row fails.
+     */
+    double[] computeBlock(Column[] columns, int from, int length, double[][] stack) throws EvaluationException
+    {
+        int top = -1;
+
+        for (int pc = 0; pc < code.length; pc += 2)
+        {
+            int opcode = code[pc];
+            int operand = code[pc + 1];
+
+            switch (opcode)
+            {
+            case LOAD:
+                columns[operand].read(from, stack[++top], length);
+                break;
+            case CONST:
+                Arrays.fill(stack[++top], 0, length, constants[operand]);
+                break;
+            case CALL:
+            case APPLY:
+                int arity = arities[operand];
+                top = top - arity + 1;
+                call(opcode, callables[operand], stack, top, arity, length);
+                break;
+            default:
+                VectorOperation operation = OPERATIONS[operand];
+
+                if (operation.arity() == 1)
+                {
+                    kernels.apply(operation, stack[top], length);
+                }
+                else
+                {
+                    top--;
+                    kernels.apply(operation, stack[top], stack[top + 1], length);
+                }
+                break;
+            }
+        }
+
+        return stack[0];
+    }
+
+    /**
+     * Calls an operator or a function row by row. A row with an argument that is not finite, such as the {@link Double#NaN} of a missing value or
+     * of <code>0/0</code>, has no {@link Decimal} value, so it is not called and its result is {@link Double#NaN}.
+     * 
+     * @param opcode
+     *            {@link #CALL} or {@link #APPLY}.
+     * @param callable
+     *            The operator or function to be called.
+     * @param stack
+     *            The scratch vectors.
+     * @param first
+     *            The index of the vector of the first argument. It receives the result.
+     * @param arity
+     *            The number of arguments.
+     * @param length
+     *            The number of rows of the block.
+     * @throws EvaluationException
+     *             If the operator or function fails.
+     */
+    @SuppressWarnings("unchecked")
+    private static void call(int opcode, Object callable, double[][] stack, int first, int arity, int length) throws EvaluationException
+    {
+        List<Computable<Decimal>> args = new ArrayList<>(arity);
+
+        rows: for (int row = 0; row < length; row++)
+        {
+            args.clear();
+
+            for (int i = 0; i < arity; i++)
+            {
+                double arg = stack[first + i][row];
+
+                if (Double.isNaN(arg) || Double.isInfinite(arg))
+                {
+                    stack[first][row] = Double.NaN;
+                    continue rows;
+                }
+
+                args.add(new Value<>(Decimal.from(arg)));
+            }
+
+            Object result;
+
+            if (opcode == CALL)
+            {
+                result = ((Function<Object>) callable).evaluate(args);
+            }
+            else if (arity == 1)
+            {
+                result = ((Operator<Object>) callable).evaluate(args.get(0));
+            }
+            else
+            {
+                result = ((Operator<Object>) callable).evaluate(args.get(0), args.get(1));
+            }
+
+            stack[first][row] = toDouble(result);
+        }
+    }
+
+    /**
+     * Returns the <code>double</code> value of the result of an operator or a function. A boolean is returned as a mask value.
+     * 
+     * @param result
+     *            The result of an operator or a function.
+     * @return The <code>double</code> value of the result.
+     */
+    private static double toDouble(Object result)
+    {
+        Object value = result;
+
+        while (value instanceof Computable)
+        {
+            value = ((Computable<?>) value).getValue();
+        }
+
+        if (value instanceof Boolean)
+        {
+            return (Boolean) value ? 1 : 0;
+        }
+
+        return value instanceof Number ? ((Number) value).doubleValue() : Double.parseDouble(String.valueOf(value));
+    }
+
+    /**
+     * Returns the names of the variables of this program. The columns must be given in this order.
+     * 
+     * @return The names of the variables of this program.
+     */
+    public List<String> variables()
+    {
+        return Collections.unmodifiableList(Arrays.asList(variables));
+    }
+
+    /**
+     * Returns the expression of this program.
+     * 
+     * @return The expression of this program.
+     */
+    public CompiledExpression<?> expression()
+    {
+        return expression;
+    }
+
+    /**
+     * Returns the maximum number of scratch vectors used by this program.
+     * 
+     * @return The maximum number of scratch vectors used by this program.
+     */
+    public int maxDepth()
+    {
+        return maxDepth;
+    }
+
+    @Override
+    public String toString()
+    {
+        return expression.toString();
+    }
+
+    /**
+     * Translates the tree of an expression to postfix instructions.
+     */
+    private static final class Compiler
+    {
+        /**
+         * The instructions.
+         */
+        private final List<Integer> code = new ArrayList<>();
+
+        /**
+         * The constants.
+         */
+        private final List<Double> constants = new ArrayList<>();
+
+        /**
+         * The operators and functions called row by row.
+         */
+        private final List<Object> callables = new ArrayList<>();
+
+        /**
+         * The number of arguments of the operators and functions called row by row.
+         */
+        private final List<Integer> arities = new ArrayList<>();
+
+        /**
+         * The index of each variable. The key is the variable's name.
+         */
+        private final Map<String, Integer> slots = new LinkedHashMap<>();
+
+        /**
+         * The current number of vectors in the stack.
+         */
+        private int depth;
+
+        /**
+         * The maximum number of vectors in the stack.
+         */
+        private int maxDepth;
+
+        /**
+         * Emits the instructions of a node.
+         * 
+         * @param node
+         *            The node to be translated.
+         * @throws EvaluationException
+         *             If the node calls an undefined function or operator.
+         */
+        private void emit(AST node) throws EvaluationException
+        {
+            if (node instanceof AssignToken)
+            {
+                emit(((AssignToken<?>) node).getValue());
+            }
+            else if (node instanceof NumberToken)
+            {
+                constants.add(Decimal.from(((NumberToken<?>) node).getToken().getText()).doubleValue());
+                add(CONST, constants.size() - 1, 1);
+            }
+            else if (node instanceof VarToken)
+            {
+                String name = ((VarToken<?>) node).name();
+                Integer slot = slots.get(name);
+
+                if (slot == null)
+                {
+                    slot = slots.size();
+                    slots.put(name, slot);
+                }
+
+                add(LOAD, slot, 1);
+            }
+            else if (node instanceof UnaryToken)
+            {
+                UnaryToken<?> unary = (UnaryToken<?>) node;
+                emit(unary.getExpression());
+
+                Operator<?> operator = operator(unary.symbol());
+
+                if (operator instanceof SubtractionOperator)
+                {
+                    add(VECTOR, VectorOperation.NEG.ordinal(), 0);
+                }
+                else if (operator instanceof BooleanNotOperator)
+                {
+                    add(VECTOR, VectorOperation.NOT.ordinal(), 0);
+                }
+                else if (!(operator instanceof AdditionOperator))
+                {
+                    addCall(APPLY, operator, 1);
+                }
+            }
+            else if (node instanceof BinaryOperatorToken)
+            {
+                BinaryOperatorToken<?> binary = (BinaryOperatorToken<?>) node;
+                emit(binary.getLeft());
+                emit(binary.getRight());
+
+                Operator<?> operator = operator(binary.symbol());
+                VectorOperation operation = BINARY_OPERATORS.get(operator.getClass());
+
+                if (operation != null)
+                {
+                    add(VECTOR, operation.ordinal(), -1);
+                }
+                else
+                {
+                    addCall(APPLY, operator, 2);
+                }
+            }
+            else if (node instanceof FunctionToken)
+            {
+                FunctionToken<?> call = (FunctionToken<?>) node;
+                Function<?> function = Functions.getFunctionByName(call.getName());
+
+                if (function == null)
+                {
+                    throw new UndefinedFunctionException(String.format("Undefined function: %s!", call.getName()));
+                }
+
+                if (function instanceof StatefulFunction)
+                {
+                    throw new EvaluationException(String.format("The function %s keeps state between evaluations and requires the rows in order!",
+                            call.getName()));
+                }
+
+                for (AST arg : call.getArgs())
+                {
+                    emit(arg);
+                }
+
+                VectorOperation operation = FUNCTIONS.get(function.getClass());
+                int arity = call.getArgs().size();
+
+                if (function instanceof Pi && arity == 0)
+                {
+                    constants.add(Decimal.PI.doubleValue());
+                    add(CONST, constants.size() - 1, 1);
+                }
+                else if (operation != null && arity == operation.arity())
+                {
+                    add(VECTOR, operation.ordinal(), 1 - arity);
+                }
+                else
+                {
+                    addCall(CALL, function, arity);
+                }
+            }
+            else
+            {
+                throw new EvaluationException("Unknown token " + node);
+            }
+        }
+
+        /**
+         * Returns the operator of a given symbol.
+         * 
+         * @param symbol
+         *            The operator's symbol.
+         * @return The operator of the given symbol.
+         * @throws EvaluationException
+         *             If the operator is unknown.
+         */
+        private Operator<?> operator(String symbol) throws EvaluationException
+        {
+            Operator<?> operator = Operators.getOperatorBySymbol(symbol);
+
+            if (operator == null)
+            {
+                throw new EvaluationException("Unknown operator " + symbol);
+            }
+
+            return operator;
+        }
+
+        /**
+         * Adds an operator or a function to be called row by row.
+         * 
+         * @param opcode
+         *            {@link BatchProgram#CALL} or {@link BatchProgram#APPLY}.
+         * @param callable
+         *            The operator or function.
+         * @param arity
+         *            The number of arguments.
+         */
+        private void addCall(int opcode, Object callable, int arity)
+        {
+            callables.add(callable);
+            arities.add(arity);
+
+            add(opcode, callables.size() - 1, 1 - arity);
+        }
+
+        /**
+         * Adds an instruction.
+         * 
+         * @param opcode
+         *            The instruction's code.
+         * @param operand
+         *            The instruction's operand.
+         * @param stackChange
+         *            The change of the number of vectors in the stack after the instruction.
+         */
+        private void add(int opcode, int operand, int stackChange)
+        {
+            code.add(opcode);
+            code.add(operand);
+
+            depth += stackChange;
+            maxDepth = Math.max(maxDepth, depth);
+        }
+    }
+}
@@ -0,0 +1,45 @@
+/**
+ * Copyright (C) 2013 - 2015 Contributors.
+ *
+ * FormulaJ is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * FormulaJ is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see [http://www.gnu.org/licenses/].
+ *
+ * Contact: formulaj-user-list@googlegroups.com.
+ */
+package formulaj.expression.batch;
+
+/**
+ * A column of values bound to a variable in a batch evaluation. The values are read in blocks of rows, as <code>double</code>s, into the
+ * vectors of the evaluation.
+ */
+public interface Column
+{
+    /**
+     * Returns the number of rows of this column.
+     * 
+     * @return The number of rows of this column.
+     */
+    int size();
+
+    /**
+     * Copies the values of a block of rows to a vector.
+     * 
+     * @param from
+     *            The index of the first row to be read.
+     * @param target
+     *            The vector that receives the values, from its first position.
+     * @param length
+     *            The number of rows to be read.
+     */
+    void read(int from, double[] target, int length);
+}
@@ -0,0 +1,37 @@
+/**
+ * Copyright (C) 2013 - 2015 Contributors.
+ *
+ * FormulaJ is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * FormulaJ is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see [http://www.gnu.org/licenses/].
+ *
+ * Contact: formulaj-user-list@googlegroups.com.
+ */
+package formulaj.expression.batch;
+
+import java.util.Map;
+
+import formulaj.expression.EvaluationException;
+import formulaj.expression.compiler.CompiledExpression;
+
+/**
+ * A {@link BatchEvaluator} that executes the {@link BatchProgram} of the expression in the caller's thread.
+ */
+public class ColumnarEvaluator implements BatchEvaluator
+{
+    @Override
+    public void evaluate(CompiledExpression<?> expression, Map<String, ? extends Column> columns, double[] output) throws EvaluationException
+    {
+        BatchProgram program = BatchProgram.compile(expression);
+        program.evaluate(program.bind(columns), 0, output.length, output);
+    }
+}
@@ -0,0 +1,80 @@
+/**
+ * Copyright (C) 2013 - 2015 Contributors.
+ *
+ * FormulaJ is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * FormulaJ is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see [http://www.gnu.org/licenses/].
+ *
+ * Contact: formulaj-user-list@googlegroups.com.
+ */
+package formulaj.expression.batch;
+
+import java.util.Objects;
+
+import formulaj.expression.Decimal;
+
+/**
+ * A {@link Column} of {@link Decimal} values. A <code>null</code> value is read as {@link Double#NaN}, and it is a missing row of the
+ * {@link #validity() validity bitmap}.
+ */
+public final class DecimalColumn implements NullableColumn
+{
+    /**
+     * The values of this column.
+     */
+    private final Decimal[] values;
+
+    /**
+     * Creates a {@link Column} backed by the given array. The array is not copied.
+     * 
+     * @param columnValues
+     *            The values of the column. Might not be <code>null</code>.
+     */
+    public DecimalColumn(Decimal[] columnValues)
+    {
+        this.values = Objects.requireNonNull(columnValues);
+    }
+
+    @Override
+    public int size()
+    {
+        return values.length;
+    }
+
+    @Override
+    public void read(int from, double[] target, int length)
+    {
+        for (int i = 0; i < length; i++)
+        {
+            Decimal value = values[from + i];
+            target[i] = value == null ? Double.NaN : value.doubleValue();
+        }
+    }
+
+    /**
+     * Returns the rows that are not <code>null</code>. The bitmap is computed on each call, since the array of the values is not copied and it
+     * can be changed after the column is created.
+     * 
+     * @return The rows that are not <code>null</code>.
+     */
+    @Override
+    public ValidityBitmap validity()
+    {
+        ValidityBitmap bitmap = new ValidityBitmap(values.length);
+
+        for (int i = 0; i < values.length; i++)
+        {
+            bitmap.set(i, values[i] != null);
+        }
+        return bitmap;
+    }
+}
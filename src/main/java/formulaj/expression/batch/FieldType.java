@@ -0,0 +1,185 @@
+/**
+ * Copyright (C) 2013 - 2015 Contributors.
+ *
+ * FormulaJ is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * FormulaJ is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see [http://www.gnu.org/licenses/].
+ *
+ * Contact: formulaj-user-list@googlegroups.com.
+ */
+package formulaj.expression.batch;
+
+import java.nio.ByteBuffer;
+
+/**
+ * The primitive types of the fields of a binary record. The values are read and written at absolute positions of a {@link ByteBuffer}, in its
+ * byte order.
+ */
+public enum FieldType
+{
+    /**
+     * A signed 8-bit integer.
+     */
+    BYTE(1)
+    {
+        @Override
+        public double read(ByteBuffer buffer, int index)
+        {
+            return buffer.get(index);
+        }
+
+        @Override
+        public void write(ByteBuffer buffer, int index, double value)
+        {
+            buffer.put(index, (byte) value);
+        }
+    },
+
+    /**
+     * A signed 16-bit integer.
+     */
+    SHORT(2)
+    {
+        @Override
+        public double read(ByteBuffer buffer, int index)
+        {
+            return buffer.getShort(index);
+        }
+
+        @Override
+        public void write(ByteBuffer buffer, int index, double value)
+        {
+            buffer.putShort(index, (short) value);
+        }
+    },
+
+    /**
+     * A signed 32-bit integer.
+     */
+    INT(4)
+    {
+        @Override
+        public double read(ByteBuffer buffer, int index)
+        {
+            return buffer.getInt(index);
+        }
+
+        @Override
+        public void write(ByteBuffer buffer, int index, double value)
+        {
+            buffer.putInt(index, (int) value);
+        }
+    },
+
+    /**
+     * A signed 64-bit integer.
+     */
+    LONG(8)
+    {
+        @Override
+        public double read(ByteBuffer buffer, int index)
+        {
+            return buffer.getLong(index);
+        }
+
+        @Override
+        public void write(ByteBuffer buffer, int index, double value)
+        {
+            buffer.putLong(index, (long) value);
+        }
+    },
+
+    /**
+     * A 32-bit floating point number.
+     */
+    FLOAT(4)
+    {
+        @Override
+        public double read(ByteBuffer buffer, int index)
+        {
+            return buffer.getFloat(index);
+        }
+
+        @Override
+        public void write(ByteBuffer buffer, int index, double value)
+        {
+            buffer.putFloat(index, (float) value);
+        }
+    },
+
+    /**
+     * A 64-bit floating point number.
+     */
+    DOUBLE(8)
+    {
+        @Override
+        public double read(ByteBuffer buffer, int index)
+        {
+            return buffer.getDouble(index);
+        }
+
+        @Override
+        public void write(ByteBuffer buffer, int index, double value)
+        {
+            buffer.putDouble(index, value);
+        }
+    };
+
+    /**
+     * The size of a value of this type, in bytes.
+     */
+    private final int size;
+
+    /**
+     * Creates a {@link FieldType}.
+     * 
+     * @param bytes
+     *            The size of a value of this type, in bytes.
+     */
+    private FieldType(int bytes)
+    {
+        this.size = bytes;
+    }
+
+    /**
+     * Returns the size of a value of this type.
+     * 
+     * @return The size of a value of this type, in bytes.
+     */
+    public int size()
+    {
+        return size;
+    }
+
+    /**
+     * Reads a value of this type as a <code>double</code>.
+     * 
+     * @param buffer
+     *            The buffer with the value.
+     * @param index
+     *            The absolute position of the value.
+     * @return The value at the given position.
+     */
+    public abstract double read(ByteBuffer buffer, int index);
+
+    /**
+     * Writes a <code>double</code> as a value of this type. The integer types truncate the value, as a Java cast does.
+     * 
+     * @param buffer
+     *            The buffer that receives the value.
+     * @param index
+     *            The absolute position of the value.
+     * @param value
+     *            The value to be written.
+     */
+    public abstract void write(ByteBuffer buffer, int index, double value);
+}
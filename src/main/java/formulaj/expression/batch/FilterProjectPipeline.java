@@ -0,0 +1,248 @@
+/**
+ * Copyright (C) 2013 - 2015 Contributors.
+ *
+ * FormulaJ is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * FormulaJ is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see [http://www.gnu.org/licenses/].
+ *
+ * Contact: formulaj-user-list@googlegroups.com.
+ */
+package formulaj.expression.batch;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+import formulaj.expression.EvaluationException;
+import formulaj.expression.compiler.CompiledExpression;
+
+/**
+ * Evaluates a boolean filter over all the rows of a table and the projections only over the rows that it selects.
+ * 
+ * <pre>
+ * FilterProjectPipeline pipeline = FilterProjectPipeline.compile(CompiledExpression.compile("age &gt;= 18 &amp;&amp; balance &gt; 0"),
+ *         CompiledExpression.compile("balance * rate"));
+ * FilteredBatch result = pipeline.execute(columns, rows);
+ * </pre>
+ * 
+ * The filter is built with the relational and logical operators, and a row is selected if the filter is neither zero nor {@link Double#NaN}.
+ * Missing values are given by {@link NullableColumn}s: a row where a variable of the filter is missing is not selected, as a comparison with an
+ * unknown value is not true, and a row where a variable of a projection is missing is a missing row of the projection's
+ * {@link FilteredBatch#validity(int) validity}.
+ * <p>
+ * The projections read the selected rows through the {@link SelectionVector}, so their cost is proportional to the selectivity of the filter.
+ * A pipeline is immutable and can be shared by many threads.
+ */
+public final class FilterProjectPipeline
+{
+    /**
+     * The evaluator of the filter and the projections.
+     */
+    private final ParallelEvaluator evaluator;
+
+    /**
+     * The program of the filter.
+     */
+    private final BatchProgram filter;
+
+    /**
+     * The programs of the projections.
+     */
+    private final BatchProgram[] projections;
+
+    /**
+     * Creates a {@link FilterProjectPipeline}.
+     * 
+     * @param parallelEvaluator
+     *            The evaluator of the filter and the projections.
+     * @param filterProgram
+     *            The program of the filter.
+     * @param projectionPrograms
+     *            The programs of the projections.
+     */
+    private FilterProjectPipeline(ParallelEvaluator parallelEvaluator, BatchProgram filterProgram, BatchProgram[] projectionPrograms)
+    {
+        this.evaluator = parallelEvaluator;
+        this.filter = filterProgram;
+        this.projections = projectionPrograms;
+    }
+
+    /**
+     * Compiles a pipeline evaluated by a {@link ParallelEvaluator} with its default pool.
+     * 
+     * @param filter
+     *            The boolean expression that selects the rows. Might not be <code>null</code>.
+     * @param projections
+     *            The expressions evaluated over the selected rows.
+     * @return A new pipeline.
+     * @throws EvaluationException
+     *             If an expression cannot be compiled.
+     */
+    public static FilterProjectPipeline compile(CompiledExpression<?> filter, CompiledExpression<?>... projections) throws EvaluationException
+    {
+        return compile(new ParallelEvaluator(), filter, projections);
+    }
+
+    /**
+     * Compiles a pipeline.
+     * 
+     * @param evaluator
+     *            The evaluator of the filter and the projections. Might not be <code>null</code>.
+     * @param filter
+     *            The boolean expression that selects the rows. Might not be <code>null</code>.
+     * @param projections
+     *            The expressions evaluated over the selected rows.
+     * @return A new pipeline.
+     * @throws EvaluationException
+     *             If an expression cannot be compiled.
+     */
+    public static FilterProjectPipeline compile(ParallelEvaluator evaluator, CompiledExpression<?> filter, CompiledExpression<?>... projections)
+            throws EvaluationException
+    {
+        BatchProgram[] programs = new BatchProgram[projections.length];
+        for (int i = 0; i < programs.length; i++)
+        {
+            programs[i] = BatchProgram.compile(projections[i]);
+        }
+        return new FilterProjectPipeline(Objects.requireNonNull(evaluator), BatchProgram.compile(filter), programs);
+    }
+
+    /**
+     * Evaluates the filter over the first rows of the columns and the projections over the selected rows.
+     * 
+     * @param columns
+     *            The columns bound to the variables of the expressions. Might not be <code>null</code>.
+     * @param rows
+     *            The number of rows of the table.
+     * @return The selected rows and the values of the projections.
+     * @throws EvaluationException
+     *             If a variable is not bound to a column, or an operator or a function called row by row fails.
+     */
+    public FilteredBatch execute(Map<String, ? extends Column> columns, int rows) throws EvaluationException
+    {
+        SelectionVector selection = select(columns, rows);
+        int selected = selection.size();
+
+        double[][] values = new double[projections.length][];
+        ValidityBitmap[] validity = new ValidityBitmap[projections.length];
+
+        for (int p = 0; p < projections.length; p++)
+        {
+            Column[] bound = projections[p].bind(columns);
+            Column[] gathered = new Column[bound.length];
+
+            for (int i = 0; i < bound.length; i++)
+            {
+                gathered[i] = new SelectedColumn(bound[i], selection);
+            }
+
+            values[p] = new double[selected];
+            evaluator.evaluate(projections[p], gathered, selected, values[p]);
+
+            validity[p] = ValidityBitmap.allValid(selected);
+            List<ValidityBitmap> inputs = validities(bound);
+
+            for (int i = 0; i < selected && !inputs.isEmpty(); i++)
+            {
+                if (!isValid(inputs, selection.row(i)))
+                {
+                    validity[p].set(i, false);
+                    values[p][i] = Double.NaN;
+                }
+            }
+        }
+
+        return new FilteredBatch(selection, values, validity);
+    }
+
+    /**
+     * Evaluates the filter and selects the rows where it's true and all its variables have a value.
+     * 
+     * @param columns
+     *            The columns bound to the variables of the expressions.
+     * @param rows
+     *            The number of rows of the table.
+     * @return The selected rows.
+     * @throws EvaluationException
+     *             If a variable is not bound to a column, or an operator or a function called row by row fails.
+     */
+    private SelectionVector select(Map<String, ? extends Column> columns, int rows) throws EvaluationException
+    {
+        Column[] bound = filter.bind(columns);
+        double[] mask = new double[rows];
+        evaluator.evaluate(filter, bound, rows, mask);
+
+        List<ValidityBitmap> inputs = validities(bound);
+        SelectionVector selection = new SelectionVector(rows >>> 4);
+
+        for (int row = 0; row < rows; row++)
+        {
+            if (mask[row] != 0 && !Double.isNaN(mask[row]) && isValid(inputs, row))
+            {
+                selection.add(row);
+            }
+        }
+        return selection;
+    }
+
+    /**
+     * Returns the validity bitmaps of the {@link NullableColumn}s among the given columns.
+     * 
+     * @param columns
+     *            The columns of an expression.
+     * @return The validity bitmaps of the columns that might have missing values.
+     */
+    private static List<ValidityBitmap> validities(Column[] columns)
+    {
+        List<ValidityBitmap> bitmaps = new ArrayList<>();
+        for (Column column : columns)
+        {
+            if (column instanceof NullableColumn)
+            {
+                bitmaps.add(((NullableColumn) column).validity());
+            }
+        }
+        return bitmaps;
+    }
+
+    /**
+     * Returns <code>true</code> if a row is valid in all the given bitmaps.
+     * 
+     * @param bitmaps
+     *            The validity bitmaps.
+     * @param row
+     *            The index of the row.
+     * @return <code>true</code> if the row is valid in all the bitmaps.
+     */
+    private static boolean isValid(List<ValidityBitmap> bitmaps, int row)
+    {
+        for (int i = 0; i < bitmaps.size(); i++)
+        {
+            if (!bitmaps.get(i).isValid(row))
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns the number of projections of this pipeline.
+     * 
+     * @return The number of projections.
+     */
+    public int projections()
+    {
+        return projections.length;
+    }
+}
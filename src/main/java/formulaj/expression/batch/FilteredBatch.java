@@ -0,0 +1,112 @@
+/**
+ * Copyright (C) 2013 - 2015 Contributors.
+ *
+ * FormulaJ is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * FormulaJ is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see [http://www.gnu.org/licenses/].
+ *
+ * Contact: formulaj-user-list@googlegroups.com.
+ */
+package formulaj.expression.batch;
+
+/**
+ * The result of a {@link FilterProjectPipeline}: the rows selected by the filter and, for each projection, its values and validity in the
+ * selected rows. The position <code>i</code> of the values is the row <code>selection().row(i)</code> of the table.
+ */
+public final class FilteredBatch
+{
+    /**
+     * The rows selected by the filter.
+     */
+    private final SelectionVector selection;
+
+    /**
+     * The values of each projection in the selected rows.
+     */
+    private final double[][] values;
+
+    /**
+     * The validity of each projection in the selected rows.
+     */
+    private final ValidityBitmap[] validity;
+
+    /**
+     * Creates a {@link FilteredBatch}.
+     * 
+     * @param selectedRows
+     *            The rows selected by the filter.
+     * @param projectionValues
+     *            The values of each projection in the selected rows.
+     * @param projectionValidity
+     *            The validity of each projection in the selected rows.
+     */
+    FilteredBatch(SelectionVector selectedRows, double[][] projectionValues, ValidityBitmap[] projectionValidity)
+    {
+        this.selection = selectedRows;
+        this.values = projectionValues;
+        this.validity = projectionValidity;
+    }
+
+    /**
+     * Returns the rows selected by the filter.
+     * 
+     * @return The rows selected by the filter.
+     */
+    public SelectionVector selection()
+    {
+        return selection;
+    }
+
+    /**
+     * Returns the number of selected rows.
+     * 
+     * @return The number of selected rows.
+     */
+    public int size()
+    {
+        return selection.size();
+    }
+
+    /**
+     * Returns the number of projections.
+     * 
+     * @return The number of projections.
+     */
+    public int projections()
+    {
+        return values.length;
+    }
+
+    /**
+     * Returns the values of a projection in the selected rows. The values of the missing rows are {@link Double#NaN}.
+     * 
+     * @param projection
+     *            The index of the projection, in the order they were given to the pipeline.
+     * @return The values of the projection, one per selected row.
+     */
+    public double[] values(int projection)
+    {
+        return values[projection];
+    }
+
+    /**
+     * Returns the validity of a projection in the selected rows. A row is missing if a variable of the projection is missing.
+     * 
+     * @param projection
+     *            The index of the projection, in the order they were given to the pipeline.
+     * @return The bitmap of the selected rows where the projection has a value.
+     */
+    public ValidityBitmap validity(int projection)
+    {
+        return validity[projection];
+    }
+}
@@ -0,0 +1,345 @@
+/**
+ * Copyright (C) 2013 - 2015 Contributors.
+ *
+ * FormulaJ is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * FormulaJ is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see [http://www.gnu.org/licenses/].
+ *
+ * Contact: formulaj-user-list@googlegroups.com.
+ */
+package formulaj.expression.batch;
+
+import java.util.Arrays;
+
+/**
+ * An open-addressing hash table from the bits of a <code>double</code> key to the index of its group, with the state of the aggregations in
+ * primitive arrays indexed by the group. The groups are numbered in the order their keys are found.
+ * <p>
+ * A table is used by one thread; the tables of different threads are {@link #merge(GroupTable) merged} at the end.
+ */
+final class GroupTable
+{
+    /**
+     * The initial number of groups.
+     */
+    private static final int INITIAL_CAPACITY = 16;
+
+    /**
+     * The largest number of groups per slot before the slots are doubled.
+     */
+    private static final double LOAD_FACTOR = 0.5;
+
+    /**
+     * The keys of the slots.
+     */
+    private long[] slotKeys;
+
+    /**
+     * The group of each slot plus one; zero is an empty slot.
+     */
+    private int[] slotGroups;
+
+    /**
+     * The keys of the groups.
+     */
+    private long[] keys;
+
+    /**
+     * The number of values of the groups.
+     */
+    private long[] counts;
+
+    /**
+     * The sums of the values of the groups.
+     */
+    private double[] sums;
+
+    /**
+     * The low-order bits lost by the additions to {@link #sums}, added back when a sum is returned.
+     */
+    private double[] compensations;
+
+    /**
+     * The smallest values of the groups.
+     */
+    private double[] mins;
+
+    /**
+     * The largest values of the groups.
+     */
+    private double[] maxs;
+
+    /**
+     * The number of groups.
+     */
+    private int size;
+
+    /**
+     * Creates an empty {@link GroupTable}.
+     */
+    GroupTable()
+    {
+        this.slotKeys = new long[INITIAL_CAPACITY * 2];
+        this.slotGroups = new int[INITIAL_CAPACITY * 2];
+        this.keys = new long[INITIAL_CAPACITY];
+        this.counts = new long[INITIAL_CAPACITY];
+        this.sums = new double[INITIAL_CAPACITY];
+        this.compensations = new double[INITIAL_CAPACITY];
+        this.mins = new double[INITIAL_CAPACITY];
+        this.maxs = new double[INITIAL_CAPACITY];
+    }
+
+    /**
+     * Returns the bits of a key, with the same bits for <code>0.0</code> and <code>-0.0</code>, and for all the {@link Double#NaN}s.
+     * 
+     * @param key
+     *            The value of the key.
+     * @return The bits of the key.
+     */
+    static long bits(double key)
+    {
+        return Double.doubleToLongBits(key == 0 ? 0.0 : key);
+    }
+
+    /**
+     * Spreads the bits of a key, so the keys with the same low bits do not collide.
+     * 
+     * @param key
+     *            The bits of a key.
+     * @return The hash of the key.
+     */
+    private static int hash(long key)
+    {
+        long h = key;
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return (int) h;
+    }
+
+    /**
+     * Returns the group of a key, creating it if it's new.
+     * 
+     * @param key
+     *            The bits of the key.
+     * @return The index of the group of the key.
+     */
+    int group(long key)
+    {
+        int mask = slotKeys.length - 1;
+        int slot = hash(key) & mask;
+
+        while (slotGroups[slot] != 0)
+        {
+            if (slotKeys[slot] == key)
+            {
+                return slotGroups[slot] - 1;
+            }
+            slot = (slot + 1) & mask;
+        }
+
+        if (size == keys.length)
+        {
+            grow();
+            return group(key);
+        }
+
+        int group = size++;
+        slotKeys[slot] = key;
+        slotGroups[slot] = group + 1;
+        keys[group] = key;
+        mins[group] = Double.POSITIVE_INFINITY;
+        maxs[group] = Double.NEGATIVE_INFINITY;
+        return group;
+    }
+
+    /**
+     * Returns the group of a key without creating it.
+     * 
+     * @param key
+     *            The bits of the key.
+     * @return The index of the group of the key, or <code>-1</code> if there is no such group.
+     */
+    int find(long key)
+    {
+        int mask = slotKeys.length - 1;
+        int slot = hash(key) & mask;
+
+        while (slotGroups[slot] != 0)
+        {
+            if (slotKeys[slot] == key)
+            {
+                return slotGroups[slot] - 1;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return -1;
+    }
+
+    /**
+     * Doubles the capacity of the groups and the slots, and moves the groups to their new slots.
+     */
+    private void grow()
+    {
+        int capacity = keys.length * 2;
+        keys = Arrays.copyOf(keys, capacity);
+        counts = Arrays.copyOf(counts, capacity);
+        sums = Arrays.copyOf(sums, capacity);
+        compensations = Arrays.copyOf(compensations, capacity);
+        mins = Arrays.copyOf(mins, capacity);
+        maxs = Arrays.copyOf(maxs, capacity);
+
+        int slots = (int) (capacity / LOAD_FACTOR);
+        slotKeys = new long[slots];
+        slotGroups = new int[slots];
+
+        for (int group = 0; group < size; group++)
+        {
+            int slot = hash(keys[group]) & (slots - 1);
+            while (slotGroups[slot] != 0)
+            {
+                slot = (slot + 1) & (slots - 1);
+            }
+            slotKeys[slot] = keys[group];
+            slotGroups[slot] = group + 1;
+        }
+    }
+
+    /**
+     * Aggregates a value into a group.
+     * 
+     * @param group
+     *            The index of the group.
+     * @param value
+     *            The value to be aggregated. It's ignored if it's {@link Double#NaN}.
+     */
+    void add(int group, double value)
+    {
+        if (!Double.isNaN(value))
+        {
+            counts[group]++;
+            addToSum(group, value);
+            mins[group] = Math.min(mins[group], value);
+            maxs[group] = Math.max(maxs[group], value);
+        }
+    }
+
+    /**
+     * Adds a value to the sum of a group with the compensated summation of Neumaier: the error of each addition is accumulated apart, so the
+     * sum of many values of different magnitudes keeps the precision of a single addition.
+     * 
+     * @param group
+     *            The index of the group.
+     * @param value
+     *            The value to be added.
+     */
+    private void addToSum(int group, double value)
+    {
+        double sum = sums[group];
+        double result = sum + value;
+
+        if (Math.abs(sum) >= Math.abs(value))
+        {
+            compensations[group] += (sum - result) + value;
+        }
+        else
+        {
+            compensations[group] += (value - result) + sum;
+        }
+        sums[group] = result;
+    }
+
+    /**
+     * Returns the sum of a group, with the compensation of its rounding errors.
+     * 
+     * @param group
+     *            The index of the group.
+     * @return The sum of the values of the group.
+     */
+    private double sum(int group)
+    {
+        double compensation = compensations[group];
+        return Double.isNaN(compensation) ? sums[group] : sums[group] + compensation;
+    }
+
+    /**
+     * Adds the groups of another table to this one.
+     * 
+     * @param other
+     *            The table to be merged. It's not changed.
+     */
+    void merge(GroupTable other)
+    {
+        for (int i = 0; i < other.size; i++)
+        {
+            int group = group(other.keys[i]);
+            counts[group] += other.counts[i];
+            addToSum(group, other.sums[i]);
+            compensations[group] += other.compensations[i];
+            mins[group] = Math.min(mins[group], other.mins[i]);
+            maxs[group] = Math.max(maxs[group], other.maxs[i]);
+        }
+    }
+
+    /**
+     * Returns the number of groups.
+     * 
+     * @return The number of groups.
+     */
+    int size()
+    {
+        return size;
+    }
+
+    /**
+     * Returns the key of a group.
+     * 
+     * @param group
+     *            The index of the group.
+     * @return The value of the group's key.
+     */
+    double key(int group)
+    {
+        return Double.longBitsToDouble(keys[group]);
+    }
+
+    /**
+     * Returns an aggregation of a group.
+     * 
+     * @param aggregation
+     *            The aggregation to be returned.
+     * @param group
+     *            The index of the group.
+     * @return The aggregation of the group, or {@link Double#NaN} for the sum, the average, the minimum and the maximum of a group without
+     *         values.
+     */
+    double value(Aggregation aggregation, int group)
+    {
+        long count = counts[group];
+
+        switch (aggregation)
+        {
+        case COUNT:
+            return count;
+        case SUM:
+            return count == 0 ? Double.NaN : sum(group);
+        case AVG:
+            return count == 0 ? Double.NaN : sum(group) / count;
+        case MIN:
+            return count == 0 ? Double.NaN : mins[group];
+        default:
+            return count == 0 ? Double.NaN : maxs[group];
+        }
+    }
+}
@@ -0,0 +1,378 @@
+/**
+ * Copyright (C) 2013 - 2015 Contributors.
+ *
+ * FormulaJ is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * FormulaJ is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see [http://www.gnu.org/licenses/].
+ *
+ * Contact: formulaj-user-list@googlegroups.com.
+ */
+package formulaj.expression.batch;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+import formulaj.expression.EvaluationException;
+import formulaj.expression.compiler.CompiledExpression;
+
+/**
+ * Evaluates a value expression and a key expression for each row, and aggregates the values of the rows with the same key.
+ * 
+ * <pre>
+ * GroupedAggregation aggregation = GroupedAggregation.compile(CompiledExpression.compile("price * quantity"), CompiledExpression.compile("region"));
+ * GroupedResult result = aggregation.execute(columns, rows);
+ * double total = result.value(Aggregation.SUM, result.group(3));
+ * </pre>
+ * 
+ * The key is usually a column, but it might be any expression. The rows are split in ranges aggregated in parallel on a {@link ForkJoinPool},
+ * each one into its own {@link GroupTable}, so the threads share nothing while they aggregate; the partial tables are merged when the ranges
+ * are joined. All the {@link Aggregation}s are computed at once.
+ * <p>
+ * A row whose value is {@link Double#NaN}, or whose value's variables are missing in a {@link NullableColumn}, is not aggregated. A row whose
+ * key is missing is aggregated in the group of the key {@link Double#NaN}. An aggregation is immutable and can be shared by many threads.
+ */
+public final class GroupedAggregation
+{
+    /**
+     * The number of ranges per thread of the pool.
+     */
+    private static final int RANGES_PER_THREAD = 4;
+
+    /**
+     * The pool of the ranges' aggregation.
+     */
+    private final ForkJoinPool pool;
+
+    /**
+     * The program of the values.
+     */
+    private final BatchProgram value;
+
+    /**
+     * The program of the keys.
+     */
+    private final BatchProgram key;
+
+    /**
+     * Creates a {@link GroupedAggregation}.
+     * 
+     * @param forkJoinPool
+     *            The pool of the ranges' aggregation.
+     * @param valueProgram
+     *            The program of the values.
+     * @param keyProgram
+     *            The program of the keys.
+     */
+    private GroupedAggregation(ForkJoinPool forkJoinPool, BatchProgram valueProgram, BatchProgram keyProgram)
+    {
+        this.pool = forkJoinPool;
+        this.value = valueProgram;
+        this.key = keyProgram;
+    }
+
+    /**
+     * Compiles an aggregation that uses the pool shared by the {@link ParallelEvaluator}s.
+     * 
+     * @param value
+     *            The expression of the values to be aggregated. Might not be <code>null</code>.
+     * @param key
+     *            The expression of the keys of the groups. Might not be <code>null</code>.
+     * @return A new aggregation.
+     * @throws EvaluationException
+     *             If an expression cannot be compiled.
+     */
+    public static GroupedAggregation compile(CompiledExpression<?> value, CompiledExpression<?> key) throws EvaluationException
+    {
+        return compile(ParallelEvaluator.DEFAULT_POOL, value, key);
+    }
+
+    /**
+     * Compiles an aggregation.
+     * 
+     * @param pool
+     *            The pool of the ranges' aggregation. Might not be <code>null</code>.
+     * @param value
+     *            The expression of the values to be aggregated. Might not be <code>null</code>.
+     * @param key
+     *            The expression of the keys of the groups. Might not be <code>null</code>.
+     * @return A new aggregation.
+     * @throws EvaluationException
+     *             If an expression cannot be compiled.
+     */
+    public static GroupedAggregation compile(ForkJoinPool pool, CompiledExpression<?> value, CompiledExpression<?> key) throws EvaluationException
+    {
+        return new GroupedAggregation(Objects.requireNonNull(pool), BatchProgram.compile(value), BatchProgram.compile(key));
+    }
+
+    /**
+     * Aggregates the first rows of the given columns.
+     * 
+     * @param columns
+     *            The columns bound to the variables of the expressions. Might not be <code>null</code>.
+     * @param rows
+     *            The number of rows to be aggregated.
+     * @return The groups and their aggregations.
+     * @throws EvaluationException
+     *             If a variable is not bound to a column, or an operator or a function called row by row fails.
+     */
+    public GroupedResult execute(Map<String, ? extends Column> columns, int rows) throws EvaluationException
+    {
+        Column[] valueColumns = value.bind(columns);
+        Column[] keyColumns = key.bind(columns);
+        value.checkRange(valueColumns, 0, rows, rows);
+        key.checkRange(keyColumns, 0, rows, rows);
+
+        int rangeSize = Math.max(BatchProgram.DEFAULT_BLOCK_SIZE, rows / (pool.getParallelism() * RANGES_PER_THREAD) + 1);
+        Partial task = new Partial(this, valueColumns, validities(valueColumns), keyColumns, validities(keyColumns), 0, rows, rangeSize);
+
+        try
+        {
+            return new GroupedResult(rows <= rangeSize ? task.compute() : pool.invoke(task));
+        }
+        catch (Failure failure)
+        {
+            throw failure.exception;
+        }
+    }
+
+    /**
+     * Aggregates a range of rows into a new table.
+     * 
+     * @param valueColumns
+     *            The columns of the values' variables.
+     * @param valueValidity
+     *            The validity of the values' variables.
+     * @param keyColumns
+     *            The columns of the keys' variables.
+     * @param keyValidity
+     *            The validity of the keys' variables.
+     * @param from
+     *            The index of the first row, inclusive.
+     * @param to
+     *            The index of the last row, exclusive.
+     * @return The groups of the range.
+     * @throws EvaluationException
+     *             If an operator or a function called row by row fails.
+     */
+    GroupTable aggregate(Column[] valueColumns, ValidityBitmap[] valueValidity, Column[] keyColumns, ValidityBitmap[] keyValidity, int from,
+            int to) throws EvaluationException
+    {
+        GroupTable table = new GroupTable();
+        int blockSize = Math.min(BatchProgram.DEFAULT_BLOCK_SIZE, to - from);
+        double[][] valueStack = value.newStack(blockSize);
+        double[][] keyStack = key.newStack(blockSize);
+
+        for (int start = from; start < to; start += blockSize)
+        {
+            int length = Math.min(blockSize, to - start);
+            double[] values = value.computeBlock(valueColumns, start, length, valueStack);
+            double[] keys = key.computeBlock(keyColumns, start, length, keyStack);
+
+            for (int i = 0; i < length; i++)
+            {
+                double k = isValid(keyValidity, start + i) ? keys[i] : Double.NaN;
+                double v = isValid(valueValidity, start + i) ? values[i] : Double.NaN;
+                table.add(table.group(GroupTable.bits(k)), v);
+            }
+        }
+        return table;
+    }
+
+    /**
+     * Returns the validity bitmaps of the {@link NullableColumn}s among the given columns.
+     * 
+     * @param columns
+     *            The columns of an expression.
+     * @return The validity bitmaps of the columns that might have missing values.
+     */
+    private static ValidityBitmap[] validities(Column[] columns)
+    {
+        List<ValidityBitmap> bitmaps = new ArrayList<>();
+        for (Column column : columns)
+        {
+            if (column instanceof NullableColumn)
+            {
+                bitmaps.add(((NullableColumn) column).validity());
+            }
+        }
+        return bitmaps.toArray(new ValidityBitmap[bitmaps.size()]);
+    }
+
+    /**
+     * Returns <code>true</code> if a row is valid in all the given bitmaps.
+     * 
+     * @param bitmaps
+     *            The validity bitmaps.
+     * @param row
+     *            The index of the row.
+     * @return <code>true</code> if the row is valid in all the bitmaps.
+     */
+    private static boolean isValid(ValidityBitmap[] bitmaps, int row)
+    {
+        for (ValidityBitmap bitmap : bitmaps)
+        {
+            if (!bitmap.isValid(row))
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Aggregates a range of rows, splitting it in halves until it has at most one range size, and merges the tables of the halves.
+     */
+    private static final class Partial extends RecursiveTask<GroupTable>
+    {
+        /**
+         * Serial code version <code>serialVersionUID</code>.
+         */
+        private static final long serialVersionUID = -2870914337163602113L;
+
+        /**
+         * The aggregation being executed.
+         */
+        private final transient GroupedAggregation aggregation;
+
+        /**
+         * The columns of the values' variables.
+         */
+        private final transient Column[] valueColumns;
+
+        /**
+         * The validity of the values' variables.
+         */
+        private final transient ValidityBitmap[] valueValidity;
+
+        /**
+         * The columns of the keys' variables.
+         */
+        private final transient Column[] keyColumns;
+
+        /**
+         * The validity of the keys' variables.
+         */
+        private final transient ValidityBitmap[] keyValidity;
+
+        /**
+         * The index of the first row of this task.
+         */
+        private final int from;
+
+        /**
+         * The index after the last row of this task.
+         */
+        private final int to;
+
+        /**
+         * The maximum number of rows aggregated without splitting the task.
+         */
+        private final int rangeSize;
+
+        /**
+         * Creates a {@link Partial}.
+         * 
+         * @param groupedAggregation
+         *            The aggregation being executed.
+         * @param values
+         *            The columns of the values' variables.
+         * @param valuesValidity
+         *            The validity of the values' variables.
+         * @param keys
+         *            The columns of the keys' variables.
+         * @param keysValidity
+         *            The validity of the keys' variables.
+         * @param first
+         *            The index of the first row of this task.
+         * @param end
+         *            The index after the last row of this task.
+         * @param size
+         *            The maximum number of rows aggregated without splitting the task.
+         */
+        Partial(GroupedAggregation groupedAggregation, Column[] values, ValidityBitmap[] valuesValidity, Column[] keys,
+                ValidityBitmap[] keysValidity, int first, int end, int size)
+        {
+            this.aggregation = groupedAggregation;
+            this.valueColumns = values;
+            this.valueValidity = valuesValidity;
+            this.keyColumns = keys;
+            this.keyValidity = keysValidity;
+            this.from = first;
+            this.to = end;
+            this.rangeSize = size;
+        }
+
+        @Override
+        protected GroupTable compute()
+        {
+            if (to - from <= rangeSize)
+            {
+                try
+                {
+                    return aggregation.aggregate(valueColumns, valueValidity, keyColumns, keyValidity, from, to);
+                }
+                catch (EvaluationException exception)
+                {
+                    throw new Failure(exception);
+                }
+            }
+
+            int middle = (from + to) >>> 1;
+            Partial left = new Partial(aggregation, valueColumns, valueValidity, keyColumns, keyValidity, from, middle, rangeSize);
+            Partial right = new Partial(aggregation, valueColumns, valueValidity, keyColumns, keyValidity, middle, to, rangeSize);
+            left.fork();
+
+            GroupTable table = right.compute();
+            GroupTable other = left.join();
+
+            if (other.size() > table.size())
+            {
+                other.merge(table);
+                return other;
+            }
+            table.merge(other);
+            return table;
+        }
+    }
+
+    /**
+     * Carries the failure of a range's evaluation out of the {@link ForkJoinPool}.
+     */
+    private static final class Failure extends RuntimeException
+    {
+        /**
+         * Serial code version <code>serialVersionUID</code>.
+         */
+        private static final long serialVersionUID = 6403514581622047012L;
+
+        /**
+         * The failure of the evaluation.
+         */
+        private final EvaluationException exception;
+
+        /**
+         * Creates a {@link Failure}.
+         * 
+         * @param failure
+         *            The failure of the evaluation.
+         */
+        Failure(EvaluationException failure)
+        {
+            super(failure);
+            this.exception = failure;
+        }
+    }
+}
@@ -0,0 +1,129 @@
+/**
+ * Copyright (C) 2013 - 2015 Contributors.
+ *
+ * FormulaJ is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * FormulaJ is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see [http://www.gnu.org/licenses/].
+ *
+ * Contact: formulaj-user-list@googlegroups.com.
+ */
+package formulaj.expression.batch;
+
+/**
+ * The groups of a {@link GroupedAggregation}, with the aggregations of their values. The groups are numbered in an unspecified order.
+ */
+public final class GroupedResult
+{
+    /**
+     * The groups and their aggregations.
+     */
+    private final GroupTable table;
+
+    /**
+     * Creates a {@link GroupedResult}.
+     * 
+     * @param groups
+     *            The groups and their aggregations.
+     */
+    GroupedResult(GroupTable groups)
+    {
+        this.table = groups;
+    }
+
+    /**
+     * Returns the number of groups.
+     * 
+     * @return The number of groups.
+     */
+    public int size()
+    {
+        return table.size();
+    }
+
+    /**
+     * Returns the key of a group. The group of the rows without a key has the key {@link Double#NaN}.
+     * 
+     * @param group
+     *            The index of the group, from zero to {@link #size()} exclusive.
+     * @return The key of the group.
+     */
+    public double key(int group)
+    {
+        checkGroup(group);
+        return table.key(group);
+    }
+
+    /**
+     * Returns the group of a key.
+     * 
+     * @param key
+     *            The key of the group.
+     * @return The index of the group, or <code>-1</code> if no row has the given key.
+     */
+    public int group(double key)
+    {
+        return table.find(GroupTable.bits(key));
+    }
+
+    /**
+     * Returns an aggregation of the values of a group.
+     * 
+     * @param aggregation
+     *            The aggregation to be returned. Might not be <code>null</code>.
+     * @param group
+     *            The index of the group, from zero to {@link #size()} exclusive.
+     * @return The aggregation of the group's values. The sum, the average, the minimum and the maximum of a group without values are
+     *         {@link Double#NaN}.
+     */
+    public double value(Aggregation aggregation, int group)
+    {
+        checkGroup(group);
+        return table.value(aggregation, group);
+    }
+
+    /**
+     * Returns an aggregation of all the groups.
+     * 
+     * @param aggregation
+     *            The aggregation to be returned. Might not be <code>null</code>.
+     * @return A new array with the aggregation of each group, in the order of the groups.
+     */
+    public double[] values(Aggregation aggregation)
+    {
+        double[] values = new double[table.size()];
+        for (int group = 0; group < values.length; group++)
+        {
+            values[group] = table.value(aggregation, group);
+        }
+        return values;
+    }
+
+    /**
+     * Checks the index of a group.
+     * 
+     * @param group
+     *            The index of the group.
+     */
+    private void checkGroup(int group)
+    {
+        if (group < 0 || group >= table.size())
+        {
+            throw new IndexOutOfBoundsException(String.format("Invalid group %d of %d!", group, table.size()));
+        }
+    }
+
+    @Override
+    public String toString()
+    {
+        return String.format("%d groups", table.size());
+    }
+}
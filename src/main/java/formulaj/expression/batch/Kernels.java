@@ -0,0 +1,80 @@
+/**
+ * Copyright (C) 2013 - 2015 Contributors.
+ *
+ * FormulaJ is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * FormulaJ is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see [http://www.gnu.org/licenses/].
+ *
+ * Contact: formulaj-user-list@googlegroups.com.
+ */
+package formulaj.expression.batch;
+
+import java.util.ServiceConfigurationError;
+import java.util.ServiceLoader;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Selects the {@link VectorKernels} of the batch evaluation. On Java 17 and later, with the <code>jdk.incubator.vector</code> module, the
+ * multi-release jar provides kernels on the Java Vector API; otherwise the {@link ScalarKernels} are used.
+ */
+public final class Kernels
+{
+    /**
+     * The kernels in use.
+     */
+    private static final VectorKernels KERNELS = load();
+
+    /**
+     * Private constructor to avoid instance of this class.
+     */
+    private Kernels()
+    {
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * Returns the kernels of the batch evaluation: the first available {@link VectorKernels} found by the {@link ServiceLoader} or
+     * {@link ScalarKernels} if there is no one.
+     * 
+     * @return The kernels of the batch evaluation.
+     */
+    public static VectorKernels get()
+    {
+        return KERNELS;
+    }
+
+    /**
+     * Returns the first available {@link VectorKernels} found by the {@link ServiceLoader} or {@link ScalarKernels} if there is no one.
+     * 
+     * @return The kernels of the batch evaluation.
+     */
+    private static VectorKernels load()
+    {
+        try
+        {
+            for (VectorKernels kernels : ServiceLoader.load(VectorKernels.class, Kernels.class.getClassLoader()))
+            {
+                if (kernels.isAvailable())
+                {
+                    return kernels;
+                }
+            }
+        }
+        catch (ServiceConfigurationError | LinkageError exception)
+        {
+            Logger.getLogger(Kernels.class.getName()).log(Level.FINE, "Using the scalar kernels", exception);
+        }
+
+        return new ScalarKernels();
+    }
+}
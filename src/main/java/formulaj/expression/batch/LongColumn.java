@@ -0,0 +1,58 @@
+/**
+ * Copyright (C) 2013 - 2015 Contributors.
+ *
+ * FormulaJ is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * FormulaJ is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see [http://www.gnu.org/licenses/].
+ *
+ * Contact: formulaj-user-list@googlegroups.com.
+ */
+package formulaj.expression.batch;
+
+import java.util.Objects;
+
+/**
+ * A {@link Column} of <code>long</code> values.
+ */
+public final class LongColumn implements Column
+{
+    /**
+     * The values of this column.
+     */
+    private final long[] values;
+
+    /**
+     * Creates a {@link Column} backed by the given array. The array is not copied.
+     * 
+     * @param columnValues
+     *            The values of the column. Might not be <code>null</code>.
+     */
+    public LongColumn(long[] columnValues)
+    {
+        this.values = Objects.requireNonNull(columnValues);
+    }
+
+    @Override
+    public int size()
+    {
+        return values.length;
+    }
+
+    @Override
+    public void read(int from, double[] target, int length)
+    {
+        for (int i = 0; i < length; i++)
+        {
+            target[i] = values[from + i];
+        }
+    }
+}
@@ -0,0 +1,75 @@
+/**
+ * Copyright (C) 2013 - 2015 Contributors.
+ *
+ * FormulaJ is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * FormulaJ is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see [http://www.gnu.org/licenses/].
+ *
+ * Contact: formulaj-user-list@googlegroups.com.
+ */
+package formulaj.expression.batch;
+
+import java.util.Objects;
+
+/**
+ * A {@link NullableColumn} that adds a {@link ValidityBitmap} to the values of another {@link Column}.
+ */
+public final class MaskedColumn implements NullableColumn
+{
+    /**
+     * The values of this column.
+     */
+    private final Column values;
+
+    /**
+     * The rows that have a value.
+     */
+    private final ValidityBitmap validity;
+
+    /**
+     * Creates a {@link MaskedColumn}.
+     * 
+     * @param columnValues
+     *            The values of the column. Might not be <code>null</code>.
+     * @param validRows
+     *            The rows that have a value. Might not be <code>null</code>, and it must have the rows of the values.
+     */
+    public MaskedColumn(Column columnValues, ValidityBitmap validRows)
+    {
+        this.values = Objects.requireNonNull(columnValues);
+        this.validity = Objects.requireNonNull(validRows);
+
+        if (validRows.size() < columnValues.size())
+        {
+            throw new IllegalArgumentException(String.format("The bitmap has %d rows, but the column has %d!", validRows.size(),
+                    columnValues.size()));
+        }
+    }
+
+    @Override
+    public int size()
+    {
+        return values.size();
+    }
+
+    @Override
+    public void read(int from, double[] target, int length)
+    {
+        values.read(from, target, length);
+    }
+
+    @Override
+    public ValidityBitmap validity()
+    {
+        return validity;
+    }
+}
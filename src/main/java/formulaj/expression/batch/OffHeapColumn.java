@@ -0,0 +1,381 @@
+/**
+ * Copyright (C) 2013 - 2015 Contributors.
+ *
+ * FormulaJ is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * FormulaJ is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see [http://www.gnu.org/licenses/].
+ *
+ * Contact: formulaj-user-list@googlegroups.com.
+ */
+package formulaj.expression.batch;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Objects;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * A column of <code>double</code> values stored out of the heap, in a direct or memory-mapped buffer. It is read and written in place by the
+ * evaluation, as a {@link Column} and as an {@link OutputColumn}, so huge inputs and outputs add no pressure to the garbage collector. A column
+ * mapped from a file can be read by other processes without copying.
+ * <p>
+ * The memory is released by {@link #close()}, without waiting for the garbage collector when the JVM allows it. A closed column cannot be read
+ * or written: {@link #close()} waits for the reads and writes in progress, and the later ones throw an {@link IllegalStateException}. The memory
+ * of a column whose {@link #buffer()} was handed out is left to the garbage collector, which releases it when the views are no longer used.
+ * 
+ * <pre>
+ * try (OffHeapColumn prices = OffHeapColumn.allocate(rows); OffHeapColumn totals = OffHeapColumn.allocate(rows))
+ * {
+ *     ...
+ *     evaluator.evaluate(program, program.bind(columns), rows, totals);
+ * }
+ * </pre>
+ */
+public final class OffHeapColumn implements Column, OutputColumn, Closeable
+{
+    /**
+     * The size of a value, in bytes.
+     */
+    private static final int VALUE_SIZE = 8;
+
+    /**
+     * The largest number of rows of a column.
+     */
+    public static final int MAX_ROWS = Integer.MAX_VALUE / VALUE_SIZE;
+
+    /**
+     * The buffer with the values.
+     */
+    private final ByteBuffer buffer;
+
+    /**
+     * The values of the buffer.
+     */
+    private final DoubleBuffer values;
+
+    /**
+     * Indicates if {@link #close()} releases the memory of the buffer.
+     */
+    private final boolean owner;
+
+    /**
+     * The lock that keeps {@link #close()} from releasing the memory while it is read or written.
+     */
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    /**
+     * Indicates if a view of the buffer was handed out by {@link #buffer()}.
+     */
+    private volatile boolean shared;
+
+    /**
+     * Indicates if this column was closed.
+     */
+    private volatile boolean closed;
+
+    /**
+     * Creates an {@link OffHeapColumn}.
+     * 
+     * @param valuesBuffer
+     *            The buffer with the values, between its position and limit.
+     * @param releaseOnClose
+     *            Indicates if {@link #close()} releases the memory of the buffer.
+     */
+    private OffHeapColumn(ByteBuffer valuesBuffer, boolean releaseOnClose)
+    {
+        this.buffer = valuesBuffer;
+        this.values = valuesBuffer.asDoubleBuffer();
+        this.owner = releaseOnClose;
+    }
+
+    /**
+     * Allocates a column of zeros in a direct buffer, in the native byte order.
+     * 
+     * @param rows
+     *            The number of rows of the column.
+     * @return A new column, whose memory is released by {@link #close()}.
+     */
+    public static OffHeapColumn allocate(int rows)
+    {
+        checkRows(rows);
+        return new OffHeapColumn(ByteBuffer.allocateDirect(rows * VALUE_SIZE).order(ByteOrder.nativeOrder()), true);
+    }
+
+    /**
+     * Creates a column with the values between the position and the limit of a buffer, in its byte order. The buffer is not copied, and it is
+     * not released by {@link #close()}.
+     * 
+     * @param valuesBuffer
+     *            The buffer with the values. Might not be <code>null</code>.
+     * @return A new column over the given buffer.
+     */
+    public static OffHeapColumn wrap(ByteBuffer valuesBuffer)
+    {
+        return new OffHeapColumn(valuesBuffer.slice().order(valuesBuffer.order()), false);
+    }
+
+    /**
+     * Maps the first values of a file, in the native byte order. The file is created or extended if it does not have the given number of rows,
+     * and the values written to the column are written to the file.
+     * 
+     * @param file
+     *            The file with the values. Might not be <code>null</code>.
+     * @param rows
+     *            The number of rows of the column.
+     * @return A new column, which is unmapped by {@link #close()}.
+     * @throws IOException
+     *             If the file cannot be mapped.
+     */
+    public static OffHeapColumn map(Path file, int rows) throws IOException
+    {
+        checkRows(rows);
+
+        try (FileChannel channel = FileChannel.open(Objects.requireNonNull(file), StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE))
+        {
+            return new OffHeapColumn(channel.map(MapMode.READ_WRITE, 0, (long) rows * VALUE_SIZE).order(ByteOrder.nativeOrder()), true);
+        }
+    }
+
+    /**
+     * Checks the number of rows of a new column.
+     * 
+     * @param rows
+     *            The number of rows of the column.
+     */
+    private static void checkRows(int rows)
+    {
+        if (rows < 0 || rows > MAX_ROWS)
+        {
+            throw new IllegalArgumentException(String.format("Invalid number of rows: %d, the maximum is %d!", rows, MAX_ROWS));
+        }
+    }
+
+    @Override
+    public int size()
+    {
+        return values.limit();
+    }
+
+    /**
+     * Returns the value of a row.
+     * 
+     * @param row
+     *            The index of the row.
+     * @return The value of the given row.
+     */
+    public double get(int row)
+    {
+        Lock access = acquire();
+        try
+        {
+            return values.get(row);
+        }
+        finally
+        {
+            access.unlock();
+        }
+    }
+
+    /**
+     * Replaces the value of a row.
+     * 
+     * @param row
+     *            The index of the row.
+     * @param value
+     *            The new value of the row.
+     */
+    public void set(int row, double value)
+    {
+        Lock access = acquire();
+        try
+        {
+            values.put(row, value);
+        }
+        finally
+        {
+            access.unlock();
+        }
+    }
+
+    @Override
+    public void read(int from, double[] target, int length)
+    {
+        Lock access = acquire();
+        try
+        {
+            for (int i = 0; i < length; i++)
+            {
+                target[i] = values.get(from + i);
+            }
+        }
+        finally
+        {
+            access.unlock();
+        }
+    }
+
+    @Override
+    public void write(int from, double[] source, int length)
+    {
+        Lock access = acquire();
+        try
+        {
+            for (int i = 0; i < length; i++)
+            {
+                values.put(from + i, source[i]);
+            }
+        }
+        finally
+        {
+            access.unlock();
+        }
+    }
+
+    /**
+     * Returns a view of the bytes of this column, to be handed to other components without copying. Once a view is handed out, {@link #close()}
+     * no longer releases the memory, which is left to the garbage collector so that the view stays readable.
+     * 
+     * @return A new buffer that shares the bytes of this column.
+     */
+    public ByteBuffer buffer()
+    {
+        Lock access = acquire();
+        try
+        {
+            shared = true;
+            return buffer.duplicate().order(buffer.order());
+        }
+        finally
+        {
+            access.unlock();
+        }
+    }
+
+    /**
+     * Returns <code>true</code> if this column was closed.
+     * 
+     * @return <code>true</code> if this column was closed.
+     */
+    public boolean isClosed()
+    {
+        return closed;
+    }
+
+    /**
+     * Locks the memory of this column against {@link #close()}.
+     * 
+     * @return The lock to be released when the access ends.
+     */
+    private Lock acquire()
+    {
+        Lock access = lock.readLock();
+        access.lock();
+
+        if (closed)
+        {
+            access.unlock();
+            throw new IllegalStateException("The column was closed!");
+        }
+        return access;
+    }
+
+    /**
+     * Releases the memory of this column, if it was allocated or mapped by this class and no view of it was handed out. It waits for the reads
+     * and writes in progress. Closing a column twice has no effect.
+     */
+    @Override
+    public void close()
+    {
+        lock.writeLock().lock();
+        try
+        {
+            if (!closed)
+            {
+                closed = true;
+
+                if (owner && !shared)
+                {
+                    release(buffer);
+                }
+            }
+        }
+        finally
+        {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Releases the memory of a direct or mapped buffer without waiting for the garbage collector. It uses <code>Unsafe.invokeCleaner</code>
+     * on Java 9 and later, and the buffer's cleaner on older versions; if neither is accessible, the memory is released by the garbage
+     * collector.
+     * 
+     * @param directBuffer
+     *            The buffer to be released. It must not be used after this call.
+     */
+    private static void release(ByteBuffer directBuffer)
+    {
+        try
+        {
+            Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+            Method invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+            Field theUnsafe = unsafeClass.getDeclaredField("theUnsafe");
+            theUnsafe.setAccessible(true);
+            invokeCleaner.invoke(theUnsafe.get(null), directBuffer);
+        }
+        catch (NoSuchMethodException exception)
+        {
+            releaseWithCleaner(directBuffer);
+        }
+        catch (ReflectiveOperationException | RuntimeException exception)
+        {
+            // the garbage collector releases the buffer
+        }
+    }
+
+    /**
+     * Releases the memory of a direct or mapped buffer with its cleaner, as available before Java 9.
+     * 
+     * @param directBuffer
+     *            The buffer to be released.
+     */
+    private static void releaseWithCleaner(ByteBuffer directBuffer)
+    {
+        try
+        {
+            Method cleanerMethod = directBuffer.getClass().getMethod("cleaner");
+            cleanerMethod.setAccessible(true);
+            Object cleaner = cleanerMethod.invoke(directBuffer);
+
+            if (cleaner != null)
+            {
+                cleaner.getClass().getMethod("clean").invoke(cleaner);
+            }
+        }
+        catch (ReflectiveOperationException | RuntimeException exception)
+        {
+            // the garbage collector releases the buffer
+        }
+    }
+}
@@ -0,0 +1,329 @@
+/**
+ * Copyright (C) 2013 - 2015 Contributors.
+ *
+ * FormulaJ is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * FormulaJ is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see [http://www.gnu.org/licenses/].
+ *
+ * Contact: formulaj-user-list@googlegroups.com.
+ */
+package formulaj.expression.batch;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.RandomAccess;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import formulaj.expression.EvaluationException;
+import formulaj.expression.Value;
+import formulaj.expression.compiler.CompiledExpression;
+import formulaj.expression.evaluator.impl.BindingEvaluator;
+
+/**
+ * A {@link BatchEvaluator} that splits the rows in chunks evaluated in parallel on a {@link ForkJoinPool}. The first rows are evaluated by the
+ * caller's thread and their cost defines the size of the chunks, so each chunk takes about {@link #getTargetChunkNanos()}: cheap expressions
+ * get large chunks, with little scheduling overhead, and expensive ones get small chunks, which balance the work among the threads. Each chunk
+ * writes its values in its own positions of the output, so the results are in the order of the rows without any locking.
+ * <p>
+ * The expression is shared by all threads; each chunk has its own scratch vectors or evaluator.
+ */
+public class ParallelEvaluator implements BatchEvaluator
+{
+    /**
+     * The default time to evaluate a chunk.
+     */
+    public static final long DEFAULT_TARGET_CHUNK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    /**
+     * The number of binding frames evaluated to measure the cost of a row.
+     */
+    private static final int FRAME_SAMPLE_SIZE = 64;
+
+    /**
+     * The number of chunks per thread of the pool, at least, so that the idle threads have work to steal.
+     */
+    private static final int CHUNKS_PER_THREAD = 4;
+
+    /**
+     * The pool used when no one is given to the constructor.
+     */
+    static final ForkJoinPool DEFAULT_POOL = new ForkJoinPool();
+
+    /**
+     * The pool of the chunks' evaluation.
+     */
+    private final ForkJoinPool pool;
+
+    /**
+     * The time to evaluate a chunk.
+     */
+    private final long targetChunkNanos;
+
+    /**
+     * The size of the chunks of the last evaluation.
+     */
+    private volatile int lastChunkSize;
+
+    /**
+     * Creates a {@link ParallelEvaluator} that uses a pool shared by all instances and the {@link #DEFAULT_TARGET_CHUNK_NANOS}.
+     */
+    public ParallelEvaluator()
+    {
+        this(DEFAULT_POOL, DEFAULT_TARGET_CHUNK_NANOS);
+    }
+
+    /**
+     * Creates a {@link ParallelEvaluator}.
+     * 
+     * @param forkJoinPool
+     *            The pool of the chunks' evaluation. Might not be <code>null</code>.
+     * @param chunkNanos
+     *            The time to evaluate a chunk, in nanoseconds. It must be positive.
+     */
+    public ParallelEvaluator(ForkJoinPool forkJoinPool, long chunkNanos)
+    {
+        if (chunkNanos <= 0)
+        {
+            throw new IllegalArgumentException("The time of a chunk must be positive: " + chunkNanos);
+        }
+
+        this.pool = Objects.requireNonNull(forkJoinPool);
+        this.targetChunkNanos = chunkNanos;
+    }
+
+    @Override
+    public void evaluate(CompiledExpression<?> expression, Map<String, ? extends Column> columns, double[] output) throws EvaluationException
+    {
+        BatchProgram program = BatchProgram.compile(expression);
+        this.evaluate(program, program.bind(columns), output.length, output);
+    }
+
+    /**
+     * Evaluates the first rows of the given columns with a program already compiled. The output might be larger than the number of rows, so the
+     * same arrays can be reused by many evaluations.
+     * 
+     * @param program
+     *            The program to be executed. Might not be <code>null</code>.
+     * @param columns
+     *            The columns in the order of {@link BatchProgram#variables()}.
+     * @param rows
+     *            The number of rows to be evaluated.
+     * @param output
+     *            The array that receives the values, from its first position.
+     * @throws EvaluationException
+     *             If an operator or a function called row by row fails.
+     */
+    public void evaluate(final BatchProgram program, final Column[] columns, int rows, final double[] output) throws EvaluationException
+    {
+        program.checkRange(columns, 0, rows, output);
+
+        this.evaluate(new RowRange()
+        {
+            @Override
+            public void evaluate(int from, int to) throws EvaluationException
+            {
+                program.evaluate(columns, from, to, output);
+            }
+        }, rows);
+    }
+
+    /**
+     * Evaluates the first rows of the given columns with a program already compiled and writes the values in place to an {@link OutputColumn},
+     * such as an {@link OffHeapColumn}.
+     * 
+     * @param program
+     *            The program to be executed. Might not be <code>null</code>.
+     * @param columns
+     *            The columns in the order of {@link BatchProgram#variables()}.
+     * @param rows
+     *            The number of rows to be evaluated.
+     * @param output
+     *            The column that receives the values, from its first row.
+     * @throws EvaluationException
+     *             If an operator or a function called row by row fails.
+     */
+    public void evaluate(final BatchProgram program, final Column[] columns, int rows, final OutputColumn output) throws EvaluationException
+    {
+        program.checkRange(columns, 0, rows, output.size());
+
+        this.evaluate(new RowRange()
+        {
+            @Override
+            public void evaluate(int from, int to) throws EvaluationException
+            {
+                program.evaluate(columns, from, to, output);
+            }
+        }, rows);
+    }
+
+    /**
+     * Evaluates the first block of rows in the caller's thread, to measure the cost of a row, and the other rows in chunks.
+     * 
+     * @param range
+     *            The evaluation of a range of rows.
+     * @param rows
+     *            The number of rows to be evaluated.
+     * @throws EvaluationException
+     *             If the evaluation of a row fails.
+     */
+    private void evaluate(RowRange range, int rows) throws EvaluationException
+    {
+        int sample = Math.min(rows, BatchProgram.DEFAULT_BLOCK_SIZE);
+        long start = System.nanoTime();
+        range.evaluate(0, sample);
+        long elapsed = System.nanoTime() - start;
+
+        this.run(range, sample, rows, chunkSize(elapsed, sample, rows - sample, BatchProgram.DEFAULT_BLOCK_SIZE));
+    }
+
+    /**
+     * Evaluates an expression for each frame of bindings. The values are returned in the order of the frames.
+     * 
+     * @param expression
+     *            The expression to be evaluated. Might not be <code>null</code>.
+     * @param frames
+     *            The frames of bindings. The key of a frame is the variable's name. See {@link BindingEvaluator} for the accepted values.
+     * @param <T>
+     *            The type of the expression's value.
+     * @return The values of the expression, in the order of the frames.
+     * @throws EvaluationException
+     *             If the evaluation of a frame fails or the expression calls a function that keeps state between evaluations, whose frames
+     *             must be evaluated in order.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> List<Value<T>> evaluate(final CompiledExpression<T> expression, List<? extends Map<String, ?>> frames) throws EvaluationException
+    {
+        if (expression.hasState())
+        {
+            throw new EvaluationException(String.format("The expression %s keeps state between evaluations and requires the frames in order!",
+                    expression.expression()));
+        }
+
+        final List<? extends Map<String, ?>> rows = frames instanceof RandomAccess ? frames : new ArrayList<>(frames);
+        final Value<T>[] values = (Value<T>[]) new Value<?>[rows.size()];
+
+        RowRange range = new RowRange()
+        {
+            @Override
+            public void evaluate(int from, int to) throws EvaluationException
+            {
+                BindingEvaluator<T> evaluator = new BindingEvaluator<>();
+
+                for (int i = from; i < to; i++)
+                {
+                    values[i] = evaluator.bind(rows.get(i)).eval(expression);
+                }
+            }
+        };
+
+        int sample = Math.min(values.length, FRAME_SAMPLE_SIZE);
+        long start = System.nanoTime();
+        range.evaluate(0, sample);
+        long elapsed = System.nanoTime() - start;
+
+        this.run(range, sample, values.length, chunkSize(elapsed, sample, values.length - sample, 1));
+
+        return Arrays.asList(values);
+    }
+
+    /**
+     * Evaluates the rows of a range in chunks of the given size.
+     * 
+     * @param range
+     *            The evaluation of the rows.
+     * @param from
+     *            The index of the first row, inclusive.
+     * @param to
+     *            The index of the last row, exclusive.
+     * @param chunkSize
+     *            The number of rows of a chunk.
+     * @throws EvaluationException
+     *             If the evaluation of a row fails.
+     */
+    private void run(RowRange range, int from, int to, int chunkSize) throws EvaluationException
+    {
+        lastChunkSize = chunkSize;
+
+        if (from >= to)
+        {
+            return;
+        }
+
+        AtomicReference<EvaluationException> failure = new AtomicReference<>();
+
+        if (to - from <= chunkSize)
+        {
+            range.evaluate(from, to);
+        }
+        else
+        {
+            pool.invoke(new RangeTask(range, from, to, chunkSize, failure));
+        }
+
+        if (failure.get() != null)
+        {
+            throw failure.get();
+        }
+    }
+
+    /**
+     * Returns the number of rows evaluated in about {@link #getTargetChunkNanos()}, given the time to evaluate a sample of rows. The size is
+     * limited so that every thread of the pool gets some chunks, and it's a multiple of the given granularity.
+     * 
+     * @param sampleNanos
+     *            The time to evaluate the sample.
+     * @param sampleRows
+     *            The number of rows of the sample.
+     * @param remainingRows
+     *            The number of rows to be evaluated after the sample.
+     * @param granularity
+     *            The minimum number of rows of a chunk.
+     * @return The number of rows of a chunk.
+     */
+    int chunkSize(long sampleNanos, int sampleRows, int remainingRows, int granularity)
+    {
+        double nanosPerRow = Math.max(1L, sampleNanos) / (double) Math.max(1, sampleRows);
+        long size = (long) (targetChunkNanos / nanosPerRow);
+
+        long fairShare = (remainingRows + (long) pool.getParallelism() * CHUNKS_PER_THREAD - 1) / ((long) pool.getParallelism() * CHUNKS_PER_THREAD);
+        size = Math.min(size, fairShare);
+
+        size = Math.max(granularity, (size + granularity - 1) / granularity * granularity);
+
+        return (int) Math.min(Integer.MAX_VALUE, size);
+    }
+
+    /**
+     * Returns the time to evaluate a chunk.
+     * 
+     * @return The time to evaluate a chunk, in nanoseconds.
+     */
+    public long getTargetChunkNanos()
+    {
+        return targetChunkNanos;
+    }
+
+    /**
+     * Returns the number of rows of the chunks of the last evaluation.
+     * 
+     * @return The number of rows of the chunks of the last evaluation or zero if there was no evaluation.
+     */
+    public int getLastChunkSize()
+    {
+        return lastChunkSize;
+    }
+}
@@ -0,0 +1,110 @@
+/**
+ * Copyright (C) 2013 - 2015 Contributors.
+ *
+ * FormulaJ is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * FormulaJ is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see [http://www.gnu.org/licenses/].
+ *
+ * Contact: formulaj-user-list@googlegroups.com.
+ */
+package formulaj.expression.batch;
+
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicReference;
+
+import formulaj.expression.EvaluationException;
+
+/**
+ * Splits a range of rows in halves until it has at most one chunk, and evaluates the chunks on the threads of a
+ * {@link java.util.concurrent.ForkJoinPool}. The idle threads steal the halves not started yet.
+ */
+final class RangeTask extends RecursiveAction
+{
+    /**
+     * Serial code version <code>serialVersionUID</code>.
+     */
+    private static final long serialVersionUID = 4107512924318845529L;
+
+    /**
+     * The evaluation of the rows.
+     */
+    private final transient RowRange range;
+
+    /**
+     * The index of the first row of this task.
+     */
+    private final int from;
+
+    /**
+     * The index after the last row of this task.
+     */
+    private final int to;
+
+    /**
+     * The maximum number of rows evaluated without splitting the task.
+     */
+    private final int chunkSize;
+
+    /**
+     * The first failure of the evaluation.
+     */
+    private final AtomicReference<EvaluationException> failure;
+
+    /**
+     * Creates a task to evaluate the rows between two indexes.
+     * 
+     * @param rows
+     *            The evaluation of the rows.
+     * @param start
+     *            The index of the first row, inclusive.
+     * @param end
+     *            The index of the last row, exclusive.
+     * @param chunk
+     *            The maximum number of rows evaluated without splitting the task.
+     * @param firstFailure
+     *            Receives the first failure of the evaluation.
+     */
+    RangeTask(RowRange rows, int start, int end, int chunk, AtomicReference<EvaluationException> firstFailure)
+    {
+        this.range = rows;
+        this.from = start;
+        this.to = end;
+        this.chunkSize = chunk;
+        this.failure = firstFailure;
+    }
+
+    @Override
+    protected void compute()
+    {
+        if (failure.get() != null)
+        {
+            return;
+        }
+
+        if (to - from <= chunkSize)
+        {
+            try
+            {
+                range.evaluate(from, to);
+            }
+            catch (EvaluationException exception)
+            {
+                failure.compareAndSet(null, exception);
+            }
+        }
+        else
+        {
+            int middle = (from + to) >>> 1;
+            invokeAll(new RangeTask(range, from, middle, chunkSize, failure), new RangeTask(range, middle, to, chunkSize, failure));
+        }
+    }
+}
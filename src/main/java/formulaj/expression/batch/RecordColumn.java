@@ -0,0 +1,134 @@
+/**
+ * Copyright (C) 2013 - 2015 Contributors.
+ *
+ * FormulaJ is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * FormulaJ is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see [http://www.gnu.org/licenses/].
+ *
+ * Contact: formulaj-user-list@googlegroups.com.
+ */
+package formulaj.expression.batch;
+
+import java.nio.ByteBuffer;
+import java.util.Objects;
+
+import formulaj.expression.UndefinedVariableException;
+import formulaj.expression.batch.RecordLayout.Field;
+
+/**
+ * A {@link Column} with a field of the fixed-size records of a {@link ByteBuffer}. The values are read at their offsets, straight from the
+ * buffer, when the rows are read; the buffer is neither copied nor changed.
+ */
+public final class RecordColumn implements Column
+{
+    /**
+     * The buffer with the records, in the byte order of the layout.
+     */
+    private final ByteBuffer buffer;
+
+    /**
+     * The size of a record, in bytes.
+     */
+    private final int recordSize;
+
+    /**
+     * The field of this column.
+     */
+    private final Field field;
+
+    /**
+     * The position of the first record in the buffer.
+     */
+    private int base;
+
+    /**
+     * The number of records.
+     */
+    private int records;
+
+    /**
+     * Creates a {@link Column} with a field of the records between the position and the limit of a buffer.
+     * 
+     * @param recordBuffer
+     *            The buffer with the records. Might not be <code>null</code>. Its position and limit are not changed.
+     * @param layout
+     *            The layout of the records. Might not be <code>null</code>.
+     * @param fieldName
+     *            The name of the field of this column.
+     * @throws UndefinedVariableException
+     *             If the layout does not have the given field.
+     */
+    public RecordColumn(ByteBuffer recordBuffer, RecordLayout layout, String fieldName) throws UndefinedVariableException
+    {
+        this(recordBuffer.duplicate().order(layout.order()), layout.recordSize(), layout.field(fieldName));
+        this.rebase(recordBuffer.position(), recordBuffer.remaining() / recordSize);
+    }
+
+    /**
+     * Creates a {@link Column} without records; they are defined by {@link #rebase(int, int)}.
+     * 
+     * @param orderedBuffer
+     *            The buffer with the records, already in the byte order of the layout.
+     * @param size
+     *            The size of a record, in bytes.
+     * @param recordField
+     *            The field of this column.
+     */
+    RecordColumn(ByteBuffer orderedBuffer, int size, Field recordField)
+    {
+        this.buffer = Objects.requireNonNull(orderedBuffer);
+        this.recordSize = size;
+        this.field = recordField;
+    }
+
+    /**
+     * Moves this column to other records of the same buffer.
+     * 
+     * @param position
+     *            The position of the first record in the buffer.
+     * @param count
+     *            The number of records.
+     */
+    void rebase(int position, int count)
+    {
+        this.base = position;
+        this.records = count;
+    }
+
+    @Override
+    public int size()
+    {
+        return records;
+    }
+
+    @Override
+    public void read(int from, double[] target, int length)
+    {
+        FieldType type = field.type();
+        int index = base + from * recordSize + field.offset();
+
+        for (int i = 0; i < length; i++, index += recordSize)
+        {
+            target[i] = type.read(buffer, index);
+        }
+    }
+
+    /**
+     * Returns the field of this column.
+     * 
+     * @return The field of this column.
+     */
+    public Field field()
+    {
+        return field;
+    }
+}
@@ -0,0 +1,316 @@
+/**
+ * Copyright (C) 2013 - 2015 Contributors.
+ *
+ * FormulaJ is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * FormulaJ is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see [http://www.gnu.org/licenses/].
+ *
+ * Contact: formulaj-user-list@googlegroups.com.
+ */
+package formulaj.expression.batch;
+
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+import formulaj.expression.UndefinedVariableException;
+
+/**
+ * The layout of fixed-size binary records: the size of a record, its byte order, and the offset and the {@link FieldType} of each named field.
+ * 
+ * <pre>
+ * RecordLayout layout = new RecordLayout.Builder().field("timestamp", FieldType.LONG).field("temperature", FieldType.FLOAT)
+ *         .field("pressure", FieldType.FLOAT).build();
+ * </pre>
+ * 
+ * A layout is immutable and can be shared by many threads.
+ */
+public final class RecordLayout
+{
+    /**
+     * The size of a record, in bytes.
+     */
+    private final int recordSize;
+
+    /**
+     * The byte order of the values.
+     */
+    private final ByteOrder order;
+
+    /**
+     * The fields by their names, in the order they were defined.
+     */
+    private final Map<String, Field> fields;
+
+    /**
+     * Creates a {@link RecordLayout}.
+     * 
+     * @param size
+     *            The size of a record, in bytes.
+     * @param byteOrder
+     *            The byte order of the values.
+     * @param recordFields
+     *            The fields by their names. The map is not copied.
+     */
+    private RecordLayout(int size, ByteOrder byteOrder, Map<String, Field> recordFields)
+    {
+        this.recordSize = size;
+        this.order = byteOrder;
+        this.fields = Collections.unmodifiableMap(recordFields);
+    }
+
+    /**
+     * Returns the size of a record.
+     * 
+     * @return The size of a record, in bytes.
+     */
+    public int recordSize()
+    {
+        return recordSize;
+    }
+
+    /**
+     * Returns the byte order of the values.
+     * 
+     * @return The byte order of the values.
+     */
+    public ByteOrder order()
+    {
+        return order;
+    }
+
+    /**
+     * Returns the field with the given name.
+     * 
+     * @param name
+     *            The name of the field.
+     * @return The field with the given name.
+     * @throws UndefinedVariableException
+     *             If this layout does not have a field with the given name.
+     */
+    public Field field(String name) throws UndefinedVariableException
+    {
+        Field field = fields.get(name);
+        if (field == null)
+        {
+            throw new UndefinedVariableException(String.format("Undefined field: %s!", name));
+        }
+        return field;
+    }
+
+    /**
+     * Returns the fields of the records, in the order they were defined.
+     * 
+     * @return A read-only list with the fields of the records.
+     */
+    public List<Field> fields()
+    {
+        return Collections.unmodifiableList(new ArrayList<>(fields.values()));
+    }
+
+    @Override
+    public String toString()
+    {
+        return String.format("%d bytes %s %s", recordSize, order, fields.values());
+    }
+
+    /**
+     * A named field of a record.
+     */
+    public static final class Field
+    {
+        /**
+         * The name of the field.
+         */
+        private final String name;
+
+        /**
+         * The position of the field in the record.
+         */
+        private final int offset;
+
+        /**
+         * The type of the field.
+         */
+        private final FieldType type;
+
+        /**
+         * Creates a {@link Field}.
+         * 
+         * @param fieldName
+         *            The name of the field.
+         * @param fieldOffset
+         *            The position of the field in the record.
+         * @param fieldType
+         *            The type of the field.
+         */
+        Field(String fieldName, int fieldOffset, FieldType fieldType)
+        {
+            this.name = fieldName;
+            this.offset = fieldOffset;
+            this.type = fieldType;
+        }
+
+        /**
+         * Returns the name of this field.
+         * 
+         * @return The name of this field.
+         */
+        public String name()
+        {
+            return name;
+        }
+
+        /**
+         * Returns the position of this field in the record.
+         * 
+         * @return The position of this field in the record, in bytes.
+         */
+        public int offset()
+        {
+            return offset;
+        }
+
+        /**
+         * Returns the type of this field.
+         * 
+         * @return The type of this field.
+         */
+        public FieldType type()
+        {
+            return type;
+        }
+
+        @Override
+        public String toString()
+        {
+            return String.format("%s:%s@%d", name, type, offset);
+        }
+    }
+
+    /**
+     * Creates {@link RecordLayout}s.
+     */
+    public static final class Builder
+    {
+        /**
+         * The fields defined so far.
+         */
+        private final Map<String, Field> fields = new LinkedHashMap<>();
+
+        /**
+         * The position after the last byte of the fields defined so far.
+         */
+        private int end;
+
+        /**
+         * The size of a record, or <code>-1</code> to use the end of the last field.
+         */
+        private int size = -1;
+
+        /**
+         * The byte order of the values.
+         */
+        private ByteOrder order = ByteOrder.BIG_ENDIAN;
+
+        /**
+         * Defines a field right after the fields defined so far.
+         * 
+         * @param name
+         *            The name of the field. Might not be <code>null</code>.
+         * @param type
+         *            The type of the field. Might not be <code>null</code>.
+         * @return This builder.
+         */
+        public Builder field(String name, FieldType type)
+        {
+            return field(name, end, type);
+        }
+
+        /**
+         * Defines a field at the given position of the record.
+         * 
+         * @param name
+         *            The name of the field. Might not be <code>null</code>.
+         * @param offset
+         *            The position of the field in the record, in bytes.
+         * @param type
+         *            The type of the field. Might not be <code>null</code>.
+         * @return This builder.
+         */
+        public Builder field(String name, int offset, FieldType type)
+        {
+            Objects.requireNonNull(type);
+
+            if (offset < 0)
+            {
+                throw new IllegalArgumentException(String.format("Invalid offset of the field %s: %d", name, offset));
+            }
+
+            if (fields.containsKey(Objects.requireNonNull(name)))
+            {
+                throw new IllegalArgumentException(String.format("The field %s is already defined!", name));
+            }
+
+            fields.put(name, new Field(name, offset, type));
+            end = Math.max(end, offset + type.size());
+            return this;
+        }
+
+        /**
+         * Defines the size of a record, which might be larger than its fields because of padding.
+         * 
+         * @param recordSize
+         *            The size of a record, in bytes.
+         * @return This builder.
+         */
+        public Builder size(int recordSize)
+        {
+            this.size = recordSize;
+            return this;
+        }
+
+        /**
+         * Defines the byte order of the values. The default is {@link ByteOrder#BIG_ENDIAN}.
+         * 
+         * @param byteOrder
+         *            The byte order of the values. Might not be <code>null</code>.
+         * @return This builder.
+         */
+        public Builder order(ByteOrder byteOrder)
+        {
+            this.order = Objects.requireNonNull(byteOrder);
+            return this;
+        }
+
+        /**
+         * Creates the {@link RecordLayout} with the fields defined so far.
+         * 
+         * @return A new {@link RecordLayout}.
+         */
+        public RecordLayout build()
+        {
+            int recordSize = size < 0 ? end : size;
+
+            if (recordSize < end || recordSize == 0)
+            {
+                throw new IllegalArgumentException(String.format("Invalid size of record: %d, the fields require %d bytes!", recordSize, end));
+            }
+
+            return new RecordLayout(recordSize, order, new LinkedHashMap<>(fields));
+        }
+    }
+}
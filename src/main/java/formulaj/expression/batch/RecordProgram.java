@@ -0,0 +1,325 @@
+/**
+ * Copyright (C) 2013 - 2015 Contributors.
+ *
+ * FormulaJ is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * FormulaJ is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see [http://www.gnu.org/licenses/].
+ *
+ * Contact: formulaj-user-list@googlegroups.com.
+ */
+package formulaj.expression.batch;
+
+import java.lang.ref.WeakReference;
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.Objects;
+
+import formulaj.expression.EvaluationException;
+import formulaj.expression.batch.RecordLayout.Field;
+import formulaj.expression.compiler.CompiledExpression;
+
+/**
+ * A {@link BatchProgram} bound to the fields of a {@link RecordLayout}. The variables of the expression are resolved to the offsets of the
+ * fields once, when the program is compiled, so the evaluation reads each value at its offset with no lookup and no intermediate object.
+ * 
+ * <pre>
+ * RecordProgram program = RecordProgram.compile(CompiledExpression.compile("pressure / temperature"), layout);
+ * program.evaluate(records, output, FieldType.DOUBLE);
+ * </pre>
+ * 
+ * The records are the bytes between the position and the limit of a buffer. A program is immutable and can be shared by many threads.
+ */
+public final class RecordProgram
+{
+    /**
+     * The program of the expression.
+     */
+    private final BatchProgram program;
+
+    /**
+     * The layout of the records.
+     */
+    private final RecordLayout layout;
+
+    /**
+     * The field of each variable, in the order of {@link BatchProgram#variables()}.
+     */
+    private final Field[] fields;
+
+    /**
+     * The columns and the scratch vectors of each thread for {@link #evaluate(ByteBuffer, int)}.
+     */
+    private final ThreadLocal<Scratch> scratches = new ThreadLocal<Scratch>()
+    {
+        @Override
+        protected Scratch initialValue()
+        {
+            return new Scratch();
+        }
+    };
+
+    /**
+     * Creates a {@link RecordProgram}.
+     * 
+     * @param batchProgram
+     *            The program of the expression.
+     * @param recordLayout
+     *            The layout of the records.
+     * @param variableFields
+     *            The field of each variable.
+     */
+    private RecordProgram(BatchProgram batchProgram, RecordLayout recordLayout, Field[] variableFields)
+    {
+        this.program = batchProgram;
+        this.layout = recordLayout;
+        this.fields = variableFields;
+    }
+
+    /**
+     * Compiles an expression for the records of a layout.
+     * 
+     * @param expression
+     *            The expression to be compiled. Might not be <code>null</code>.
+     * @param layout
+     *            The layout of the records. Might not be <code>null</code>.
+     * @return The program of the expression.
+     * @throws EvaluationException
+     *             If a variable of the expression is not a field of the layout, or an operator or a function cannot be compiled.
+     */
+    public static RecordProgram compile(CompiledExpression<?> expression, RecordLayout layout) throws EvaluationException
+    {
+        Objects.requireNonNull(layout);
+
+        BatchProgram program = BatchProgram.compile(expression);
+        List<String> variables = program.variables();
+        Field[] fields = new Field[variables.size()];
+
+        for (int i = 0; i < fields.length; i++)
+        {
+            fields[i] = layout.field(variables.get(i));
+        }
+
+        return new RecordProgram(program, layout, fields);
+    }
+
+    /**
+     * Returns the number of records between the position and the limit of a buffer.
+     * 
+     * @param records
+     *            The buffer with the records.
+     * @return The number of complete records of the buffer.
+     */
+    public int count(ByteBuffer records)
+    {
+        return records.remaining() / layout.recordSize();
+    }
+
+    /**
+     * Creates the columns of the variables over the records of a buffer, which can be given to {@link ParallelEvaluator#evaluate(BatchProgram,
+     * Column[], int, double[])} with {@link #program()}.
+     * 
+     * @param records
+     *            The buffer with the records. Might not be <code>null</code>.
+     * @return The columns in the order of {@link BatchProgram#variables()}.
+     */
+    public Column[] bind(ByteBuffer records)
+    {
+        RecordColumn[] columns = newColumns(records);
+        for (RecordColumn column : columns)
+        {
+            column.rebase(records.position(), count(records));
+        }
+        return columns;
+    }
+
+    /**
+     * Creates the columns of the variables, without records.
+     * 
+     * @param records
+     *            The buffer with the records.
+     * @return The columns in the order of {@link BatchProgram#variables()}.
+     */
+    private RecordColumn[] newColumns(ByteBuffer records)
+    {
+        ByteBuffer buffer = records.duplicate().order(layout.order());
+        buffer.clear();
+        RecordColumn[] columns = new RecordColumn[fields.length];
+
+        for (int i = 0; i < columns.length; i++)
+        {
+            columns[i] = new RecordColumn(buffer, layout.recordSize(), fields[i]);
+        }
+        return columns;
+    }
+
+    /**
+     * Evaluates the expression for each record of a buffer.
+     * 
+     * @param records
+     *            The buffer with the records. Might not be <code>null</code>.
+     * @param output
+     *            The array that receives the values, from its first position. It must have at least one position per record.
+     * @return The number of records evaluated.
+     * @throws EvaluationException
+     *             If an operator or a function called row by row fails.
+     */
+    public int evaluate(ByteBuffer records, double[] output) throws EvaluationException
+    {
+        int count = count(records);
+        program.evaluate(bind(records), 0, count, output);
+        return count;
+    }
+
+    /**
+     * Evaluates the expression for each record of a buffer, block by block, and writes the values to another buffer, from its position and in
+     * its byte order. The position of the output is moved after the values.
+     * 
+     * @param records
+     *            The buffer with the records. Might not be <code>null</code>.
+     * @param output
+     *            The buffer that receives the values. It must have space for one value per record.
+     * @param outputType
+     *            The type of the values written to the output. Might not be <code>null</code>.
+     * @return The number of records evaluated.
+     * @throws EvaluationException
+     *             If an operator or a function called row by row fails.
+     */
+    public int evaluate(ByteBuffer records, ByteBuffer output, FieldType outputType) throws EvaluationException
+    {
+        int count = count(records);
+        int index = output.position();
+
+        if (output.remaining() < count * outputType.size())
+        {
+            throw new IllegalArgumentException(String.format("The output does not have space for %d values of %s!", count, outputType));
+        }
+
+        RecordColumn[] columns = newColumns(records);
+        int blockSize = Math.min(BatchProgram.DEFAULT_BLOCK_SIZE, count);
+        double[][] stack = program.newStack(blockSize);
+        double[] values = new double[blockSize];
+
+        for (int start = 0; start < count; start += blockSize)
+        {
+            int length = Math.min(blockSize, count - start);
+
+            for (RecordColumn column : columns)
+            {
+                column.rebase(records.position() + start * layout.recordSize(), length);
+            }
+
+            program.evaluateBlock(columns, 0, length, stack, values);
+
+            for (int i = 0; i < length; i++, index += outputType.size())
+            {
+                outputType.write(output, index, values[i]);
+            }
+        }
+
+        output.position(index);
+        return count;
+    }
+
+    /**
+     * Evaluates the expression for one record of a buffer. The columns over the buffer and the scratch vectors are created once per thread and
+     * reused while the records are read from the same buffer, so a record is evaluated without allocation.
+     * 
+     * @param records
+     *            The buffer with the records. Might not be <code>null</code>.
+     * @param record
+     *            The index of the record, from the position of the buffer.
+     * @return The value of the expression for the record.
+     * @throws EvaluationException
+     *             If an operator or a function called row by row fails.
+     */
+    public double evaluate(ByteBuffer records, int record) throws EvaluationException
+    {
+        if (record < 0 || record >= count(records))
+        {
+            throw new IndexOutOfBoundsException(String.format("Invalid record %d of %d!", record, count(records)));
+        }
+
+        Scratch scratch = scratches.get();
+        RecordColumn[] columns = scratch.columns(records);
+
+        for (RecordColumn column : columns)
+        {
+            column.rebase(records.position() + record * layout.recordSize(), 1);
+        }
+
+        return program.computeBlock(columns, 0, 1, scratch.stack)[0];
+    }
+
+    /**
+     * Returns the program of the expression.
+     * 
+     * @return The program of the expression.
+     */
+    public BatchProgram program()
+    {
+        return program;
+    }
+
+    /**
+     * Returns the layout of the records.
+     * 
+     * @return The layout of the records.
+     */
+    public RecordLayout layout()
+    {
+        return layout;
+    }
+
+    @Override
+    public String toString()
+    {
+        return program.toString();
+    }
+
+    /**
+     * The columns and the scratch vectors of a thread, to evaluate the records one by one.
+     */
+    private final class Scratch
+    {
+        /**
+         * The scratch vectors of one row.
+         */
+        private final double[][] stack = program.newStack(1);
+
+        /**
+         * The buffer of the {@link #columns}. It does not keep the buffer from being collected.
+         */
+        private WeakReference<ByteBuffer> records = new WeakReference<>(null);
+
+        /**
+         * The columns of the variables over the {@link #records}.
+         */
+        private RecordColumn[] columns;
+
+        /**
+         * Returns the columns of the variables over a buffer, creating them if the buffer is not the one of the last call.
+         * 
+         * @param buffer
+         *            The buffer with the records.
+         * @return The columns in the order of {@link BatchProgram#variables()}.
+         */
+        private RecordColumn[] columns(ByteBuffer buffer)
+        {
+            if (records.get() != buffer)
+            {
+                columns = newColumns(buffer);
+                records = new WeakReference<>(buffer);
+            }
+            return columns;
+        }
+    }
+}
@@ -0,0 +1,39 @@
+/**
+ * Copyright (C) 2013 - 2015 Contributors.
+ *
+ * FormulaJ is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * FormulaJ is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see [http://www.gnu.org/licenses/].
+ *
+ * Contact: formulaj-user-list@googlegroups.com.
+ */
+package formulaj.expression.batch;
+
+import formulaj.expression.EvaluationException;
+
+/**
+ * Evaluates the rows of a range. Each call works on its own rows, so calls for disjoint ranges can run at the same time.
+ */
+interface RowRange
+{
+    /**
+     * Evaluates the rows of a range.
+     * 
+     * @param from
+     *            The index of the first row, inclusive.
+     * @param to
+     *            The index of the last row, exclusive.
+     * @throws EvaluationException
+     *             If the evaluation of a row fails.
+     */
+    void evaluate(int from, int to) throws EvaluationException;
+}
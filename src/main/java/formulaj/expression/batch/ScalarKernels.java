@@ -0,0 +1,244 @@
+/**
+ * Copyright (C) 2013 - 2015 Contributors.
+ *
+ * FormulaJ is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * FormulaJ is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see [http://www.gnu.org/licenses/].
+ *
+ * Contact: formulaj-user-list@googlegroups.com.
+ */
+package formulaj.expression.batch;
+
+/**
+ * The {@link VectorKernels} implemented with plain loops over the arrays. The loops have no dependency between iterations, so the JIT compiler
+ * can unroll them and, for the arithmetic operations, use the SIMD instructions of the processor.
+ */
+public class ScalarKernels implements VectorKernels
+{
+    @Override
+    public boolean isAvailable()
+    {
+        return true;
+    }
+
+    @Override
+    public void apply(VectorOperation operation, double[] a, int length)
+    {
+        switch (operation)
+        {
+        case NEG:
+            for (int i = 0; i < length; i++)
+            {
+                a[i] = -a[i];
+            }
+            break;
+        case ABS:
+            for (int i = 0; i < length; i++)
+            {
+                a[i] = Math.abs(a[i]);
+            }
+            break;
+        case ACOS:
+            for (int i = 0; i < length; i++)
+            {
+                a[i] = Math.acos(a[i]);
+            }
+            break;
+        case ASIN:
+            for (int i = 0; i < length; i++)
+            {
+                a[i] = Math.asin(a[i]);
+            }
+            break;
+        case ATAN:
+            for (int i = 0; i < length; i++)
+            {
+                a[i] = Math.atan(a[i]);
+            }
+            break;
+        case CEIL:
+            for (int i = 0; i < length; i++)
+            {
+                a[i] = Math.ceil(a[i]);
+            }
+            break;
+        case COS:
+            for (int i = 0; i < length; i++)
+            {
+                a[i] = Math.cos(a[i]);
+            }
+            break;
+        case FLOOR:
+            for (int i = 0; i < length; i++)
+            {
+                a[i] = Math.floor(a[i]);
+            }
+            break;
+        case LOG:
+            for (int i = 0; i < length; i++)
+            {
+                a[i] = Math.log(a[i]);
+            }
+            break;
+        case ROUND:
+            for (int i = 0; i < length; i++)
+            {
+                a[i] = Math.rint(a[i] * 100) / 100;
+            }
+            break;
+        case SIN:
+            for (int i = 0; i < length; i++)
+            {
+                a[i] = Math.sin(a[i]);
+            }
+            break;
+        case SQRT:
+            for (int i = 0; i < length; i++)
+            {
+                a[i] = Math.sqrt(a[i]);
+            }
+            break;
+        case SQUARE:
+            for (int i = 0; i < length; i++)
+            {
+                a[i] = a[i] * a[i];
+            }
+            break;
+        case TAN:
+            for (int i = 0; i < length; i++)
+            {
+                a[i] = Math.tan(a[i]);
+            }
+            break;
+        case NOT:
+            for (int i = 0; i < length; i++)
+            {
+                a[i] = a[i] == 0 ? 1 : 0;
+            }
+            break;
+        default:
+            throw new IllegalArgumentException("The operation " + operation + " is not unary!");
+        }
+    }
+
+    @Override
+    public void apply(VectorOperation operation, double[] a, double[] b, int length)
+    {
+        switch (operation)
+        {
+        case ADD:
+            for (int i = 0; i < length; i++)
+            {
+                a[i] = a[i] + b[i];
+            }
+            break;
+        case SUB:
+            for (int i = 0; i < length; i++)
+            {
+                a[i] = a[i] - b[i];
+            }
+            break;
+        case MUL:
+            for (int i = 0; i < length; i++)
+            {
+                a[i] = a[i] * b[i];
+            }
+            break;
+        case DIV:
+            for (int i = 0; i < length; i++)
+            {
+                a[i] = a[i] / b[i];
+            }
+            break;
+        case MOD:
+            for (int i = 0; i < length; i++)
+            {
+                a[i] = a[i] % b[i];
+            }
+            break;
+        case POW:
+            for (int i = 0; i < length; i++)
+            {
+                a[i] = Math.pow(a[i], (int) b[i]);
+            }
+            break;
+        case ATAN2:
+            for (int i = 0; i < length; i++)
+            {
+                a[i] = Math.atan2(a[i], b[i]);
+            }
+            break;
+        case MAX:
+            for (int i = 0; i < length; i++)
+            {
+                a[i] = Math.max(a[i], b[i]);
+            }
+            break;
+        case MIN:
+            for (int i = 0; i < length; i++)
+            {
+                a[i] = Math.min(a[i], b[i]);
+            }
+            break;
+        case EQ:
+            for (int i = 0; i < length; i++)
+            {
+                a[i] = a[i] == b[i] ? 1 : 0;
+            }
+            break;
+        case NE:
+            for (int i = 0; i < length; i++)
+            {
+                a[i] = a[i] != b[i] ? 1 : 0;
+            }
+            break;
+        case LT:
+            for (int i = 0; i < length; i++)
+            {
+                a[i] = a[i] < b[i] ? 1 : 0;
+            }
+            break;
+        case LE:
+            for (int i = 0; i < length; i++)
+            {
+                a[i] = a[i] <= b[i] ? 1 : 0;
+            }
+            break;
+        case GT:
+            for (int i = 0; i < length; i++)
+            {
+                a[i] = a[i] > b[i] ? 1 : 0;
+            }
+            break;
+        case GE:
+            for (int i = 0; i < length; i++)
+            {
+                a[i] = a[i] >= b[i] ? 1 : 0;
+            }
+            break;
+        case AND:
+            for (int i = 0; i < length; i++)
+            {
+                a[i] = a[i] != 0 && b[i] != 0 ? 1 : 0;
+            }
+            break;
+        case OR:
+            for (int i = 0; i < length; i++)
+            {
+                a[i] = a[i] != 0 || b[i] != 0 ? 1 : 0;
+            }
+            break;
+        default:
+            throw new IllegalArgumentException("The operation " + operation + " is not binary!");
+        }
+    }
+}
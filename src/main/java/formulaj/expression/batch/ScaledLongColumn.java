@@ -0,0 +1,95 @@
+/**
+ * Copyright (C) 2013 - 2015 Contributors.
+ *
+ * FormulaJ is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * FormulaJ is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see [http://www.gnu.org/licenses/].
+ *
+ * Contact: formulaj-user-list@googlegroups.com.
+ */
+package formulaj.expression.batch;
+
+import java.util.Objects;
+
+/**
+ * A {@link Column} of fixed-point values stored as unscaled <code>long</code>s that share the same scale. The value of a row is
+ * <code>unscaled / 10<sup>scale</sup></code>, so <code>12345</code> with scale <code>2</code> is <code>123.45</code>.
+ */
+public final class ScaledLongColumn implements Column
+{
+    /**
+     * The unscaled values of this column.
+     */
+    private final long[] unscaled;
+
+    /**
+     * The number of decimal places of the values.
+     */
+    private final int scale;
+
+    /**
+     * The power of ten of the absolute value of the scale, which divides the unscaled values of a positive scale and multiplies the ones of a
+     * negative scale. It's exact up to 10<sup>22</sup>, so each value is correctly rounded, as {@link java.math.BigDecimal#doubleValue()}, if
+     * its unscaled value is an exact <code>double</code>.
+     */
+    private final double powerOfTen;
+
+    /**
+     * Creates a {@link Column} backed by the given array. The array is not copied.
+     * 
+     * @param unscaledValues
+     *            The unscaled values of the column. Might not be <code>null</code>.
+     * @param decimalPlaces
+     *            The number of decimal places of the values.
+     */
+    public ScaledLongColumn(long[] unscaledValues, int decimalPlaces)
+    {
+        this.unscaled = Objects.requireNonNull(unscaledValues);
+        this.scale = decimalPlaces;
+        this.powerOfTen = Math.pow(10, Math.abs(decimalPlaces));
+    }
+
+    @Override
+    public int size()
+    {
+        return unscaled.length;
+    }
+
+    @Override
+    public void read(int from, double[] target, int length)
+    {
+        if (scale >= 0)
+        {
+            for (int i = 0; i < length; i++)
+            {
+                target[i] = unscaled[from + i] / powerOfTen;
+            }
+        }
+        else
+        {
+            for (int i = 0; i < length; i++)
+            {
+                target[i] = unscaled[from + i] * powerOfTen;
+            }
+        }
+    }
+
+    /**
+     * Returns the number of decimal places of the values.
+     * 
+     * @return The number of decimal places of the values.
+     */
+    public int scale()
+    {
+        return scale;
+    }
+}
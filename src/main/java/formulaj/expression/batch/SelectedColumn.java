@@ -0,0 +1,122 @@
+/**
+ * Copyright (C) 2013 - 2015 Contributors.
+ *
+ * FormulaJ is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * FormulaJ is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see [http://www.gnu.org/licenses/].
+ *
+ * Contact: formulaj-user-list@googlegroups.com.
+ */
+package formulaj.expression.batch;
+
+/**
+ * A {@link Column} with the rows of another column given by a {@link SelectionVector}, so its row <code>i</code> is the row
+ * <code>selection.row(i)</code> of the other column. A block of rows is read at once when the selected rows are dense, and row by row when they
+ * are sparse. The values are read through a scratch vector of each thread, which is reused by the next reads.
+ */
+final class SelectedColumn implements Column
+{
+    /**
+     * The largest ratio between the span of a block and its number of rows that is read at once.
+     */
+    private static final int DENSE_SPAN = 4;
+
+    /**
+     * The column with the values.
+     */
+    private final Column values;
+
+    /**
+     * The selected rows of the column.
+     */
+    private final SelectionVector selection;
+
+    /**
+     * The scratch vector of each thread.
+     */
+    private final ThreadLocal<double[]> scratch = new ThreadLocal<>();
+
+    /**
+     * Creates a {@link SelectedColumn}.
+     * 
+     * @param column
+     *            The column with the values.
+     * @param selectedRows
+     *            The selected rows of the column.
+     */
+    SelectedColumn(Column column, SelectionVector selectedRows)
+    {
+        this.values = column;
+        this.selection = selectedRows;
+    }
+
+    @Override
+    public int size()
+    {
+        return selection.size();
+    }
+
+    @Override
+    public void read(int from, double[] target, int length)
+    {
+        if (length == 0)
+        {
+            return;
+        }
+
+        int[] rows = selection.rows();
+        int first = rows[from];
+        int span = rows[from + length - 1] - first + 1;
+
+        if (span <= length * DENSE_SPAN)
+        {
+            double[] block = span == length ? target : scratch(span);
+            values.read(first, block, span);
+
+            if (block != target)
+            {
+                for (int i = 0; i < length; i++)
+                {
+                    target[i] = block[rows[from + i] - first];
+                }
+            }
+        }
+        else
+        {
+            double[] value = scratch(1);
+            for (int i = 0; i < length; i++)
+            {
+                values.read(rows[from + i], value, 1);
+                target[i] = value[0];
+            }
+        }
+    }
+
+    /**
+     * Returns the scratch vector of the current thread, growing it to a minimum length.
+     * 
+     * @param length
+     *            The minimum length of the vector.
+     * @return The scratch vector of the current thread.
+     */
+    private double[] scratch(int length)
+    {
+        double[] vector = scratch.get();
+
+        if (vector == null || vector.length < length)
+        {
+            vector = new double[Math.max(length, BatchProgram.DEFAULT_BLOCK_SIZE)];
+            scratch.set(vector);
+        }
+        return vector;
+    }
+}
@@ -0,0 +1,121 @@
+/**
+ * Copyright (C) 2013 - 2015 Contributors.
+ *
+ * FormulaJ is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * FormulaJ is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see [http://www.gnu.org/licenses/].
+ *
+ * Contact: formulaj-user-list@googlegroups.com.
+ */
+package formulaj.expression.batch;
+
+import java.util.Arrays;
+
+/**
+ * The indexes of the rows selected by a filter, in ascending order. The work of the next steps is proportional to the number of selected rows,
+ * not to the number of rows of the table.
+ */
+public final class SelectionVector
+{
+    /**
+     * The indexes of the selected rows, in the first {@link #size} positions.
+     */
+    private int[] rows;
+
+    /**
+     * The number of selected rows.
+     */
+    private int size;
+
+    /**
+     * Creates an empty {@link SelectionVector}.
+     * 
+     * @param capacity
+     *            The initial number of rows that can be selected without growing the vector.
+     */
+    public SelectionVector(int capacity)
+    {
+        this.rows = new int[Math.max(16, capacity)];
+    }
+
+    /**
+     * Selects a row, which must be greater than the last one selected.
+     * 
+     * @param row
+     *            The index of the row.
+     */
+    public void add(int row)
+    {
+        if (size > 0 && row <= rows[size - 1])
+        {
+            throw new IllegalArgumentException(String.format("The row %d is not after the row %d!", row, rows[size - 1]));
+        }
+
+        if (size == rows.length)
+        {
+            rows = Arrays.copyOf(rows, size + (size >> 1));
+        }
+        rows[size++] = row;
+    }
+
+    /**
+     * Returns the number of selected rows.
+     * 
+     * @return The number of selected rows.
+     */
+    public int size()
+    {
+        return size;
+    }
+
+    /**
+     * Returns the index of a selected row.
+     * 
+     * @param position
+     *            The position in this vector, from zero to {@link #size()} exclusive.
+     * @return The index of the row in the table.
+     */
+    public int row(int position)
+    {
+        if (position < 0 || position >= size)
+        {
+            throw new IndexOutOfBoundsException(String.format("Invalid position %d of %d!", position, size));
+        }
+        return rows[position];
+    }
+
+    /**
+     * Returns the indexes of the selected rows.
+     * 
+     * @return A new array with the indexes of the selected rows, in ascending order.
+     */
+    public int[] toArray()
+    {
+        return Arrays.copyOf(rows, size);
+    }
+
+    /**
+     * Returns the indexes of the selected rows without copying them.
+     * 
+     * @return The array of this vector. Only its first {@link #size()} positions are rows.
+     */
+    int[] rows()
+    {
+        return rows;
+    }
+
+    @Override
+    public String toString()
+    {
+        return String.format("%d rows selected", size);
+    }
+}
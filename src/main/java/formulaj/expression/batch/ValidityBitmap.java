@@ -0,0 +1,154 @@
+/**
+ * Copyright (C) 2013 - 2015 Contributors.
+ *
+ * FormulaJ is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * FormulaJ is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see [http://www.gnu.org/licenses/].
+ *
+ * Contact: formulaj-user-list@googlegroups.com.
+ */
+package formulaj.expression.batch;
+
+import java.util.Arrays;
+
+/**
+ * A bitmap that tells which rows of a column have a value. A missing value is an unset bit, instead of a <code>null</code>, so a column of
+ * primitive values keeps its layout and a bitmap of a million rows takes 125KB.
+ */
+public final class ValidityBitmap
+{
+    /**
+     * The bits of the rows, 64 per word.
+     */
+    private final long[] words;
+
+    /**
+     * The number of rows.
+     */
+    private final int size;
+
+    /**
+     * Creates a {@link ValidityBitmap} where all the rows are missing.
+     * 
+     * @param rows
+     *            The number of rows.
+     */
+    public ValidityBitmap(int rows)
+    {
+        if (rows < 0)
+        {
+            throw new IllegalArgumentException("Invalid number of rows: " + rows);
+        }
+
+        this.size = rows;
+        this.words = new long[(rows + 63) >>> 6];
+    }
+
+    /**
+     * Creates a {@link ValidityBitmap} where all the rows have a value.
+     * 
+     * @param rows
+     *            The number of rows.
+     * @return A new bitmap with all the rows valid.
+     */
+    public static ValidityBitmap allValid(int rows)
+    {
+        ValidityBitmap bitmap = new ValidityBitmap(rows);
+        Arrays.fill(bitmap.words, -1L);
+
+        if ((rows & 63) != 0)
+        {
+            bitmap.words[bitmap.words.length - 1] = (1L << rows) - 1;
+        }
+        return bitmap;
+    }
+
+    /**
+     * Returns the number of rows of this bitmap.
+     * 
+     * @return The number of rows of this bitmap.
+     */
+    public int size()
+    {
+        return size;
+    }
+
+    /**
+     * Returns <code>true</code> if a row has a value.
+     * 
+     * @param row
+     *            The index of the row.
+     * @return <code>true</code> if the given row has a value.
+     */
+    public boolean isValid(int row)
+    {
+        checkRow(row);
+        return (words[row >>> 6] & (1L << row)) != 0;
+    }
+
+    /**
+     * Defines if a row has a value.
+     * 
+     * @param row
+     *            The index of the row.
+     * @param valid
+     *            <code>true</code> if the row has a value.
+     */
+    public void set(int row, boolean valid)
+    {
+        checkRow(row);
+
+        if (valid)
+        {
+            words[row >>> 6] |= 1L << row;
+        }
+        else
+        {
+            words[row >>> 6] &= ~(1L << row);
+        }
+    }
+
+    /**
+     * Returns the number of rows with a value.
+     * 
+     * @return The number of valid rows.
+     */
+    public int cardinality()
+    {
+        int count = 0;
+        for (long word : words)
+        {
+            count += Long.bitCount(word);
+        }
+        return count;
+    }
+
+    /**
+     * Checks the index of a row.
+     * 
+     * @param row
+     *            The index of the row.
+     */
+    private void checkRow(int row)
+    {
+        if (row < 0 || row >= size)
+        {
+            throw new IndexOutOfBoundsException(String.format("Invalid row %d of %d!", row, size));
+        }
+    }
+
+    @Override
+    public String toString()
+    {
+        return String.format("%d of %d valid", cardinality(), size);
+    }
+}
@@ -0,0 +1,64 @@
+/**
+ * Copyright (C) 2013 - 2015 Contributors.
+ *
+ * FormulaJ is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * FormulaJ is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see [http://www.gnu.org/licenses/].
+ *
+ * Contact: formulaj-user-list@googlegroups.com.
+ */
+package formulaj.expression.batch;
+
+/**
+ * The implementation of the {@link VectorOperation}s used by the batch evaluation. The result of an operation is written over its first
+ * operand. The implementations are found with {@link java.util.ServiceLoader}, so a library can provide kernels that use the SIMD
+ * instructions of the platform (e.g., with the Java Vector API) by declaring them in
+ * <code>META-INF/services/formulaj.expression.batch.VectorKernels</code>; {@link ScalarKernels} is used when there is no other one available.
+ * 
+ * @see Kernels#get()
+ */
+public interface VectorKernels
+{
+    /**
+     * Returns <code>true</code> if these kernels can be used in the running JVM. For instance, kernels that require an incubator module return
+     * <code>false</code> when the module is not present.
+     * 
+     * @return <code>true</code> if these kernels can be used in the running JVM.
+     */
+    boolean isAvailable();
+
+    /**
+     * Applies a unary operation to the values of a vector.
+     * 
+     * @param operation
+     *            The operation. Its {@link VectorOperation#arity()} is one.
+     * @param a
+     *            The operand. It receives the result.
+     * @param length
+     *            The number of values.
+     */
+    void apply(VectorOperation operation, double[] a, int length);
+
+    /**
+     * Applies a binary operation to the values of two vectors.
+     * 
+     * @param operation
+     *            The operation. Its {@link VectorOperation#arity()} is two.
+     * @param a
+     *            The left operand. It receives the result.
+     * @param b
+     *            The right operand.
+     * @param length
+     *            The number of values.
+     */
+    void apply(VectorOperation operation, double[] a, double[] b, int length);
+}
@@ -0,0 +1,213 @@
+/**
+ * Copyright (C) 2013 - 2015 Contributors.
+ *
+ * FormulaJ is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * FormulaJ is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see [http://www.gnu.org/licenses/].
+ *
+ * Contact: formulaj-user-list@googlegroups.com.
+ */
+package formulaj.expression.batch;
+
+/**
+ * The operations that a {@link VectorKernels} applies to vectors of <code>double</code>s. The relational and logical operations produce masks:
+ * <code>1.0</code> for <code>true</code> and <code>0.0</code> for <code>false</code>; a logical operation reads any value other than
+ * <code>0.0</code> as <code>true</code>.
+ */
+public enum VectorOperation
+{
+    /**
+     * Negation.
+     */
+    NEG(1),
+
+    /**
+     * Absolute value.
+     */
+    ABS(1),
+
+    /**
+     * Arc cosine.
+     */
+    ACOS(1),
+
+    /**
+     * Arc sine.
+     */
+    ASIN(1),
+
+    /**
+     * Arc tangent.
+     */
+    ATAN(1),
+
+    /**
+     * Ceiling.
+     */
+    CEIL(1),
+
+    /**
+     * Cosine.
+     */
+    COS(1),
+
+    /**
+     * Floor.
+     */
+    FLOOR(1),
+
+    /**
+     * Natural logarithm.
+     */
+    LOG(1),
+
+    /**
+     * Round to two decimals, half even.
+     */
+    ROUND(1),
+
+    /**
+     * Sine.
+     */
+    SIN(1),
+
+    /**
+     * Square root.
+     */
+    SQRT(1),
+
+    /**
+     * Square.
+     */
+    SQUARE(1),
+
+    /**
+     * Tangent.
+     */
+    TAN(1),
+
+    /**
+     * Logical negation.
+     */
+    NOT(1),
+
+    /**
+     * Addition.
+     */
+    ADD(2),
+
+    /**
+     * Subtraction.
+     */
+    SUB(2),
+
+    /**
+     * Multiplication.
+     */
+    MUL(2),
+
+    /**
+     * Division.
+     */
+    DIV(2),
+
+    /**
+     * Modulus.
+     */
+    MOD(2),
+
+    /**
+     * Power with the exponent truncated to an integer.
+     */
+    POW(2),
+
+    /**
+     * Angle of a rectangular coordinate.
+     */
+    ATAN2(2),
+
+    /**
+     * Greater of two values.
+     */
+    MAX(2),
+
+    /**
+     * Smaller of two values.
+     */
+    MIN(2),
+
+    /**
+     * Equal to.
+     */
+    EQ(2),
+
+    /**
+     * Not equal to.
+     */
+    NE(2),
+
+    /**
+     * Less than.
+     */
+    LT(2),
+
+    /**
+     * Less than or equal to.
+     */
+    LE(2),
+
+    /**
+     * Greater than.
+     */
+    GT(2),
+
+    /**
+     * Greater than or equal to.
+     */
+    GE(2),
+
+    /**
+     * Logical conjunction.
+     */
+    AND(2),
+
+    /**
+     * Logical disjunction.
+     */
+    OR(2);
+
+    /**
+     * The number of operands of the operation.
+     */
+    private final int arity;
+
+    /**
+     * Creates an operation.
+     * 
+     * @param operands
+     *            The number of operands of the operation.
+     */
+    private VectorOperation(int operands)
+    {
+        this.arity = operands;
+    }
+
+    /**
+     * Returns the number of operands of this operation.
+     * 
+     * @return The number of operands of this operation.
+     */
+    public int arity()
+    {
+        return arity;
+    }
+}
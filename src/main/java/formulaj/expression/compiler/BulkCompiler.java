@@ -0,0 +1,335 @@
+/**
+ * Copyright (C) 2013 - 2015 Contributors.
+ *
+ * FormulaJ is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * FormulaJ is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see [http://www.gnu.org/licenses/].
+ *
+ * Contact: formulaj-user-list@googlegroups.com.
+ */
+package formulaj.expression.compiler;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import formulaj.expression.function.Functions;
+import formulaj.expression.function.math.StatefulFunction;
+import formulaj.expression.operators.Operators;
+
+/**
+ * Compiles a large batch of formulas, each one with an id, on a {@link ForkJoinPool}. Identical texts are parsed once and share the same
+ * {@link CompiledExpression}, unless the expression calls a {@link StatefulFunction}, whose state belongs to each compiled tree. An item that
+ * could not be compiled is reported in the {@link FormulaCatalogue#failures()} and does not stop the batch.
+ * <p>
+ * The registries of operators and functions are initialized by the caller's thread before the batch is split, so their system entries are
+ * registered once. The compiled trees might also be shared with other catalogues by an {@link ExpressionInterner}.
+ */
+public class BulkCompiler
+{
+    /**
+     * The number of distinct texts compiled by a task without splitting it.
+     */
+    private static final int BATCH_SIZE = 64;
+
+    /**
+     * The pool used when no one is given to the constructor.
+     */
+    private static final ForkJoinPool DEFAULT_POOL = new ForkJoinPool();
+
+    /**
+     * The pool of the compilation tasks.
+     */
+    private final ForkJoinPool pool;
+
+    /**
+     * The interner of the compiled trees or <code>null</code> if they are not interned.
+     */
+    private final ExpressionInterner interner;
+
+    /**
+     * Creates a {@link BulkCompiler} that uses a pool shared by all instances.
+     */
+    public BulkCompiler()
+    {
+        this(DEFAULT_POOL);
+    }
+
+    /**
+     * Creates a {@link BulkCompiler}.
+     * 
+     * @param forkJoinPool
+     *            The pool of the compilation tasks. Might not be <code>null</code>.
+     */
+    public BulkCompiler(ForkJoinPool forkJoinPool)
+    {
+        this.pool = Objects.requireNonNull(forkJoinPool);
+        this.interner = null;
+    }
+
+    /**
+     * Creates a {@link BulkCompiler} that interns the compiled trees.
+     * 
+     * @param forkJoinPool
+     *            The pool of the compilation tasks. Might not be <code>null</code>.
+     * @param expressionInterner
+     *            The interner of the compiled trees. Might not be <code>null</code>.
+     */
+    public BulkCompiler(ForkJoinPool forkJoinPool, ExpressionInterner expressionInterner)
+    {
+        this.pool = Objects.requireNonNull(forkJoinPool);
+        this.interner = Objects.requireNonNull(expressionInterner);
+    }
+
+    /**
+     * Compiles the formulas of a {@link Map}, in the order of its iteration.
+     * 
+     * @param formulas
+     *            The formulas' texts by their ids. Might not be <code>null</code>.
+     * @return The catalogue of the compiled formulas.
+     */
+    public FormulaCatalogue compile(Map<String, String> formulas)
+    {
+        return this.compile(formulas.entrySet().iterator());
+    }
+
+    /**
+     * Compiles a sequence of formulas. The key of an entry is the id of the formula and its value is the text. A <code>null</code> or
+     * repeated id and a <code>null</code> text are reported as failures.
+     * 
+     * @param formulas
+     *            The formulas to be compiled. Might not be <code>null</code>.
+     * @return The catalogue of the compiled formulas, in the order of the sequence.
+     */
+    public FormulaCatalogue compile(Iterator<? extends Map.Entry<String, String>> formulas)
+    {
+        Operators.getOperators();
+        Functions.getFunctions();
+
+        List<String> ids = new ArrayList<>();
+        List<String> texts = new ArrayList<>();
+        List<Integer> distinctIndexes = new ArrayList<>();
+        Map<String, Integer> distinct = new HashMap<>();
+        List<String> distinctTexts = new ArrayList<>();
+
+        while (formulas.hasNext())
+        {
+            Map.Entry<String, String> formula = formulas.next();
+            String text = formula.getValue();
+            Integer index = null;
+
+            if (text != null)
+            {
+                index = distinct.get(text);
+
+                if (index == null)
+                {
+                    index = distinctTexts.size();
+                    distinctTexts.add(text);
+                    distinct.put(text, index);
+                }
+            }
+
+            ids.add(formula.getKey());
+            texts.add(text);
+            distinctIndexes.add(index);
+        }
+
+        String[] sources = distinctTexts.toArray(new String[distinctTexts.size()]);
+        CompiledExpression<?>[] compiled = new CompiledExpression<?>[sources.length];
+        Throwable[] errors = new Throwable[sources.length];
+
+        if (sources.length > 0)
+        {
+            pool.invoke(new CompileTask(sources, compiled, errors, interner, 0, sources.length));
+        }
+
+        CompiledExpression<?>[] expressions = new CompiledExpression<?>[ids.size()];
+        Map<String, Integer> positions = new HashMap<>();
+        List<CompilationFailure> failures = new ArrayList<>();
+        boolean[] used = new boolean[sources.length];
+
+        for (int i = 0; i < expressions.length; i++)
+        {
+            String id = ids.get(i);
+            Integer index = distinctIndexes.get(i);
+            Throwable error = null;
+
+            if (id == null)
+            {
+                error = new IllegalArgumentException("The formula has no id!");
+            }
+            else if (positions.containsKey(id))
+            {
+                error = new IllegalArgumentException(String.format("Duplicate id: %s!", id));
+            }
+            else if (index == null)
+            {
+                error = new IllegalArgumentException(String.format("The formula %s has no text!", id));
+            }
+            else
+            {
+                error = errors[index];
+            }
+
+            if (id != null && !positions.containsKey(id))
+            {
+                positions.put(id, i);
+            }
+
+            if (error != null)
+            {
+                failures.add(new CompilationFailure(i, id, texts.get(i), error));
+            }
+            else if (!used[index] || !compiled[index].hasState())
+            {
+                expressions[i] = compiled[index];
+                used[index] = true;
+            }
+            else
+            {
+                expressions[i] = compile(sources[index], new Throwable[1], interner);
+            }
+        }
+
+        return new FormulaCatalogue(ids.toArray(new String[ids.size()]), expressions, positions, failures, sources.length);
+    }
+
+    /**
+     * Compiles a text, keeping the failure instead of throwing it.
+     * 
+     * @param text
+     *            The text to be compiled.
+     * @param error
+     *            The array that receives the failure, at its first position.
+     * @param interner
+     *            The interner of the compiled tree. It may be <code>null</code>.
+     * @return The compiled expression or <code>null</code> if the text is invalid.
+     */
+    private static CompiledExpression<?> compile(String text, Throwable[] error, ExpressionInterner interner)
+    {
+        try
+        {
+            CompiledExpression<?> compiled = CompiledExpression.compile(text);
+            return interner == null ? compiled : interner.intern(compiled);
+        }
+        catch (Exception exception)
+        {
+            error[0] = exception;
+        }
+        catch (Error lexical)
+        {
+            // the lexer throws a plain Error for an invalid character.
+            if (lexical.getClass() != Error.class)
+            {
+                throw lexical;
+            }
+            error[0] = lexical;
+        }
+        return null;
+    }
+
+    /**
+     * Compiles a range of distinct texts, splitting it while it's larger than {@link BulkCompiler#BATCH_SIZE}.
+     */
+    private static final class CompileTask extends RecursiveAction
+    {
+        /**
+         * Serial code version <code>serialVersionUID</code> for serialization.
+         */
+        private static final long serialVersionUID = -6047283391538221725L;
+
+        /**
+         * The texts to be compiled.
+         */
+        private final String[] texts;
+
+        /**
+         * The compiled expressions, at the positions of their texts.
+         */
+        private final CompiledExpression<?>[] compiled;
+
+        /**
+         * The failures, at the positions of their texts.
+         */
+        private final Throwable[] errors;
+
+        /**
+         * The interner of the compiled trees or <code>null</code>.
+         */
+        private final ExpressionInterner interner;
+
+        /**
+         * The index of the first text of the range, inclusive.
+         */
+        private final int from;
+
+        /**
+         * The index of the last text of the range, exclusive.
+         */
+        private final int to;
+
+        /**
+         * Creates a {@link CompileTask}.
+         * 
+         * @param sources
+         *            The texts to be compiled.
+         * @param expressions
+         *            The array that receives the compiled expressions.
+         * @param failures
+         *            The array that receives the failures.
+         * @param treeInterner
+         *            The interner of the compiled trees. It may be <code>null</code>.
+         * @param start
+         *            The index of the first text of the range, inclusive.
+         * @param end
+         *            The index of the last text of the range, exclusive.
+         */
+        CompileTask(String[] sources, CompiledExpression<?>[] expressions, Throwable[] failures, ExpressionInterner treeInterner, int start,
+                int end)
+        {
+            this.texts = sources;
+            this.compiled = expressions;
+            this.errors = failures;
+            this.interner = treeInterner;
+            this.from = start;
+            this.to = end;
+        }
+
+        @Override
+        protected void compute()
+        {
+            if (to - from <= BATCH_SIZE)
+            {
+                Throwable[] error = new Throwable[1];
+
+                for (int i = from; i < to; i++)
+                {
+                    error[0] = null;
+                    compiled[i] = compile(texts[i], error, interner);
+                    errors[i] = error[0];
+                }
+            }
+            else
+            {
+                int middle = (from + to) >>> 1;
+                invokeAll(new CompileTask(texts, compiled, errors, interner, from, middle), new CompileTask(texts, compiled, errors, interner, middle,
+                        to));
+            }
+        }
+    }
+}
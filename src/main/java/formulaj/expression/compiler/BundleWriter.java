@@ -0,0 +1,263 @@
+/**
+ * Copyright (C) 2013 - 2015 Contributors.
+ *
+ * FormulaJ is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * FormulaJ is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see [http://www.gnu.org/licenses/].
+ *
+ * Contact: formulaj-user-list@googlegroups.com.
+ */
+package formulaj.expression.compiler;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import formulaj.expression.function.Function;
+import formulaj.expression.function.Functions;
+import formulaj.expression.parser.AST;
+import formulaj.expression.token.AssignToken;
+import formulaj.expression.token.BinaryOperatorToken;
+import formulaj.expression.token.FunctionToken;
+import formulaj.expression.token.NumberToken;
+import formulaj.expression.token.UnaryToken;
+import formulaj.expression.token.VarToken;
+
+/**
+ * Writes the {@link CompiledExpression}s of a {@link FormulaBundle}. The texts, identifiers, literals and function names are written once in
+ * the symbol table, and each tree is written in pre-order: a node is its kind, the type of its token and the symbol of its text, followed by
+ * its children.
+ */
+final class BundleWriter
+{
+    /**
+     * The index of each symbol.
+     */
+    private final Map<String, Integer> symbolIndex = new HashMap<>();
+
+    /**
+     * The symbols in the order of their indexes.
+     */
+    private final List<String> symbols = new ArrayList<>();
+
+    /**
+     * The functions called by the expressions. The key is the function's name and the value is the name of its class.
+     */
+    private final Map<String, String> functions = new LinkedHashMap<>();
+
+    /**
+     * The index entries: the symbols of the id and of the text, and the offset of the tree in the code section.
+     */
+    private final List<int[]> entries = new ArrayList<>();
+
+    /**
+     * The trees of the expressions.
+     */
+    private final ByteArrayOutputStream codeBytes = new ByteArrayOutputStream();
+
+    /**
+     * The stream that writes the {@link #codeBytes}.
+     */
+    private final DataOutputStream code = new DataOutputStream(codeBytes);
+
+    /**
+     * Adds an expression to the bundle.
+     * 
+     * @param id
+     *            The id of the expression. Might not be <code>null</code>.
+     * @param expression
+     *            The expression to be added. Might not be <code>null</code>.
+     * @throws IOException
+     *             Never, the tree is written in memory.
+     */
+    void add(String id, CompiledExpression<?> expression) throws IOException
+    {
+        entries.add(new int[] {symbol(id), symbol(expression.expression()), code.size() });
+        this.encode(expression.root());
+
+        for (String name : expression.functions())
+        {
+            Function<?> function = Functions.getFunctionByName(name);
+
+            if (function == null)
+            {
+                throw new IllegalArgumentException(String.format("The expression %s calls the function %s, which is not registered!", id, name));
+            }
+            functions.put(name, function.getClass().getName());
+        }
+    }
+
+    /**
+     * Writes a node and its children.
+     * 
+     * @param node
+     *            The node to be written.
+     * @throws IOException
+     *             Never, the tree is written in memory.
+     */
+    private void encode(AST node) throws IOException
+    {
+        if (node instanceof NumberToken)
+        {
+            this.encode(FormulaBundle.NUMBER, node);
+        }
+        else if (node instanceof VarToken)
+        {
+            this.encode(FormulaBundle.VARIABLE, node);
+        }
+        else if (node instanceof UnaryToken)
+        {
+            this.encode(FormulaBundle.UNARY, node);
+            this.encode(((UnaryToken<?>) node).getExpression());
+        }
+        else if (node instanceof BinaryOperatorToken)
+        {
+            BinaryOperatorToken<?> binary = (BinaryOperatorToken<?>) node;
+            this.encode(FormulaBundle.BINARY, node);
+            this.encode(binary.getLeft());
+            this.encode(binary.getRight());
+        }
+        else if (node instanceof FunctionToken)
+        {
+            FunctionToken<?> function = (FunctionToken<?>) node;
+            this.encode(FormulaBundle.FUNCTION, node);
+            code.writeShort(function.getArgs().size());
+
+            for (AST arg : function.getArgs())
+            {
+                this.encode(arg);
+            }
+        }
+        else if (node instanceof AssignToken)
+        {
+            AssignToken<?> assign = (AssignToken<?>) node;
+            this.encode(FormulaBundle.ASSIGN, node);
+            this.encode(assign.getId());
+            this.encode(assign.getValue());
+        }
+        else
+        {
+            throw new IllegalArgumentException("Unknown node " + node.getToken().getText());
+        }
+    }
+
+    /**
+     * Writes the header of a node.
+     * 
+     * @param kind
+     *            The kind of the node.
+     * @param node
+     *            The node.
+     * @throws IOException
+     *             Never, the tree is written in memory.
+     */
+    private void encode(byte kind, AST node) throws IOException
+    {
+        code.writeByte(kind);
+        code.writeByte(node.getToken().getType());
+        code.writeInt(symbol(node.getToken().getText()));
+    }
+
+    /**
+     * Returns the index of a symbol, adding it to the symbol table if it's new.
+     * 
+     * @param text
+     *            The symbol.
+     * @return The index of the symbol.
+     */
+    private int symbol(String text)
+    {
+        Integer index = symbolIndex.get(text);
+
+        if (index == null)
+        {
+            index = symbols.size();
+            symbols.add(text);
+            symbolIndex.put(text, index);
+        }
+        return index;
+    }
+
+    /**
+     * Writes the bundle to a file, replacing it if it exists.
+     * 
+     * @param file
+     *            The file to be written. Might not be <code>null</code>.
+     * @throws IOException
+     *             If the file could not be written.
+     */
+    void write(Path file) throws IOException
+    {
+        List<String> functionNames = new ArrayList<>(functions.keySet());
+
+        for (String name : functionNames)
+        {
+            this.symbol(name);
+            this.symbol(functions.get(name));
+        }
+
+        code.flush();
+
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file), 1 << 16)))
+        {
+            out.writeInt(FormulaBundle.MAGIC);
+            out.writeShort(FormulaBundle.VERSION);
+            out.writeShort(0);
+            out.writeInt(entries.size());
+            out.writeInt(symbols.size());
+            out.writeInt(functionNames.size());
+            out.writeInt(codeBytes.size());
+
+            List<byte[]> encoded = new ArrayList<>(symbols.size());
+            int offset = 0;
+
+            for (String symbol : symbols)
+            {
+                byte[] bytes = symbol.getBytes(StandardCharsets.UTF_8);
+                encoded.add(bytes);
+                out.writeInt(offset);
+                offset += 4 + bytes.length;
+            }
+            out.writeInt(offset);
+
+            for (byte[] bytes : encoded)
+            {
+                out.writeInt(bytes.length);
+                out.write(bytes);
+            }
+
+            for (String name : functionNames)
+            {
+                out.writeInt(symbolIndex.get(name));
+                out.writeInt(symbolIndex.get(functions.get(name)));
+            }
+
+            for (int[] entry : entries)
+            {
+                out.writeInt(entry[0]);
+                out.writeInt(entry[1]);
+                out.writeInt(entry[2]);
+            }
+
+            codeBytes.writeTo(out);
+        }
+    }
+}
@@ -0,0 +1,121 @@
+/**
+ * Copyright (C) 2013 - 2015 Contributors.
+ *
+ * FormulaJ is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * FormulaJ is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see [http://www.gnu.org/licenses/].
+ *
+ * Contact: formulaj-user-list@googlegroups.com.
+ */
+package formulaj.expression.compiler;
+
+/**
+ * An item of a {@link BulkCompiler} batch that could not be compiled.
+ */
+public final class CompilationFailure
+{
+    /**
+     * The position of the item in the batch.
+     */
+    private final int position;
+
+    /**
+     * The id of the item.
+     */
+    private final String id;
+
+    /**
+     * The text of the item.
+     */
+    private final String text;
+
+    /**
+     * The reason of the failure.
+     */
+    private final Throwable cause;
+
+    /**
+     * Creates a {@link CompilationFailure}.
+     * 
+     * @param itemPosition
+     *            The position of the item in the batch.
+     * @param itemId
+     *            The id of the item.
+     * @param itemText
+     *            The text of the item.
+     * @param failureCause
+     *            The reason of the failure.
+     */
+    CompilationFailure(int itemPosition, String itemId, String itemText, Throwable failureCause)
+    {
+        this.position = itemPosition;
+        this.id = itemId;
+        this.text = itemText;
+        this.cause = failureCause;
+    }
+
+    /**
+     * Returns the position of the item in the batch, which is also its position in the {@link FormulaCatalogue}.
+     * 
+     * @return The position of the item in the batch.
+     */
+    public int position()
+    {
+        return position;
+    }
+
+    /**
+     * Returns the id of the item.
+     * 
+     * @return The id of the item.
+     */
+    public String id()
+    {
+        return id;
+    }
+
+    /**
+     * Returns the text of the item.
+     * 
+     * @return The text of the item. It may be <code>null</code> if the item had no text.
+     */
+    public String text()
+    {
+        return text;
+    }
+
+    /**
+     * Returns the reason of the failure, usually a {@link formulaj.expression.parser.RecognitionException}.
+     * 
+     * @return The reason of the failure.
+     */
+    public Throwable cause()
+    {
+        return cause;
+    }
+
+    /**
+     * Returns the message of the failure.
+     * 
+     * @return The message of the failure.
+     */
+    public String message()
+    {
+        return cause.getMessage();
+    }
+
+    @Override
+    public String toString()
+    {
+        return String.format("%s [%s]: %s", id, text, message());
+    }
+}
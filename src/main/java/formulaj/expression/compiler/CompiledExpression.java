@@ -0,0 +1,509 @@
+/**
+ * Copyright (C) 2013 - 2015 Contributors.
+ *
+ * FormulaJ is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * FormulaJ is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see [http://www.gnu.org/licenses/].
+ *
+ * Contact: formulaj-user-list@googlegroups.com.
+ */
+package formulaj.expression.compiler;
+
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Objects;
+import java.util.Set;
+
+import formulaj.common.base.MemoryFootprint;
+import formulaj.common.base.Strings;
+import formulaj.expression.BudgetExceededException;
+import formulaj.expression.EvaluationBudget;
+import formulaj.expression.EvaluationException;
+import formulaj.expression.PrecisionPolicy;
+import formulaj.expression.Value;
+import formulaj.expression.evaluator.Evaluator;
+import formulaj.expression.event.ExpressionEvent.Outcome;
+import formulaj.expression.event.ExpressionEvent.Phase;
+import formulaj.expression.event.ExpressionEvents;
+import formulaj.expression.function.Function;
+import formulaj.expression.function.Functions;
+import formulaj.expression.function.math.StatefulFunction;
+import formulaj.expression.lexer.ExpressionLexer;
+import formulaj.expression.lexer.ExpressionTokens;
+import formulaj.expression.operators.Operators;
+import formulaj.expression.parser.ExpressionParser;
+import formulaj.expression.parser.RecognitionException;
+import formulaj.expression.token.AssignToken;
+import formulaj.expression.token.BinaryOperatorToken;
+import formulaj.expression.token.ExpressionToken;
+import formulaj.expression.token.FlatTree;
+import formulaj.expression.token.FunctionToken;
+import formulaj.expression.token.MathNodeToken;
+import formulaj.expression.token.Nodes;
+import formulaj.expression.token.NumberToken;
+import formulaj.expression.token.Token;
+import formulaj.expression.token.TreeVisitor;
+import formulaj.expression.token.VarToken;
+
+/**
+ * This class represents the parsed form of an expression. A {@link CompiledExpression} is immutable, so the same instance can be evaluated many
+ * times, by many threads, without lexing or parsing its text again. The variables and functions are resolved by the {@link Evaluator} given to
+ * {@link #evaluate(Evaluator)}.
+ * 
+ * @param <T>
+ *            The type of the value returned by the expression.
+ */
+public final class CompiledExpression<T>
+{
+    /**
+     * The text of the expression.
+     */
+    private final String expression;
+
+    /**
+     * The root of the expression's tree.
+     */
+    private final MathNodeToken<Value<T>, Value<T>> root;
+
+    /**
+     * The 64-bit fingerprint of the expression's text.
+     */
+    private final long fingerprint;
+
+    /**
+     * The number of nodes of the expression's tree.
+     */
+    private final int nodeCount;
+
+    /**
+     * The names of the variables read by the expression.
+     */
+    private final Set<String> variables;
+
+    /**
+     * The names of the functions called by the expression.
+     */
+    private final Set<String> functions;
+
+    /**
+     * The precision policy of the evaluations or <code>null</code> to use the {@link PrecisionPolicy#current()} one.
+     */
+    private final PrecisionPolicy precision;
+
+    /**
+     * Creates a {@link CompiledExpression}.
+     * 
+     * @param text
+     *            The text of the expression.
+     * @param tree
+     *            The root of the expression's tree.
+     */
+    private CompiledExpression(String text, MathNodeToken<Value<T>, Value<T>> tree)
+    {
+        this(text, tree, Nodes.count(tree), Nodes.variables(tree), Nodes.functions(tree));
+    }
+
+    /**
+     * Creates a {@link CompiledExpression} whose nodes, variables and functions are already known.
+     * 
+     * @param text
+     *            The text of the expression.
+     * @param tree
+     *            The root of the expression's tree.
+     * @param nodes
+     *            The number of nodes of the tree.
+     * @param variableNames
+     *            The names of the variables read by the tree.
+     * @param functionNames
+     *            The names of the functions called by the tree.
+     */
+    private CompiledExpression(String text, MathNodeToken<Value<T>, Value<T>> tree, int nodes, Set<String> variableNames,
+            Set<String> functionNames)
+    {
+        this.expression = text;
+        this.root = tree;
+        this.fingerprint = Strings.fingerprint(text);
+        this.nodeCount = nodes;
+        this.variables = Collections.unmodifiableSet(variableNames);
+        this.functions = Collections.unmodifiableSet(functionNames);
+        this.precision = null;
+    }
+
+    /**
+     * Creates a copy of a {@link CompiledExpression} with another precision policy.
+     * 
+     * @param other
+     *            The expression to be copied.
+     * @param policy
+     *            The precision policy of the evaluations or <code>null</code> to use the {@link PrecisionPolicy#current()} one.
+     */
+    private CompiledExpression(CompiledExpression<T> other, PrecisionPolicy policy)
+    {
+        this.expression = other.expression;
+        this.root = other.root;
+        this.fingerprint = other.fingerprint;
+        this.nodeCount = other.nodeCount;
+        this.variables = other.variables;
+        this.functions = other.functions;
+        this.precision = policy;
+    }
+
+    /**
+     * Parses and returns the {@link CompiledExpression} of a given text.
+     * 
+     * @param expression
+     *            The expression to be compiled. Might not be <code>null</code> or empty.
+     * @param <T>
+     *            The type of the value returned by the expression.
+     * @return The {@link CompiledExpression} of the given text.
+     * @throws RecognitionException
+     *             If the given expression is invalid.
+     */
+    public static <T> CompiledExpression<T> compile(String expression) throws RecognitionException
+    {
+        final long start = ExpressionEvents.start();
+        CompiledExpression<T> compiled = null;
+
+        try
+        {
+            ExpressionParser<Value<T>> parser = new ExpressionParser<>(new ExpressionLexer(expression));
+            compiled = new CompiledExpression<T>(expression, parser.<Value<T>> stat());
+            return compiled;
+        }
+        finally
+        {
+            if (start != 0L)
+            {
+                ExpressionEvents.fire(Phase.COMPILE, CompiledExpression.class, expression, start, compiled == null ? -1 : compiled.nodeCount,
+                        compiled == null ? Outcome.FAILURE : Outcome.SUCCESS);
+            }
+        }
+    }
+
+    /**
+     * Parses the text of an expression and checks its static cost with the {@link CostEstimator}, so that an expression that would exceed the
+     * budget is rejected before it's evaluated.
+     * 
+     * @param expression
+     *            The expression to be compiled. Might not be <code>null</code> or empty.
+     * @param budget
+     *            The limits of the evaluations of the expression. Might not be <code>null</code>.
+     * @param <T>
+     *            The type of the value returned by the expression.
+     * @return The {@link CompiledExpression} of the given text.
+     * @throws RecognitionException
+     *             If the given expression is invalid.
+     * @throws BudgetExceededException
+     *             If the estimated cost of the expression exceeds the budget.
+     */
+    public static <T> CompiledExpression<T> compile(String expression, EvaluationBudget budget) throws RecognitionException,
+            BudgetExceededException
+    {
+        return CostEstimator.check(CompiledExpression.<T> compile(expression), budget);
+    }
+
+    /**
+     * Returns the {@link CompiledExpression} of a tree already built, such as a tree loaded from a {@link FormulaBundle}.
+     * 
+     * @param expression
+     *            The text of the expression.
+     * @param tree
+     *            The root of the expression's tree.
+     * @param <T>
+     *            The type of the value returned by the expression.
+     * @return The {@link CompiledExpression} of the given tree.
+     */
+    static <T> CompiledExpression<T> of(String expression, MathNodeToken<Value<T>, Value<T>> tree)
+    {
+        return new CompiledExpression<>(expression, tree);
+    }
+
+    /**
+     * Returns the {@link CompiledExpression} that applies a binary operator to two compiled expressions. The new tree joins the trees of the
+     * operands without parsing them again, and its text groups each operand that is not a number, a variable or a function call between
+     * parentheses, so <code>a + b</code> multiplied by <code>c</code> is <code>(a + b)*c</code>. The operands are not modified and their
+     * subtrees are shared, except the ones that call a {@link StatefulFunction}, which are copied so that each expression keeps its own state.
+     * The new expression keeps the {@link #precision() precision policy} of the operands, which must not have two different ones.
+     * 
+     * @param left
+     *            The left operand. Might not be <code>null</code>.
+     * @param operator
+     *            The symbol of the operator, such as <code>*</code>. Might not be <code>null</code>.
+     * @param right
+     *            The right operand. Might not be <code>null</code>.
+     * @param <T>
+     *            The type of the value returned by the expression.
+     * @return The {@link CompiledExpression} of <code>(left) operator (right)</code>.
+     * @throws IllegalArgumentException
+     *             If an operand is an assignment or if the operands have different precision policies.
+     */
+    @SuppressWarnings({ "rawtypes", "unchecked" })
+    public static <T> CompiledExpression<T> combine(CompiledExpression<T> left, String operator, CompiledExpression<T> right)
+    {
+        Operators.getOperatorBySymbol(Objects.requireNonNull(operator));
+
+        PrecisionPolicy policy = left.precision != null ? left.precision : right.precision;
+
+        if (left.precision != null && right.precision != null && !left.precision.equals(right.precision))
+        {
+            throw new IllegalArgumentException(String.format("The expressions %s and %s have different precision policies!", left.expression,
+                    right.expression));
+        }
+
+        MathNodeToken leftTree = left.operand();
+        MathNodeToken rightTree = right.operand();
+
+        Set<String> variableNames = new LinkedHashSet<>(left.variables);
+        variableNames.addAll(right.variables);
+
+        Set<String> functionNames = new LinkedHashSet<>(left.functions);
+        functionNames.addAll(right.functions);
+
+        BinaryOperatorToken tree = new BinaryOperatorToken(new Token(ExpressionTokens.OP.getId(), operator), (ExpressionToken) leftTree,
+                (ExpressionToken) rightTree);
+
+        CompiledExpression<T> combined = new CompiledExpression<T>(left.group() + operator + right.group(), tree, left.nodeCount + right.nodeCount
+                + 1, variableNames, functionNames);
+
+        return policy == null ? combined : combined.withPrecision(policy);
+    }
+
+    /**
+     * Returns the tree of this expression to be used as an operand of another one: the same tree or, if this expression calls a
+     * {@link StatefulFunction}, a copy with its own state.
+     * 
+     * @return The tree to be used as an operand.
+     * @throws IllegalArgumentException
+     *             If this expression is an assignment.
+     */
+    private MathNodeToken<Value<T>, Value<T>> operand()
+    {
+        if (root instanceof AssignToken)
+        {
+            throw new IllegalArgumentException(String.format("The assignment %s cannot be an operand!", expression));
+        }
+        return hasState() ? FlatTree.of(root).<T> toTree() : root;
+    }
+
+    /**
+     * Returns the text of this expression as an operand, between parentheses unless it's a number, a variable or a function call.
+     * 
+     * @return The text of this expression as an operand.
+     */
+    private String group()
+    {
+        if (root instanceof NumberToken || root instanceof VarToken || root instanceof FunctionToken)
+        {
+            return expression;
+        }
+        return new StringBuilder(expression.length() + 2).append('(').append(expression).append(')').toString();
+    }
+
+    /**
+     * Returns this expression or, if it calls a {@link StatefulFunction}, a copy of its tree with its own state, so that the expressions
+     * handed out by a cache do not share the state of their calls.
+     * 
+     * @return This expression or a copy with its own state.
+     */
+    CompiledExpression<T> withOwnState()
+    {
+        if (!hasState())
+        {
+            return this;
+        }
+
+        CompiledExpression<T> copy = new CompiledExpression<T>(expression, FlatTree.of(root).<T> toTree(), nodeCount, new LinkedHashSet<>(
+                variables), new LinkedHashSet<>(functions));
+        return precision == null ? copy : copy.withPrecision(precision);
+    }
+
+    /**
+     * Returns <code>true</code> if this expression calls a {@link StatefulFunction}, so its tree might not be shared by two expressions.
+     * 
+     * @return <code>true</code> if this expression calls a {@link StatefulFunction}.
+     */
+    public boolean hasState()
+    {
+        for (String name : functions)
+        {
+            Function<?> function = Functions.getFunctionByName(name);
+
+            if (function instanceof StatefulFunction)
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Evaluates this expression resolving its variables, operators and functions with the given {@link Evaluator}.
+     * 
+     * @param evaluator
+     *            The {@link Evaluator} to resolve the variables, operators and functions. Might not be <code>null</code>.
+     * @return The value of this expression.
+     * @throws EvaluationException
+     *             If the expression uses an unknown variable or function.
+     */
+    public Value<T> evaluate(Evaluator<?, ?> evaluator) throws EvaluationException
+    {
+        return this.evaluate(new TreeVisitor<Value<T>>(evaluator));
+    }
+
+    /**
+     * Evaluates this expression within a budget, resolving its variables, operators and functions with the given {@link Evaluator}.
+     * 
+     * @param evaluator
+     *            The {@link Evaluator} to resolve the variables, operators and functions. Might not be <code>null</code>.
+     * @param budget
+     *            The limits of the evaluation. Might not be <code>null</code>.
+     * @return The value of this expression.
+     * @throws BudgetExceededException
+     *             If the evaluation exceeds the budget.
+     * @throws EvaluationException
+     *             If the expression uses an unknown variable or function.
+     */
+    public Value<T> evaluate(Evaluator<?, ?> evaluator, EvaluationBudget budget) throws EvaluationException
+    {
+        return this.evaluate(new TreeVisitor<Value<T>>(evaluator, budget));
+    }
+
+    /**
+     * Evaluates this expression with the given visitor.
+     * 
+     * @param visitor
+     *            The visitor that walks the expression's tree. Might not be <code>null</code>.
+     * @return The value of this expression.
+     * @throws EvaluationException
+     *             If the expression uses an unknown variable or function.
+     */
+    public Value<T> evaluate(TreeVisitor<Value<T>> visitor) throws EvaluationException
+    {
+        if (precision == null)
+        {
+            return visitor.visit(root);
+        }
+
+        PrecisionPolicy previous = PrecisionPolicy.enter(precision);
+
+        try
+        {
+            return visitor.visit(root);
+        }
+        finally
+        {
+            PrecisionPolicy.enter(previous);
+        }
+    }
+
+    /**
+     * Returns the text of this expression.
+     * 
+     * @return The text of this expression.
+     */
+    public String expression()
+    {
+        return expression;
+    }
+
+    /**
+     * Returns the root of the expression's tree. The tree must not be modified.
+     * 
+     * @return The root of the expression's tree.
+     */
+    public MathNodeToken<Value<T>, Value<T>> root()
+    {
+        return root;
+    }
+
+    /**
+     * Returns the 64-bit fingerprint of the expression's text.
+     * 
+     * @return The 64-bit fingerprint of the expression's text.
+     */
+    public long fingerprint()
+    {
+        return fingerprint;
+    }
+
+    /**
+     * Returns the number of nodes of the expression's tree.
+     * 
+     * @return The number of nodes of the expression's tree.
+     */
+    public int nodeCount()
+    {
+        return nodeCount;
+    }
+
+    /**
+     * Returns the names of the variables read by this expression, in the order that they appear. The variable that receives an assignment is
+     * not included.
+     * 
+     * @return A read-only {@link Set} with the names of the variables read by this expression.
+     */
+    public Set<String> variables()
+    {
+        return variables;
+    }
+
+    /**
+     * Returns the names of the functions called by this expression, in the order that they appear. The functions are resolved by the
+     * {@link Evaluator} when the expression is evaluated.
+     * 
+     * @return A read-only {@link Set} with the names of the functions called by this expression.
+     */
+    public Set<String> functions()
+    {
+        return functions;
+    }
+
+    /**
+     * Returns the estimated number of bytes retained by this expression: its text, its tree and the names of its variables and functions. See
+     * {@link MemoryFootprint} for the layout that is assumed.
+     * 
+     * @return The estimated number of bytes retained by this expression.
+     */
+    public long footprint()
+    {
+        return MemoryFootprint.of(this);
+    }
+
+    /**
+     * Returns a copy of this expression that is evaluated with the given precision policy instead of the global one. The tree is shared by both
+     * expressions.
+     * 
+     * @param policy
+     *            The precision policy of the evaluations or <code>null</code> to use the {@link PrecisionPolicy#current()} one.
+     * @return A copy of this expression with the given precision policy.
+     */
+    public CompiledExpression<T> withPrecision(PrecisionPolicy policy)
+    {
+        return new CompiledExpression<>(this, policy);
+    }
+
+    /**
+     * Returns the precision policy of the evaluations of this expression.
+     * 
+     * @return The precision policy of this expression or <code>null</code> if it's evaluated with the {@link PrecisionPolicy#current()} one.
+     */
+    public PrecisionPolicy precision()
+    {
+        return precision;
+    }
+
+    @Override
+    public String toString()
+    {
+        return expression;
+    }
+}
@@ -0,0 +1,290 @@
+/**
+ * Copyright (C) 2013 - 2015 Contributors.
+ *
+ * FormulaJ is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * FormulaJ is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see [http://www.gnu.org/licenses/].
+ *
+ * Contact: formulaj-user-list@googlegroups.com.
+ */
+package formulaj.expression.compiler;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+import formulaj.expression.BudgetExceededException;
+import formulaj.expression.EvaluationBudget;
+import formulaj.expression.EvaluationBudget.Limit;
+import formulaj.expression.PrecisionPolicy;
+import formulaj.expression.parser.AST;
+import formulaj.expression.token.AssignToken;
+import formulaj.expression.token.BinaryOperatorToken;
+import formulaj.expression.token.FunctionToken;
+import formulaj.expression.token.NumberToken;
+import formulaj.expression.token.UnaryToken;
+
+/**
+ * Estimates the cost of an expression from its tree, without evaluating it, so that the pathological expressions are rejected when they are
+ * compiled: a literal exponent larger than the budget, such as <code>2 ^ 999999999</code>, or a value whose estimated number of digits is
+ * larger than the budget, such as <code>(x ^ 100) ^ 100</code>.
+ * <p>
+ * The number of digits of a value is estimated from its operands: the digits of a literal, {@link #VARIABLE_DIGITS} for a variable, the sum of
+ * the operands' digits for a multiplication, one more than the largest operand for an addition or a subtraction and the digits of the base
+ * times the exponent for a power with a literal exponent. A division has the digits of the precision policy's division context, or of its
+ * largest operand if the context is unlimited, and no result has more digits than the context of its operator. A variable counts as one digit,
+ * so that only the expressions whose digits grow whatever their inputs are rejected; the values of the variables are checked by the evaluator,
+ * as the powers whose exponent is known only at run time.
+ */
+public final class CostEstimator
+{
+    /**
+     * The estimated number of digits of the value of a variable.
+     */
+    public static final int VARIABLE_DIGITS = 1;
+
+    /**
+     * Private constructor to avoid instance of this class.
+     */
+    private CostEstimator()
+    {
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * Checks that an expression is within the static limits of a budget: its number of nodes, the literal exponents and the estimated digits of
+     * its value.
+     * 
+     * @param expression
+     *            The expression to be checked. Might not be <code>null</code>.
+     * @param budget
+     *            The limits of the evaluation. Might not be <code>null</code>.
+     * @param <T>
+     *            The type of the value returned by the expression.
+     * @return The given expression.
+     * @throws BudgetExceededException
+     *             If the expression exceeds a limit of the budget.
+     */
+    public static <T> CompiledExpression<T> check(CompiledExpression<T> expression, EvaluationBudget budget) throws BudgetExceededException
+    {
+        if (expression.nodeCount() > budget.getMaxNodeVisits())
+        {
+            throw new BudgetExceededException(Limit.NODE_VISITS, budget.getMaxNodeVisits(), expression.nodeCount());
+        }
+
+        PrecisionPolicy policy = expression.precision() == null ? PrecisionPolicy.current() : expression.precision();
+        long digits = digits(expression.root(), budget, policy);
+
+        if (digits > budget.getMaxPrecision())
+        {
+            throw new BudgetExceededException(Limit.PRECISION, budget.getMaxPrecision(), digits);
+        }
+        return expression;
+    }
+
+    /**
+     * Returns the estimated number of digits of the value of a tree under the {@link PrecisionPolicy#current()} policy, without limiting its
+     * literal exponents. The estimate is {@link Long#MAX_VALUE} if it overflows.
+     * 
+     * @param node
+     *            The root of the tree. Might not be <code>null</code>.
+     * @return The estimated number of digits of the value of the tree.
+     */
+    public static long digits(AST node)
+    {
+        try
+        {
+            return digits(node, null, PrecisionPolicy.current());
+        }
+        catch (BudgetExceededException exception)
+        {
+            throw new IllegalStateException(exception);
+        }
+    }
+
+    /**
+     * Returns the estimated number of digits of the value of a tree, checking its literal exponents.
+     * 
+     * @param node
+     *            The root of the tree.
+     * @param budget
+     *            The limits of the evaluation or <code>null</code> to not check the literal exponents.
+     * @param policy
+     *            The precision policy of the evaluation.
+     * @return The estimated number of digits of the value of the tree.
+     * @throws BudgetExceededException
+     *             If a literal exponent is larger than the budget.
+     */
+    private static long digits(AST node, EvaluationBudget budget, PrecisionPolicy policy) throws BudgetExceededException
+    {
+        if (node instanceof NumberToken)
+        {
+            return new BigDecimal(node.getToken().getText()).precision();
+        }
+        else if (node instanceof UnaryToken)
+        {
+            return digits(((UnaryToken<?>) node).getExpression(), budget, policy);
+        }
+        else if (node instanceof AssignToken)
+        {
+            return digits(((AssignToken<?>) node).getValue(), budget, policy);
+        }
+        else if (node instanceof BinaryOperatorToken)
+        {
+            BinaryOperatorToken<?> binary = (BinaryOperatorToken<?>) node;
+            return digits(binary.symbol(), digits(binary.getLeft(), budget, policy), binary.getRight(), budget, policy);
+        }
+        else if (node instanceof FunctionToken)
+        {
+            FunctionToken<?> function = (FunctionToken<?>) node;
+
+            if ("pow".equals(function.getName()) && function.getArgs().size() == 2)
+            {
+                return digits("^", digits(function.getArgs().get(0), budget, policy), function.getArgs().get(1), budget, policy);
+            }
+
+            long digits = 1;
+
+            for (AST arg : function.getArgs())
+            {
+                digits = Math.max(digits, digits(arg, budget, policy));
+            }
+            return digits;
+        }
+        return VARIABLE_DIGITS;
+    }
+
+    /**
+     * Returns the estimated number of digits of the value of a binary operator.
+     * 
+     * @param operator
+     *            The symbol of the operator.
+     * @param left
+     *            The estimated number of digits of the left operand.
+     * @param right
+     *            The right operand.
+     * @param budget
+     *            The limits of the evaluation or <code>null</code> to not check the literal exponents.
+     * @param policy
+     *            The precision policy of the evaluation.
+     * @return The estimated number of digits of the value of the operator.
+     * @throws BudgetExceededException
+     *             If the operator is a power whose literal exponent is larger than the budget.
+     */
+    private static long digits(String operator, long left, AST right, EvaluationBudget budget, PrecisionPolicy policy)
+            throws BudgetExceededException
+    {
+        long digits;
+
+        if ("^".equals(operator))
+        {
+            BigDecimal exponent = literal(right);
+
+            if (exponent == null)
+            {
+                digits(right, budget, policy);
+                digits = left;
+            }
+            else
+            {
+                if (budget != null)
+                {
+                    budget.checkExponent(exponent);
+                }
+                digits = saturatedMultiply(left, saturatedLong(exponent.abs()));
+            }
+        }
+        else
+        {
+            long rightDigits = digits(right, budget, policy);
+
+            if ("*".equals(operator))
+            {
+                digits = saturatedAdd(left, rightDigits);
+            }
+            else if ("/".equals(operator))
+            {
+                int precision = policy.context(operator).getPrecision();
+                digits = precision > 0 ? precision : Math.max(left, rightDigits);
+            }
+            else
+            {
+                digits = saturatedAdd(Math.max(left, rightDigits), 1);
+            }
+        }
+
+        int precision = policy.context(operator).getPrecision();
+        return precision > 0 ? Math.min(digits, precision) : digits;
+    }
+
+    /**
+     * Returns a non-negative number rounded up to a <code>long</code>, or {@link Long#MAX_VALUE} if it is larger.
+     * 
+     * @param value
+     *            The non-negative number.
+     * @return The number as a <code>long</code>.
+     */
+    private static long saturatedLong(BigDecimal value)
+    {
+        BigDecimal integer = value.setScale(0, RoundingMode.CEILING);
+        return integer.compareTo(BigDecimal.valueOf(Long.MAX_VALUE)) >= 0 ? Long.MAX_VALUE : integer.longValue();
+    }
+
+    /**
+     * Returns the value of a literal, possibly negated.
+     * 
+     * @param node
+     *            The node.
+     * @return The value of the literal or <code>null</code> if the node is not a literal.
+     */
+    private static BigDecimal literal(AST node)
+    {
+        if (node instanceof NumberToken)
+        {
+            return new BigDecimal(node.getToken().getText());
+        }
+        else if (node instanceof UnaryToken)
+        {
+            BigDecimal value = literal(((UnaryToken<?>) node).getExpression());
+            return value == null || !"-".equals(((UnaryToken<?>) node).symbol()) ? value : value.negate();
+        }
+        return null;
+    }
+
+    /**
+     * Returns the sum of two non-negative numbers, or {@link Long#MAX_VALUE} if it overflows.
+     * 
+     * @param a
+     *            The first number.
+     * @param b
+     *            The second number.
+     * @return The sum of the numbers.
+     */
+    private static long saturatedAdd(long a, long b)
+    {
+        long sum = a + b;
+        return sum < 0 ? Long.MAX_VALUE : sum;
+    }
+
+    /**
+     * Returns the product of two non-negative numbers, or {@link Long#MAX_VALUE} if it overflows.
+     * 
+     * @param a
+     *            The first number.
+     * @param b
+     *            The second number.
+     * @return The product of the numbers.
+     */
+    private static long saturatedMultiply(long a, long b)
+    {
+        return b != 0 && a > Long.MAX_VALUE / b ? Long.MAX_VALUE : a * b;
+    }
+}
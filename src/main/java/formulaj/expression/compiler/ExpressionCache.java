@@ -0,0 +1,289 @@
+/**
+ * Copyright (C) 2013 - 2015 Contributors.
+ *
+ * FormulaJ is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * FormulaJ is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see [http://www.gnu.org/licenses/].
+ *
+ * Contact: formulaj-user-list@googlegroups.com.
+ */
+package formulaj.expression.compiler;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import formulaj.expression.event.ExpressionEvent.Outcome;
+import formulaj.expression.event.ExpressionEvent.Phase;
+import formulaj.expression.event.ExpressionEvents;
+import formulaj.expression.parser.RecognitionException;
+
+/**
+ * A size-bounded cache of {@link CompiledExpression}s keyed by the expression's text. When the cache is full, the least recently used expression
+ * is evicted.
+ */
+public final class ExpressionCache
+{
+    /**
+     * The default maximum number of expressions of a cache.
+     */
+    public static final int DEFAULT_MAXIMUM_SIZE = 1024;
+
+    /**
+     * The cache of the system, shared by the evaluators created with it.
+     */
+    private static final ExpressionCache SHARED = new ExpressionCache(DEFAULT_MAXIMUM_SIZE);
+
+    /**
+     * The compiled expressions in access order. Guarded by itself.
+     */
+    private final Map<String, CompiledExpression<?>> entries = new LinkedHashMap<String, CompiledExpression<?>>(16, 0.75f, true)
+    {
+        /**
+         * Serial code version <code>serialVersionUID</code> for serialization.
+         */
+        private static final long serialVersionUID = -1418212637340880124L;
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, CompiledExpression<?>> eldest)
+        {
+            if (size() > maximumSize)
+            {
+                evictions.incrementAndGet();
+                return true;
+            }
+            return false;
+        }
+    };
+
+    /**
+     * The number of lookups that found the expression.
+     */
+    private final AtomicLong hits = new AtomicLong();
+
+    /**
+     * The number of lookups that compiled the expression.
+     */
+    private final AtomicLong misses = new AtomicLong();
+
+    /**
+     * The number of expressions evicted from the cache.
+     */
+    private final AtomicLong evictions = new AtomicLong();
+
+    /**
+     * The maximum number of expressions of this cache.
+     */
+    private volatile int maximumSize;
+
+    /**
+     * Creates an {@link ExpressionCache} with a given maximum size.
+     * 
+     * @param maxSize
+     *            The maximum number of expressions of this cache. Zero disables the cache.
+     */
+    public ExpressionCache(int maxSize)
+    {
+        this.setMaximumSize(maxSize);
+    }
+
+    /**
+     * Returns the cache of the system, to be given to the evaluators that share their compiled expressions. The evaluators do not use it unless
+     * it is given to them.
+     * 
+     * @return The cache of the system.
+     */
+    public static ExpressionCache shared()
+    {
+        return SHARED;
+    }
+
+    /**
+     * Returns the {@link CompiledExpression} of the given text, compiling and caching it if it's not in the cache. The tree of an expression
+     * that calls a {@link formulaj.expression.function.math.StatefulFunction} is copied for each caller, so that unrelated expressions with the
+     * same text do not share the state of their calls.
+     * 
+     * @param expression
+     *            The expression's text. Might not be <code>null</code> or empty.
+     * @param <T>
+     *            The type of the value returned by the expression.
+     * @return The {@link CompiledExpression} of the given text.
+     * @throws RecognitionException
+     *             If the given expression is invalid.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> CompiledExpression<T> get(String expression) throws RecognitionException
+    {
+        final long start = ExpressionEvents.start();
+        CompiledExpression<T> compiled;
+
+        synchronized (entries)
+        {
+            compiled = (CompiledExpression<T>) entries.get(expression);
+        }
+
+        if (compiled != null)
+        {
+            hits.incrementAndGet();
+            ExpressionEvents.fire(Phase.CACHE_LOOKUP, ExpressionCache.class, expression, start, compiled.nodeCount(), Outcome.HIT);
+            return compiled.withOwnState();
+        }
+
+        misses.incrementAndGet();
+        ExpressionEvents.fire(Phase.CACHE_LOOKUP, ExpressionCache.class, expression, start, -1, Outcome.MISS);
+
+        compiled = CompiledExpression.compile(expression);
+
+        if (maximumSize > 0)
+        {
+            synchronized (entries)
+            {
+                entries.put(expression, compiled);
+            }
+        }
+
+        return compiled.withOwnState();
+    }
+
+    /**
+     * Removes all expressions of this cache.
+     */
+    public void clear()
+    {
+        synchronized (entries)
+        {
+            entries.clear();
+        }
+    }
+
+    /**
+     * Resets the hit, miss and eviction counters.
+     */
+    public void resetStatistics()
+    {
+        hits.set(0);
+        misses.set(0);
+        evictions.set(0);
+    }
+
+    /**
+     * Returns the number of expressions in this cache.
+     * 
+     * @return The number of expressions in this cache.
+     */
+    public int size()
+    {
+        synchronized (entries)
+        {
+            return entries.size();
+        }
+    }
+
+    /**
+     * Returns the total number of tree nodes held by this cache. It's a rough measure of the cache's memory footprint.
+     * 
+     * @return The total number of tree nodes held by this cache.
+     */
+    public long nodeCount()
+    {
+        long count = 0;
+
+        synchronized (entries)
+        {
+            for (CompiledExpression<?> compiled : entries.values())
+            {
+                count += compiled.nodeCount();
+            }
+        }
+
+        return count;
+    }
+
+    /**
+     * Returns the maximum number of expressions of this cache.
+     * 
+     * @return The maximum number of expressions of this cache.
+     */
+    public int getMaximumSize()
+    {
+        return maximumSize;
+    }
+
+    /**
+     * Defines the maximum number of expressions of this cache, evicting the least recently used expressions if the cache is bigger.
+     * 
+     * @param maxSize
+     *            The maximum number of expressions of this cache. Zero disables the cache.
+     */
+    public void setMaximumSize(int maxSize)
+    {
+        if (maxSize < 0)
+        {
+            throw new IllegalArgumentException("The maximum size might not be negative!");
+        }
+
+        this.maximumSize = maxSize;
+
+        synchronized (entries)
+        {
+            for (Iterator<String> iter = entries.keySet().iterator(); entries.size() > maxSize && iter.hasNext();)
+            {
+                iter.next();
+                iter.remove();
+                evictions.incrementAndGet();
+            }
+        }
+    }
+
+    /**
+     * Returns the number of lookups that found the expression in the cache.
+     * 
+     * @return The number of lookups that found the expression in the cache.
+     */
+    public long getHitCount()
+    {
+        return hits.get();
+    }
+
+    /**
+     * Returns the number of lookups that had to compile the expression.
+     * 
+     * @return The number of lookups that had to compile the expression.
+     */
+    public long getMissCount()
+    {
+        return misses.get();
+    }
+
+    /**
+     * Returns the number of expressions evicted from the cache.
+     * 
+     * @return The number of expressions evicted from the cache.
+     */
+    public long getEvictionCount()
+    {
+        return evictions.get();
+    }
+
+    /**
+     * Returns the ratio of lookups that found the expression in the cache.
+     * 
+     * @return The ratio of lookups that found the expression in the cache or <code>0</code> if there wasn't any lookup.
+     */
+    public double hitRate()
+    {
+        long h = hits.get();
+        long total = h + misses.get();
+        return total == 0 ? 0.d : (double) h / total;
+    }
+}
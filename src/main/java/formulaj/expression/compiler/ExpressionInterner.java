@@ -0,0 +1,409 @@
+/**
+ * Copyright (C) 2013 - 2015 Contributors.
+ *
+ * FormulaJ is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * FormulaJ is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see [http://www.gnu.org/licenses/].
+ *
+ * Contact: formulaj-user-list@googlegroups.com.
+ */
+package formulaj.expression.compiler;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+import formulaj.expression.Value;
+import formulaj.expression.function.Functions;
+import formulaj.expression.function.math.StatefulFunction;
+import formulaj.expression.parser.AST;
+import formulaj.expression.token.AssignToken;
+import formulaj.expression.token.BinaryOperatorToken;
+import formulaj.expression.token.ExpressionToken;
+import formulaj.expression.token.FunctionToken;
+import formulaj.expression.token.MathNodeToken;
+import formulaj.expression.token.NumberToken;
+import formulaj.expression.token.Token;
+import formulaj.expression.token.UnaryToken;
+import formulaj.expression.token.VarToken;
+
+/**
+ * Shares the identical subtrees, literals and identifiers of many {@link CompiledExpression}s. The trees are hash-consed bottom-up: the
+ * children of a node are interned first, so two nodes are identical when they have the same kind, token and children instances. The texts of
+ * the tokens are interned as well, so all the trees share one instance of each identifier, literal and operator symbol.
+ * <p>
+ * The interned nodes and texts are weakly referenced, so they are collected when no expression uses them. The call of a
+ * {@link StatefulFunction} is never shared, because its state belongs to its node.
+ * <p>
+ * The interned trees must not be modified. An interner is safe for use by multiple threads.
+ */
+public final class ExpressionInterner
+{
+    /**
+     * The interned texts.
+     */
+    private final Map<String, WeakReference<String>> symbols = new WeakHashMap<>();
+
+    /**
+     * The interned nodes, by their structure. Guarded by this.
+     */
+    private final Map<NodeKey, NodeReference> nodes = new HashMap<>();
+
+    /**
+     * The references of the nodes that were collected.
+     */
+    private final ReferenceQueue<AST> collected = new ReferenceQueue<>();
+
+    /**
+     * The number of nodes that were found in the interner.
+     */
+    private long hits;
+
+    /**
+     * The number of nodes that were added to the interner.
+     */
+    private long misses;
+
+    /**
+     * Returns an expression equal to the given one whose tree is made of interned nodes.
+     * 
+     * @param expression
+     *            The expression to be interned. Might not be <code>null</code>.
+     * @param <T>
+     *            The type of the value returned by the expression.
+     * @return An expression with the same text, the same {@link CompiledExpression#precision() precision policy} and an interned tree.
+     */
+    @SuppressWarnings("unchecked")
+    public synchronized <T> CompiledExpression<T> intern(CompiledExpression<T> expression)
+    {
+        this.purge();
+        CompiledExpression<T> interned = CompiledExpression.of(symbol(expression.expression()), (MathNodeToken<Value<T>, Value<T>>) this
+                .intern(expression.root()));
+
+        return expression.precision() == null ? interned : interned.withPrecision(expression.precision());
+    }
+
+    /**
+     * Returns the interned instance of a text.
+     * 
+     * @param text
+     *            The text to be interned.
+     * @return The interned instance of the text.
+     */
+    public synchronized String symbol(String text)
+    {
+        WeakReference<String> reference = symbols.get(text);
+        String symbol = reference == null ? null : reference.get();
+
+        if (symbol == null)
+        {
+            symbol = text;
+            symbols.put(symbol, new WeakReference<>(symbol));
+        }
+        return symbol;
+    }
+
+    /**
+     * Returns the interned instance of a node, interning its children first.
+     * 
+     * @param node
+     *            The node to be interned.
+     * @return The interned node.
+     */
+    @SuppressWarnings({ "rawtypes", "unchecked" })
+    private AST intern(AST node)
+    {
+        byte kind;
+        AST[] children;
+
+        if (node instanceof NumberToken)
+        {
+            kind = FormulaBundle.NUMBER;
+            children = new AST[0];
+        }
+        else if (node instanceof VarToken)
+        {
+            kind = FormulaBundle.VARIABLE;
+            children = new AST[0];
+        }
+        else if (node instanceof UnaryToken)
+        {
+            kind = FormulaBundle.UNARY;
+            children = new AST[] {intern(((UnaryToken<?>) node).getExpression()) };
+        }
+        else if (node instanceof BinaryOperatorToken)
+        {
+            BinaryOperatorToken<?> binary = (BinaryOperatorToken<?>) node;
+            kind = FormulaBundle.BINARY;
+            children = new AST[] {intern(binary.getLeft()), intern(binary.getRight()) };
+        }
+        else if (node instanceof FunctionToken)
+        {
+            List<? extends AST> args = ((FunctionToken<?>) node).getArgs();
+            kind = FormulaBundle.FUNCTION;
+            children = new AST[args.size()];
+
+            for (int i = 0; i < children.length; i++)
+            {
+                children[i] = intern(args.get(i));
+            }
+        }
+        else if (node instanceof AssignToken)
+        {
+            AssignToken<?> assign = (AssignToken<?>) node;
+            kind = FormulaBundle.ASSIGN;
+            children = new AST[] {intern(assign.getId()), intern(assign.getValue()) };
+        }
+        else
+        {
+            throw new IllegalArgumentException("Unknown node " + node.getToken().getText());
+        }
+
+        Token token = node.getToken();
+        NodeKey key = new NodeKey(kind, token.getType(), symbol(token.getText()), children);
+        boolean stateful = kind == FormulaBundle.FUNCTION && Functions.getFunctionByName(token.getText()) instanceof StatefulFunction;
+
+        if (!stateful)
+        {
+            NodeReference reference = nodes.get(key);
+            AST interned = reference == null ? null : reference.get();
+
+            if (interned != null)
+            {
+                hits++;
+                return interned;
+            }
+        }
+
+        misses++;
+        Token symbol = new Token(token.getType(), key.text);
+        AST interned;
+
+        switch (kind)
+        {
+        case FormulaBundle.NUMBER:
+            interned = new NumberToken(symbol);
+            break;
+        case FormulaBundle.VARIABLE:
+            interned = new VarToken(symbol);
+            break;
+        case FormulaBundle.UNARY:
+            interned = new UnaryToken(symbol, (ExpressionToken) children[0]);
+            break;
+        case FormulaBundle.BINARY:
+            interned = new BinaryOperatorToken(symbol, (ExpressionToken) children[0], (ExpressionToken) children[1]);
+            break;
+        case FormulaBundle.FUNCTION:
+            interned = new FunctionToken(symbol, Arrays.copyOf(children, children.length, ExpressionToken[].class));
+            break;
+        default:
+            interned = new AssignToken(((VarToken) children[0]), symbol, (ExpressionToken) children[1]);
+            break;
+        }
+
+        if (!stateful)
+        {
+            nodes.put(key, new NodeReference(interned, key, collected));
+        }
+        return interned;
+    }
+
+    /**
+     * Removes the entries of the nodes that were collected.
+     */
+    private void purge()
+    {
+        NodeReference reference;
+
+        while ((reference = (NodeReference) collected.poll()) != null)
+        {
+            if (nodes.get(reference.key) == reference)
+            {
+                nodes.remove(reference.key);
+            }
+        }
+    }
+
+    /**
+     * Returns the number of interned nodes that are still in use.
+     * 
+     * @return The number of interned nodes.
+     */
+    public synchronized int nodeCount()
+    {
+        this.purge();
+        return nodes.size();
+    }
+
+    /**
+     * Returns the number of interned texts that are still in use.
+     * 
+     * @return The number of interned texts.
+     */
+    public synchronized int symbolCount()
+    {
+        return symbols.size();
+    }
+
+    /**
+     * Returns the number of nodes that were found in this interner, instead of being created.
+     * 
+     * @return The number of nodes that were shared.
+     */
+    public synchronized long getHitCount()
+    {
+        return hits;
+    }
+
+    /**
+     * Returns the number of nodes that were created by this interner.
+     * 
+     * @return The number of nodes that were created.
+     */
+    public synchronized long getMissCount()
+    {
+        return misses;
+    }
+
+    /**
+     * Removes all nodes and texts of this interner. The expressions already interned are not changed.
+     */
+    public synchronized void clear()
+    {
+        nodes.clear();
+        symbols.clear();
+        while (collected.poll() != null)
+        {
+            continue;
+        }
+    }
+
+    /**
+     * The structure of a node: its kind, the type and text of its token and its interned children.
+     */
+    private static final class NodeKey
+    {
+        /**
+         * The kind of the node.
+         */
+        private final byte kind;
+
+        /**
+         * The type of the node's token.
+         */
+        private final int type;
+
+        /**
+         * The interned text of the node's token.
+         */
+        private final String text;
+
+        /**
+         * The interned children, compared by identity.
+         */
+        private final AST[] children;
+
+        /**
+         * The hash code of this key.
+         */
+        private final int hash;
+
+        /**
+         * Creates a {@link NodeKey}.
+         * 
+         * @param nodeKind
+         *            The kind of the node.
+         * @param tokenType
+         *            The type of the node's token.
+         * @param tokenText
+         *            The interned text of the node's token.
+         * @param nodeChildren
+         *            The interned children.
+         */
+        NodeKey(byte nodeKind, int tokenType, String tokenText, AST[] nodeChildren)
+        {
+            this.kind = nodeKind;
+            this.type = tokenType;
+            this.text = tokenText;
+            this.children = nodeChildren;
+
+            int h = 31 * (31 * kind + type) + text.hashCode();
+            for (AST child : children)
+            {
+                h = 31 * h + System.identityHashCode(child);
+            }
+            this.hash = h;
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object obj)
+        {
+            if (!(obj instanceof NodeKey))
+            {
+                return false;
+            }
+
+            NodeKey other = (NodeKey) obj;
+
+            if (hash != other.hash || kind != other.kind || type != other.type || !text.equals(other.text) || children.length != other.children.length)
+            {
+                return false;
+            }
+
+            for (int i = 0; i < children.length; i++)
+            {
+                if (children[i] != other.children[i])
+                {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    /**
+     * A weak reference to an interned node that knows its key, so its entry is removed when the node is collected.
+     */
+    private static final class NodeReference extends WeakReference<AST>
+    {
+        /**
+         * The key of the node.
+         */
+        private final NodeKey key;
+
+        /**
+         * Creates a {@link NodeReference}.
+         * 
+         * @param node
+         *            The interned node.
+         * @param nodeKey
+         *            The key of the node.
+         * @param queue
+         *            The queue of the collected nodes.
+         */
+        NodeReference(AST node, NodeKey nodeKey, ReferenceQueue<AST> queue)
+        {
+            super(node, queue);
+            this.key = nodeKey;
+        }
+    }
+}
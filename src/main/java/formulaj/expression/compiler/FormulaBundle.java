@@ -0,0 +1,513 @@
+/**
+ * Copyright (C) 2013 - 2015 Contributors.
+ *
+ * FormulaJ is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * FormulaJ is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see [http://www.gnu.org/licenses/].
+ *
+ * Contact: formulaj-user-list@googlegroups.com.
+ */
+package formulaj.expression.compiler;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import formulaj.expression.UndefinedFunctionException;
+import formulaj.expression.Value;
+import formulaj.expression.function.Function;
+import formulaj.expression.function.Functions;
+import formulaj.expression.token.AssignToken;
+import formulaj.expression.token.BinaryOperatorToken;
+import formulaj.expression.token.ExpressionToken;
+import formulaj.expression.token.FunctionToken;
+import formulaj.expression.token.MathNodeToken;
+import formulaj.expression.token.NumberToken;
+import formulaj.expression.token.Token;
+import formulaj.expression.token.UnaryToken;
+import formulaj.expression.token.VarToken;
+
+/**
+ * A file with many {@link CompiledExpression}s, identified by an id, which are loaded without lexing or parsing their texts. The file is
+ * memory-mapped and each expression is decoded from the mapped bytes when it's requested, so opening a bundle costs the same whatever its
+ * number of expressions.
+ * <p>
+ * The file has the following sections, with big-endian numbers:
+ * <ol>
+ * <li>The header: {@link #MAGIC}, {@link #VERSION}, the number of expressions, symbols and functions and the length of the code.</li>
+ * <li>The symbol table: the texts, ids, literals, identifiers and function names, each one written once in UTF-8.</li>
+ * <li>The functions called by the expressions, with the class of their implementation when the bundle was written.</li>
+ * <li>The index: the id and text of each expression and the offset of its tree.</li>
+ * <li>The code: the trees in pre-order.</li>
+ * </ol>
+ * When a bundle is opened, the functions that it calls must be registered with the same implementation, otherwise the expressions might not
+ * be evaluated as they were written.
+ * <p>
+ * A bundle is safe for use by multiple threads.
+ */
+public final class FormulaBundle
+{
+    /**
+     * The first bytes of a bundle: "FJBC".
+     */
+    public static final int MAGIC = 0x464A4243;
+
+    /**
+     * The version of the format written by this class.
+     */
+    public static final int VERSION = 1;
+
+    /**
+     * The kind of a {@link NumberToken}.
+     */
+    static final byte NUMBER = 1;
+
+    /**
+     * The kind of a {@link VarToken}.
+     */
+    static final byte VARIABLE = 2;
+
+    /**
+     * The kind of an {@link UnaryToken}.
+     */
+    static final byte UNARY = 3;
+
+    /**
+     * The kind of a {@link BinaryOperatorToken}.
+     */
+    static final byte BINARY = 4;
+
+    /**
+     * The kind of a {@link FunctionToken}.
+     */
+    static final byte FUNCTION = 5;
+
+    /**
+     * The kind of an {@link AssignToken}.
+     */
+    static final byte ASSIGN = 6;
+
+    /**
+     * The size of the header, in bytes.
+     */
+    private static final int HEADER_SIZE = 24;
+
+    /**
+     * The size of an entry of the index, in bytes.
+     */
+    private static final int ENTRY_SIZE = 12;
+
+    /**
+     * The bytes of the bundle.
+     */
+    private final ByteBuffer buffer;
+
+    /**
+     * The position of the offsets of the symbols.
+     */
+    private final int symbolOffsets;
+
+    /**
+     * The position of the texts of the symbols.
+     */
+    private final int symbolData;
+
+    /**
+     * The position of the functions.
+     */
+    private final int functionTable;
+
+    /**
+     * The position of the index.
+     */
+    private final int index;
+
+    /**
+     * The position of the code.
+     */
+    private final int code;
+
+    /**
+     * The number of functions.
+     */
+    private final int functionCount;
+
+    /**
+     * The symbols already decoded.
+     */
+    private final AtomicReferenceArray<String> symbols;
+
+    /**
+     * The expressions already decoded.
+     */
+    private final AtomicReferenceArray<CompiledExpression<?>> expressions;
+
+    /**
+     * The number of expressions already decoded.
+     */
+    private final AtomicInteger loaded = new AtomicInteger();
+
+    /**
+     * The position of each expression, by its id. It's created when an expression is requested by its id.
+     */
+    private volatile Map<String, Integer> ids;
+
+    /**
+     * Creates a {@link FormulaBundle} over the given bytes.
+     * 
+     * @param bytes
+     *            The bytes of the bundle.
+     * @throws IOException
+     *             If the bytes are not a bundle of a supported version.
+     */
+    private FormulaBundle(ByteBuffer bytes) throws IOException
+    {
+        this.buffer = bytes;
+
+        if (bytes.capacity() < HEADER_SIZE || bytes.getInt(0) != MAGIC)
+        {
+            throw new IOException("The file is not a formula bundle!");
+        }
+
+        if (bytes.getShort(4) != VERSION)
+        {
+            throw new IOException(String.format("Unsupported version of the bundle: %s. The supported version is %s.", bytes.getShort(4), VERSION));
+        }
+
+        int count = bytes.getInt(8);
+        int symbolCount = bytes.getInt(12);
+        this.functionCount = bytes.getInt(16);
+        int codeLength = bytes.getInt(20);
+
+        if (count < 0 || symbolCount < 0 || functionCount < 0 || codeLength < 0)
+        {
+            throw new IOException("The formula bundle is truncated or corrupted!");
+        }
+
+        this.symbolOffsets = HEADER_SIZE;
+        this.symbolData = section(bytes, symbolOffsets + symbolCount * 4L + 4);
+        this.functionTable = section(bytes, symbolData + (long) bytes.getInt(symbolData - 4));
+        this.index = section(bytes, functionTable + functionCount * 8L);
+        this.code = section(bytes, index + count * (long) ENTRY_SIZE);
+
+        if ((long) code + codeLength != bytes.capacity())
+        {
+            throw new IOException("The formula bundle is truncated or corrupted!");
+        }
+
+        this.symbols = new AtomicReferenceArray<>(symbolCount);
+        this.expressions = new AtomicReferenceArray<>(count);
+    }
+
+    /**
+     * Returns the position of a section of a bundle, checking that the section starts within the bytes of the bundle.
+     * 
+     * @param bytes
+     *            The bytes of the bundle.
+     * @param position
+     *            The position of the section, computed from the header.
+     * @return The position of the section.
+     * @throws IOException
+     *             If the position is beyond the end of the bytes, because the bundle is truncated or corrupted.
+     */
+    private static int section(ByteBuffer bytes, long position) throws IOException
+    {
+        if (position < HEADER_SIZE || position > bytes.capacity())
+        {
+            throw new IOException("The formula bundle is truncated or corrupted!");
+        }
+        return (int) position;
+    }
+
+    /**
+     * Writes a bundle with the given expressions, replacing the file if it exists.
+     * 
+     * @param file
+     *            The file to be written. Might not be <code>null</code>.
+     * @param expressions
+     *            The expressions to be written, by their ids. Might not be <code>null</code>.
+     * @throws IOException
+     *             If the file could not be written.
+     * @throws IllegalArgumentException
+     *             If an expression calls a function that is not registered.
+     */
+    public static void write(Path file, Map<String, ? extends CompiledExpression<?>> expressions) throws IOException
+    {
+        BundleWriter writer = new BundleWriter();
+
+        for (Map.Entry<String, ? extends CompiledExpression<?>> entry : expressions.entrySet())
+        {
+            writer.add(Objects.requireNonNull(entry.getKey()), entry.getValue());
+        }
+        writer.write(Objects.requireNonNull(file));
+    }
+
+    /**
+     * Maps a bundle and verifies that the functions that it calls are registered with the same implementation. The expressions are decoded
+     * when they are requested.
+     * 
+     * @param file
+     *            The bundle's file. Might not be <code>null</code>.
+     * @return The bundle of the given file.
+     * @throws IOException
+     *             If the file could not be read or if it's not a bundle of a supported version.
+     * @throws UndefinedFunctionException
+     *             If a function called by the bundle is not registered or is registered with another implementation.
+     */
+    public static FormulaBundle open(Path file) throws IOException, UndefinedFunctionException
+    {
+        try (FileChannel channel = FileChannel.open(Objects.requireNonNull(file), StandardOpenOption.READ))
+        {
+            if (channel.size() > Integer.MAX_VALUE)
+            {
+                throw new IOException("The formula bundle is larger than 2GB: " + file);
+            }
+
+            FormulaBundle bundle = new FormulaBundle(channel.map(MapMode.READ_ONLY, 0, channel.size()));
+            bundle.verifyFunctions();
+            return bundle;
+        }
+    }
+
+    /**
+     * Verifies that the functions called by this bundle are registered with the same implementation.
+     * 
+     * @throws UndefinedFunctionException
+     *             If a function is not registered or is registered with another implementation.
+     */
+    private void verifyFunctions() throws UndefinedFunctionException
+    {
+        for (int i = 0; i < functionCount; i++)
+        {
+            String name = symbol(buffer.getInt(functionTable + i * 8));
+            String implementation = symbol(buffer.getInt(functionTable + i * 8 + 4));
+            Function<?> function = Functions.getFunctionByName(name);
+
+            if (function == null)
+            {
+                throw new UndefinedFunctionException(String.format("The bundle calls the function %s, which is not registered!", name));
+            }
+
+            if (!function.getClass().getName().equals(implementation))
+            {
+                throw new UndefinedFunctionException(String.format("The function %s is implemented by %s, but the bundle was written with %s!", name,
+                        function.getClass().getName(), implementation));
+            }
+        }
+    }
+
+    /**
+     * Returns the number of expressions of this bundle.
+     * 
+     * @return The number of expressions of this bundle.
+     */
+    public int size()
+    {
+        return expressions.length();
+    }
+
+    /**
+     * Returns the number of expressions already decoded.
+     * 
+     * @return The number of expressions already decoded.
+     */
+    public int loadedCount()
+    {
+        return loaded.get();
+    }
+
+    /**
+     * Returns the names of the functions called by the expressions of this bundle.
+     * 
+     * @return The names of the functions called by the expressions of this bundle.
+     */
+    public List<String> functions()
+    {
+        List<String> names = new ArrayList<>(functionCount);
+
+        for (int i = 0; i < functionCount; i++)
+        {
+            names.add(symbol(buffer.getInt(functionTable + i * 8)));
+        }
+        return names;
+    }
+
+    /**
+     * Returns the id of the expression at the given position.
+     * 
+     * @param position
+     *            The position of the expression, from zero to {@link #size()} - 1.
+     * @return The id of the expression.
+     */
+    public String id(int position)
+    {
+        return symbol(buffer.getInt(index + checkPosition(position) * ENTRY_SIZE));
+    }
+
+    /**
+     * Returns the expression at the given position, decoding it if it's the first request. An expression that calls a
+     * {@link formulaj.expression.function.math.StatefulFunction} is copied for each request, so that each caller keeps its own state.
+     * 
+     * @param position
+     *            The position of the expression, from zero to {@link #size()} - 1.
+     * @param <T>
+     *            The type of the value returned by the expression.
+     * @return The expression at the given position.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> CompiledExpression<T> get(int position)
+    {
+        CompiledExpression<?> expression = expressions.get(checkPosition(position));
+
+        if (expression == null)
+        {
+            int entry = index + position * ENTRY_SIZE;
+            int[] cursor = {code + buffer.getInt(entry + 8) };
+            expression = CompiledExpression.of(symbol(buffer.getInt(entry + 4)), (MathNodeToken<Value<Object>, Value<Object>>) decode(cursor));
+
+            if (expressions.compareAndSet(position, null, expression))
+            {
+                loaded.incrementAndGet();
+            }
+            else
+            {
+                expression = expressions.get(position);
+            }
+        }
+        return (CompiledExpression<T>) expression.withOwnState();
+    }
+
+    /**
+     * Returns the expression with the given id, decoding it if it's the first request.
+     * 
+     * @param id
+     *            The id of the expression. Might not be <code>null</code>.
+     * @param <T>
+     *            The type of the value returned by the expression.
+     * @return The expression with the given id or <code>null</code> if this bundle does not have it.
+     */
+    public <T> CompiledExpression<T> get(String id)
+    {
+        Map<String, Integer> positions = ids;
+
+        if (positions == null)
+        {
+            positions = new HashMap<>(expressions.length() * 4 / 3 + 1);
+
+            for (int i = 0; i < expressions.length(); i++)
+            {
+                positions.put(id(i), i);
+            }
+            ids = positions;
+        }
+
+        Integer position = positions.get(Objects.requireNonNull(id));
+        return position == null ? null : this.<T> get(position);
+    }
+
+    /**
+     * Checks that a position is in the range of the expressions.
+     * 
+     * @param position
+     *            The position of an expression.
+     * @return The given position.
+     */
+    private int checkPosition(int position)
+    {
+        if (position < 0 || position >= expressions.length())
+        {
+            throw new IndexOutOfBoundsException(String.format("Position: %s, size: %s", position, expressions.length()));
+        }
+        return position;
+    }
+
+    /**
+     * Returns the symbol at the given index, decoding it if it's the first request.
+     * 
+     * @param symbolIndex
+     *            The index of the symbol.
+     * @return The symbol at the given index.
+     */
+    private String symbol(int symbolIndex)
+    {
+        String symbol = symbols.get(symbolIndex);
+
+        if (symbol == null)
+        {
+            int position = symbolData + buffer.getInt(symbolOffsets + symbolIndex * 4);
+            byte[] bytes = new byte[buffer.getInt(position)];
+
+            ByteBuffer data = buffer.duplicate();
+            data.position(position + 4);
+            data.get(bytes);
+
+            symbol = new String(bytes, StandardCharsets.UTF_8);
+            symbols.lazySet(symbolIndex, symbol);
+        }
+        return symbol;
+    }
+
+    /**
+     * Decodes a node and its children.
+     * 
+     * @param cursor
+     *            The position of the node. It's advanced to the position after the node.
+     * @return The decoded node.
+     */
+    @SuppressWarnings({ "rawtypes", "unchecked" })
+    private MathNodeToken decode(int[] cursor)
+    {
+        int position = cursor[0];
+        byte kind = buffer.get(position);
+        Token token = new Token(buffer.get(position + 1), symbol(buffer.getInt(position + 2)));
+        cursor[0] = position + 6;
+
+        switch (kind)
+        {
+        case NUMBER:
+            return new NumberToken(token);
+        case VARIABLE:
+            return new VarToken(token);
+        case UNARY:
+            return new UnaryToken(token, (ExpressionToken) decode(cursor));
+        case BINARY:
+            ExpressionToken left = (ExpressionToken) decode(cursor);
+            return new BinaryOperatorToken(token, left, (ExpressionToken) decode(cursor));
+        case FUNCTION:
+            int count = buffer.getShort(cursor[0]);
+            cursor[0] += 2;
+
+            List<ExpressionToken> args = new ArrayList<>(count);
+            for (int i = 0; i < count; i++)
+            {
+                args.add((ExpressionToken) decode(cursor));
+            }
+            return new FunctionToken(token, args);
+        case ASSIGN:
+            VarToken var = (VarToken) decode(cursor);
+            return new AssignToken(var, token, (ExpressionToken) decode(cursor));
+        default:
+            throw new IllegalStateException(String.format("The formula bundle is corrupted: unknown node %s at %s!", kind, position));
+        }
+    }
+}
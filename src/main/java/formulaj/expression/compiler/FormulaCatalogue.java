@@ -0,0 +1,176 @@
+/**
+ * Copyright (C) 2013 - 2015 Contributors.
+ *
+ * FormulaJ is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * FormulaJ is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see [http://www.gnu.org/licenses/].
+ *
+ * Contact: formulaj-user-list@googlegroups.com.
+ */
+package formulaj.expression.compiler;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * The result of a {@link BulkCompiler} batch: the compiled expressions in the order of the items, indexed by position and by id, and the
+ * items that could not be compiled.
+ */
+public final class FormulaCatalogue
+{
+    /**
+     * The ids of the items.
+     */
+    private final String[] ids;
+
+    /**
+     * The compiled expressions. The position of a failed item is <code>null</code>.
+     */
+    private final CompiledExpression<?>[] expressions;
+
+    /**
+     * The position of each id.
+     */
+    private final Map<String, Integer> positions;
+
+    /**
+     * The items that could not be compiled.
+     */
+    private final List<CompilationFailure> failures;
+
+    /**
+     * The number of distinct texts of the batch.
+     */
+    private final int distinctCount;
+
+    /**
+     * Creates a {@link FormulaCatalogue}.
+     * 
+     * @param itemIds
+     *            The ids of the items.
+     * @param compiled
+     *            The compiled expressions, with <code>null</code> at the positions of the failed items.
+     * @param idPositions
+     *            The position of each id.
+     * @param failedItems
+     *            The items that could not be compiled.
+     * @param distinctTexts
+     *            The number of distinct texts of the batch.
+     */
+    FormulaCatalogue(String[] itemIds, CompiledExpression<?>[] compiled, Map<String, Integer> idPositions, List<CompilationFailure> failedItems,
+            int distinctTexts)
+    {
+        this.ids = itemIds;
+        this.expressions = compiled;
+        this.positions = new HashMap<>(idPositions);
+        this.failures = Collections.unmodifiableList(failedItems);
+        this.distinctCount = distinctTexts;
+    }
+
+    /**
+     * Returns the number of items of this catalogue, including the failed ones.
+     * 
+     * @return The number of items of this catalogue.
+     */
+    public int size()
+    {
+        return ids.length;
+    }
+
+    /**
+     * Returns the id of the item at the given position.
+     * 
+     * @param position
+     *            The position of the item, from zero to {@link #size()} - 1.
+     * @return The id of the item.
+     */
+    public String id(int position)
+    {
+        return ids[position];
+    }
+
+    /**
+     * Returns the position of the item with the given id.
+     * 
+     * @param id
+     *            The id of the item. Might not be <code>null</code>.
+     * @return The position of the item or <code>-1</code> if this catalogue does not have it.
+     */
+    public int indexOf(String id)
+    {
+        Integer position = positions.get(Objects.requireNonNull(id));
+        return position == null ? -1 : position;
+    }
+
+    /**
+     * Returns the expression at the given position.
+     * 
+     * @param position
+     *            The position of the item, from zero to {@link #size()} - 1.
+     * @param <T>
+     *            The type of the value returned by the expression.
+     * @return The expression at the given position or <code>null</code> if it could not be compiled.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> CompiledExpression<T> get(int position)
+    {
+        return (CompiledExpression<T>) expressions[position];
+    }
+
+    /**
+     * Returns the expression with the given id.
+     * 
+     * @param id
+     *            The id of the item. Might not be <code>null</code>.
+     * @param <T>
+     *            The type of the value returned by the expression.
+     * @return The expression with the given id or <code>null</code> if this catalogue does not have it or if it could not be compiled.
+     */
+    public <T> CompiledExpression<T> get(String id)
+    {
+        int position = indexOf(id);
+        return position < 0 ? null : this.<T> get(position);
+    }
+
+    /**
+     * Returns the items that could not be compiled, in the order of the batch.
+     * 
+     * @return A read-only {@link List} with the items that could not be compiled.
+     */
+    public List<CompilationFailure> failures()
+    {
+        return failures;
+    }
+
+    /**
+     * Returns the number of items compiled.
+     * 
+     * @return The number of items compiled.
+     */
+    public int compiledCount()
+    {
+        return ids.length - failures.size();
+    }
+
+    /**
+     * Returns the number of distinct texts of the batch, which is the number of texts parsed.
+     * 
+     * @return The number of distinct texts of the batch.
+     */
+    public int distinctCount()
+    {
+        return distinctCount;
+    }
+}
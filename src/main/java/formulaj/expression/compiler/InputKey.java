@@ -0,0 +1,312 @@
+/**
+ * Copyright (C) 2013 - 2015 Contributors.
+ *
+ * FormulaJ is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * FormulaJ is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see [http://www.gnu.org/licenses/].
+ *
+ * Contact: formulaj-user-list@googlegroups.com.
+ */
+package formulaj.expression.compiler;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.Arrays;
+import java.util.Map;
+
+import formulaj.expression.Decimal;
+import formulaj.expression.PrecisionPolicy;
+import formulaj.expression.Value;
+
+/**
+ * The key of a {@link ResultCache}: a {@link CompiledExpression}, the {@link PrecisionPolicy} of its evaluation and a canonical encoding of
+ * the values bound to its variables. The values are written in the order of {@link CompiledExpression#variables()} and numbers equal in
+ * value have the same encoding, whatever their type or scale, so 2, 2L, 2.0 and 2.00 are the same input.
+ */
+final class InputKey
+{
+    /**
+     * The tag of a variable without value.
+     */
+    private static final byte MISSING = 0;
+
+    /**
+     * The tag of the zero.
+     */
+    private static final byte ZERO = 1;
+
+    /**
+     * The tag of a number whose unscaled value fits in a <code>long</code>.
+     */
+    private static final byte COMPACT = 2;
+
+    /**
+     * The tag of a number whose unscaled value does not fit in a <code>long</code>.
+     */
+    private static final byte INFLATED = 3;
+
+    /**
+     * The compiled expression.
+     */
+    private final CompiledExpression<?> expression;
+
+    /**
+     * The precision policy of the evaluation: the policy of the expression or, if it has none, the current one when the key was created.
+     */
+    private final PrecisionPolicy policy;
+
+    /**
+     * The encoding of the values of the variables.
+     */
+    private final byte[] values;
+
+    /**
+     * The hash code of this key.
+     */
+    private final int hash;
+
+    /**
+     * Creates an {@link InputKey}.
+     * 
+     * @param compiled
+     *            The compiled expression.
+     * @param encoding
+     *            The encoding of the values of the variables.
+     */
+    private InputKey(CompiledExpression<?> compiled, byte[] encoding)
+    {
+        this.expression = compiled;
+        this.policy = compiled.precision() != null ? compiled.precision() : PrecisionPolicy.current();
+        this.values = encoding;
+        this.hash = 31 * (31 * (int) (compiled.fingerprint() ^ (compiled.fingerprint() >>> 32)) + policy.hashCode()) + Arrays.hashCode(encoding);
+    }
+
+    /**
+     * Returns the key of an expression evaluated with a frame of bindings.
+     * 
+     * @param expression
+     *            The compiled expression.
+     * @param bindings
+     *            The frame of bindings. The key is the variable's name.
+     * @return The key of the given expression and bindings or <code>null</code> if a value is not a number, so it has no canonical encoding.
+     */
+    static InputKey of(CompiledExpression<?> expression, Map<String, ?> bindings)
+    {
+        Encoder encoder = new Encoder(expression.variables().size() * 13);
+
+        for (String name : expression.variables())
+        {
+            Decimal value = toDecimal(bindings.get(name));
+
+            if (value == null && bindings.get(name) != null)
+            {
+                return null;
+            }
+
+            encoder.put(value);
+        }
+
+        return new InputKey(expression, encoder.toByteArray());
+    }
+
+    /**
+     * Converts a value of a frame to {@link Decimal}, as the {@link formulaj.expression.evaluator.impl.BindingEvaluator} does.
+     * 
+     * @param value
+     *            The value of a frame. It may be <code>null</code>.
+     * @return The value as a {@link Decimal} or <code>null</code> if it's not a number.
+     */
+    private static Decimal toDecimal(Object value)
+    {
+        Object number = value instanceof Value ? ((Value<?>) value).getValue() : value;
+
+        if (number instanceof Decimal)
+        {
+            return (Decimal) number;
+        }
+        else if (number instanceof BigDecimal)
+        {
+            return Decimal.from((BigDecimal) number);
+        }
+        else if (number instanceof Long || number instanceof Integer || number instanceof Short || number instanceof Byte)
+        {
+            return Decimal.from(((Number) number).longValue());
+        }
+        else if (number instanceof Number)
+        {
+            return Decimal.from(((Number) number).doubleValue());
+        }
+
+        return null;
+    }
+
+    @Override
+    public int hashCode()
+    {
+        return hash;
+    }
+
+    @Override
+    public boolean equals(Object obj)
+    {
+        if (this == obj)
+        {
+            return true;
+        }
+
+        if (!(obj instanceof InputKey))
+        {
+            return false;
+        }
+
+        InputKey other = (InputKey) obj;
+
+        return hash == other.hash && (expression == other.expression || expression.fingerprint() == other.expression.fingerprint()
+                && expression.expression().equals(other.expression.expression())) && policy.equals(other.policy)
+                && Arrays.equals(values, other.values);
+    }
+
+    /**
+     * Writes the canonical encoding of the values in a growing array.
+     */
+    private static final class Encoder
+    {
+        /**
+         * The bytes written.
+         */
+        private byte[] buffer;
+
+        /**
+         * The number of bytes written.
+         */
+        private int count;
+
+        /**
+         * Creates an {@link Encoder}.
+         * 
+         * @param capacity
+         *            The initial capacity, in bytes.
+         */
+        Encoder(int capacity)
+        {
+            this.buffer = new byte[Math.max(capacity, 16)];
+        }
+
+        /**
+         * Writes a value. The trailing zeros are removed, so the encoding does not depend on the scale of the value.
+         * 
+         * @param value
+         *            The value to be written. It may be <code>null</code>.
+         */
+        void put(Decimal value)
+        {
+            if (value == null)
+            {
+                putByte(MISSING);
+                return;
+            }
+
+            BigDecimal number = value.bigDecimalValue();
+
+            if (number.signum() == 0)
+            {
+                putByte(ZERO);
+                return;
+            }
+
+            number = number.stripTrailingZeros();
+            BigInteger unscaled = number.unscaledValue();
+
+            if (unscaled.bitLength() < Long.SIZE)
+            {
+                putByte(COMPACT);
+                putLong(unscaled.longValue());
+            }
+            else
+            {
+                byte[] bytes = unscaled.toByteArray();
+                putByte(INFLATED);
+                putInt(bytes.length);
+                ensureCapacity(bytes.length);
+                System.arraycopy(bytes, 0, buffer, count, bytes.length);
+                count += bytes.length;
+            }
+            putInt(number.scale());
+        }
+
+        /**
+         * Writes a byte.
+         * 
+         * @param b
+         *            The byte to be written.
+         */
+        private void putByte(byte b)
+        {
+            ensureCapacity(1);
+            buffer[count++] = b;
+        }
+
+        /**
+         * Writes an <code>int</code>, most significant byte first.
+         * 
+         * @param v
+         *            The value to be written.
+         */
+        private void putInt(int v)
+        {
+            ensureCapacity(4);
+            for (int shift = 24; shift >= 0; shift -= 8)
+            {
+                buffer[count++] = (byte) (v >>> shift);
+            }
+        }
+
+        /**
+         * Writes a <code>long</code>, most significant byte first.
+         * 
+         * @param v
+         *            The value to be written.
+         */
+        private void putLong(long v)
+        {
+            ensureCapacity(8);
+            for (int shift = 56; shift >= 0; shift -= 8)
+            {
+                buffer[count++] = (byte) (v >>> shift);
+            }
+        }
+
+        /**
+         * Grows the buffer, if needed, to write more bytes.
+         * 
+         * @param length
+         *            The number of bytes to be written.
+         */
+        private void ensureCapacity(int length)
+        {
+            if (count + length > buffer.length)
+            {
+                buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, count + length));
+            }
+        }
+
+        /**
+         * Returns the bytes written.
+         * 
+         * @return A copy of the bytes written.
+         */
+        byte[] toByteArray()
+        {
+            return Arrays.copyOf(buffer, count);
+        }
+    }
+}
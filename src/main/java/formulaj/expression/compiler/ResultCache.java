@@ -0,0 +1,353 @@
+/**
+ * Copyright (C) 2013 - 2015 Contributors.
+ *
+ * FormulaJ is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * FormulaJ is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see [http://www.gnu.org/licenses/].
+ *
+ * Contact: formulaj-user-list@googlegroups.com.
+ */
+package formulaj.expression.compiler;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+
+import formulaj.expression.EvaluationException;
+import formulaj.expression.Value;
+import formulaj.expression.evaluator.impl.BindingEvaluator;
+import formulaj.expression.function.Function;
+import formulaj.expression.function.Functions;
+import formulaj.expression.function.math.FunctionSupport;
+
+/**
+ * A size-bounded cache of the values of {@link CompiledExpression}s. The key is the expression and a canonical encoding of the values bound to
+ * its variables, so the same expression evaluated with the same inputs is computed once. The bindings are the frames accepted by
+ * {@link BindingEvaluator}; the variables that the expression does not read are ignored.
+ * <p>
+ * Only the expressions whose functions are all {@link FunctionSupport#isPure() pure} are cached, so an expression that calls
+ * <code>random()</code> or a function that keeps state is always evaluated. Those evaluations are counted as bypasses.
+ * <p>
+ * The eviction is a segmented LRU: a new value enters the probation segment and moves to the protected segment on its second hit. When the
+ * cache is full, the least recently used value of the probation segment is evicted, so a burst of inputs seen once does not evict the inputs
+ * that repeat.
+ */
+public final class ResultCache
+{
+    /**
+     * The default maximum number of values of a cache.
+     */
+    public static final int DEFAULT_MAXIMUM_SIZE = 10000;
+
+    /**
+     * The percentage of the cache reserved to the protected segment.
+     */
+    private static final int PROTECTED_PERCENTAGE = 80;
+
+    /**
+     * The values seen once, from the least to the most recently used. Guarded by this.
+     */
+    private final LinkedHashMap<InputKey, Value<?>> probation = new LinkedHashMap<>();
+
+    /**
+     * The values hit at least once, from the least to the most recently used. Guarded by this.
+     */
+    private final LinkedHashMap<InputKey, Value<?>> protectedSegment = new LinkedHashMap<>();
+
+    /**
+     * The number of evaluations that found the value in the cache.
+     */
+    private final AtomicLong hits = new AtomicLong();
+
+    /**
+     * The number of evaluations that computed and cached the value.
+     */
+    private final AtomicLong misses = new AtomicLong();
+
+    /**
+     * The number of evaluations that could not be cached.
+     */
+    private final AtomicLong bypasses = new AtomicLong();
+
+    /**
+     * The number of values evicted from the cache.
+     */
+    private final AtomicLong evictions = new AtomicLong();
+
+    /**
+     * The maximum number of values of this cache.
+     */
+    private volatile int maximumSize;
+
+    /**
+     * Creates a {@link ResultCache} with the {@link #DEFAULT_MAXIMUM_SIZE}.
+     */
+    public ResultCache()
+    {
+        this(DEFAULT_MAXIMUM_SIZE);
+    }
+
+    /**
+     * Creates a {@link ResultCache} with a given maximum size.
+     * 
+     * @param maxSize
+     *            The maximum number of values of this cache. Zero disables the cache.
+     */
+    public ResultCache(int maxSize)
+    {
+        this.setMaximumSize(maxSize);
+    }
+
+    /**
+     * Returns <code>true</code> if the value of a given expression depends only on its variables, so it might be cached. The functions are
+     * resolved in the {@link Functions} registry; a function that is unknown or that does not declare its purity is assumed to be impure.
+     * 
+     * @param expression
+     *            The compiled expression. Might not be <code>null</code>.
+     * @return <code>true</code> if all the functions called by the expression are pure.
+     */
+    public static boolean isCacheable(CompiledExpression<?> expression)
+    {
+        for (String name : expression.functions())
+        {
+            Function<?> function = Functions.getFunctionByName(name);
+
+            if (!(function instanceof FunctionSupport) || !((FunctionSupport<?>) function).isPure())
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns the value of an expression for a frame of bindings, evaluating and caching it if it's not in the cache.
+     * 
+     * @param expression
+     *            The expression to be evaluated. Might not be <code>null</code>.
+     * @param bindings
+     *            The frame of bindings. The key is the variable's name. Might not be <code>null</code>.
+     * @param <T>
+     *            The type of the expression's value.
+     * @return The value of the expression. The instance is shared by the evaluations with the same inputs.
+     * @throws EvaluationException
+     *             If the expression could not be evaluated. Failures are not cached.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> Value<T> evaluate(CompiledExpression<T> expression, Map<String, ?> bindings) throws EvaluationException
+    {
+        Objects.requireNonNull(expression);
+        Objects.requireNonNull(bindings);
+
+        InputKey key = maximumSize > 0 && isCacheable(expression) ? InputKey.of(expression, bindings) : null;
+
+        if (key == null)
+        {
+            bypasses.incrementAndGet();
+            return new BindingEvaluator<T>().bind(bindings).eval(expression);
+        }
+
+        Value<T> value = (Value<T>) this.get(key);
+
+        if (value != null)
+        {
+            hits.incrementAndGet();
+            return value;
+        }
+
+        misses.incrementAndGet();
+        value = new BindingEvaluator<T>().bind(bindings).eval(expression);
+        this.put(key, value);
+
+        return value;
+    }
+
+    /**
+     * Returns the cached value of a key, moving it to the most recently used position of the protected segment.
+     * 
+     * @param key
+     *            The key of the value.
+     * @return The cached value or <code>null</code> if the key is not in the cache.
+     */
+    private synchronized Value<?> get(InputKey key)
+    {
+        Value<?> value = protectedSegment.remove(key);
+
+        if (value == null)
+        {
+            value = probation.remove(key);
+
+            if (value == null)
+            {
+                return null;
+            }
+        }
+
+        protectedSegment.put(key, value);
+
+        if (protectedSegment.size() > (long) maximumSize * PROTECTED_PERCENTAGE / 100)
+        {
+            Iterator<Map.Entry<InputKey, Value<?>>> eldest = protectedSegment.entrySet().iterator();
+            Map.Entry<InputKey, Value<?>> demoted = eldest.next();
+            eldest.remove();
+            probation.put(demoted.getKey(), demoted.getValue());
+        }
+
+        return value;
+    }
+
+    /**
+     * Caches a value in the probation segment, evicting the least recently used values if the cache is full.
+     * 
+     * @param key
+     *            The key of the value.
+     * @param value
+     *            The value to be cached.
+     */
+    private synchronized void put(InputKey key, Value<?> value)
+    {
+        if (!protectedSegment.containsKey(key))
+        {
+            probation.put(key, value);
+            this.trim(maximumSize);
+        }
+    }
+
+    /**
+     * Evicts the least recently used values until the cache has at most the given number of values. The probation segment is evicted first.
+     * 
+     * @param maxSize
+     *            The maximum number of values of the cache.
+     */
+    private synchronized void trim(int maxSize)
+    {
+        while (probation.size() + protectedSegment.size() > maxSize)
+        {
+            Iterator<InputKey> eldest = (probation.isEmpty() ? protectedSegment : probation).keySet().iterator();
+            eldest.next();
+            eldest.remove();
+            evictions.incrementAndGet();
+        }
+    }
+
+    /**
+     * Removes all values of this cache.
+     */
+    public synchronized void clear()
+    {
+        probation.clear();
+        protectedSegment.clear();
+    }
+
+    /**
+     * Resets the hit, miss, bypass and eviction counters.
+     */
+    public void resetStatistics()
+    {
+        hits.set(0);
+        misses.set(0);
+        bypasses.set(0);
+        evictions.set(0);
+    }
+
+    /**
+     * Returns the number of values in this cache.
+     * 
+     * @return The number of values in this cache.
+     */
+    public synchronized int size()
+    {
+        return probation.size() + protectedSegment.size();
+    }
+
+    /**
+     * Returns the maximum number of values of this cache.
+     * 
+     * @return The maximum number of values of this cache.
+     */
+    public int getMaximumSize()
+    {
+        return maximumSize;
+    }
+
+    /**
+     * Defines the maximum number of values of this cache, evicting the least recently used values if the cache is bigger.
+     * 
+     * @param maxSize
+     *            The maximum number of values of this cache. Zero disables the cache.
+     */
+    public synchronized void setMaximumSize(int maxSize)
+    {
+        if (maxSize < 0)
+        {
+            throw new IllegalArgumentException("The maximum size might not be negative!");
+        }
+
+        this.maximumSize = maxSize;
+        this.trim(maxSize);
+    }
+
+    /**
+     * Returns the number of evaluations that found the value in the cache.
+     * 
+     * @return The number of evaluations that found the value in the cache.
+     */
+    public long getHitCount()
+    {
+        return hits.get();
+    }
+
+    /**
+     * Returns the number of evaluations that computed and cached the value.
+     * 
+     * @return The number of evaluations that computed and cached the value.
+     */
+    public long getMissCount()
+    {
+        return misses.get();
+    }
+
+    /**
+     * Returns the number of evaluations that were not cached, because the expression is not pure, a bound value is not a number or the cache is
+     * disabled.
+     * 
+     * @return The number of evaluations that were not cached.
+     */
+    public long getBypassCount()
+    {
+        return bypasses.get();
+    }
+
+    /**
+     * Returns the number of values evicted from the cache.
+     * 
+     * @return The number of values evicted from the cache.
+     */
+    public long getEvictionCount()
+    {
+        return evictions.get();
+    }
+
+    /**
+     * Returns the ratio of cacheable evaluations that found the value in the cache.
+     * 
+     * @return The ratio of cacheable evaluations that found the value in the cache or <code>0</code> if there wasn't any evaluation.
+     */
+    public double hitRate()
+    {
+        long h = hits.get();
+        long total = h + misses.get();
+        return total == 0 ? 0.d : (double) h / total;
+    }
+}
@@ -0,0 +1,273 @@
+/**
+ * Copyright (C) 2013 - 2015 Contributors.
+ *
+ * FormulaJ is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * FormulaJ is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see [http://www.gnu.org/licenses/].
+ *
+ * Contact: formulaj-user-list@googlegroups.com.
+ */
+package formulaj.expression.csv;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Parses and formats numbers straight from and to the bytes of a {@link ByteBuffer}, with no intermediate {@link String} in the common cases.
+ */
+final class ByteNumbers
+{
+    /**
+     * The powers of ten that are exact in a <code>double</code>.
+     */
+    private static final double[] POWERS_OF_TEN = {1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11, 1e12, 1e13, 1e14, 1e15, 1e16,
+            1e17, 1e18, 1e19, 1e20, 1e21, 1e22 };
+
+    /**
+     * The largest mantissa that is exact in a <code>double</code>.
+     */
+    private static final long MAX_EXACT_MANTISSA = 1L << 53;
+
+    /**
+     * The number of decimal digits that always fit in a <code>long</code>.
+     */
+    private static final int MAX_LONG_DIGITS = 18;
+
+    /**
+     * The largest absolute integral value written without {@link Double#toString(double)}.
+     */
+    private static final double MAX_INTEGRAL = 1e15;
+
+    /**
+     * Private constructor to avoid instance of this class.
+     */
+    private ByteNumbers()
+    {
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * Parses the ASCII number between two positions of a buffer. Blank fields are {@link Double#NaN}. Numbers with up to 15 significant digits
+     * and a small exponent, which are the usual ones, are computed with one exact multiplication or division, so they are correctly rounded as
+     * {@link Double#parseDouble(String)} would do; the others are given to {@link Double#parseDouble(String)}.
+     * 
+     * @param buffer
+     *            The buffer with the number.
+     * @param from
+     *            The position of the first byte, inclusive.
+     * @param to
+     *            The position of the last byte, exclusive.
+     * @return The value of the number.
+     * @throws NumberFormatException
+     *             If the bytes are not a number.
+     */
+    static double parseDouble(ByteBuffer buffer, int from, int to)
+    {
+        int start = from;
+        int end = to;
+
+        while (start < end && buffer.get(start) == ' ')
+        {
+            start++;
+        }
+
+        while (end > start && buffer.get(end - 1) == ' ')
+        {
+            end--;
+        }
+
+        if (start == end)
+        {
+            return Double.NaN;
+        }
+
+        int i = start;
+        boolean negative = false;
+        byte b = buffer.get(i);
+
+        if (b == '-' || b == '+')
+        {
+            negative = b == '-';
+            i++;
+        }
+
+        long mantissa = 0;
+        int digits = 0;
+        int exponent = 0;
+        boolean any = false;
+        boolean truncated = false;
+
+        for (; i < end && (b = buffer.get(i)) >= '0' && b <= '9'; i++)
+        {
+            any = true;
+            if (digits < MAX_LONG_DIGITS)
+            {
+                mantissa = mantissa * 10 + (b - '0');
+                digits += mantissa == 0 ? 0 : 1;
+            }
+            else
+            {
+                truncated = true;
+                exponent++;
+            }
+        }
+
+        if (i < end && buffer.get(i) == '.')
+        {
+            for (i++; i < end && (b = buffer.get(i)) >= '0' && b <= '9'; i++)
+            {
+                any = true;
+                if (digits < MAX_LONG_DIGITS)
+                {
+                    mantissa = mantissa * 10 + (b - '0');
+                    digits += mantissa == 0 ? 0 : 1;
+                    exponent--;
+                }
+                else
+                {
+                    truncated |= b != '0';
+                }
+            }
+        }
+
+        if (any && i < end && ((b = buffer.get(i)) == 'e' || b == 'E'))
+        {
+            i++;
+            boolean negativeExponent = false;
+
+            if (i < end && ((b = buffer.get(i)) == '-' || b == '+'))
+            {
+                negativeExponent = b == '-';
+                i++;
+            }
+
+            int value = 0;
+            boolean anyExponent = false;
+
+            for (; i < end && (b = buffer.get(i)) >= '0' && b <= '9'; i++)
+            {
+                anyExponent = true;
+                value = Math.min(value * 10 + (b - '0'), 100000);
+            }
+
+            any = anyExponent;
+            exponent += negativeExponent ? -value : value;
+        }
+
+        if (!any || i != end || truncated || mantissa > MAX_EXACT_MANTISSA || exponent < -22 || exponent > 22)
+        {
+            return slowParse(buffer, start, end);
+        }
+
+        double value = exponent >= 0 ? mantissa * POWERS_OF_TEN[exponent] : mantissa / POWERS_OF_TEN[-exponent];
+        return negative ? -value : value;
+    }
+
+    /**
+     * Parses the number between two positions of a buffer with {@link Double#parseDouble(String)}.
+     * 
+     * @param buffer
+     *            The buffer with the number.
+     * @param from
+     *            The position of the first byte, inclusive.
+     * @param to
+     *            The position of the last byte, exclusive.
+     * @return The value of the number.
+     * @throws NumberFormatException
+     *             If the bytes are not a number.
+     */
+    private static double slowParse(ByteBuffer buffer, int from, int to)
+    {
+        return Double.parseDouble(toString(buffer, from, to));
+    }
+
+    /**
+     * Decodes the bytes between two positions of a buffer as UTF-8.
+     * 
+     * @param buffer
+     *            The buffer with the text.
+     * @param from
+     *            The position of the first byte, inclusive.
+     * @param to
+     *            The position of the last byte, exclusive.
+     * @return The text between the given positions.
+     */
+    static String toString(ByteBuffer buffer, int from, int to)
+    {
+        byte[] bytes = new byte[to - from];
+        for (int i = 0; i < bytes.length; i++)
+        {
+            bytes[i] = buffer.get(from + i);
+        }
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Writes a number as ASCII at the position of a buffer. {@link Double#NaN} is written as nothing, so it reads back as a blank field, and the
+     * integral values are written digit by digit, without the <code>.0</code> of {@link Double#toString(double)}.
+     * 
+     * @param buffer
+     *            The buffer that receives the number. It must have at least 32 bytes remaining.
+     * @param value
+     *            The number to be written.
+     */
+    static void putDouble(ByteBuffer buffer, double value)
+    {
+        if (Double.isNaN(value))
+        {
+            return;
+        }
+
+        if (value == Math.rint(value) && Math.abs(value) < MAX_INTEGRAL)
+        {
+            putLong(buffer, (long) value);
+        }
+        else
+        {
+            String text = Double.toString(value);
+            for (int i = 0; i < text.length(); i++)
+            {
+                buffer.put((byte) text.charAt(i));
+            }
+        }
+    }
+
+    /**
+     * Writes an integral number as ASCII at the position of a buffer.
+     * 
+     * @param buffer
+     *            The buffer that receives the number. It must have at least 20 bytes remaining.
+     * @param value
+     *            The number to be written. It must be greater than {@link Long#MIN_VALUE}.
+     */
+    private static void putLong(ByteBuffer buffer, long value)
+    {
+        long remaining = value;
+
+        if (remaining < 0)
+        {
+            buffer.put((byte) '-');
+            remaining = -remaining;
+        }
+
+        long divisor = 1;
+        while (divisor <= remaining / 10)
+        {
+            divisor *= 10;
+        }
+
+        for (; divisor > 0; divisor /= 10)
+        {
+            buffer.put((byte) ('0' + remaining / divisor % 10));
+        }
+    }
+}
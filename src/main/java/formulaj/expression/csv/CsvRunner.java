@@ -0,0 +1,170 @@
+/**
+ * Copyright (C) 2013 - 2015 Contributors.
+ *
+ * FormulaJ is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * FormulaJ is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see [http://www.gnu.org/licenses/].
+ *
+ * Contact: formulaj-user-list@googlegroups.com.
+ */
+package formulaj.expression.csv;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+import formulaj.expression.EvaluationException;
+import formulaj.expression.batch.BatchProgram;
+import formulaj.expression.batch.Column;
+import formulaj.expression.batch.ParallelEvaluator;
+import formulaj.expression.compiler.CompiledExpression;
+
+/**
+ * Evaluates many expressions over the rows of a CSV file and writes one column per expression to another CSV file. The input is read by a
+ * {@link MappedCsvReader}, which parses only the columns of the expressions' variables, each segment is evaluated in parallel by a
+ * {@link ParallelEvaluator}, and the output is written by a {@link CsvWriter}. The memory used is proportional to the size of a segment, not to
+ * the size of the file.
+ * <p>
+ * It can be run from the command line:
+ * 
+ * <pre>
+ * java formulaj.expression.csv.CsvRunner input.csv output.csv "price * quantity" "round(price / cost)"
+ * </pre>
+ */
+public final class CsvRunner
+{
+    /**
+     * The evaluator of the segments.
+     */
+    private final ParallelEvaluator evaluator;
+
+    /**
+     * The largest size of a segment of the input, in bytes.
+     */
+    private final int segmentSize;
+
+    /**
+     * Creates a {@link CsvRunner} with the default {@link ParallelEvaluator} and segments of {@link MappedCsvReader#DEFAULT_SEGMENT_SIZE}.
+     */
+    public CsvRunner()
+    {
+        this(new ParallelEvaluator(), MappedCsvReader.DEFAULT_SEGMENT_SIZE);
+    }
+
+    /**
+     * Creates a {@link CsvRunner}.
+     * 
+     * @param parallelEvaluator
+     *            The evaluator of the segments. Might not be <code>null</code>.
+     * @param maxSegmentSize
+     *            The largest size of a segment of the input, in bytes. It must be larger than any line of the input.
+     */
+    public CsvRunner(ParallelEvaluator parallelEvaluator, int maxSegmentSize)
+    {
+        this.evaluator = Objects.requireNonNull(parallelEvaluator);
+        this.segmentSize = maxSegmentSize;
+    }
+
+    /**
+     * Evaluates the expressions over the rows of a CSV file. The header of the output has the text of the expressions.
+     * 
+     * @param input
+     *            The comma separated file with a header and the values of the variables. Might not be <code>null</code>.
+     * @param output
+     *            The file that receives the values of the expressions, in the order of the rows. It is truncated if it exists.
+     * @param expressions
+     *            The expressions to be evaluated. Might not be <code>null</code>.
+     * @return The number of rows evaluated.
+     * @throws IOException
+     *             If a file cannot be read or written, or a field of a variable is not a number.
+     * @throws EvaluationException
+     *             If a variable is not a column of the input or an expression fails.
+     */
+    public long run(Path input, Path output, List<? extends CompiledExpression<?>> expressions) throws IOException, EvaluationException
+    {
+        BatchProgram[] programs = new BatchProgram[expressions.size()];
+        List<String> names = new ArrayList<>(programs.length);
+        Set<String> variables = new LinkedHashSet<>();
+
+        for (int i = 0; i < programs.length; i++)
+        {
+            programs[i] = BatchProgram.compile(expressions.get(i));
+            names.add(expressions.get(i).expression());
+            variables.addAll(programs[i].variables());
+        }
+
+        try (MappedCsvReader reader = new MappedCsvReader(input, ',', segmentSize); CsvWriter writer = new CsvWriter(output))
+        {
+            reader.select(variables);
+            writer.writeHeader(names);
+
+            double[][] results = new double[programs.length][0];
+            Map<String, Column> columns = new HashMap<>();
+
+            while (reader.next())
+            {
+                int rows = reader.rows();
+
+                for (String variable : variables)
+                {
+                    columns.put(variable, reader.column(variable));
+                }
+
+                for (int i = 0; i < programs.length; i++)
+                {
+                    if (results[i].length < rows)
+                    {
+                        results[i] = new double[rows];
+                    }
+                    evaluator.evaluate(programs[i], programs[i].bind(columns), rows, results[i]);
+                }
+
+                writer.writeRows(results, rows);
+            }
+            return reader.getTotalRows();
+        }
+    }
+
+    /**
+     * Evaluates the expressions given in the command line over a CSV file.
+     * 
+     * @param args
+     *            The input file, the output file and the expressions.
+     * @throws Exception
+     *             If a file cannot be read or written, or an expression is invalid or fails.
+     */
+    public static void main(String[] args) throws Exception
+    {
+        if (args.length < 3)
+        {
+            System.err.println("Usage: CsvRunner <input.csv> <output.csv> <expression>...");
+            return;
+        }
+
+        List<CompiledExpression<?>> expressions = new ArrayList<>();
+        for (int i = 2; i < args.length; i++)
+        {
+            expressions.add(CompiledExpression.compile(args[i]));
+        }
+
+        long start = System.nanoTime();
+        long rows = new CsvRunner().run(Paths.get(args[0]), Paths.get(args[1]), expressions);
+        System.err.printf("%d rows evaluated in %d ms%n", rows, (System.nanoTime() - start) / 1000000);
+    }
+}
@@ -0,0 +1,215 @@
+/**
+ * Copyright (C) 2013 - 2015 Contributors.
+ *
+ * FormulaJ is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * FormulaJ is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see [http://www.gnu.org/licenses/].
+ *
+ * Contact: formulaj-user-list@googlegroups.com.
+ */
+package formulaj.expression.csv;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Writes columns of <code>double</code> values as a CSV file, through a {@link FileChannel} and a large direct buffer. The numbers are written
+ * straight into the buffer, and {@link Double#NaN} is written as a blank field.
+ */
+public final class CsvWriter implements Closeable
+{
+    /**
+     * The default size of the buffer, in bytes.
+     */
+    public static final int DEFAULT_BUFFER_SIZE = 1 << 20;
+
+    /**
+     * The largest number of bytes of a number.
+     */
+    private static final int MAX_NUMBER_SIZE = 32;
+
+    /**
+     * The channel of the file.
+     */
+    private final FileChannel channel;
+
+    /**
+     * The buffer of the bytes to be written.
+     */
+    private final ByteBuffer buffer;
+
+    /**
+     * The character that separates the fields.
+     */
+    private final byte delimiter;
+
+    /**
+     * Creates a comma separated file with a buffer of {@link #DEFAULT_BUFFER_SIZE}. An existing file is truncated.
+     * 
+     * @param file
+     *            The file to be written. Might not be <code>null</code>.
+     * @throws IOException
+     *             If the file cannot be created.
+     */
+    public CsvWriter(Path file) throws IOException
+    {
+        this(file, ',', DEFAULT_BUFFER_SIZE);
+    }
+
+    /**
+     * Creates a CSV file. An existing file is truncated.
+     * 
+     * @param file
+     *            The file to be written. Might not be <code>null</code>.
+     * @param fieldDelimiter
+     *            The ASCII character that separates the fields.
+     * @param bufferSize
+     *            The size of the buffer, in bytes. It must be at least 1KB.
+     * @throws IOException
+     *             If the file cannot be created.
+     */
+    public CsvWriter(Path file, char fieldDelimiter, int bufferSize) throws IOException
+    {
+        if (fieldDelimiter > Byte.MAX_VALUE)
+        {
+            throw new IllegalArgumentException("Invalid delimiter: " + fieldDelimiter);
+        }
+
+        if (bufferSize < 1024)
+        {
+            throw new IllegalArgumentException("The buffer must have at least 1024 bytes: " + bufferSize);
+        }
+
+        this.delimiter = (byte) fieldDelimiter;
+        this.buffer = ByteBuffer.allocateDirect(bufferSize);
+        this.channel = FileChannel.open(Objects.requireNonNull(file), StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+    }
+
+    /**
+     * Writes the header of the file. The names are always quoted.
+     * 
+     * @param names
+     *            The names of the columns. Might not be <code>null</code>.
+     * @throws IOException
+     *             If the file cannot be written.
+     */
+    public void writeHeader(List<String> names) throws IOException
+    {
+        StringBuilder line = new StringBuilder();
+        for (String name : names)
+        {
+            if (line.length() > 0)
+            {
+                line.append((char) delimiter);
+            }
+            line.append('"').append(name.replace("\"", "\"\"")).append('"');
+        }
+
+        byte[] bytes = line.append('\n').toString().getBytes(StandardCharsets.UTF_8);
+        int from = 0;
+        while (from < bytes.length)
+        {
+            ensureRemaining(1);
+            int length = Math.min(buffer.remaining(), bytes.length - from);
+            buffer.put(bytes, from, length);
+            from += length;
+        }
+    }
+
+    /**
+     * Writes the first rows of the given columns, one line per row.
+     * 
+     * @param columns
+     *            The values of the columns. Each one must have at least the given number of rows.
+     * @param rows
+     *            The number of rows to be written.
+     * @throws IOException
+     *             If the file cannot be written.
+     */
+    public void writeRows(double[][] columns, int rows) throws IOException
+    {
+        int lineSize = Math.max(1, columns.length) * (MAX_NUMBER_SIZE + 1);
+
+        for (int row = 0; row < rows; row++)
+        {
+            ensureRemaining(lineSize);
+
+            for (int column = 0; column < columns.length; column++)
+            {
+                if (column > 0)
+                {
+                    buffer.put(delimiter);
+                }
+                ByteNumbers.putDouble(buffer, columns[column][row]);
+            }
+            buffer.put((byte) '\n');
+        }
+    }
+
+    /**
+     * Writes the buffer to the file if it does not have the given number of bytes available.
+     * 
+     * @param size
+     *            The number of bytes required.
+     * @throws IOException
+     *             If the file cannot be written or the buffer is smaller than the required size.
+     */
+    private void ensureRemaining(int size) throws IOException
+    {
+        if (buffer.remaining() < size)
+        {
+            flush();
+
+            if (buffer.remaining() < size)
+            {
+                throw new IOException(String.format("A line of %d bytes does not fit the buffer of %d bytes!", size, buffer.capacity()));
+            }
+        }
+    }
+
+    /**
+     * Writes the buffered bytes to the file.
+     * 
+     * @throws IOException
+     *             If the file cannot be written.
+     */
+    public void flush() throws IOException
+    {
+        buffer.flip();
+        while (buffer.hasRemaining())
+        {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    @Override
+    public void close() throws IOException
+    {
+        try
+        {
+            flush();
+        }
+        finally
+        {
+            channel.close();
+        }
+    }
+}
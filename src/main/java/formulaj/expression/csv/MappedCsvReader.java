@@ -0,0 +1,593 @@
+/**
+ * Copyright (C) 2013 - 2015 Contributors.
+ *
+ * FormulaJ is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * FormulaJ is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see [http://www.gnu.org/licenses/].
+ *
+ * Contact: formulaj-user-list@googlegroups.com.
+ */
+package formulaj.expression.csv;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+
+import formulaj.expression.UndefinedVariableException;
+import formulaj.expression.batch.Column;
+import formulaj.expression.batch.DoubleColumn;
+
+/**
+ * Reads the numeric columns of a CSV file mapped in memory. The file is mapped in segments that end at a line break, so files larger than the
+ * 2GB of a {@link MappedByteBuffer} are read segment by segment, and each segment is parsed straight from the mapped bytes into
+ * <code>double</code> arrays. Only the {@link #select(Collection) selected} columns are parsed; the other fields are skipped without decoding.
+ * <p>
+ * The first line is the header with the names of the columns. Blank fields are read as {@link Double#NaN}, and the fields might be quoted.
+ * 
+ * <pre>
+ * try (MappedCsvReader reader = new MappedCsvReader(path))
+ * {
+ *     reader.select(Arrays.asList("price", "quantity"));
+ *     while (reader.next())
+ *     {
+ *         Column price = reader.column("price");
+ *         ...
+ *     }
+ * }
+ * </pre>
+ * 
+ * The arrays of the columns are reused by the next segments, so a column is valid only until the next call to {@link #next()}.
+ */
+public final class MappedCsvReader implements Closeable
+{
+    /**
+     * The default size of a segment, in bytes.
+     */
+    public static final int DEFAULT_SEGMENT_SIZE = 64 << 20;
+
+    /**
+     * The character that quotes a field.
+     */
+    private static final byte QUOTE = '"';
+
+    /**
+     * The UTF-8 byte order mark.
+     */
+    private static final byte[] BOM = {(byte) 0xEF, (byte) 0xBB, (byte) 0xBF };
+
+    /**
+     * The channel of the file.
+     */
+    private final FileChannel channel;
+
+    /**
+     * The size of the file, in bytes.
+     */
+    private final long fileSize;
+
+    /**
+     * The character that separates the fields.
+     */
+    private final byte delimiter;
+
+    /**
+     * The largest size of a segment, in bytes.
+     */
+    private final int segmentSize;
+
+    /**
+     * The names of the columns, from the header.
+     */
+    private final List<String> header;
+
+    /**
+     * The position of the next segment in the file.
+     */
+    private long position;
+
+    /**
+     * The selected columns, in the order they were selected.
+     */
+    private String[] selected = new String[0];
+
+    /**
+     * The index of each field in {@link #selected}, or <code>-1</code> if it is not parsed.
+     */
+    private int[] slots;
+
+    /**
+     * The values of the selected columns in the current segment.
+     */
+    private double[][] values = new double[0][];
+
+    /**
+     * The number of rows of the arrays of {@link #values}.
+     */
+    private int capacity;
+
+    /**
+     * The number of rows of the current segment.
+     */
+    private int rows;
+
+    /**
+     * The number of rows read, including the current segment.
+     */
+    private long totalRows;
+
+    /**
+     * Opens a comma separated file with segments of {@link #DEFAULT_SEGMENT_SIZE}.
+     * 
+     * @param file
+     *            The file to be read. Might not be <code>null</code>.
+     * @throws IOException
+     *             If the file cannot be read or it does not have a header.
+     */
+    public MappedCsvReader(Path file) throws IOException
+    {
+        this(file, ',', DEFAULT_SEGMENT_SIZE);
+    }
+
+    /**
+     * Opens a CSV file.
+     * 
+     * @param file
+     *            The file to be read. Might not be <code>null</code>.
+     * @param fieldDelimiter
+     *            The ASCII character that separates the fields.
+     * @param maxSegmentSize
+     *            The largest size of a segment, in bytes. It must be positive and larger than any line of the file.
+     * @throws IOException
+     *             If the file cannot be read or it does not have a header.
+     */
+    public MappedCsvReader(Path file, char fieldDelimiter, int maxSegmentSize) throws IOException
+    {
+        if (fieldDelimiter > Byte.MAX_VALUE || fieldDelimiter == QUOTE || fieldDelimiter == '\n')
+        {
+            throw new IllegalArgumentException("Invalid delimiter: " + fieldDelimiter);
+        }
+
+        if (maxSegmentSize <= 0)
+        {
+            throw new IllegalArgumentException("The size of a segment must be positive: " + maxSegmentSize);
+        }
+
+        this.delimiter = (byte) fieldDelimiter;
+        this.segmentSize = maxSegmentSize;
+        this.channel = FileChannel.open(Objects.requireNonNull(file), StandardOpenOption.READ);
+
+        try
+        {
+            this.fileSize = channel.size();
+            this.header = Collections.unmodifiableList(readHeader());
+        }
+        catch (IOException | RuntimeException exception)
+        {
+            channel.close();
+            throw exception;
+        }
+
+        this.slots = new int[header.size()];
+        Arrays.fill(slots, -1);
+    }
+
+    /**
+     * Reads the header and moves {@link #position} to the first row.
+     * 
+     * @return The names of the columns.
+     * @throws IOException
+     *             If the file cannot be read or it does not have a header.
+     */
+    private List<String> readHeader() throws IOException
+    {
+        MappedByteBuffer buffer = map();
+        int end = lineEnd(buffer, 0, buffer.limit());
+
+        if (end == buffer.limit() && position + end < fileSize || end == 0)
+        {
+            throw new IOException("The file does not have a header with the names of the columns!");
+        }
+
+        int from = startsWith(buffer, BOM) ? BOM.length : 0;
+        List<String> names = new ArrayList<>();
+        int to = trimLineBreak(buffer, from, end);
+
+        while (from <= to)
+        {
+            int fieldEnd = fieldEnd(buffer, from, to);
+            names.add(unquote(ByteNumbers.toString(buffer, from, fieldEnd).trim()));
+            from = fieldEnd + 1;
+        }
+
+        position = Math.min(fileSize, (long) end + 1);
+        return names;
+    }
+
+    /**
+     * Maps the next segment of the file, from {@link #position}.
+     * 
+     * @return The segment starting at {@link #position}. It might end in the middle of a line.
+     * @throws IOException
+     *             If the file cannot be mapped.
+     */
+    private MappedByteBuffer map() throws IOException
+    {
+        return channel.map(MapMode.READ_ONLY, position, Math.min(segmentSize, fileSize - position));
+    }
+
+    /**
+     * Returns the names of the columns, in the order of the file.
+     * 
+     * @return The names of the columns, from the header.
+     */
+    public List<String> header()
+    {
+        return header;
+    }
+
+    /**
+     * Selects the columns to be parsed by the next segments. The values of the other columns are not read.
+     * 
+     * @param names
+     *            The names of the columns. Might not be <code>null</code>.
+     * @throws UndefinedVariableException
+     *             If a name is not in the {@link #header()}.
+     */
+    public void select(Collection<String> names) throws UndefinedVariableException
+    {
+        int[] newSlots = new int[header.size()];
+        Arrays.fill(newSlots, -1);
+
+        List<String> columns = new ArrayList<>();
+        for (String name : names)
+        {
+            int field = header.indexOf(name);
+            if (field < 0)
+            {
+                throw new UndefinedVariableException(String.format("Undefined column: %s!", name));
+            }
+
+            if (newSlots[field] < 0)
+            {
+                newSlots[field] = columns.size();
+                columns.add(name);
+            }
+        }
+
+        this.slots = newSlots;
+        this.selected = columns.toArray(new String[columns.size()]);
+        this.values = new double[selected.length][];
+        this.capacity = 0;
+    }
+
+    /**
+     * Parses the next segment of the file.
+     * 
+     * @return <code>false</code> if there is no more rows to be read.
+     * @throws IOException
+     *             If the file cannot be read, a line is larger than a segment or a selected field is not a number.
+     */
+    public boolean next() throws IOException
+    {
+        rows = 0;
+
+        while (rows == 0 && position < fileSize)
+        {
+            MappedByteBuffer buffer = map();
+            position += parse(buffer, buffer.limit(), position + buffer.limit() == fileSize);
+        }
+
+        totalRows += rows;
+        return rows > 0;
+    }
+
+    /**
+     * Makes the arrays of the selected columns large enough for one more row, doubling their size and keeping the rows already parsed.
+     */
+    private void grow()
+    {
+        capacity = Math.max(16, capacity * 2);
+
+        for (int i = 0; i < values.length; i++)
+        {
+            values[i] = values[i] == null ? new double[capacity] : Arrays.copyOf(values[i], capacity);
+        }
+    }
+
+    /**
+     * Parses the selected fields of the complete lines of a segment, finding their line breaks while parsing them, so the segment is read
+     * once. A segment always starts at a line, so the line breaks between quotes, which belong to a field, are skipped. Blank lines are
+     * skipped too.
+     * 
+     * @param buffer
+     *            The segment.
+     * @param limit
+     *            The size of the segment.
+     * @param last
+     *            <code>true</code> if the segment ends at the end of the file, so its last line is complete without a line break.
+     * @return The number of bytes of the lines that were parsed, which is the position of the next segment relative to this one.
+     * @throws IOException
+     *             If the segment does not have a complete line or a selected field is not a number.
+     */
+    private int parse(MappedByteBuffer buffer, int limit, boolean last) throws IOException
+    {
+        int from = 0;
+
+        while (from < limit)
+        {
+            int end = lineEnd(buffer, from, limit);
+
+            if (end == limit && !last)
+            {
+                break;
+            }
+
+            int to = trimLineBreak(buffer, from, end);
+
+            if (to > from)
+            {
+                if (rows == capacity)
+                {
+                    grow();
+                }
+                parseLine(buffer, from, to);
+                rows++;
+            }
+
+            from = end + 1;
+        }
+
+        if (from == 0)
+        {
+            throw new IOException(String.format("The line at the byte %d is larger than a segment of %d bytes!", position, segmentSize));
+        }
+        return Math.min(from, limit);
+    }
+
+    /**
+     * Parses the selected fields of a line into the current row.
+     * 
+     * @param buffer
+     *            The segment.
+     * @param from
+     *            The position of the line.
+     * @param to
+     *            The end of the line, without the line break.
+     * @throws IOException
+     *             If a selected field is not a number.
+     */
+    private void parseLine(MappedByteBuffer buffer, int from, int to) throws IOException
+    {
+        int start = from;
+        int field = 0;
+        int parsed = 0;
+
+        while (start <= to && parsed < selected.length)
+        {
+            int end = fieldEnd(buffer, start, to);
+            int slot = field < slots.length ? slots[field] : -1;
+
+            if (slot >= 0)
+            {
+                int first = start;
+                int last = end;
+
+                if (last - first >= 2 && buffer.get(first) == QUOTE && buffer.get(last - 1) == QUOTE)
+                {
+                    first++;
+                    last--;
+                }
+
+                try
+                {
+                    values[slot][rows] = ByteNumbers.parseDouble(buffer, first, last);
+                }
+                catch (NumberFormatException exception)
+                {
+                    throw new IOException(String.format("Invalid number in the column %s of the row %d: %s", selected[slot], totalRows + rows + 1,
+                            exception.getMessage()), exception);
+                }
+                parsed++;
+            }
+
+            start = end + 1;
+            field++;
+        }
+
+        for (; field < slots.length; field++)
+        {
+            if (slots[field] >= 0)
+            {
+                values[slots[field]][rows] = Double.NaN;
+            }
+        }
+    }
+
+    /**
+     * Returns the position of the line break that ends a line.
+     * 
+     * @param buffer
+     *            The segment.
+     * @param from
+     *            The position of the line.
+     * @param limit
+     *            The size of the segment.
+     * @return The position of the line break, or the limit if the line does not have one.
+     */
+    private static int lineEnd(MappedByteBuffer buffer, int from, int limit)
+    {
+        int i = from;
+        boolean quoted = false;
+
+        while (i < limit)
+        {
+            byte b = buffer.get(i);
+            if (b == QUOTE)
+            {
+                quoted = !quoted;
+            }
+            else if (b == '\n' && !quoted)
+            {
+                break;
+            }
+            i++;
+        }
+        return i;
+    }
+
+    /**
+     * Returns the end of a line without its carriage return, if any.
+     * 
+     * @param buffer
+     *            The segment.
+     * @param from
+     *            The position of the line.
+     * @param end
+     *            The position of the line break.
+     * @return The end of the content of the line.
+     */
+    private static int trimLineBreak(MappedByteBuffer buffer, int from, int end)
+    {
+        return end > from && buffer.get(end - 1) == '\r' ? end - 1 : end;
+    }
+
+    /**
+     * Returns the position of the delimiter that ends a field, ignoring the delimiters between quotes.
+     * 
+     * @param buffer
+     *            The segment.
+     * @param from
+     *            The position of the field.
+     * @param to
+     *            The end of the line.
+     * @return The position of the delimiter, or the end of the line if it is the last field.
+     */
+    private int fieldEnd(MappedByteBuffer buffer, int from, int to)
+    {
+        int i = from;
+        boolean quoted = false;
+
+        while (i < to)
+        {
+            byte b = buffer.get(i);
+            if (b == QUOTE)
+            {
+                quoted = !quoted;
+            }
+            else if (b == delimiter && !quoted)
+            {
+                break;
+            }
+            i++;
+        }
+        return i;
+    }
+
+    /**
+     * Returns <code>true</code> if a buffer starts with the given bytes.
+     * 
+     * @param buffer
+     *            The buffer to be checked.
+     * @param prefix
+     *            The expected bytes.
+     * @return <code>true</code> if the first bytes of the buffer are the given ones.
+     */
+    private static boolean startsWith(MappedByteBuffer buffer, byte[] prefix)
+    {
+        if (buffer.limit() < prefix.length)
+        {
+            return false;
+        }
+
+        for (int i = 0; i < prefix.length; i++)
+        {
+            if (buffer.get(i) != prefix[i])
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Removes the quotes of a text, replacing the escaped quotes by one quote.
+     * 
+     * @param text
+     *            The text to be unquoted.
+     * @return The text without its quotes.
+     */
+    private static String unquote(String text)
+    {
+        if (text.length() >= 2 && text.charAt(0) == QUOTE && text.charAt(text.length() - 1) == QUOTE)
+        {
+            return text.substring(1, text.length() - 1).replace("\"\"", "\"");
+        }
+        return text;
+    }
+
+    /**
+     * Returns the number of rows of the current segment.
+     * 
+     * @return The number of rows of the current segment.
+     */
+    public int rows()
+    {
+        return rows;
+    }
+
+    /**
+     * Returns the number of rows read, including the current segment.
+     * 
+     * @return The number of rows read so far.
+     */
+    public long getTotalRows()
+    {
+        return totalRows;
+    }
+
+    /**
+     * Returns the values of a selected column in the current segment. The column might be larger than {@link #rows()}.
+     * 
+     * @param name
+     *            The name of a selected column.
+     * @return The values of the column in the current segment.
+     * @throws UndefinedVariableException
+     *             If the column was not selected.
+     */
+    public Column column(String name) throws UndefinedVariableException
+    {
+        for (int i = 0; i < selected.length; i++)
+        {
+            if (selected[i].equals(name))
+            {
+                return new DoubleColumn(values[i] == null ? new double[0] : values[i]);
+            }
+        }
+        throw new UndefinedVariableException(String.format("Column not selected: %s!", name));
+    }
+
+    @Override
+    public void close() throws IOException
+    {
+        channel.close();
+    }
+}
@@ -0,0 +1,176 @@
+/**
+ * Copyright (C) 2013 - 2015 Contributors.
+ *
+ * FormulaJ is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * FormulaJ is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see [http://www.gnu.org/licenses/].
+ *
+ * Contact: formulaj-user-list@googlegroups.com.
+ */
+package formulaj.expression.evaluator.impl;
+
+import java.math.BigDecimal;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+
+import formulaj.expression.Decimal;
+import formulaj.expression.EvaluationException;
+import formulaj.expression.Value;
+import formulaj.expression.Variable;
+import formulaj.expression.compiler.CompiledExpression;
+import formulaj.expression.evaluator.Evaluator;
+import formulaj.expression.function.Function;
+import formulaj.expression.function.Functions;
+import formulaj.expression.operators.Operator;
+import formulaj.expression.operators.Operators;
+
+/**
+ * An {@link Evaluator} that resolves the variables with a frame of bindings: a {@link Map} from the variable's name to its value. The frame is
+ * replaced with {@link #bind(Map)}, so the same evaluator evaluates a {@link CompiledExpression} for many frames without copying them. The
+ * values of a frame can be {@link Value}s, {@link Decimal}s or other {@link Number}s, which are converted to {@link Decimal}s.
+ * <p>
+ * An instance must be used by one thread at a time.
+ * 
+ * @param <T>
+ *            The type of the value returned by the expressions.
+ */
+public class BindingEvaluator<T> implements Evaluator<CompiledExpression<T>, Value<T>>
+{
+    /**
+     * The current frame. The key is the variable's name.
+     */
+    private Map<String, ?> frame = Collections.emptyMap();
+
+    /**
+     * The variables assigned by the expression in the current frame.
+     */
+    private final Map<String, Variable<?>> assigned = new HashMap<>();
+
+    /**
+     * Replaces the frame of this evaluator.
+     * 
+     * @param bindings
+     *            The new frame. The key is the variable's name. Might not be <code>null</code>.
+     * @return This evaluator.
+     */
+    public BindingEvaluator<T> bind(Map<String, ?> bindings)
+    {
+        this.frame = Objects.requireNonNull(bindings);
+        this.assigned.clear();
+
+        return this;
+    }
+
+    @Override
+    public Value<T> eval(CompiledExpression<T> expression) throws EvaluationException
+    {
+        return expression.evaluate(this);
+    }
+
+    @Override
+    public Map<String, Variable<?>> variables()
+    {
+        Map<String, Variable<?>> variables = new HashMap<>();
+
+        for (String name : frame.keySet())
+        {
+            variables.put(name, this.getVariableByName(name));
+        }
+
+        variables.putAll(assigned);
+
+        return Collections.unmodifiableMap(variables);
+    }
+
+    @Override
+    public <R> Operator<R> getOperatorBySymbol(String symbol)
+    {
+        return Operators.getOperatorBySymbol(symbol);
+    }
+
+    @Override
+    public <R> Function<R> getFunctionByName(String name)
+    {
+        return Functions.<R> getFunctionByName(name);
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public <R> Variable<R> getVariableByName(String varName)
+    {
+        Variable<?> variable = assigned.get(varName);
+
+        if (variable == null)
+        {
+            Object value = frame.get(varName);
+
+            if (value != null)
+            {
+                variable = new Variable<Object>(varName, value instanceof Value ? (Value<Object>) value : new Value<Object>(toDecimal(value)));
+            }
+        }
+
+        return (Variable<R>) variable;
+    }
+
+    /**
+     * Keeps a variable assigned by the expression until the frame is replaced.
+     * 
+     * @param var
+     *            The assigned variable.
+     * @param <R>
+     *            The type of the variable value.
+     * @return The previous instance of the variable assigned in the current frame.
+     */
+    @Override
+    public <R> Variable<?> register(Variable<R> var)
+    {
+        return assigned.put(Objects.requireNonNull(var).name(), var);
+    }
+
+    @Override
+    public <R> Function<Value<R>> register(Function<Value<R>> function)
+    {
+        return Functions.register(function);
+    }
+
+    /**
+     * Converts a value of a frame to {@link Decimal}, if it's a {@link Number}.
+     * 
+     * @param value
+     *            The value to be converted.
+     * @return The value as a {@link Decimal} or the value itself, if it's not a {@link Number}.
+     */
+    private static Object toDecimal(Object value)
+    {
+        if (value instanceof Decimal)
+        {
+            return value;
+        }
+        else if (value instanceof BigDecimal)
+        {
+            return Decimal.from((BigDecimal) value);
+        }
+        else if (value instanceof Long || value instanceof Integer || value instanceof Short || value instanceof Byte)
+        {
+            return Decimal.from(((Number) value).longValue());
+        }
+        else if (value instanceof Number)
+        {
+            return Decimal.from(((Number) value).doubleValue());
+        }
+
+        return value;
+    }
+}
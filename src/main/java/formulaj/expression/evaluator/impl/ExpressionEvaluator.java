@@ -24,17 +24,21 @@ import java.util.Map;
 import java.util.Objects;
 
 import formulaj.Expression;
+import formulaj.expression.EvaluationBudget;
 import formulaj.expression.EvaluationException;
+import formulaj.expression.MathExpressionImpl;
 import formulaj.expression.Value;
 import formulaj.expression.Variable;
+import formulaj.expression.compiler.CompiledExpression;
+import formulaj.expression.compiler.ExpressionCache;
 import formulaj.expression.evaluator.Evaluator;
+import formulaj.expression.event.ExpressionEvent.Outcome;
+import formulaj.expression.event.ExpressionEvent.Phase;
+import formulaj.expression.event.ExpressionEvents;
 import formulaj.expression.function.Function;
 import formulaj.expression.function.Functions;
-import formulaj.expression.lexer.ExpressionLexer;
 import formulaj.expression.operators.Operator;
 import formulaj.expression.operators.Operators;
-import formulaj.expression.parser.ExpressionParser;
-import formulaj.expression.token.MathNodeToken;
 import formulaj.expression.token.TreeVisitor;
 
 public class ExpressionEvaluator<T> implements Evaluator<Expression<T>, Value<T>>
@@ -44,12 +48,106 @@ public class ExpressionEvaluator<T> implements Evaluator<Expression<T>, Value<T>
      */
     private final Map<String, Variable<?>> variables = new HashMap<>();
 
+    /**
+     * The cache of the compiled expressions.
+     */
+    private final ExpressionCache cache;
+
+    /**
+     * The limits of each evaluation.
+     */
+    private final EvaluationBudget budget;
+
+    /**
+     * Creates an {@link ExpressionEvaluator} with its own cache of compiled expressions. The evaluators that share compiled expressions must be
+     * created with the same cache, such as {@link ExpressionCache#shared()}.
+     */
+    public ExpressionEvaluator()
+    {
+        this(new ExpressionCache(ExpressionCache.DEFAULT_MAXIMUM_SIZE));
+    }
+
+    /**
+     * Creates an {@link ExpressionEvaluator} that uses the given cache of compiled expressions.
+     * 
+     * @param expressionCache
+     *            The cache of the compiled expressions. Might not be <code>null</code>.
+     */
+    public ExpressionEvaluator(ExpressionCache expressionCache)
+    {
+        this(expressionCache, EvaluationBudget.UNLIMITED);
+    }
+
+    /**
+     * Creates an {@link ExpressionEvaluator} that uses the given cache of compiled expressions and limits each evaluation to a budget.
+     * 
+     * @param expressionCache
+     *            The cache of the compiled expressions. Might not be <code>null</code>.
+     * @param evaluationBudget
+     *            The limits of each evaluation. Might not be <code>null</code>.
+     */
+    public ExpressionEvaluator(ExpressionCache expressionCache, EvaluationBudget evaluationBudget)
+    {
+        this.cache = Objects.requireNonNull(expressionCache);
+        this.budget = Objects.requireNonNull(evaluationBudget);
+    }
+
     @Override
     public Value<T> eval(Expression<T> expression) throws EvaluationException
     {
-        ExpressionParser<Value<T>> parser = new ExpressionParser<>(new ExpressionLexer(expression.expression()));
-        MathNodeToken<Value<T>, Value<T>> stat = parser.<Value<T>> stat();
-        return new TreeVisitor<Value<T>>(this).visit(stat);
+        final long start = ExpressionEvents.start();
+        CompiledExpression<T> compiled = null;
+        Outcome outcome = Outcome.FAILURE;
+
+        try
+        {
+            compiled = expression instanceof MathExpressionImpl ? ((MathExpressionImpl<T>) expression).compile(cache) : cache.<T> get(expression
+                    .expression());
+
+            Value<T> result = compiled.evaluate(this.newVisitor());
+            outcome = Outcome.SUCCESS;
+
+            return result;
+        }
+        finally
+        {
+            if (start != 0L)
+            {
+                ExpressionEvents.fire(Phase.EVALUATE, getClass(), expression.expression(), start, compiled == null ? -1 : compiled.nodeCount(),
+                        outcome);
+            }
+        }
+    }
+
+    /**
+     * Returns a new evaluator of the same kind as this one, with its cache and budget but none of its variables. Subclasses that keep other
+     * settings must override this method to copy them.
+     * 
+     * @return A new {@link ExpressionEvaluator} configured as this one.
+     */
+    public ExpressionEvaluator<T> newInstance()
+    {
+        return new ExpressionEvaluator<T>(cache, budget);
+    }
+
+    /**
+     * Creates the visitor that walks the expression's tree. Subclasses can override this method to resolve the variables in other way.
+     * 
+     * @return A new {@link TreeVisitor} bound to this {@link Evaluator}.
+     */
+    protected TreeVisitor<Value<T>> newVisitor()
+    {
+        return new TreeVisitor<Value<T>>(this, budget);
+    }
+
+    /**
+     * Returns the limits of each evaluation.
+     * 
+     * @return The limits of each evaluation.
+     */
+    protected EvaluationBudget getBudget()
+    {
+        return budget;
     }
 
     @Override
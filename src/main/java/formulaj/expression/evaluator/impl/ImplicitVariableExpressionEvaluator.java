@@ -18,13 +18,9 @@
  */
 package formulaj.expression.evaluator.impl;
 
-import formulaj.Expression;
-import formulaj.expression.EvaluationException;
 import formulaj.expression.Value;
-import formulaj.expression.lexer.ExpressionLexer;
-import formulaj.expression.parser.ExpressionParser;
-import formulaj.expression.token.MathNodeToken;
 import formulaj.expression.token.TreeVariableVisitor;
+import formulaj.expression.token.TreeVisitor;
 
 public class ImplicitVariableExpressionEvaluator<T> extends ExpressionEvaluator<T>
 {
@@ -46,10 +42,14 @@ public class ImplicitVariableExpressionEvaluator<T> extends ExpressionEvaluator<
     }
 
     @Override
-    public Value<T> eval(Expression<T> expression) throws EvaluationException
+    public ExpressionEvaluator<T> newInstance()
     {
-        ExpressionParser<Value<T>> parser = new ExpressionParser<>(new ExpressionLexer(expression.expression()));
-        MathNodeToken<Value<T>, Value<T>> stat = parser.<Value<T>> stat();
-        return new TreeVariableVisitor<Value<T>>(this, implictVarValue).visit(stat);
+        return new ImplicitVariableExpressionEvaluator<T>(implictVarValue);
+    }
+
+    @Override
+    protected TreeVisitor<Value<T>> newVisitor()
+    {
+        return new TreeVariableVisitor<Value<T>>(this, getBudget(), implictVarValue);
     }
 }
@@ -0,0 +1,240 @@
+/**
+ * Copyright (C) 2013 - 2015 Contributors.
+ *
+ * FormulaJ is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * FormulaJ is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see [http://www.gnu.org/licenses/].
+ *
+ * Contact: formulaj-user-list@googlegroups.com.
+ */
+package formulaj.expression.event;
+
+import java.util.Objects;
+
+/**
+ * This class represents one measured phase (parse, evaluation, etc.) of an expression. An event is immutable and it's created by
+ * {@link ExpressionEvents} after the phase has finished.
+ */
+public final class ExpressionEvent
+{
+    /**
+     * The phases of an expression that are measured.
+     */
+    public enum Phase
+    {
+        /**
+         * The lexing and parsing of an expression's text into a tree.
+         */
+        PARSE,
+
+        /**
+         * The compilation of an expression's text into a {@link formulaj.expression.compiler.CompiledExpression}.
+         */
+        COMPILE,
+
+        /**
+         * The lookup of a compiled expression in a {@link formulaj.expression.compiler.ExpressionCache}.
+         */
+        CACHE_LOOKUP,
+
+        /**
+         * The evaluation of an expression, including the parsing of its text when required.
+         */
+        EVALUATE;
+    }
+
+    /**
+     * The outcome of a measured phase.
+     */
+    public enum Outcome
+    {
+        /**
+         * The phase finished normally.
+         */
+        SUCCESS,
+
+        /**
+         * The phase finished with an exception.
+         */
+        FAILURE,
+
+        /**
+         * The cache had the expression.
+         */
+        HIT,
+
+        /**
+         * The cache did not have the expression.
+         */
+        MISS;
+    }
+
+    /**
+     * The phase that was measured.
+     */
+    private final Phase phase;
+
+    /**
+     * The name of the class that executed the phase. For instance, the evaluator's class name.
+     */
+    private final String source;
+
+    /**
+     * The text of the expression.
+     */
+    private final String expression;
+
+    /**
+     * The 64-bit fingerprint of the expression's text.
+     */
+    private final long fingerprint;
+
+    /**
+     * The value of {@link System#nanoTime()} when the phase has started.
+     */
+    private final long startTime;
+
+    /**
+     * The elapsed time of the phase in nanoseconds.
+     */
+    private final long duration;
+
+    /**
+     * The number of nodes of the expression's tree or <code>-1</code> if it's unknown.
+     */
+    private final int nodeCount;
+
+    /**
+     * The outcome of the phase.
+     */
+    private final Outcome outcome;
+
+    /**
+     * Creates an {@link ExpressionEvent}.
+     * 
+     * @param eventPhase
+     *            The phase that was measured. Might not be <code>null</code>.
+     * @param eventSource
+     *            The name of the class that executed the phase. Might not be <code>null</code>.
+     * @param text
+     *            The text of the expression. Might not be <code>null</code>.
+     * @param textFingerprint
+     *            The fingerprint of the expression's text.
+     * @param start
+     *            The value of {@link System#nanoTime()} when the phase has started.
+     * @param elapsed
+     *            The elapsed time of the phase in nanoseconds.
+     * @param nodes
+     *            The number of nodes of the expression's tree or <code>-1</code> if it's unknown.
+     * @param result
+     *            The outcome of the phase. Might not be <code>null</code>.
+     */
+    public ExpressionEvent(Phase eventPhase, String eventSource, String text, long textFingerprint, long start, long elapsed, int nodes,
+            Outcome result)
+    {
+        this.phase = Objects.requireNonNull(eventPhase);
+        this.source = Objects.requireNonNull(eventSource);
+        this.expression = Objects.requireNonNull(text);
+        this.fingerprint = textFingerprint;
+        this.startTime = start;
+        this.duration = elapsed;
+        this.nodeCount = nodes;
+        this.outcome = Objects.requireNonNull(result);
+    }
+
+    /**
+     * Returns the phase that was measured.
+     * 
+     * @return The phase that was measured.
+     */
+    public Phase getPhase()
+    {
+        return phase;
+    }
+
+    /**
+     * Returns the name of the class that executed the phase.
+     * 
+     * @return The name of the class that executed the phase.
+     */
+    public String getSource()
+    {
+        return source;
+    }
+
+    /**
+     * Returns the text of the expression.
+     * 
+     * @return The text of the expression.
+     */
+    public String getExpression()
+    {
+        return expression;
+    }
+
+    /**
+     * Returns the 64-bit fingerprint of the expression's text. Two events of the same expression have the same fingerprint.
+     * 
+     * @return The 64-bit fingerprint of the expression's text.
+     */
+    public long getFingerprint()
+    {
+        return fingerprint;
+    }
+
+    /**
+     * Returns the value of {@link System#nanoTime()} when the phase has started.
+     * 
+     * @return The value of {@link System#nanoTime()} when the phase has started.
+     */
+    public long getStartTime()
+    {
+        return startTime;
+    }
+
+    /**
+     * Returns the elapsed time of the phase in nanoseconds.
+     * 
+     * @return The elapsed time of the phase in nanoseconds.
+     */
+    public long getDuration()
+    {
+        return duration;
+    }
+
+    /**
+     * Returns the number of nodes of the expression's tree.
+     * 
+     * @return The number of nodes of the expression's tree or <code>-1</code> if it's unknown. For instance, when the parser failed.
+     */
+    public int getNodeCount()
+    {
+        return nodeCount;
+    }
+
+    /**
+     * Returns the outcome of the phase.
+     * 
+     * @return The outcome of the phase.
+     */
+    public Outcome getOutcome()
+    {
+        return outcome;
+    }
+
+    @Override
+    public String toString()
+    {
+        return String.format("%s[source=%s, expression=%s, duration=%dns, nodes=%d, outcome=%s]", phase, source, expression, duration, nodeCount,
+                outcome);
+    }
+}
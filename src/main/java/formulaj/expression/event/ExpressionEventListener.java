@@ -0,0 +1,34 @@
+/**
+ * Copyright (C) 2013 - 2015 Contributors.
+ *
+ * FormulaJ is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * FormulaJ is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see [http://www.gnu.org/licenses/].
+ *
+ * Contact: formulaj-user-list@googlegroups.com.
+ */
+package formulaj.expression.event;
+
+/**
+ * A listener of {@link ExpressionEvent}s. Listeners are registered in {@link ExpressionEvents} and they are called by the thread that executed
+ * the phase, so they must be thread-safe and fast.
+ */
+public interface ExpressionEventListener
+{
+    /**
+     * Notifies that a phase of an expression has finished.
+     * 
+     * @param event
+     *            The event with the measures of the phase. It's never <code>null</code>.
+     */
+    void onEvent(ExpressionEvent event);
+}
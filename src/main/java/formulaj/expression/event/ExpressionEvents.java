@@ -0,0 +1,145 @@
+/**
+ * Copyright (C) 2013 - 2015 Contributors.
+ *
+ * FormulaJ is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * FormulaJ is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see [http://www.gnu.org/licenses/].
+ *
+ * Contact: formulaj-user-list@googlegroups.com.
+ */
+package formulaj.expression.event;
+
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import formulaj.common.base.Strings;
+import formulaj.expression.event.ExpressionEvent.Outcome;
+import formulaj.expression.event.ExpressionEvent.Phase;
+
+/**
+ * The registry of the {@link ExpressionEventListener}s. When there is no listener registered, the measured code only pays for a volatile read.
+ * 
+ * <pre>
+ * long start = ExpressionEvents.start();
+ * ...
+ * ExpressionEvents.fire(Phase.PARSE, getClass(), text, start, nodes, Outcome.SUCCESS);
+ * </pre>
+ */
+public final class ExpressionEvents
+{
+    /**
+     * The registered listeners.
+     */
+    private static final List<ExpressionEventListener> LISTENERS = new CopyOnWriteArrayList<>();
+
+    /**
+     * Flag that indicates if there is at least one listener registered.
+     */
+    private static volatile boolean enabled;
+
+    /**
+     * Private constructor to avoid instance of this class.
+     */
+    private ExpressionEvents()
+    {
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * Registers a listener.
+     * 
+     * @param listener
+     *            The listener to be registered. Might not be <code>null</code>.
+     */
+    public static void register(ExpressionEventListener listener)
+    {
+        LISTENERS.add(Objects.requireNonNull(listener));
+        enabled = true;
+    }
+
+    /**
+     * Removes a listener.
+     * 
+     * @param listener
+     *            The listener to be removed.
+     * @return <code>true</code> if the listener was registered.
+     */
+    public static boolean unregister(ExpressionEventListener listener)
+    {
+        boolean removed = LISTENERS.remove(listener);
+        enabled = !LISTENERS.isEmpty();
+        return removed;
+    }
+
+    /**
+     * Returns <code>true</code> if there is at least one listener registered.
+     * 
+     * @return <code>true</code> if there is at least one listener registered.
+     */
+    public static boolean isEnabled()
+    {
+        return enabled;
+    }
+
+    /**
+     * Returns the start time of a phase or <code>0</code> if there is no listener registered.
+     * 
+     * @return The value of {@link System#nanoTime()} or <code>0</code> if there is no listener registered.
+     */
+    public static long start()
+    {
+        return enabled ? System.nanoTime() : 0L;
+    }
+
+    /**
+     * Creates and dispatches an {@link ExpressionEvent} to the registered listeners. It does nothing if the phase was started without listeners.
+     * 
+     * @param phase
+     *            The phase that has finished. Might not be <code>null</code>.
+     * @param source
+     *            The class that executed the phase. Might not be <code>null</code>.
+     * @param expression
+     *            The text of the expression. Might not be <code>null</code>.
+     * @param start
+     *            The value returned by {@link #start()} when the phase has started.
+     * @param nodeCount
+     *            The number of nodes of the expression's tree or <code>-1</code> if it's unknown.
+     * @param outcome
+     *            The outcome of the phase. Might not be <code>null</code>.
+     */
+    public static void fire(Phase phase, Class<?> source, String expression, long start, int nodeCount, Outcome outcome)
+    {
+        if (start == 0L || !enabled)
+        {
+            return;
+        }
+
+        final long duration = System.nanoTime() - start;
+        final ExpressionEvent event = new ExpressionEvent(phase, source.getName(), expression, Strings.fingerprint(expression), start, duration,
+                nodeCount, outcome);
+
+        for (ExpressionEventListener listener : LISTENERS)
+        {
+            try
+            {
+                listener.onEvent(event);
+            }
+            catch (RuntimeException exception)
+            {
+                Logger.getLogger(ExpressionEvents.class.getName()).log(Level.WARNING, exception.getMessage(), exception);
+            }
+        }
+    }
+}
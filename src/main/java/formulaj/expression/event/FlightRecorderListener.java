@@ -0,0 +1,274 @@
+/**
+ * Copyright (C) 2013 - 2015 Contributors.
+ *
+ * FormulaJ is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * FormulaJ is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see [http://www.gnu.org/licenses/].
+ *
+ * Contact: formulaj-user-list@googlegroups.com.
+ */
+package formulaj.expression.event;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import formulaj.expression.event.ExpressionEvent.Phase;
+
+/**
+ * An {@link ExpressionEventListener} that commits the {@link ExpressionEvent}s as Java Flight Recorder events. This way the latency of the
+ * expressions can be correlated with the GC and safepoint data of the same recording.
+ * 
+ * <p>
+ * The event types (<code>formulaj.Parse</code>, <code>formulaj.Compile</code>, <code>formulaj.CacheLookup</code> and
+ * <code>formulaj.Evaluate</code>) are defined at runtime through the <code>jdk.jfr</code> API when it's available (Java 11 or newer). In older
+ * virtual machines this listener does nothing. Only the events whose duration is greater than or equal to the threshold of their phase are
+ * committed.
+ * 
+ * <pre>
+ * ExpressionEvents.register(new FlightRecorderListener(10, TimeUnit.MILLISECONDS));
+ * </pre>
+ * 
+ * <p>
+ * As the events are committed after the phase has finished, the JFR start time of an event is its end time. The <code>elapsed</code> field holds
+ * the duration of the phase.
+ */
+public final class FlightRecorderListener implements ExpressionEventListener
+{
+    /**
+     * The name of the fields of the events, in the order they are set.
+     */
+    private static final String[] FIELDS = {"expression", "fingerprint", "elapsed", "nodeCount", "outcome", "source" };
+
+    /**
+     * The type of the fields of the events, in the same order of {@link #FIELDS}.
+     */
+    private static final Class<?>[] FIELD_TYPES = {String.class, long.class, long.class, int.class, String.class, String.class };
+
+    /**
+     * The JFR's event factory of each phase. It's empty when the JFR API is unavailable.
+     */
+    private final Map<Phase, Object> factories = new EnumMap<>(Phase.class);
+
+    /**
+     * The threshold in nanoseconds of each phase.
+     */
+    private final Map<Phase, Long> thresholds = Collections.synchronizedMap(new EnumMap<Phase, Long>(Phase.class));
+
+    /**
+     * The method <code>jdk.jfr.EventFactory.newEvent()</code>.
+     */
+    private Method newEvent;
+
+    /**
+     * The method <code>jdk.jfr.Event.begin()</code>.
+     */
+    private Method begin;
+
+    /**
+     * The method <code>jdk.jfr.Event.end()</code>.
+     */
+    private Method end;
+
+    /**
+     * The method <code>jdk.jfr.Event.shouldCommit()</code>.
+     */
+    private Method shouldCommit;
+
+    /**
+     * The method <code>jdk.jfr.Event.commit()</code>.
+     */
+    private Method commit;
+
+    /**
+     * The method <code>jdk.jfr.Event.set(int, Object)</code>.
+     */
+    private Method set;
+
+    /**
+     * Creates a {@link FlightRecorderListener} that commits all events.
+     */
+    public FlightRecorderListener()
+    {
+        this(0, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Creates a {@link FlightRecorderListener} that commits only the events that took at least the given time.
+     * 
+     * @param threshold
+     *            The minimum duration of the events to be committed.
+     * @param unit
+     *            The unit of the threshold. Might not be <code>null</code>.
+     */
+    public FlightRecorderListener(long threshold, TimeUnit unit)
+    {
+        for (Phase phase : Phase.values())
+        {
+            this.withThreshold(phase, threshold, unit);
+        }
+
+        try
+        {
+            this.defineEventTypes();
+        }
+        catch (ReflectiveOperationException | RuntimeException exception)
+        {
+            this.factories.clear();
+            Logger.getLogger(FlightRecorderListener.class.getName()).log(Level.FINE, "Java Flight Recorder API is unavailable", exception);
+        }
+    }
+
+    /**
+     * Defines the threshold of a given phase.
+     * 
+     * @param phase
+     *            The phase to define the threshold. Might not be <code>null</code>.
+     * @param threshold
+     *            The minimum duration of the events of the given phase to be committed.
+     * @param unit
+     *            The unit of the threshold. Might not be <code>null</code>.
+     * @return The same {@link FlightRecorderListener}'s reference.
+     */
+    public FlightRecorderListener withThreshold(Phase phase, long threshold, TimeUnit unit)
+    {
+        this.thresholds.put(Objects.requireNonNull(phase), unit.toNanos(threshold));
+        return this;
+    }
+
+    /**
+     * Returns <code>true</code> if the Java Flight Recorder API is available and the event types were defined.
+     * 
+     * @return <code>true</code> if the Java Flight Recorder API is available and the event types were defined.
+     */
+    public boolean isAvailable()
+    {
+        return !this.factories.isEmpty();
+    }
+
+    @Override
+    public void onEvent(ExpressionEvent event)
+    {
+        Object factory = this.factories.get(event.getPhase());
+
+        if (factory == null || event.getDuration() < this.thresholds.get(event.getPhase()))
+        {
+            return;
+        }
+
+        try
+        {
+            Object jfrEvent = newEvent.invoke(factory);
+            begin.invoke(jfrEvent);
+
+            set.invoke(jfrEvent, 0, event.getExpression());
+            set.invoke(jfrEvent, 1, event.getFingerprint());
+            set.invoke(jfrEvent, 2, event.getDuration());
+            set.invoke(jfrEvent, 3, event.getNodeCount());
+            set.invoke(jfrEvent, 4, event.getOutcome().name());
+            set.invoke(jfrEvent, 5, event.getSource());
+
+            end.invoke(jfrEvent);
+
+            if ((Boolean) shouldCommit.invoke(jfrEvent))
+            {
+                commit.invoke(jfrEvent);
+            }
+        }
+        catch (IllegalAccessException | InvocationTargetException exception)
+        {
+            Logger.getLogger(FlightRecorderListener.class.getName()).log(Level.WARNING, exception.getMessage(), exception);
+        }
+    }
+
+    /**
+     * Defines one JFR event type for each {@link Phase} using the <code>jdk.jfr.EventFactory</code>.
+     * 
+     * @throws ReflectiveOperationException
+     *             If the JFR API is unavailable.
+     */
+    private void defineEventTypes() throws ReflectiveOperationException
+    {
+        Class<?> annotationElement = Class.forName("jdk.jfr.AnnotationElement");
+        Class<?> valueDescriptor = Class.forName("jdk.jfr.ValueDescriptor");
+        Class<?> eventFactory = Class.forName("jdk.jfr.EventFactory");
+        Class<?> jfrEvent = Class.forName("jdk.jfr.Event");
+
+        Constructor<?> newAnnotation = annotationElement.getConstructor(Class.class, Object.class);
+        Constructor<?> newField = valueDescriptor.getConstructor(Class.class, String.class, List.class);
+        Method create = eventFactory.getMethod("create", List.class, List.class);
+
+        this.newEvent = eventFactory.getMethod("newEvent");
+        this.begin = jfrEvent.getMethod("begin");
+        this.end = jfrEvent.getMethod("end");
+        this.shouldCommit = jfrEvent.getMethod("shouldCommit");
+        this.commit = jfrEvent.getMethod("commit");
+        this.set = jfrEvent.getMethod("set", int.class, Object.class);
+
+        List<Object> fields = new ArrayList<>();
+
+        for (int i = 0; i < FIELDS.length; i++)
+        {
+            List<Object> annotations = new ArrayList<>();
+            annotations.add(newAnnotation.newInstance(annotation("jdk.jfr.Label"), FIELDS[i]));
+
+            if ("elapsed".equals(FIELDS[i]))
+            {
+                annotations.add(newAnnotation.newInstance(annotation("jdk.jfr.Timespan"), "NANOSECONDS"));
+            }
+
+            fields.add(newField.newInstance(FIELD_TYPES[i], FIELDS[i], annotations));
+        }
+
+        for (Phase phase : Phase.values())
+        {
+            StringBuilder label = new StringBuilder();
+
+            for (String word : phase.name().split("_"))
+            {
+                label.append(word.charAt(0)).append(word.substring(1).toLowerCase());
+            }
+
+            List<Object> annotations = Arrays.asList(newAnnotation.newInstance(annotation("jdk.jfr.Name"), "formulaj." + label),
+                    newAnnotation.newInstance(annotation("jdk.jfr.Label"), "Expression " + label),
+                    newAnnotation.newInstance(annotation("jdk.jfr.Category"), new String[] {"FormulaJ" }),
+                    newAnnotation.newInstance(annotation("jdk.jfr.StackTrace"), Boolean.FALSE));
+
+            this.factories.put(phase, create.invoke(null, annotations, fields));
+        }
+    }
+
+    /**
+     * Returns the annotation type that has the given name.
+     * 
+     * @param name
+     *            The full name of the annotation.
+     * @return The annotation type that has the given name.
+     * @throws ClassNotFoundException
+     *             If the annotation is unknown.
+     */
+    private static Class<? extends Annotation> annotation(String name) throws ClassNotFoundException
+    {
+        return Class.forName(name).asSubclass(Annotation.class);
+    }
+}
@@ -0,0 +1,378 @@
+/**
+ * Copyright (C) 2013 - 2015 Contributors.
+ *
+ * FormulaJ is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * FormulaJ is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see [http://www.gnu.org/licenses/].
+ *
+ * Contact: formulaj-user-list@googlegroups.com.
+ */
+package formulaj.expression.function;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import formulaj.expression.Computable;
+import formulaj.expression.PrecisionPolicy;
+
+/**
+ * A size-bounded cache of the values of a pure {@link Function}, keyed by the values of its arguments and the {@link PrecisionPolicy#current()
+ * precision policy} that rounds its value. Arguments equal in value have the same key, so <code>pow(2, 3)</code> and <code>pow(2.0, 3)</code>
+ * are computed once. When the cache is full, the least recently used value is evicted.
+ * <p>
+ * The values are spread by the hash of their arguments over up to {@value #MAX_STRIPES} stripes, each one with its own lock and a share of the
+ * maximum size, so the threads that call the same function contend only when their arguments fall in the same stripe. A cache smaller than
+ * {@value #STRIPE_SIZE} values has one stripe, and evicts the least recently used value of the whole cache; the larger ones evict the least
+ * recently used value of a stripe.
+ */
+public final class CallCache
+{
+    /**
+     * The largest number of stripes of a cache.
+     */
+    static final int MAX_STRIPES = 16;
+
+    /**
+     * The number of values of a cache per stripe, below which a cache has fewer stripes.
+     */
+    static final int STRIPE_SIZE = 64;
+
+    /**
+     * The stripes of the values. Their number is a power of two. Each one is guarded by itself.
+     */
+    private final Stripe[] stripes;
+
+    /**
+     * The number of calls that found the value in the cache.
+     */
+    private final AtomicLong hits = new AtomicLong();
+
+    /**
+     * The number of calls that executed the function.
+     */
+    private final AtomicLong misses = new AtomicLong();
+
+    /**
+     * The number of values evicted from the cache.
+     */
+    private final AtomicLong evictions = new AtomicLong();
+
+    /**
+     * The maximum number of values of this cache.
+     */
+    private volatile int maximumSize;
+
+    /**
+     * The maximum number of values of a stripe.
+     */
+    private volatile int stripeSize;
+
+    /**
+     * Creates a {@link CallCache} with a given maximum size.
+     * 
+     * @param maxSize
+     *            The maximum number of values of this cache. It must be positive.
+     */
+    public CallCache(int maxSize)
+    {
+        int count = 1;
+
+        while (count < MAX_STRIPES && count * 2 * STRIPE_SIZE <= maxSize)
+        {
+            count *= 2;
+        }
+
+        this.stripes = new Stripe[count];
+
+        for (int i = 0; i < count; i++)
+        {
+            stripes[i] = new Stripe();
+        }
+
+        this.setMaximumSize(maxSize);
+    }
+
+    /**
+     * Returns the value of a function for the given arguments, executing the function and caching its value if it's not in the cache. The
+     * function is executed without holding the lock of a stripe, so two threads might compute the same value.
+     * 
+     * @param function
+     *            The function to be executed. Might not be <code>null</code> and it must be pure.
+     * @param arguments
+     *            The function's arguments, already evaluated.
+     * @param <V>
+     *            The return type of the function.
+     * @param <R>
+     *            The type of the arguments' value.
+     * @param <T>
+     *            The type of the arguments.
+     * @return The value of the function.
+     */
+    @SuppressWarnings("unchecked")
+    public <V, R, T extends Computable<R>> V evaluate(Function<V> function, List<T> arguments)
+    {
+        Object[] values = new Object[arguments.size()];
+
+        for (int i = 0; i < values.length; i++)
+        {
+            values[i] = arguments.get(i).getValue();
+        }
+
+        Arguments key = new Arguments(PrecisionPolicy.current(), values);
+        Stripe stripe = stripe(key);
+        V value;
+
+        synchronized (stripe)
+        {
+            value = (V) stripe.get(key);
+        }
+
+        if (value != null)
+        {
+            hits.incrementAndGet();
+            return value;
+        }
+
+        misses.incrementAndGet();
+        value = function.evaluate(arguments);
+
+        if (value != null)
+        {
+            synchronized (stripe)
+            {
+                stripe.put(key, value);
+            }
+        }
+        return value;
+    }
+
+    /**
+     * Returns the stripe of the value of a call.
+     * 
+     * @param key
+     *            The arguments of the call.
+     * @return The stripe of the value of the call.
+     */
+    private Stripe stripe(Arguments key)
+    {
+        int hash = key.hash;
+        return stripes[(hash ^ hash >>> 16) & (stripes.length - 1)];
+    }
+
+    /**
+     * Removes all values of this cache.
+     */
+    public void clear()
+    {
+        for (Stripe stripe : stripes)
+        {
+            synchronized (stripe)
+            {
+                stripe.clear();
+            }
+        }
+    }
+
+    /**
+     * Resets the hit, miss and eviction counters.
+     */
+    public void resetStatistics()
+    {
+        hits.set(0);
+        misses.set(0);
+        evictions.set(0);
+    }
+
+    /**
+     * Returns the number of values in this cache.
+     * 
+     * @return The number of values in this cache.
+     */
+    public int size()
+    {
+        int size = 0;
+
+        for (Stripe stripe : stripes)
+        {
+            synchronized (stripe)
+            {
+                size += stripe.size();
+            }
+        }
+        return size;
+    }
+
+    /**
+     * Returns the maximum number of values of this cache.
+     * 
+     * @return The maximum number of values of this cache.
+     */
+    public int getMaximumSize()
+    {
+        return maximumSize;
+    }
+
+    /**
+     * Defines the maximum number of values of this cache, evicting the least recently used values if the cache is bigger.
+     * 
+     * @param maxSize
+     *            The maximum number of values of this cache. It must be positive.
+     */
+    public void setMaximumSize(int maxSize)
+    {
+        if (maxSize <= 0)
+        {
+            throw new IllegalArgumentException("The maximum size must be positive: " + maxSize);
+        }
+
+        this.maximumSize = maxSize;
+        this.stripeSize = Math.max(1, maxSize / stripes.length);
+
+        for (Stripe stripe : stripes)
+        {
+            synchronized (stripe)
+            {
+                for (Iterator<Arguments> iter = stripe.keySet().iterator(); stripe.size() > stripeSize && iter.hasNext();)
+                {
+                    iter.next();
+                    iter.remove();
+                    evictions.incrementAndGet();
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the number of calls that found the value in the cache.
+     * 
+     * @return The number of calls that found the value in the cache.
+     */
+    public long getHitCount()
+    {
+        return hits.get();
+    }
+
+    /**
+     * Returns the number of calls that executed the function.
+     * 
+     * @return The number of calls that executed the function.
+     */
+    public long getMissCount()
+    {
+        return misses.get();
+    }
+
+    /**
+     * Returns the number of values evicted from the cache.
+     * 
+     * @return The number of values evicted from the cache.
+     */
+    public long getEvictionCount()
+    {
+        return evictions.get();
+    }
+
+    /**
+     * Returns the ratio of calls that found the value in the cache.
+     * 
+     * @return The ratio of calls that found the value in the cache or <code>0</code> if there wasn't any call.
+     */
+    public double hitRate()
+    {
+        long h = hits.get();
+        long total = h + misses.get();
+        return total == 0 ? 0.d : (double) h / total;
+    }
+
+    /**
+     * A stripe of the values, in access order.
+     */
+    private final class Stripe extends LinkedHashMap<Arguments, Object>
+    {
+        /**
+         * Serial code version <code>serialVersionUID</code> for serialization.
+         */
+        private static final long serialVersionUID = 4962771232874146425L;
+
+        /**
+         * Creates an empty {@link Stripe}.
+         */
+        Stripe()
+        {
+            super(16, 0.75f, true);
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Arguments, Object> eldest)
+        {
+            if (size() > stripeSize)
+            {
+                evictions.incrementAndGet();
+                return true;
+            }
+            return false;
+        }
+    }
+
+    /**
+     * The values of the arguments of a call and the precision policy of its evaluation.
+     */
+    private static final class Arguments
+    {
+        /**
+         * The precision policy of the call.
+         */
+        private final PrecisionPolicy policy;
+
+        /**
+         * The values of the arguments.
+         */
+        private final Object[] values;
+
+        /**
+         * The hash code of the values.
+         */
+        private final int hash;
+
+        /**
+         * Creates an {@link Arguments}.
+         * 
+         * @param precision
+         *            The precision policy of the call.
+         * @param argumentValues
+         *            The values of the arguments.
+         */
+        Arguments(PrecisionPolicy precision, Object[] argumentValues)
+        {
+            this.policy = precision;
+            this.values = argumentValues;
+            this.hash = 31 * precision.hashCode() + Arrays.hashCode(argumentValues);
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object obj)
+        {
+            return obj instanceof Arguments && hash == ((Arguments) obj).hash && policy.equals(((Arguments) obj).policy)
+                    && Arrays.equals(values, ((Arguments) obj).values);
+        }
+    }
+}
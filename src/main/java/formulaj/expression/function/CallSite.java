@@ -0,0 +1,60 @@
+/**
+ * Copyright (C) 2013 - 2015 Contributors.
+ *
+ * FormulaJ is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * FormulaJ is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see [http://www.gnu.org/licenses/].
+ *
+ * Contact: formulaj-user-list@googlegroups.com.
+ */
+package formulaj.expression.function;
+
+/**
+ * The state of a function at one call of an expression. Each {@link formulaj.expression.token.FunctionToken} has its own call site, so the
+ * same stateful function called twice in an expression, or in two compiled expressions, keeps two independent states.
+ */
+public final class CallSite
+{
+    /**
+     * The state of the function at this call, or <code>null</code> before its first evaluation.
+     */
+    private Object state;
+
+    /**
+     * Returns the state of the function at this call. The caller must hold the lock of this call site.
+     * 
+     * @return The state of the function, or <code>null</code> before its first evaluation.
+     */
+    public Object getState()
+    {
+        return state;
+    }
+
+    /**
+     * Replaces the state of the function at this call. The caller must hold the lock of this call site.
+     * 
+     * @param newState
+     *            The new state of the function.
+     */
+    public void setState(Object newState)
+    {
+        this.state = newState;
+    }
+
+    /**
+     * Discards the state of the function at this call, so the next evaluation starts a new one.
+     */
+    public synchronized void reset()
+    {
+        this.state = null;
+    }
+}
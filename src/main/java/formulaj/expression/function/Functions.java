@@ -18,6 +18,7 @@
  */
 package formulaj.expression.function;
 
+import java.util.Collections;
 import java.util.Map;
 import java.util.Objects;
 import java.util.concurrent.ConcurrentHashMap;
@@ -47,9 +48,10 @@ public final class Functions
     }
 
     /**
-     * Find all classes on the classpath that implements the interface {@link Function} and register it in the system.
+     * Find all classes on the classpath that implements the interface {@link Function} and register it in the system. A function previously
+     * registered with the same name of a system function is replaced.
      */
-    private static void registerSystemFunctions()
+    public static void registerSystemFunctions()
     {
         for (Class<?> clazz : ClassUtils.findSubclasses(Function.class))
         {
@@ -86,4 +88,28 @@ public final class Functions
     {
         return (Function<V>) FUNCTIONS.get(Objects.requireNonNull(functionName));
     }
+
+    /**
+     * Removes the function that has the given name.
+     * 
+     * @param functionName
+     *            The name of the function to be removed. Might not be <code>null</code>.
+     * @param <V>
+     *            The return type of the function.
+     * @return The function that was removed or <code>null</code> if there wasn't one.
+     */
+    public static <V> Function<V> unregister(String functionName)
+    {
+        return (Function<V>) FUNCTIONS.remove(Objects.requireNonNull(functionName));
+    }
+
+    /**
+     * Returns the available functions.
+     * 
+     * @return A read-only {@link Map} with the available functions. The key is the function's name.
+     */
+    public static Map<String, Function> getFunctions()
+    {
+        return Collections.unmodifiableMap(FUNCTIONS);
+    }
 }
@@ -18,7 +18,6 @@
  */
 package formulaj.expression.function.math;
 
-import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Objects;
@@ -27,9 +26,11 @@ import formulaj.Expression;
 import formulaj.expression.Computable;
 import formulaj.expression.Decimal;
 import formulaj.expression.EvaluationException;
+import formulaj.expression.PrecisionPolicy;
 import formulaj.expression.Value;
 import formulaj.expression.evaluator.Evaluator;
 import formulaj.expression.evaluator.impl.Evaluators;
+import formulaj.expression.function.CallCache;
 import formulaj.expression.function.Function;
 
 public abstract class FunctionSupport<E> implements Function<Value<Decimal>>
@@ -44,6 +45,16 @@ public abstract class FunctionSupport<E> implements Function<Value<Decimal>>
      */
     private final String name;
 
+    /**
+     * The cache of the values of this function or <code>null</code> if they are not cached.
+     */
+    private volatile CallCache callCache;
+
+    /**
+     * Indicates whether the {@link #callCache} was created or explicitly disabled.
+     */
+    private volatile boolean cacheDefined;
+
     /**
      * Creates an instance of {@link FunctionSupport} with the given number of arguments to be checked before call this function.
      * 
@@ -76,6 +87,88 @@ public abstract class FunctionSupport<E> implements Function<Value<Decimal>>
         return name;
     }
 
+    /**
+     * Returns <code>true</code> if this function is pure: it always returns the same value for the same arguments and it has no side effects.
+     * The value of an expression that calls only pure functions depends only on its variables, so it might be cached. The default
+     * implementation returns <code>true</code>.
+     * 
+     * @return <code>true</code> if this function always returns the same value for the same arguments.
+     */
+    public boolean isPure()
+    {
+        return true;
+    }
+
+    /**
+     * Returns the number of values of this function cached by default. The default implementation returns zero: the values are not cached,
+     * unless {@link #setCacheSize(int)} is called. A pure function whose execution is expensive might override this method to cache its values
+     * from its first call.
+     * 
+     * @return The number of values of this function cached by default or zero if they are not cached.
+     */
+    protected int defaultCacheSize()
+    {
+        return 0;
+    }
+
+    /**
+     * Returns the cache of the values of this function, which is used by the {@link formulaj.expression.token.TreeVisitor} to execute this
+     * function once for the same arguments.
+     * 
+     * @return The cache of the values of this function or <code>null</code> if they are not cached.
+     */
+    public CallCache callCache()
+    {
+        if (!cacheDefined)
+        {
+            synchronized (this)
+            {
+                if (!cacheDefined)
+                {
+                    int size = defaultCacheSize();
+                    callCache = size > 0 && isPure() ? new CallCache(size) : null;
+                    cacheDefined = true;
+                }
+            }
+        }
+        return callCache;
+    }
+
+    /**
+     * Defines the number of values of this function that are cached, replacing the {@link #defaultCacheSize()}.
+     * 
+     * @param maxSize
+     *            The maximum number of cached values. Zero disables the cache.
+     * @throws IllegalStateException
+     *             If the size is positive and this function is not {@link #isPure() pure}.
+     */
+    public synchronized void setCacheSize(int maxSize)
+    {
+        if (maxSize < 0)
+        {
+            throw new IllegalArgumentException("The cache size might not be negative!");
+        }
+
+        if (maxSize > 0 && !isPure())
+        {
+            throw new IllegalStateException(String.format("The function %s is not pure and its values might not be cached!", name()));
+        }
+
+        if (maxSize == 0)
+        {
+            callCache = null;
+        }
+        else if (callCache == null)
+        {
+            callCache = new CallCache(maxSize);
+        }
+        else
+        {
+            callCache.setMaximumSize(maxSize);
+        }
+        cacheDefined = true;
+    }
+
     @Override
     public <T> Value<Decimal> evaluate(Expression<T> expression) throws EvaluationException
     {
@@ -99,7 +192,7 @@ public abstract class FunctionSupport<E> implements Function<Value<Decimal>>
     {
         checkArguments(arguments);
         final Decimal result = this.eval(transform(arguments));
-        return new Value<Decimal>(result);
+        return new Value<Decimal>(PrecisionPolicy.current().round(result));
     }
 
     /**
@@ -136,7 +229,8 @@ public abstract class FunctionSupport<E> implements Function<Value<Decimal>>
     }
 
     /**
-     * Transforms a {@link List} of T in an array of E. The default implementation assumes that E is a {@link Decimal}.
+     * Transforms a {@link List} of T in an array of E. The default implementation assumes that E is a {@link Decimal} and converts the values with
+     * the {@link PrecisionPolicy#current()} policy.
      * 
      * @param arguments
      *            The {@link List} of computable arguments that must be translated to an array of {@link Decimal}.
@@ -149,14 +243,15 @@ public abstract class FunctionSupport<E> implements Function<Value<Decimal>>
     @SuppressWarnings("unchecked")
     protected <R, T extends Computable<R>> E [] transform(List<T> arguments)
     {
-        List<R> args = new ArrayList<>();
-        
-        for (Object computable : arguments)
+        PrecisionPolicy policy = PrecisionPolicy.current();
+        Decimal[] args = new Decimal[arguments.size()];
+
+        for (int i = 0; i < args.length; i++)
         {
-            args.add((R) Decimal.from(((Computable<R>) computable).getValue().toString()));
+            args[i] = policy.toDecimal(arguments.get(i).getValue());
         }
 
-        return (E[]) args.toArray(new Decimal[args.size()]);
+        return (E[]) args;
     }
 
     /**
@@ -31,6 +31,17 @@ public class Pow extends FunctionSupport<Decimal>
         super(2);
     }
 
+    /**
+     * Caches the last 1024 powers, because the same base and exponent are often computed by many evaluations.
+     * 
+     * @return 1024.
+     */
+    @Override
+    protected int defaultCacheSize()
+    {
+        return 1024;
+    }
+
     @Override
     protected Decimal eval(Decimal[] arguments)
     {
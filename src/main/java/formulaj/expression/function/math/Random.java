@@ -31,6 +31,17 @@ public class Random extends FunctionSupport<Decimal>
         super(0);
     }
 
+    /**
+     * Returns <code>false</code> because each call returns a new pseudorandom value.
+     * 
+     * @return <code>false</code>.
+     */
+    @Override
+    public boolean isPure()
+    {
+        return false;
+    }
+
     @Override
     protected Decimal eval(Decimal[] arguments)
     {
@@ -0,0 +1,186 @@
+/**
+ * Copyright (C) 2013 - 2015 Contributors.
+ *
+ * FormulaJ is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * FormulaJ is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see [http://www.gnu.org/licenses/].
+ *
+ * Contact: formulaj-user-list@googlegroups.com.
+ */
+package formulaj.expression.function.math;
+
+import java.util.List;
+
+import formulaj.expression.Computable;
+import formulaj.expression.Decimal;
+import formulaj.expression.PrecisionPolicy;
+import formulaj.expression.Value;
+import formulaj.expression.function.CallSite;
+
+/**
+ * A function whose value depends on the previous calls, such as a moving average over an ordered sequence of evaluations. The state is kept
+ * in the {@link CallSite} of each call of an expression, not in the function, so the registered instance is shared by all the expressions
+ * while each call keeps its own state.
+ * <p>
+ * The state is created by {@link #newState(Decimal[])} at the first call, and the arguments of each call are checked against it by
+ * {@link #check(Object, Decimal[])} before {@link #eval(Object, Decimal[])} updates it, while holding the lock of the call site. The value of
+ * each call is rounded to the context of the {@link PrecisionPolicy#current()} policy.
+ * 
+ * @param <S>
+ *            The type of the state.
+ */
+public abstract class StatefulFunction<S> extends FunctionSupport<Decimal>
+{
+    /**
+     * Creates a {@link StatefulFunction} with the given number of arguments.
+     * 
+     * @param numberOfArgs
+     *            The number of arguments that is required to evaluate this function.
+     */
+    public StatefulFunction(int numberOfArgs)
+    {
+        super(numberOfArgs);
+    }
+
+    /**
+     * Returns <code>false</code> because the value of a call depends on the previous calls.
+     * 
+     * @return <code>false</code>.
+     */
+    @Override
+    public final boolean isPure()
+    {
+        return false;
+    }
+
+    /**
+     * Evaluates this function at a call of an expression, updating its state.
+     * 
+     * @param site
+     *            The call of the expression. Might not be <code>null</code>.
+     * @param arguments
+     *            The function's arguments.
+     * @param <R>
+     *            The type of the arguments' value.
+     * @param <T>
+     *            The type of the arguments.
+     * @return The value of the function at this call.
+     * @throws IllegalArgumentException
+     *             If the arguments are invalid or do not match the state created by the first call.
+     */
+    @SuppressWarnings("unchecked")
+    public <R, T extends Computable<R>> Value<Decimal> evaluate(CallSite site, List<T> arguments)
+    {
+        checkArguments(arguments);
+        Decimal[] args = transform(arguments);
+
+        synchronized (site)
+        {
+            S state = (S) site.getState();
+
+            if (state == null)
+            {
+                state = newState(args);
+                site.setState(state);
+            }
+            check(state, args);
+            return new Value<Decimal>(PrecisionPolicy.current().round(eval(state, args)));
+        }
+    }
+
+    /**
+     * Throws an {@link IllegalStateException}, because a stateful function must be called with its {@link CallSite}.
+     * 
+     * @param args
+     *            The arguments of the function.
+     * @return Never returns.
+     */
+    @Override
+    protected final Decimal eval(Decimal[] args)
+    {
+        throw new IllegalStateException(String.format("The function %s keeps state between calls and requires a call site!", name()));
+    }
+
+    /**
+     * Creates the state of a call, before its first evaluation.
+     * 
+     * @param args
+     *            The arguments of the first evaluation.
+     * @return The initial state of the call.
+     */
+    protected abstract S newState(Decimal[] args);
+
+    /**
+     * Checks the arguments of a call, including the first one, before they update the state of the call. It does nothing by default; the
+     * functions whose state depends on an argument, such as the size of a window, must reject a call that changes it.
+     * 
+     * @param state
+     *            The state of the call.
+     * @param args
+     *            The arguments of the evaluation.
+     * @throws IllegalArgumentException
+     *             If the arguments are invalid.
+     */
+    protected void check(S state, Decimal[] args)
+    {
+    }
+
+    /**
+     * Updates the state of a call with the arguments of an evaluation and returns the value of the function.
+     * 
+     * @param state
+     *            The state of the call.
+     * @param args
+     *            The arguments of the evaluation.
+     * @return The value of the function.
+     */
+    protected abstract Decimal eval(S state, Decimal[] args);
+
+    /**
+     * Returns the size of a window given as an argument.
+     * 
+     * @param size
+     *            The argument with the size of the window.
+     * @return The size of the window.
+     * @throws IllegalArgumentException
+     *             If the size is not a positive integer.
+     */
+    protected int windowSize(Decimal size)
+    {
+        int n = size.intValue();
+
+        if (n < 1 || !size.eq((long) n))
+        {
+            throw new IllegalArgumentException(String.format("The window of the function %s must be a positive integer: %s", name(), size));
+        }
+        return n;
+    }
+
+    /**
+     * Checks that the size of a window given as an argument is the size of the window created by the first call, which is fixed.
+     * 
+     * @param n
+     *            The size of the window of the call.
+     * @param size
+     *            The argument with the size of the window.
+     * @throws IllegalArgumentException
+     *             If the size is not a positive integer or if it's not the size of the window.
+     */
+    protected void checkWindowSize(int n, Decimal size)
+    {
+        if (windowSize(size) != n)
+        {
+            throw new IllegalArgumentException(String.format("The window of the function %s was fixed to %d by its first call: %s", name(), n,
+                    size));
+        }
+    }
+}
@@ -22,6 +22,7 @@ import java.util.List;
 
 import formulaj.expression.Computable;
 import formulaj.expression.Decimal;
+import formulaj.expression.MutableDecimal;
 
 public class Sum extends FunctionSupport<Decimal>
 {
@@ -54,13 +55,13 @@ public class Sum extends FunctionSupport<Decimal>
     @Override
     protected Decimal eval(Decimal[] args)
     {
-        Decimal result = Decimal.ZERO;
+        MutableDecimal result = new MutableDecimal();
         
         for (int i = 0; i <  args.length; i++)
         {
-            result = result.plus(args[i]);
+            result.add(args[i]);
         }
         
-        return result;
+        return result.toDecimal();
     }
 }
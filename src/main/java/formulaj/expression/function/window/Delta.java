@@ -0,0 +1,51 @@
+/**
+ * Copyright (C) 2013 - 2015 Contributors.
+ *
+ * FormulaJ is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * FormulaJ is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see [http://www.gnu.org/licenses/].
+ *
+ * Contact: formulaj-user-list@googlegroups.com.
+ */
+package formulaj.expression.function.window;
+
+import formulaj.expression.Decimal;
+import formulaj.expression.function.math.StatefulFunction;
+
+/**
+ * <code>delta(x)</code>: the difference between the value of <code>x</code> and its value in the previous evaluation. It's zero in the first
+ * evaluation.
+ */
+public class Delta extends StatefulFunction<Decimal[]>
+{
+    /**
+     * Creates the {@link Delta} function.
+     */
+    public Delta()
+    {
+        super(1);
+    }
+
+    @Override
+    protected Decimal[] newState(Decimal[] args)
+    {
+        return new Decimal[] {args[0] };
+    }
+
+    @Override
+    protected Decimal eval(Decimal[] previous, Decimal[] args)
+    {
+        Decimal delta = args[0].minus(previous[0]);
+        previous[0] = args[0];
+        return delta;
+    }
+}
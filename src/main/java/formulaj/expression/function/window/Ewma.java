@@ -0,0 +1,74 @@
+/**
+ * Copyright (C) 2013 - 2015 Contributors.
+ *
+ * FormulaJ is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * FormulaJ is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see [http://www.gnu.org/licenses/].
+ *
+ * Contact: formulaj-user-list@googlegroups.com.
+ */
+package formulaj.expression.function.window;
+
+import formulaj.expression.Decimal;
+import formulaj.expression.PrecisionPolicy;
+import formulaj.expression.function.math.StatefulFunction;
+
+/**
+ * <code>ewma(x, alpha)</code>: the exponentially weighted moving average of <code>x</code>, <code>alpha * x + (1 - alpha) * previous</code>,
+ * starting at the first value of <code>x</code>. The average is rounded like a quotient, to the context of the <code>/</code> operator of
+ * the {@link PrecisionPolicy#current()} policy, so its scale does not grow with the number of evaluations unless that context is unlimited.
+ */
+public class Ewma extends StatefulFunction<Decimal[]>
+{
+    /**
+     * Creates the {@link Ewma} function.
+     */
+    public Ewma()
+    {
+        super(2);
+    }
+
+    @Override
+    protected Decimal[] newState(Decimal[] args)
+    {
+        return new Decimal[] {null };
+    }
+
+    @Override
+    protected void check(Decimal[] average, Decimal[] args)
+    {
+        Decimal alpha = args[1];
+
+        if (alpha.lteq(Decimal.ZERO) || alpha.gt(Decimal.ONE))
+        {
+            throw new IllegalArgumentException("The smoothing factor of the function ewma must be in (0, 1]: " + alpha);
+        }
+    }
+
+    @Override
+    protected Decimal eval(Decimal[] average, Decimal[] args)
+    {
+        Decimal x = args[0];
+        Decimal alpha = args[1];
+
+        if (average[0] == null)
+        {
+            average[0] = x;
+        }
+        else
+        {
+            Decimal previous = average[0];
+            average[0] = previous.plus(alpha.times(x.minus(previous))).round(PrecisionPolicy.current().context("/"));
+        }
+        return average[0];
+    }
+}
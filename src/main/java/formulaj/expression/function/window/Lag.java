@@ -0,0 +1,56 @@
+/**
+ * Copyright (C) 2013 - 2015 Contributors.
+ *
+ * FormulaJ is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * FormulaJ is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see [http://www.gnu.org/licenses/].
+ *
+ * Contact: formulaj-user-list@googlegroups.com.
+ */
+package formulaj.expression.function.window;
+
+import formulaj.expression.Decimal;
+import formulaj.expression.function.math.StatefulFunction;
+
+/**
+ * <code>lag(x, n)</code>: the value of <code>x</code> <code>n</code> evaluations ago. Until there are <code>n</code> previous evaluations, it's
+ * the first value of <code>x</code>.
+ */
+public class Lag extends StatefulFunction<RingWindow>
+{
+    /**
+     * Creates the {@link Lag} function.
+     */
+    public Lag()
+    {
+        super(2);
+    }
+
+    @Override
+    protected RingWindow newState(Decimal[] args)
+    {
+        return new RingWindow(windowSize(args[1]) + 1);
+    }
+
+    @Override
+    protected void check(RingWindow window, Decimal[] args)
+    {
+        checkWindowSize(window.capacity() - 1, args[1]);
+    }
+
+    @Override
+    protected Decimal eval(RingWindow window, Decimal[] args)
+    {
+        window.add(args[0]);
+        return window.oldest();
+    }
+}
@@ -0,0 +1,117 @@
+/**
+ * Copyright (C) 2013 - 2015 Contributors.
+ *
+ * FormulaJ is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * FormulaJ is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see [http://www.gnu.org/licenses/].
+ *
+ * Contact: formulaj-user-list@googlegroups.com.
+ */
+package formulaj.expression.function.window;
+
+import formulaj.expression.Decimal;
+
+/**
+ * The extreme value of the last values of a sequence, kept in a monotonic deque: the candidates are in the order they arrived and each one is
+ * better than the next ones, so the first is the extreme and a new value removes the candidates that it beats. Each value is added and removed
+ * once, so an update takes constant amortized time.
+ */
+final class MonotonicWindow
+{
+    /**
+     * The size of the window.
+     */
+    private final int windowSize;
+
+    /**
+     * <code>1</code> to keep the maximum and <code>-1</code> to keep the minimum.
+     */
+    private final int sign;
+
+    /**
+     * The candidates, in a ring from {@link #head}.
+     */
+    private final Decimal[] values;
+
+    /**
+     * The sequence number of each candidate.
+     */
+    private final long[] indexes;
+
+    /**
+     * The position of the first candidate.
+     */
+    private int head;
+
+    /**
+     * The number of candidates.
+     */
+    private int size;
+
+    /**
+     * The sequence number of the next value.
+     */
+    private long next;
+
+    /**
+     * Creates an empty {@link MonotonicWindow}.
+     * 
+     * @param n
+     *            The size of the window.
+     * @param maximum
+     *            <code>true</code> to keep the maximum and <code>false</code> to keep the minimum.
+     */
+    MonotonicWindow(int n, boolean maximum)
+    {
+        this.windowSize = n;
+        this.sign = maximum ? 1 : -1;
+        this.values = new Decimal[n];
+        this.indexes = new long[n];
+    }
+
+    /**
+     * Adds a value to the window and returns its extreme value.
+     * 
+     * @param value
+     *            The value to be added.
+     * @return The extreme value of the last values, including the given one.
+     */
+    Decimal add(Decimal value)
+    {
+        if (size > 0 && indexes[head] <= next - windowSize)
+        {
+            head = (head + 1) % values.length;
+            size--;
+        }
+
+        while (size > 0 && sign * values[(head + size - 1) % values.length].compareTo(value) <= 0)
+        {
+            size--;
+        }
+
+        int tail = (head + size++) % values.length;
+        values[tail] = value;
+        indexes[tail] = next++;
+
+        return values[head];
+    }
+
+    /**
+     * Returns the size of the window.
+     * 
+     * @return The size of the window.
+     */
+    int windowSize()
+    {
+        return windowSize;
+    }
+}
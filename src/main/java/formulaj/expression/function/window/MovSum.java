@@ -0,0 +1,54 @@
+/**
+ * Copyright (C) 2013 - 2015 Contributors.
+ *
+ * FormulaJ is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * FormulaJ is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see [http://www.gnu.org/licenses/].
+ *
+ * Contact: formulaj-user-list@googlegroups.com.
+ */
+package formulaj.expression.function.window;
+
+import formulaj.expression.Decimal;
+import formulaj.expression.function.math.StatefulFunction;
+
+/**
+ * <code>movsum(x, n)</code>: the sum of the last <code>n</code> values of <code>x</code>, or of all of them while there are fewer.
+ */
+public class MovSum extends StatefulFunction<MovingSum>
+{
+    /**
+     * Creates the {@link MovSum} function.
+     */
+    public MovSum()
+    {
+        super(2);
+    }
+
+    @Override
+    protected MovingSum newState(Decimal[] args)
+    {
+        return new MovingSum(windowSize(args[1]));
+    }
+
+    @Override
+    protected void check(MovingSum sum, Decimal[] args)
+    {
+        checkWindowSize(sum.windowSize(), args[1]);
+    }
+
+    @Override
+    protected Decimal eval(MovingSum sum, Decimal[] args)
+    {
+        return sum.add(args[0]);
+    }
+}
@@ -0,0 +1,88 @@
+/**
+ * Copyright (C) 2013 - 2015 Contributors.
+ *
+ * FormulaJ is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * FormulaJ is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see [http://www.gnu.org/licenses/].
+ *
+ * Contact: formulaj-user-list@googlegroups.com.
+ */
+package formulaj.expression.function.window;
+
+import formulaj.expression.Decimal;
+import formulaj.expression.MutableDecimal;
+
+/**
+ * The sum of the last values of a sequence, updated in constant time by adding the new value and subtracting the evicted one.
+ */
+final class MovingSum
+{
+    /**
+     * The values of the window.
+     */
+    private final RingWindow window;
+
+    /**
+     * The sum of the values of the window, updated in place.
+     */
+    private final MutableDecimal sum = new MutableDecimal();
+
+    /**
+     * Creates an empty {@link MovingSum}.
+     * 
+     * @param n
+     *            The size of the window.
+     */
+    MovingSum(int n)
+    {
+        this.window = new RingWindow(n);
+    }
+
+    /**
+     * Adds a value to the window.
+     * 
+     * @param value
+     *            The value to be added.
+     * @return The sum of the last values, including the given one.
+     */
+    Decimal add(Decimal value)
+    {
+        Decimal evicted = window.add(value);
+        sum.add(value);
+
+        if (evicted != null)
+        {
+            sum.subtract(evicted);
+        }
+        return sum.toDecimal();
+    }
+
+    /**
+     * Returns the number of values of the window.
+     * 
+     * @return The number of values of the window.
+     */
+    int size()
+    {
+        return window.size();
+    }
+
+    /**
+     * Returns the size of the window, which is the largest number of its values.
+     * 
+     * @return The size of the window.
+     */
+    int windowSize()
+    {
+        return window.capacity();
+    }
+}
@@ -0,0 +1,117 @@
+/**
+ * Copyright (C) 2013 - 2015 Contributors.
+ *
+ * FormulaJ is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * FormulaJ is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see [http://www.gnu.org/licenses/].
+ *
+ * Contact: formulaj-user-list@googlegroups.com.
+ */
+package formulaj.expression.function.window;
+
+import formulaj.expression.Decimal;
+
+/**
+ * The last values of a sequence, in a ring buffer of fixed capacity. Adding a value to a full window evicts the oldest one, in constant time.
+ */
+final class RingWindow
+{
+    /**
+     * The values of the window, from {@link #head}.
+     */
+    private final Decimal[] values;
+
+    /**
+     * The position of the oldest value.
+     */
+    private int head;
+
+    /**
+     * The number of values in the window.
+     */
+    private int size;
+
+    /**
+     * Creates an empty {@link RingWindow}.
+     * 
+     * @param capacity
+     *            The largest number of values of the window.
+     */
+    RingWindow(int capacity)
+    {
+        this.values = new Decimal[capacity];
+    }
+
+    /**
+     * Adds a value to the window.
+     * 
+     * @param value
+     *            The value to be added.
+     * @return The value evicted from the window, or <code>null</code> if it was not full.
+     */
+    Decimal add(Decimal value)
+    {
+        Decimal evicted = null;
+
+        if (size == values.length)
+        {
+            evicted = values[head];
+            values[head] = value;
+            head = (head + 1) % values.length;
+        }
+        else
+        {
+            values[(head + size++) % values.length] = value;
+        }
+        return evicted;
+    }
+
+    /**
+     * Returns the oldest value of the window.
+     * 
+     * @return The oldest value of the window, or <code>null</code> if it's empty.
+     */
+    Decimal oldest()
+    {
+        return values[head];
+    }
+
+    /**
+     * Returns the number of values of the window.
+     * 
+     * @return The number of values of the window.
+     */
+    int size()
+    {
+        return size;
+    }
+
+    /**
+     * Returns <code>true</code> if the window has its capacity of values.
+     * 
+     * @return <code>true</code> if the window is full.
+     */
+    boolean isFull()
+    {
+        return size == values.length;
+    }
+
+    /**
+     * Returns the largest number of values of the window.
+     * 
+     * @return The capacity of the window.
+     */
+    int capacity()
+    {
+        return values.length;
+    }
+}
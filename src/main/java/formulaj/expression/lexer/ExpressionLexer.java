@@ -69,7 +69,17 @@ public class ExpressionLexer extends AbstractLexer
                 return new Token(ExpressionTokens.RPARENTHESIS.getId(), ')');
             case '=':
                 consume();
+                if (current() == '=')
+                {
+                    consume();
+                    return new Token(ExpressionTokens.OP.getId(), "==");
+                }
                 return new Token(ExpressionTokens.EQUALS.getId(), '=');
+            case '<':
+            case '>':
+            case '&':
+            case '|':
+                return comparison();
             case ',':
                 consume();
                 return new Token(ExpressionTokens.COMMA.getId(), ",");
@@ -88,6 +98,32 @@ public class ExpressionLexer extends AbstractLexer
         return new Token(EOF_TYPE, ExpressionTokens.EOT.name());
     }
 
+    /**
+     * Reads a relational or a logical operator: <code>&lt; &lt;= &lt;&gt; &gt; &gt;= &amp;&amp; ||</code>.
+     * 
+     * @return The token of the operator.
+     */
+    private Token comparison()
+    {
+        char first = current();
+        consume();
+
+        char second = current();
+        boolean twoCharacters = first == '<' && (second == '=' || second == '>') || first == '>' && second == '='
+                || (first == '&' || first == '|') && second == first;
+
+        if (twoCharacters)
+        {
+            consume();
+            return new Token(ExpressionTokens.OP.getId(), new String(new char[] {first, second }));
+        }
+        else if (first == '&' || first == '|')
+        {
+            throw new Error("invalid character: " + first);
+        }
+        return new Token(ExpressionTokens.OP.getId(), first);
+    }
+
     @Override
     public String getTokenName(int tokenType)
     {
@@ -114,6 +114,16 @@ public abstract class Lexer
         return p;
     }
 
+    /**
+     * Returns the expression being analyzed.
+     * 
+     * @return The expression being analyzed.
+     */
+    public String getExpression()
+    {
+        return this.input;
+    }
+
     /**
      * Returns the size of the input.
      * 
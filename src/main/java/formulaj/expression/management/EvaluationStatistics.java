@@ -0,0 +1,176 @@
+/**
+ * Copyright (C) 2013 - 2015 Contributors.
+ *
+ * FormulaJ is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * FormulaJ is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see [http://www.gnu.org/licenses/].
+ *
+ * Contact: formulaj-user-list@googlegroups.com.
+ */
+package formulaj.expression.management;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import formulaj.expression.event.ExpressionEvent;
+import formulaj.expression.event.ExpressionEvent.Outcome;
+import formulaj.expression.event.ExpressionEvent.Phase;
+import formulaj.expression.event.ExpressionEventListener;
+
+/**
+ * Aggregates the {@link ExpressionEvent}s of the evaluations. It must be registered in the {@link formulaj.expression.event.ExpressionEvents} to
+ * receive the events.
+ */
+public class EvaluationStatistics implements EvaluationStatisticsMXBean, ExpressionEventListener
+{
+    /**
+     * The number of evaluations of each engine.
+     */
+    private final ConcurrentMap<String, AtomicLong> evaluationsByEngine = new ConcurrentHashMap<>();
+
+    /**
+     * The number of evaluations.
+     */
+    private final AtomicLong evaluations = new AtomicLong();
+
+    /**
+     * The number of evaluations that failed.
+     */
+    private final AtomicLong failures = new AtomicLong();
+
+    /**
+     * The sum of the evaluations' latency in nanoseconds.
+     */
+    private final AtomicLong totalLatency = new AtomicLong();
+
+    /**
+     * The maximum latency of the evaluations in nanoseconds.
+     */
+    private final AtomicLong maxLatency = new AtomicLong();
+
+    /**
+     * The number of expressions parsed.
+     */
+    private final AtomicLong parses = new AtomicLong();
+
+    /**
+     * The sum of the parse latency in nanoseconds.
+     */
+    private final AtomicLong totalParseLatency = new AtomicLong();
+
+    @Override
+    public void onEvent(ExpressionEvent event)
+    {
+        if (event.getPhase() == Phase.PARSE)
+        {
+            parses.incrementAndGet();
+            totalParseLatency.addAndGet(event.getDuration());
+        }
+        else if (event.getPhase() == Phase.EVALUATE)
+        {
+            evaluations.incrementAndGet();
+            totalLatency.addAndGet(event.getDuration());
+
+            if (event.getOutcome() == Outcome.FAILURE)
+            {
+                failures.incrementAndGet();
+            }
+
+            long max = maxLatency.get();
+            while (event.getDuration() > max && !maxLatency.compareAndSet(max, event.getDuration()))
+            {
+                max = maxLatency.get();
+            }
+
+            AtomicLong count = evaluationsByEngine.get(event.getSource());
+
+            if (count == null)
+            {
+                AtomicLong previous = evaluationsByEngine.putIfAbsent(event.getSource(), count = new AtomicLong());
+                count = previous == null ? count : previous;
+            }
+
+            count.incrementAndGet();
+        }
+    }
+
+    @Override
+    public long getEvaluationCount()
+    {
+        return evaluations.get();
+    }
+
+    @Override
+    public long getFailureCount()
+    {
+        return failures.get();
+    }
+
+    @Override
+    public Map<String, Long> getEvaluationCountByEngine()
+    {
+        Map<String, Long> counts = new TreeMap<>();
+
+        for (Map.Entry<String, AtomicLong> entry : evaluationsByEngine.entrySet())
+        {
+            counts.put(entry.getKey(), entry.getValue().get());
+        }
+
+        return counts;
+    }
+
+    @Override
+    public long getTotalLatency()
+    {
+        return totalLatency.get();
+    }
+
+    @Override
+    public double getMeanLatency()
+    {
+        long count = evaluations.get();
+        return count == 0 ? 0.d : (double) totalLatency.get() / count;
+    }
+
+    @Override
+    public long getMaxLatency()
+    {
+        return maxLatency.get();
+    }
+
+    @Override
+    public long getParseCount()
+    {
+        return parses.get();
+    }
+
+    @Override
+    public long getTotalParseLatency()
+    {
+        return totalParseLatency.get();
+    }
+
+    @Override
+    public void reset()
+    {
+        evaluationsByEngine.clear();
+        evaluations.set(0);
+        failures.set(0);
+        totalLatency.set(0);
+        maxLatency.set(0);
+        parses.set(0);
+        totalParseLatency.set(0);
+    }
+}
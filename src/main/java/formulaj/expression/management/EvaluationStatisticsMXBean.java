@@ -0,0 +1,88 @@
+/**
+ * Copyright (C) 2013 - 2015 Contributors.
+ *
+ * FormulaJ is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * FormulaJ is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see [http://www.gnu.org/licenses/].
+ *
+ * Contact: formulaj-user-list@googlegroups.com.
+ */
+package formulaj.expression.management;
+
+import java.util.Map;
+
+/**
+ * The management interface of the evaluation statistics of the system.
+ */
+public interface EvaluationStatisticsMXBean
+{
+    /**
+     * Returns the number of evaluations.
+     * 
+     * @return The number of evaluations.
+     */
+    long getEvaluationCount();
+
+    /**
+     * Returns the number of evaluations that failed.
+     * 
+     * @return The number of evaluations that failed.
+     */
+    long getFailureCount();
+
+    /**
+     * Returns the number of evaluations of each engine (evaluator).
+     * 
+     * @return A {@link Map} with the class name of the evaluators and their number of evaluations.
+     */
+    Map<String, Long> getEvaluationCountByEngine();
+
+    /**
+     * Returns the sum of the evaluations' latency in nanoseconds.
+     * 
+     * @return The sum of the evaluations' latency in nanoseconds.
+     */
+    long getTotalLatency();
+
+    /**
+     * Returns the mean latency of the evaluations in nanoseconds.
+     * 
+     * @return The mean latency of the evaluations in nanoseconds.
+     */
+    double getMeanLatency();
+
+    /**
+     * Returns the maximum latency of the evaluations in nanoseconds.
+     * 
+     * @return The maximum latency of the evaluations in nanoseconds.
+     */
+    long getMaxLatency();
+
+    /**
+     * Returns the number of expressions parsed.
+     * 
+     * @return The number of expressions parsed.
+     */
+    long getParseCount();
+
+    /**
+     * Returns the sum of the parse latency in nanoseconds.
+     * 
+     * @return The sum of the parse latency in nanoseconds.
+     */
+    long getTotalParseLatency();
+
+    /**
+     * Resets the statistics.
+     */
+    void reset();
+}
@@ -0,0 +1,92 @@
+/**
+ * Copyright (C) 2013 - 2015 Contributors.
+ *
+ * FormulaJ is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * FormulaJ is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see [http://www.gnu.org/licenses/].
+ *
+ * Contact: formulaj-user-list@googlegroups.com.
+ */
+package formulaj.expression.management;
+
+/**
+ * The management interface of an {@link formulaj.expression.compiler.ExpressionCache}.
+ */
+public interface ExpressionCacheMXBean
+{
+    /**
+     * Returns the number of compiled expressions in the cache.
+     * 
+     * @return The number of compiled expressions in the cache.
+     */
+    int getSize();
+
+    /**
+     * Returns the maximum number of compiled expressions of the cache.
+     * 
+     * @return The maximum number of compiled expressions of the cache.
+     */
+    int getMaximumSize();
+
+    /**
+     * Defines the maximum number of compiled expressions of the cache.
+     * 
+     * @param maximumSize
+     *            The maximum number of compiled expressions of the cache. Zero disables the cache.
+     */
+    void setMaximumSize(int maximumSize);
+
+    /**
+     * Returns the total number of tree nodes held by the cache.
+     * 
+     * @return The total number of tree nodes held by the cache.
+     */
+    long getNodeCount();
+
+    /**
+     * Returns the number of lookups that found the expression in the cache.
+     * 
+     * @return The number of lookups that found the expression in the cache.
+     */
+    long getHitCount();
+
+    /**
+     * Returns the number of lookups that compiled the expression.
+     * 
+     * @return The number of lookups that compiled the expression.
+     */
+    long getMissCount();
+
+    /**
+     * Returns the number of expressions evicted from the cache.
+     * 
+     * @return The number of expressions evicted from the cache.
+     */
+    long getEvictionCount();
+
+    /**
+     * Returns the ratio of lookups that found the expression in the cache.
+     * 
+     * @return The ratio of lookups that found the expression in the cache.
+     */
+    double getHitRate();
+
+    /**
+     * Removes all expressions of the cache.
+     */
+    void clear();
+
+    /**
+     * Resets the hit, miss and eviction counters.
+     */
+    void resetStatistics();
+}
@@ -0,0 +1,118 @@
+/**
+ * Copyright (C) 2013 - 2015 Contributors.
+ *
+ * FormulaJ is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * FormulaJ is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see [http://www.gnu.org/licenses/].
+ *
+ * Contact: formulaj-user-list@googlegroups.com.
+ */
+package formulaj.expression.management;
+
+import java.lang.management.ManagementFactory;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import formulaj.expression.event.ExpressionEvents;
+
+/**
+ * Registers the management beans of the system in the platform {@link MBeanServer}:
+ * 
+ * <ul>
+ * <li><code>formulaj:type=Registries</code>: the registered functions and operators.</li>
+ * <li><code>formulaj:type=ExpressionCache</code>: the shared cache of compiled expressions.</li>
+ * <li><code>formulaj:type=EvaluationStatistics</code>: the evaluation counts and latency.</li>
+ * </ul>
+ */
+public final class MBeans
+{
+    /**
+     * The name of the registries' bean.
+     */
+    public static final String REGISTRIES = "formulaj:type=Registries";
+
+    /**
+     * The name of the shared expression cache's bean.
+     */
+    public static final String EXPRESSION_CACHE = "formulaj:type=ExpressionCache";
+
+    /**
+     * The name of the evaluation statistics' bean.
+     */
+    public static final String EVALUATION_STATISTICS = "formulaj:type=EvaluationStatistics";
+
+    /**
+     * The statistics registered as a listener of the events. Guarded by {@link MBeans}.class.
+     */
+    private static EvaluationStatistics statistics;
+
+    /**
+     * Private constructor to avoid instance of this class.
+     */
+    private MBeans()
+    {
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * Registers the management beans in the platform {@link MBeanServer}. It does nothing if they are already registered.
+     * 
+     * @throws JMException
+     *             If the beans could not be registered.
+     */
+    public static synchronized void register() throws JMException
+    {
+        if (statistics != null)
+        {
+            return;
+        }
+
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        EvaluationStatistics stats = new EvaluationStatistics();
+
+        server.registerMBean(new Registries(), new ObjectName(REGISTRIES));
+        server.registerMBean(new ManagedExpressionCache(), new ObjectName(EXPRESSION_CACHE));
+        server.registerMBean(stats, new ObjectName(EVALUATION_STATISTICS));
+
+        ExpressionEvents.register(stats);
+        statistics = stats;
+    }
+
+    /**
+     * Removes the management beans of the platform {@link MBeanServer}.
+     * 
+     * @throws JMException
+     *             If the beans could not be removed.
+     */
+    public static synchronized void unregister() throws JMException
+    {
+        if (statistics == null)
+        {
+            return;
+        }
+
+        ExpressionEvents.unregister(statistics);
+        statistics = null;
+
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+
+        for (String name : new String[] {REGISTRIES, EXPRESSION_CACHE, EVALUATION_STATISTICS })
+        {
+            if (server.isRegistered(new ObjectName(name)))
+            {
+                server.unregisterMBean(new ObjectName(name));
+            }
+        }
+    }
+}
@@ -0,0 +1,110 @@
+/**
+ * Copyright (C) 2013 - 2015 Contributors.
+ *
+ * FormulaJ is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * FormulaJ is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see [http://www.gnu.org/licenses/].
+ *
+ * Contact: formulaj-user-list@googlegroups.com.
+ */
+package formulaj.expression.management;
+
+import java.util.Objects;
+
+import formulaj.expression.compiler.ExpressionCache;
+
+public class ManagedExpressionCache implements ExpressionCacheMXBean
+{
+    /**
+     * The managed cache.
+     */
+    private final ExpressionCache cache;
+
+    /**
+     * Creates a {@link ManagedExpressionCache} of the {@link ExpressionCache#shared()} cache.
+     */
+    public ManagedExpressionCache()
+    {
+        this(ExpressionCache.shared());
+    }
+
+    /**
+     * Creates a {@link ManagedExpressionCache} of a given cache.
+     * 
+     * @param expressionCache
+     *            The cache to be managed. Might not be <code>null</code>.
+     */
+    public ManagedExpressionCache(ExpressionCache expressionCache)
+    {
+        this.cache = Objects.requireNonNull(expressionCache);
+    }
+
+    @Override
+    public int getSize()
+    {
+        return cache.size();
+    }
+
+    @Override
+    public int getMaximumSize()
+    {
+        return cache.getMaximumSize();
+    }
+
+    @Override
+    public void setMaximumSize(int maximumSize)
+    {
+        cache.setMaximumSize(maximumSize);
+    }
+
+    @Override
+    public long getNodeCount()
+    {
+        return cache.nodeCount();
+    }
+
+    @Override
+    public long getHitCount()
+    {
+        return cache.getHitCount();
+    }
+
+    @Override
+    public long getMissCount()
+    {
+        return cache.getMissCount();
+    }
+
+    @Override
+    public long getEvictionCount()
+    {
+        return cache.getEvictionCount();
+    }
+
+    @Override
+    public double getHitRate()
+    {
+        return cache.hitRate();
+    }
+
+    @Override
+    public void clear()
+    {
+        cache.clear();
+    }
+
+    @Override
+    public void resetStatistics()
+    {
+        cache.resetStatistics();
+    }
+}
@@ -0,0 +1,96 @@
+/**
+ * Copyright (C) 2013 - 2015 Contributors.
+ *
+ * FormulaJ is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * FormulaJ is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see [http://www.gnu.org/licenses/].
+ *
+ * Contact: formulaj-user-list@googlegroups.com.
+ */
+package formulaj.expression.management;
+
+import java.util.Map;
+import java.util.TreeMap;
+
+import formulaj.common.base.ClassUtils;
+import formulaj.expression.function.Function;
+import formulaj.expression.function.Functions;
+import formulaj.expression.operators.Operator;
+import formulaj.expression.operators.Operators;
+
+@SuppressWarnings("rawtypes")
+public class Registries implements RegistriesMXBean
+{
+    @Override
+    public int getFunctionCount()
+    {
+        return Functions.getFunctions().size();
+    }
+
+    @Override
+    public Map<String, String> getFunctions()
+    {
+        Map<String, String> functions = new TreeMap<>();
+
+        for (Map.Entry<String, Function> entry : Functions.getFunctions().entrySet())
+        {
+            functions.put(entry.getKey(), entry.getValue().getClass().getName());
+        }
+
+        return functions;
+    }
+
+    @Override
+    public int getOperatorCount()
+    {
+        return Operators.getOperators().size();
+    }
+
+    @Override
+    public Map<String, String> getOperators()
+    {
+        Map<String, String> operators = new TreeMap<>();
+
+        for (Map.Entry<String, Operator> entry : Operators.getOperators().entrySet())
+        {
+            operators.put(entry.getKey(), entry.getValue().getClass().getName());
+        }
+
+        return operators;
+    }
+
+    @Override
+    public String registerFunction(String className)
+    {
+        Function<?> function = ClassUtils.newInstanceForName(className);
+
+        if (function == null)
+        {
+            throw new IllegalArgumentException(String.format("The class %s does not exist!", className));
+        }
+
+        Functions.register(function);
+        return function.name();
+    }
+
+    @Override
+    public boolean unregisterFunction(String name)
+    {
+        return Functions.unregister(name) != null;
+    }
+
+    @Override
+    public void reloadFunctions()
+    {
+        Functions.registerSystemFunctions();
+    }
+}
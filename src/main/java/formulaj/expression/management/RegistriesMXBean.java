@@ -0,0 +1,78 @@
+/**
+ * Copyright (C) 2013 - 2015 Contributors.
+ *
+ * FormulaJ is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * FormulaJ is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see [http://www.gnu.org/licenses/].
+ *
+ * Contact: formulaj-user-list@googlegroups.com.
+ */
+package formulaj.expression.management;
+
+import java.util.Map;
+
+/**
+ * The management interface of the {@link formulaj.expression.function.Functions} and {@link formulaj.expression.operators.Operators} registries.
+ */
+public interface RegistriesMXBean
+{
+    /**
+     * Returns the number of registered functions.
+     * 
+     * @return The number of registered functions.
+     */
+    int getFunctionCount();
+
+    /**
+     * Returns the registered functions.
+     * 
+     * @return A {@link Map} with the name of the functions and their class name.
+     */
+    Map<String, String> getFunctions();
+
+    /**
+     * Returns the number of registered operators.
+     * 
+     * @return The number of registered operators.
+     */
+    int getOperatorCount();
+
+    /**
+     * Returns the registered operators.
+     * 
+     * @return A {@link Map} with the symbol of the operators and their class name.
+     */
+    Map<String, String> getOperators();
+
+    /**
+     * Instantiates and registers the function of a given class. The class must have a public default constructor.
+     * 
+     * @param className
+     *            The full name of the function's class.
+     * @return The name of the registered function.
+     */
+    String registerFunction(String className);
+
+    /**
+     * Removes the function that has the given name.
+     * 
+     * @param name
+     *            The name of the function to be removed.
+     * @return <code>true</code> if the function was registered.
+     */
+    boolean unregisterFunction(String name);
+
+    /**
+     * Registers again the functions found on the classpath.
+     */
+    void reloadFunctions();
+}
@@ -18,6 +18,8 @@
  */
 package formulaj.expression.operators;
 
+import java.math.MathContext;
+
 import formulaj.expression.Decimal;
 
 
@@ -42,4 +44,17 @@ public interface ArithmeticalOperator extends Operator<Decimal>
      */
     Decimal evaluate(Decimal leftValue, Decimal rightValue);
 
+    /**
+     * Returns the value after the evaluation of the operands, rounded according to the given context.
+     * 
+     * @param leftValue
+     *            The value of the left operand.
+     * @param rightValue
+     *            The value of the right operand.
+     * @param context
+     *            The precision and the rounding mode of the value. Might not be <code>null</code>.
+     * @return The value of the evaluation. Might not be <code>null</code>.
+     */
+    Decimal evaluate(Decimal leftValue, Decimal rightValue, MathContext context);
+
 }
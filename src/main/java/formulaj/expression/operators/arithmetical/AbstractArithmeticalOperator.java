@@ -18,6 +18,8 @@
  */
 package formulaj.expression.operators.arithmetical;
 
+import java.math.MathContext;
+
 import formulaj.expression.Decimal;
 import formulaj.expression.operators.AbstractOperator;
 import formulaj.expression.operators.ArithmeticalOperator;
@@ -68,4 +70,15 @@ abstract class AbstractArithmeticalOperator extends AbstractOperator<Decimal> im
     {
         return this.neutralValue;
     }
+
+    /**
+     * Returns the exact value of the operands rounded according to the given context. The operators whose exact value might be costly override
+     * this method to compute the value with the context.
+     */
+    @Override
+    public Decimal evaluate(Decimal leftValue, Decimal rightValue, MathContext context)
+    {
+        Decimal value = this.evaluate(leftValue, rightValue);
+        return context.getPrecision() == 0 ? value : value.round(context);
+    }
 }
@@ -18,6 +18,8 @@
  */
 package formulaj.expression.operators.arithmetical;
 
+import java.math.MathContext;
+
 import formulaj.expression.Decimal;
 
 
@@ -36,4 +38,10 @@ public class AdditionOperator extends AbstractArithmeticalOperator
     {
         return leftValue.plus(rightValue);
     }
+
+    @Override
+    public Decimal evaluate(Decimal leftValue, Decimal rightValue, MathContext context)
+    {
+        return leftValue.plus(rightValue, context);
+    }
 }
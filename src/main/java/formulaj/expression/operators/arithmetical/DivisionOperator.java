@@ -18,6 +18,7 @@
  */
 package formulaj.expression.operators.arithmetical;
 
+import java.math.MathContext;
 
 import formulaj.expression.Decimal;
 
@@ -36,4 +37,10 @@ public class DivisionOperator extends AbstractArithmeticalOperator
     {
         return leftValue.div(rightValue);
     }
+
+    @Override
+    public Decimal evaluate(Decimal leftValue, Decimal rightValue, MathContext context)
+    {
+        return leftValue.div(rightValue, context);
+    }
 }
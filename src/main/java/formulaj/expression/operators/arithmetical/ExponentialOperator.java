@@ -18,6 +18,8 @@
  */
 package formulaj.expression.operators.arithmetical;
 
+import java.math.MathContext;
+
 import formulaj.expression.Decimal;
 
 
@@ -37,4 +39,10 @@ public class ExponentialOperator extends AbstractArithmeticalOperator
     {
         return leftValue.pow(rightValue.intValue());
     }
+
+    @Override
+    public Decimal evaluate(Decimal leftValue, Decimal rightValue, MathContext context)
+    {
+        return context.getPrecision() == 0 ? this.evaluate(leftValue, rightValue) : leftValue.pow(rightValue.intValue(), context);
+    }
 }
@@ -18,6 +18,8 @@
  */
 package formulaj.expression.operators.arithmetical;
 
+import java.math.MathContext;
+
 import formulaj.expression.Decimal;
 
 public class MultiplicationOperator extends AbstractArithmeticalOperator
@@ -36,4 +38,10 @@ public class MultiplicationOperator extends AbstractArithmeticalOperator
     {
         return leftValue.times(rightValue);
     }
+
+    @Override
+    public Decimal evaluate(Decimal leftValue, Decimal rightValue, MathContext context)
+    {
+        return leftValue.times(rightValue, context);
+    }
 }
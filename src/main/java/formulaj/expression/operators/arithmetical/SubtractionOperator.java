@@ -18,6 +18,7 @@
  */
 package formulaj.expression.operators.arithmetical;
 
+import java.math.MathContext;
 
 import formulaj.expression.Decimal;
 
@@ -37,4 +38,10 @@ public class SubtractionOperator extends AbstractArithmeticalOperator
     {
         return leftValue.minus(rightValue);
     }
+
+    @Override
+    public Decimal evaluate(Decimal leftValue, Decimal rightValue, MathContext context)
+    {
+        return leftValue.minus(rightValue, context);
+    }
 }
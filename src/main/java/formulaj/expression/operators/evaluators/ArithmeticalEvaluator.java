@@ -19,6 +19,7 @@
 package formulaj.expression.operators.evaluators;
 
 import formulaj.expression.Decimal;
+import formulaj.expression.PrecisionPolicy;
 import formulaj.expression.Value;
 import formulaj.expression.operators.ArithmeticalOperator;
 
@@ -38,36 +39,37 @@ public final class ArithmeticalEvaluator implements OperatorEvaluator<Decimal, A
     @Override
     public <T> Value<Decimal> eval(T leftValue, T rightValue, ArithmeticalOperator operator)
     {
+        PrecisionPolicy policy = PrecisionPolicy.current();
         Decimal nullValue = operator.getNeutralValue();
-        return new Value<>(operator.evaluate(asDecimal(leftValue, nullValue), asDecimal(rightValue, nullValue)));
+
+        return new Value<>(operator.evaluate(asDecimal(leftValue, nullValue, policy), asDecimal(rightValue, nullValue, policy), policy
+                .context(operator.symbol())));
     }
 
     /**
-     * Returns a value as a {@link BigDecimal}.
+     * Returns a value as a {@link Decimal}.
      * 
      * @param value
-     *            The value to be returned as a {@link BigDecimal}.
+     *            The value to be returned as a {@link Decimal}.
      * @param defaultValue
      *            The default value in case of the value is <code>null</code>. In an addition operation this value must be zero, multiplication it
      *            must be one.
+     * @param policy
+     *            The policy that converts the values that are not {@link Decimal}s.
      * @param <T>
      *            The type of the value.
-     * @return The value as a {@link BigDecimal} value.
+     * @return The value as a {@link Decimal} value.
      */
-    private <T> Decimal asDecimal(T value, T defaultValue)
+    private <T> Decimal asDecimal(T value, T defaultValue, PrecisionPolicy policy)
     {
         if (value instanceof Decimal)
         {
             return (Decimal) value;
         }
-        else
+        else if (value == null && defaultValue instanceof Decimal)
         {
-            if (value == null && defaultValue instanceof Decimal)
-            {
-                return (Decimal) defaultValue;
-            } 
-            
-            return Decimal.from(value == null ? defaultValue.toString() : value.toString());
+            return (Decimal) defaultValue;
         }
+        return policy.toDecimal(value == null ? defaultValue : value);
     }
 }
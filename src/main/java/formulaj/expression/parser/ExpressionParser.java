@@ -23,12 +23,17 @@ import java.util.List;
 import java.util.Stack;
 
 import formulaj.expression.Value;
+import formulaj.expression.event.ExpressionEvent.Outcome;
+import formulaj.expression.event.ExpressionEvent.Phase;
+import formulaj.expression.event.ExpressionEvents;
 import formulaj.expression.lexer.Lexer;
+import formulaj.expression.operators.Operators;
 import formulaj.expression.token.AssignToken;
 import formulaj.expression.token.BinaryOperatorToken;
 import formulaj.expression.token.ExpressionToken;
 import formulaj.expression.token.FunctionToken;
 import formulaj.expression.token.MathNodeToken;
+import formulaj.expression.token.Nodes;
 import formulaj.expression.token.NumberToken;
 import formulaj.expression.token.Token;
 import formulaj.expression.token.UnaryToken;
@@ -59,11 +64,6 @@ public class ExpressionParser<T> extends Parser
      */
     private final Stack<Token> operators = new Stack<>();
 
-    /**
-     * Flag that indicates a function call.
-     */
-    private boolean functionArgs;
-
     /**
      * Creates an instance of {@link ExpressionParser} with the given {@link Lexer}.
      * 
@@ -85,6 +85,35 @@ public class ExpressionParser<T> extends Parser
      *             If the given expression is invalid for this parser.
      */
     public <V> MathNodeToken<T, V> stat() throws RecognitionException
+    {
+        final long start = ExpressionEvents.start();
+        MathNodeToken<T, V> node = null;
+
+        try
+        {
+            node = this.<V> statement();
+            return node;
+        }
+        finally
+        {
+            if (start != 0L)
+            {
+                ExpressionEvents.fire(Phase.PARSE, getClass(), getInput().getExpression(), start, node == null ? -1 : Nodes.count(node),
+                        node == null ? Outcome.FAILURE : Outcome.SUCCESS);
+            }
+        }
+    }
+
+    /**
+     * stat: expression EOF | assign EOF.
+     * 
+     * @param <V>
+     *            The type of the node's value.
+     * @return A {@link ExpressionToken} instance or an {@link formulaj.expression.token.StatToken} instance.
+     * @throws RecognitionException
+     *             If the given expression is invalid for this parser.
+     */
+    private <V> MathNodeToken<T, V> statement() throws RecognitionException
     {
         MathNodeToken<T, V> node;
 
@@ -218,18 +247,7 @@ public class ExpressionParser<T> extends Parser
         boolean minusOrPlusSign = (LT(1).getText().equals("+") || LT(1).getText().equals("-")) && 
                 (LA(2) == ATOM.getId() || LA(2) == IDENT.getId() || newExpressionOrEOT);
 
-//        if (minusOrPlusSign && this.operands.isEmpty())
-//        {
-//            return true;
-//        }
-//        else if (minusOrPlusSign && !this.operands.isEmpty() && this.functionArgs)
-//        {
-//            return true;
-//        }
-//        
-//        return false;
-        
-        return (minusOrPlusSign && this.operands.isEmpty()) ? true : (minusOrPlusSign && !this.operands.isEmpty() && this.functionArgs);
+        return minusOrPlusSign && this.operands.isEmpty();
     }
 
     /**
@@ -259,6 +277,30 @@ public class ExpressionParser<T> extends Parser
      *             If it's an invalid expression.
      */
     private void expression() throws RecognitionException
+    {
+        rule(true);
+    }
+
+    /**
+     * Parses an arithmetic expression, which ends at a relational or a logical operator.
+     * 
+     * @throws RecognitionException
+     *             If it's an invalid expression.
+     */
+    private void arithmetic() throws RecognitionException
+    {
+        rule(false);
+    }
+
+    /**
+     * Parses an expression, with its result memoized while speculating.
+     * 
+     * @param comparisons
+     *            <code>true</code> if the expression might have relational and logical operators.
+     * @throws RecognitionException
+     *             If it's an invalid expression.
+     */
+    private void rule(boolean comparisons) throws RecognitionException
     {
         boolean failed = false;
         // get current token position.
@@ -279,7 +321,14 @@ public class ExpressionParser<T> extends Parser
 
         try
         {
-            expression(EOT.getId());
+            if (comparisons)
+            {
+                expression(EOT.getId());
+            }
+            else
+            {
+                arithmetic(EOT.getId());
+            }
         }
         catch (RecognitionException exception)
         {
@@ -297,6 +346,9 @@ public class ExpressionParser<T> extends Parser
     }
 
     /**
+     * expression: arithmetic (comparison arithmetic)*. The relational and logical operators join arithmetic expressions by their precedence, so
+     * <code>x * 2 &gt; y + 1 &amp;&amp; z &lt; 3</code> is <code>((x * 2) &gt; (y + 1)) &amp;&amp; (z &lt; 3)</code>.
+     * 
      * @param endWithToken
      *            The expected token to finish the walk.
      * @throws RecognitionException
@@ -304,7 +356,105 @@ public class ExpressionParser<T> extends Parser
      */
     private void expression(int endWithToken) throws RecognitionException
     {
-        while (LA(1) != endWithToken)
+        Stack<ExpressionToken<T, Value<T>>> terms = new Stack<>();
+        Stack<Token> comparisons = new Stack<>();
+
+        terms.push(comparand(endWithToken));
+
+        while (isComparison(LT(1)))
+        {
+            Token comparison = LT(1);
+            match(OP.getId());
+
+            while (!comparisons.isEmpty() && precedence(comparisons.peek()) >= precedence(comparison))
+            {
+                reduce(terms, comparisons);
+            }
+
+            comparisons.push(comparison);
+            terms.push(comparand(endWithToken));
+        }
+
+        while (!comparisons.isEmpty())
+        {
+            reduce(terms, comparisons);
+        }
+
+        operands.push(terms.pop());
+    }
+
+    /**
+     * Parses an arithmetic expression between relational or logical operators. The operands of the enclosing expression are not visible while
+     * it's parsed, so a leading sign is a unary operator.
+     * 
+     * @param endWithToken
+     *            The expected token to finish the walk.
+     * @return The node of the arithmetic expression.
+     * @throws RecognitionException
+     *             If it's an invalid expression.
+     */
+    private ExpressionToken<T, Value<T>> comparand(int endWithToken) throws RecognitionException
+    {
+        Stack<Object> enclosing = new Stack<>();
+        enclosing.addAll(operands);
+        operands.clear();
+
+        try
+        {
+            arithmetic(endWithToken);
+
+            if (operands.isEmpty())
+            {
+                throw new NoViableAltException("expecting ATOM|IDENT|FUNCTION|EXPRESSION; found " + LT(1));
+            }
+
+            return (ExpressionToken<T, Value<T>>) operands.pop();
+        }
+        finally
+        {
+            operands.clear();
+            operands.addAll(enclosing);
+        }
+    }
+
+    /**
+     * Joins the last two terms with the last relational or logical operator.
+     * 
+     * @param terms
+     *            The terms of the expression.
+     * @param comparisons
+     *            The relational and logical operators not joined yet.
+     */
+    private void reduce(Stack<ExpressionToken<T, Value<T>>> terms, Stack<Token> comparisons)
+    {
+        ExpressionToken<T, Value<T>> right = terms.pop();
+        ExpressionToken<T, Value<T>> left = terms.pop();
+        terms.push((ExpressionToken<T, Value<T>>) (AST) new BinaryOperatorToken<T>(comparisons.pop(), left, right));
+    }
+
+    /**
+     * Returns <code>true</code> if the given token is a relational or a logical operator.
+     * 
+     * @param token
+     *            The token to be checked.
+     * @return <code>true</code> if the given token is a relational or a logical operator.
+     */
+    private boolean isComparison(Token token)
+    {
+        return token.getType() == OP.getId() && precedence(token) < 5;
+    }
+
+    /**
+     * Parses the arithmetic operators until a relational or a logical operator.
+     * 
+     * @param endWithToken
+     *            The expected token to finish the walk.
+     * @throws RecognitionException
+     *             If it's an invalid expression.
+     */
+    private void arithmetic(int endWithToken) throws RecognitionException
+    {
+        while (LA(1) != endWithToken && !isComparison(LT(1)))
         {
             if (LA(1) == ATOM.getId())
             {
@@ -407,7 +557,7 @@ public class ExpressionParser<T> extends Parser
         }
         else
         {
-            expression();
+            arithmetic();
         }
         
         if (operands.isEmpty())
@@ -557,7 +707,7 @@ public class ExpressionParser<T> extends Parser
         }
         else if (isHighPrecedenceOperator())
         {
-            expression();
+            arithmetic();
         }
         else if (isAtomTerm())
         {
@@ -591,7 +741,7 @@ public class ExpressionParser<T> extends Parser
         }
         else
         {
-            expression();
+            arithmetic();
         }
     }
 
@@ -648,14 +798,10 @@ public class ExpressionParser<T> extends Parser
         match(IDENT.getId());
         match(LPARENTHESIS.getId());
 
-        functionArgs = true;
-
         List<ExpressionToken<T, Value<T>>> args = args();
 
         match(RPARENTHESIS.getId());
 
-        functionArgs = false;
-
         return new FunctionToken<T>(new Token(FUNCTION_CALL.getId(), ident.getText()), args);
 
     }
@@ -698,12 +844,44 @@ public class ExpressionParser<T> extends Parser
     }
 
     /**
+     * arg: expression. An argument is parsed as a whole expression, with relational and logical operators, which ends at a comma or at the
+     * parenthesis of the call. The operands and operators of the enclosing expression are not visible while it's parsed.
+     * 
      * @throws RecognitionException
      *             If it's an invalid argument.
      */
     private void arg() throws RecognitionException
     {
-        term();
+        Stack<Object> enclosingOperands = new Stack<>();
+        enclosingOperands.addAll(operands);
+        operands.clear();
+
+        Stack<Token> enclosingOperators = new Stack<>();
+        enclosingOperators.addAll(operators);
+        operators.clear();
+
+        Object argument;
+
+        try
+        {
+            expression(COMMA.getId());
+
+            if (operands.isEmpty())
+            {
+                throw new NoViableAltException("expecting ATOM|IDENT|FUNCTION|EXPRESSION; found " + LT(1));
+            }
+
+            argument = operands.pop();
+        }
+        finally
+        {
+            operands.clear();
+            operands.addAll(enclosingOperands);
+            operators.clear();
+            operators.addAll(enclosingOperators);
+        }
+
+        operands.push(argument);
     }
 
     /**
@@ -721,6 +899,12 @@ public class ExpressionParser<T> extends Parser
         case '*':
         case '%':
             return 6;
+        case '<':
+        case '>':
+        case '=':
+        case '&':
+        case '|':
+            return Operators.getOperatorBySymbol(token.getText()).precedence();
         case '+':
         case '-':
         default:
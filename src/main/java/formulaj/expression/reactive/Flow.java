@@ -0,0 +1,110 @@
+/**
+ * Copyright (C) 2013 - 2015 Contributors.
+ *
+ * FormulaJ is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * FormulaJ is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see [http://www.gnu.org/licenses/].
+ *
+ * Contact: formulaj-user-list@googlegroups.com.
+ */
+package formulaj.expression.reactive;
+
+/**
+ * The interfaces of the reactive streams, with the same contract of the <code>java.util.concurrent.Flow</code> interfaces, which are not
+ * available in the Java version supported by this library. A subscriber receives items only after it requests them, so a slow subscriber is
+ * never flooded by a fast publisher.
+ */
+public final class Flow
+{
+    /**
+     * Private constructor to avoid instance of this class.
+     */
+    private Flow()
+    {
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * A producer of items received by {@link Subscriber}s.
+     * 
+     * @param <T>
+     *            The type of the published items.
+     */
+    public interface Publisher<T>
+    {
+        /**
+         * Adds a subscriber. The subscriber receives a {@link Subscription} through {@link Subscriber#onSubscribe(Subscription)} and then the
+         * items that it requests.
+         * 
+         * @param subscriber
+         *            The subscriber to be added. Might not be <code>null</code>.
+         */
+        void subscribe(Subscriber<? super T> subscriber);
+    }
+
+    /**
+     * A receiver of the items of a {@link Publisher}. The methods of a subscriber are never called at the same time.
+     * 
+     * @param <T>
+     *            The type of the received items.
+     */
+    public interface Subscriber<T>
+    {
+        /**
+         * Called before any other method, with the subscription used to request items.
+         * 
+         * @param subscription
+         *            The subscription of this subscriber.
+         */
+        void onSubscribe(Subscription subscription);
+
+        /**
+         * Receives a requested item.
+         * 
+         * @param item
+         *            The item.
+         */
+        void onNext(T item);
+
+        /**
+         * Receives the error that ended the subscription. No method is called after it.
+         * 
+         * @param throwable
+         *            The error.
+         */
+        void onError(Throwable throwable);
+
+        /**
+         * Notifies that the publisher will not publish more items. No method is called after it.
+         */
+        void onComplete();
+    }
+
+    /**
+     * The link between a {@link Publisher} and a {@link Subscriber}.
+     */
+    public interface Subscription
+    {
+        /**
+         * Requests more items. The requests are cumulative.
+         * 
+         * @param n
+         *            The number of items. It must be positive.
+         */
+        void request(long n);
+
+        /**
+         * Stops the delivery of items. Items already in delivery might still be received.
+         */
+        void cancel();
+    }
+}
@@ -0,0 +1,232 @@
+/**
+ * Copyright (C) 2013 - 2015 Contributors.
+ *
+ * FormulaJ is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * FormulaJ is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see [http://www.gnu.org/licenses/].
+ *
+ * Contact: formulaj-user-list@googlegroups.com.
+ */
+package formulaj.expression.reactive;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import formulaj.expression.reactive.Flow.Subscriber;
+import formulaj.expression.reactive.Flow.Subscription;
+
+/**
+ * A {@link Subscription} that keeps only the latest item not delivered yet. When the subscriber does not request items as fast as they are
+ * published, the intermediate items are dropped and the subscriber receives the most recent one on its next request.
+ * 
+ * @param <T>
+ *            The type of the items.
+ */
+final class LatestValueSubscription<T> implements Subscription
+{
+    /**
+     * The subscriber that receives the items.
+     */
+    private final Subscriber<? super T> subscriber;
+
+    /**
+     * The publisher of the items.
+     */
+    private final ReactiveExpression<?> publisher;
+
+    /**
+     * The number of items requested and not delivered yet.
+     */
+    private final AtomicLong requested = new AtomicLong();
+
+    /**
+     * The latest item not delivered yet.
+     */
+    private final AtomicReference<T> latest = new AtomicReference<>();
+
+    /**
+     * The latest item offered to this subscription. It's guarded by the lock of this subscription.
+     */
+    private T offered;
+
+    /**
+     * The version of the latest item offered to this subscription. It's guarded by the lock of this subscription.
+     */
+    private long offeredVersion;
+
+    /**
+     * The number of pending calls of {@link #drain()}. Only the caller that increments it from zero delivers the items.
+     */
+    private final AtomicInteger wip = new AtomicInteger();
+
+    /**
+     * The error that ends this subscription.
+     */
+    private volatile Throwable error;
+
+    /**
+     * Flag that indicates if the publisher has ended this subscription.
+     */
+    private volatile boolean done;
+
+    /**
+     * Flag that indicates if the subscriber has cancelled this subscription or if it has received the terminal signal.
+     */
+    private volatile boolean cancelled;
+
+    /**
+     * Creates a subscription.
+     * 
+     * @param receiver
+     *            The subscriber that receives the items.
+     * @param expression
+     *            The publisher of the items.
+     */
+    LatestValueSubscription(Subscriber<? super T> receiver, ReactiveExpression<?> expression)
+    {
+        this.subscriber = receiver;
+        this.publisher = expression;
+    }
+
+    @Override
+    public void request(long n)
+    {
+        if (n <= 0)
+        {
+            this.fail(new IllegalArgumentException("The number of requested items must be positive: " + n));
+            return;
+        }
+
+        long current;
+        long next;
+
+        do
+        {
+            current = requested.get();
+            next = current + n < 0 ? Long.MAX_VALUE : current + n;
+        } while (!requested.compareAndSet(current, next));
+
+        drain();
+    }
+
+    @Override
+    public void cancel()
+    {
+        cancelled = true;
+        publisher.remove(this);
+    }
+
+    /**
+     * Publishes an item. It replaces the latest item if it was not delivered yet. An item older than the latest one offered, or the same item
+     * offered again, is ignored, so the value offered to a new subscription and the value published at the same time are delivered once and
+     * in order.
+     * 
+     * @param item
+     *            The item to be published.
+     * @param version
+     *            The version of the item, which grows with each new item of the publisher.
+     */
+    void offer(T item, long version)
+    {
+        synchronized (this)
+        {
+            if (version < offeredVersion || item == offered)
+            {
+                offeredVersion = Math.max(offeredVersion, version);
+                return;
+            }
+
+            offered = item;
+            offeredVersion = version;
+            latest.set(item);
+        }
+        drain();
+    }
+
+    /**
+     * Ends this subscription with {@link Subscriber#onComplete()}.
+     */
+    void complete()
+    {
+        done = true;
+        drain();
+    }
+
+    /**
+     * Ends this subscription with {@link Subscriber#onError(Throwable)}.
+     * 
+     * @param throwable
+     *            The error sent to the subscriber.
+     */
+    void fail(Throwable throwable)
+    {
+        error = throwable;
+        done = true;
+        drain();
+    }
+
+    /**
+     * Delivers the latest item, if it was requested, and the terminal signal. The subscriber's methods are called by one thread at a time.
+     */
+    private void drain()
+    {
+        if (wip.getAndIncrement() != 0)
+        {
+            return;
+        }
+
+        int missed = 1;
+
+        for (;;)
+        {
+            if (!cancelled)
+            {
+                if (done)
+                {
+                    cancelled = true;
+                    publisher.remove(this);
+
+                    if (error != null)
+                    {
+                        subscriber.onError(error);
+                    }
+                    else
+                    {
+                        subscriber.onComplete();
+                    }
+                }
+                else if (requested.get() > 0)
+                {
+                    T item = latest.getAndSet(null);
+
+                    if (item != null)
+                    {
+                        if (requested.get() != Long.MAX_VALUE)
+                        {
+                            requested.decrementAndGet();
+                        }
+
+                        subscriber.onNext(item);
+                    }
+                }
+            }
+
+            missed = wip.addAndGet(-missed);
+
+            if (missed == 0)
+            {
+                return;
+            }
+        }
+    }
+}
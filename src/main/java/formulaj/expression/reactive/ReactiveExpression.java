@@ -0,0 +1,371 @@
+/**
+ * Copyright (C) 2013 - 2015 Contributors.
+ *
+ * FormulaJ is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * FormulaJ is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see [http://www.gnu.org/licenses/].
+ *
+ * Contact: formulaj-user-list@googlegroups.com.
+ */
+package formulaj.expression.reactive;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import formulaj.expression.EvaluationException;
+import formulaj.expression.Value;
+import formulaj.expression.Variable;
+import formulaj.expression.VariableListener;
+import formulaj.expression.compiler.CompiledExpression;
+import formulaj.expression.evaluator.impl.ExpressionEvaluator;
+import formulaj.expression.reactive.Flow.Publisher;
+import formulaj.expression.reactive.Flow.Subscriber;
+
+/**
+ * A {@link CompiledExpression} that listens to its input {@link Variable}s and publishes its value whenever one of them changes. The
+ * evaluation runs on an {@link Executor} and the changes that arrive while an evaluation is pending or running are coalesced into one
+ * evaluation, so a burst of updates costs one evaluation instead of one per update. Assigning a variable its current value does not trigger an
+ * evaluation, and a result equal to the last one is not published. Each subscriber receives only the values that it requests;
+ * a slow subscriber receives the most recent value instead of a backlog.
+ * 
+ * <pre>
+ * Variable&lt;Decimal&gt; price = new Variable&lt;&gt;(&quot;price&quot;);
+ * ReactiveExpression&lt;Decimal&gt; total = ReactiveExpression.bind(CompiledExpression.&lt;Decimal&gt; compile(&quot;price * qty&quot;), executor, price, qty);
+ * total.subscribe(subscriber);
+ * price.setValue(Decimal.from(10));
+ * </pre>
+ * 
+ * @param <T>
+ *            The type of the expression's value.
+ */
+public final class ReactiveExpression<T> implements Publisher<Value<T>>, VariableListener<T>, AutoCloseable
+{
+    /**
+     * The expression to be evaluated.
+     */
+    private final CompiledExpression<T> expression;
+
+    /**
+     * The input variables of the expression. The key is the variable's name.
+     */
+    private final Map<String, Variable<T>> inputs = new LinkedHashMap<>();
+
+    /**
+     * The evaluator that resolves the input variables.
+     */
+    private final ExpressionEvaluator<T> evaluator = new ExpressionEvaluator<>();
+
+    /**
+     * The executor of the evaluations.
+     */
+    private final Executor executor;
+
+    /**
+     * The subscriptions of this publisher.
+     */
+    private final List<LatestValueSubscription<Value<T>>> subscriptions = new CopyOnWriteArrayList<>();
+
+    /**
+     * The number of changes not evaluated yet. Only the change that increments it from zero schedules an evaluation.
+     */
+    private final AtomicInteger wip = new AtomicInteger();
+
+    /**
+     * The number of evaluations of the expression.
+     */
+    private final AtomicLong evaluations = new AtomicLong();
+
+    /**
+     * The task that evaluates the expression until there are no changes left.
+     */
+    private final Runnable recompute = new Runnable()
+    {
+        @Override
+        public void run()
+        {
+            recompute();
+        }
+    };
+
+    /**
+     * The last value of the expression.
+     */
+    private volatile Value<T> last;
+
+    /**
+     * The number of values published, which is the version of {@link #last}. It's only written by the evaluation, after {@link #last}.
+     */
+    private volatile long version;
+
+    /**
+     * Flag that indicates if this publisher was closed.
+     */
+    private volatile boolean closed;
+
+    /**
+     * Creates a {@link ReactiveExpression}.
+     * 
+     * @param compiled
+     *            The expression to be evaluated.
+     * @param evaluations
+     *            The executor of the evaluations.
+     */
+    private ReactiveExpression(CompiledExpression<T> compiled, Executor evaluations)
+    {
+        this.expression = Objects.requireNonNull(compiled);
+        this.executor = Objects.requireNonNull(evaluations);
+    }
+
+    /**
+     * Creates a {@link ReactiveExpression} that listens to the given variables. A new variable without value is created for each variable of the
+     * expression not given. If all variables have a value, the expression is evaluated right away.
+     * 
+     * @param expression
+     *            The expression to be evaluated. Might not be <code>null</code>.
+     * @param executor
+     *            The executor of the evaluations. Might not be <code>null</code>.
+     * @param bindings
+     *            The input variables. They can be shared by many expressions. The variables not read by the expression are ignored.
+     * @param <T>
+     *            The type of the expression's value.
+     * @return A {@link ReactiveExpression} bound to the given variables.
+     */
+    @SafeVarargs
+    public static <T> ReactiveExpression<T> bind(CompiledExpression<T> expression, Executor executor, Variable<T>... bindings)
+    {
+        ReactiveExpression<T> reactive = new ReactiveExpression<>(expression, executor);
+
+        Map<String, Variable<T>> given = new LinkedHashMap<>();
+
+        for (Variable<T> binding : bindings)
+        {
+            given.put(binding.name(), binding);
+        }
+
+        for (String name : expression.variables())
+        {
+            Variable<T> input = given.get(name);
+
+            if (input == null)
+            {
+                input = new Variable<>(name);
+            }
+
+            reactive.inputs.put(name, input);
+            reactive.evaluator.register(input);
+            input.addListener(reactive);
+        }
+
+        reactive.valueChanged(null, null, null);
+
+        return reactive;
+    }
+
+    @Override
+    public void valueChanged(Variable<T> variable, Value<T> oldValue, Value<T> newValue)
+    {
+        if (variable != null && Objects.equals(newValue, oldValue))
+        {
+            return;
+        }
+
+        if (!closed && wip.getAndIncrement() == 0)
+        {
+            executor.execute(recompute);
+        }
+    }
+
+    @Override
+    public void subscribe(Subscriber<? super Value<T>> subscriber)
+    {
+        LatestValueSubscription<Value<T>> subscription = new LatestValueSubscription<Value<T>>(Objects.requireNonNull(subscriber), this);
+        subscriber.onSubscribe(subscription);
+        subscriptions.add(subscription);
+
+        if (closed)
+        {
+            subscription.complete();
+        }
+        else
+        {
+            long published = version;
+            Value<T> value = last;
+
+            if (value != null)
+            {
+                subscription.offer(value, published);
+            }
+        }
+    }
+
+    /**
+     * Evaluates the expression and publishes its value if it has changed. The changes that arrived before the evaluation are all covered by it, and
+     * the evaluation is repeated only if there are changes that arrived during it.
+     */
+    private void recompute()
+    {
+        for (;;)
+        {
+            int changes = wip.get();
+
+            if (!closed && ready())
+            {
+                try
+                {
+                    Value<T> value = expression.evaluate(evaluator);
+                    evaluations.incrementAndGet();
+
+                    if (!value.equals(last))
+                    {
+                        last = value;
+                        publish(value, ++version);
+                    }
+                }
+                catch (EvaluationException | RuntimeException exception)
+                {
+                    for (LatestValueSubscription<Value<T>> subscription : subscriptions)
+                    {
+                        subscription.fail(exception);
+                    }
+                }
+            }
+
+            if (wip.addAndGet(-changes) == 0)
+            {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Offers a new value to the subscriptions.
+     * 
+     * @param value
+     *            The value to be published.
+     * @param published
+     *            The version of the value.
+     */
+    private void publish(Value<T> value, long published)
+    {
+        for (LatestValueSubscription<Value<T>> subscription : subscriptions)
+        {
+            subscription.offer(value, published);
+        }
+    }
+
+    /**
+     * Returns <code>true</code> if all input variables have a value.
+     * 
+     * @return <code>true</code> if all input variables have a value.
+     */
+    private boolean ready()
+    {
+        for (Variable<T> input : inputs.values())
+        {
+            if (input.value() == null)
+            {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Removes a subscription.
+     * 
+     * @param subscription
+     *            The subscription to be removed.
+     */
+    void remove(LatestValueSubscription<?> subscription)
+    {
+        subscriptions.remove(subscription);
+    }
+
+    /**
+     * Stops listening to the input variables and completes the subscriptions.
+     */
+    @Override
+    public void close()
+    {
+        closed = true;
+
+        for (Variable<T> input : inputs.values())
+        {
+            input.removeListener(this);
+        }
+
+        for (LatestValueSubscription<Value<T>> subscription : subscriptions)
+        {
+            subscription.complete();
+        }
+    }
+
+    /**
+     * Returns the input variable that has the given name.
+     * 
+     * @param name
+     *            The name of the variable.
+     * @return The input variable that has the given name or <code>null</code> if the expression does not read it.
+     */
+    public Variable<T> getVariableByName(String name)
+    {
+        return inputs.get(name);
+    }
+
+    /**
+     * Returns a read-only {@link Map} with the input variables of the expression.
+     * 
+     * @return A read-only {@link Map} with the input variables of the expression. The key is the variable's name.
+     */
+    public Map<String, Variable<T>> variables()
+    {
+        return Collections.unmodifiableMap(inputs);
+    }
+
+    /**
+     * Returns the expression of this publisher.
+     * 
+     * @return The expression of this publisher.
+     */
+    public CompiledExpression<T> expression()
+    {
+        return expression;
+    }
+
+    /**
+     * Returns the last published value.
+     * 
+     * @return The last published value or <code>null</code> if the expression was not evaluated yet.
+     */
+    public Value<T> lastValue()
+    {
+        return last;
+    }
+
+    /**
+     * Returns the number of evaluations of the expression.
+     * 
+     * @return The number of evaluations of the expression.
+     */
+    public long getEvaluationCount()
+    {
+        return evaluations.get();
+    }
+}
@@ -0,0 +1,71 @@
+/**
+ * Copyright (C) 2013 - 2015 Contributors.
+ *
+ * FormulaJ is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * FormulaJ is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see [http://www.gnu.org/licenses/].
+ *
+ * Contact: formulaj-user-list@googlegroups.com.
+ */
+package formulaj.expression.stream;
+
+/**
+ * A reduction of values into a result, with the same contract of the <code>java.util.stream.Collector</code>, which is not available in the Java
+ * version supported by this library. The values are accumulated into mutable containers; containers filled by different threads are combined
+ * and the final container is converted to the result.
+ * 
+ * @param <V>
+ *            The type of the values.
+ * @param <A>
+ *            The type of the mutable container.
+ * @param <R>
+ *            The type of the result.
+ */
+public interface Aggregator<V, A, R>
+{
+    /**
+     * Creates an empty container.
+     * 
+     * @return A new empty container.
+     */
+    A create();
+
+    /**
+     * Adds a value to a container.
+     * 
+     * @param container
+     *            The container.
+     * @param value
+     *            The value to be added.
+     */
+    void accumulate(A container, V value);
+
+    /**
+     * Combines two containers.
+     * 
+     * @param left
+     *            The container of the first values.
+     * @param right
+     *            The container of the last values.
+     * @return The container with the values of both containers. It might be one of them.
+     */
+    A combine(A left, A right);
+
+    /**
+     * Converts a container to the result.
+     * 
+     * @param container
+     *            The container.
+     * @return The result.
+     */
+    R finish(A container);
+}
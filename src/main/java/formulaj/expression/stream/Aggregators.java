@@ -0,0 +1,192 @@
+/**
+ * Copyright (C) 2013 - 2015 Contributors.
+ *
+ * FormulaJ is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * FormulaJ is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see [http://www.gnu.org/licenses/].
+ *
+ * Contact: formulaj-user-list@googlegroups.com.
+ */
+package formulaj.expression.stream;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import formulaj.expression.Decimal;
+import formulaj.expression.Value;
+
+/**
+ * Factory of common {@link Aggregator}s.
+ */
+public final class Aggregators
+{
+    /**
+     * Private constructor to avoid instance of this class.
+     */
+    private Aggregators()
+    {
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * Returns an {@link Aggregator} of the number of the values. The <code>null</code> values are not counted.
+     * 
+     * @return An {@link Aggregator} of the number of the values.
+     */
+    public static Aggregator<Value<Decimal>, ?, Long> count()
+    {
+        return new SummaryAggregator<Long>()
+        {
+            @Override
+            public Long finish(Summary container)
+            {
+                return container.count();
+            }
+        };
+    }
+
+    /**
+     * Returns an {@link Aggregator} of the sum of the values. The <code>null</code> values are ignored.
+     * 
+     * @return An {@link Aggregator} of the sum of the values.
+     */
+    public static Aggregator<Value<Decimal>, ?, Decimal> sum()
+    {
+        return new SummaryAggregator<Decimal>()
+        {
+            @Override
+            public Decimal finish(Summary container)
+            {
+                return container.sum();
+            }
+        };
+    }
+
+    /**
+     * Returns an {@link Aggregator} of the smallest of the values. The <code>null</code> values are ignored.
+     * 
+     * @return An {@link Aggregator} of the smallest of the values.
+     */
+    public static Aggregator<Value<Decimal>, ?, Decimal> min()
+    {
+        return new SummaryAggregator<Decimal>()
+        {
+            @Override
+            public Decimal finish(Summary container)
+            {
+                return container.min();
+            }
+        };
+    }
+
+    /**
+     * Returns an {@link Aggregator} of the greatest of the values. The <code>null</code> values are ignored.
+     * 
+     * @return An {@link Aggregator} of the greatest of the values.
+     */
+    public static Aggregator<Value<Decimal>, ?, Decimal> max()
+    {
+        return new SummaryAggregator<Decimal>()
+        {
+            @Override
+            public Decimal finish(Summary container)
+            {
+                return container.max();
+            }
+        };
+    }
+
+    /**
+     * Returns an {@link Aggregator} of the arithmetic mean of the values. The <code>null</code> values are ignored.
+     * 
+     * @return An {@link Aggregator} of the arithmetic mean of the values.
+     */
+    public static Aggregator<Value<Decimal>, ?, Decimal> average()
+    {
+        return new SummaryAggregator<Decimal>()
+        {
+            @Override
+            public Decimal finish(Summary container)
+            {
+                return container.average();
+            }
+        };
+    }
+
+    /**
+     * Returns an {@link Aggregator} that collects the values into a {@link List}, in their order.
+     * 
+     * @param <V>
+     *            The type of the values.
+     * @return An {@link Aggregator} that collects the values into a {@link List}.
+     */
+    public static <V> Aggregator<V, ?, List<V>> toList()
+    {
+        return new Aggregator<V, List<V>, List<V>>()
+        {
+            @Override
+            public List<V> create()
+            {
+                return new ArrayList<>();
+            }
+
+            @Override
+            public void accumulate(List<V> container, V value)
+            {
+                container.add(value);
+            }
+
+            @Override
+            public List<V> combine(List<V> left, List<V> right)
+            {
+                left.addAll(right);
+                return left;
+            }
+
+            @Override
+            public List<V> finish(List<V> container)
+            {
+                return container;
+            }
+        };
+    }
+
+    /**
+     * An {@link Aggregator} of {@link Decimal} values whose container is a {@link Summary}.
+     * 
+     * @param <R>
+     *            The type of the result.
+     */
+    private abstract static class SummaryAggregator<R> implements Aggregator<Value<Decimal>, Summary, R>
+    {
+        @Override
+        public Summary create()
+        {
+            return new Summary();
+        }
+
+        @Override
+        public void accumulate(Summary container, Value<Decimal> value)
+        {
+            if (value != null)
+            {
+                container.add(value.getValue());
+            }
+        }
+
+        @Override
+        public Summary combine(Summary left, Summary right)
+        {
+            return left.merge(right);
+        }
+    }
+}
@@ -0,0 +1,97 @@
+/**
+ * Copyright (C) 2013 - 2015 Contributors.
+ *
+ * FormulaJ is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * FormulaJ is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see [http://www.gnu.org/licenses/].
+ *
+ * Contact: formulaj-user-list@googlegroups.com.
+ */
+package formulaj.expression.stream;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+import formulaj.expression.EvaluationException;
+import formulaj.expression.Value;
+import formulaj.expression.compiler.CompiledExpression;
+import formulaj.expression.evaluator.impl.BindingEvaluator;
+
+/**
+ * An {@link Iterator} that evaluates an expression for each frame of bindings of another iterator, only when the value is requested. It holds
+ * only the current frame, so its memory does not depend on the number of frames.
+ * 
+ * @param <T>
+ *            The type of the expression's value.
+ */
+final class EvaluatingIterator<T> implements Iterator<Value<T>>
+{
+    /**
+     * The expression to be evaluated.
+     */
+    private final CompiledExpression<T> expression;
+
+    /**
+     * The frames of bindings.
+     */
+    private final Iterator<? extends Map<String, ?>> frames;
+
+    /**
+     * The evaluator that reads the current frame.
+     */
+    private final BindingEvaluator<T> evaluator = new BindingEvaluator<>();
+
+    /**
+     * Creates an {@link EvaluatingIterator}.
+     * 
+     * @param compiled
+     *            The expression to be evaluated.
+     * @param source
+     *            The frames of bindings.
+     */
+    EvaluatingIterator(CompiledExpression<T> compiled, Iterator<? extends Map<String, ?>> source)
+    {
+        this.expression = compiled;
+        this.frames = source;
+    }
+
+    @Override
+    public boolean hasNext()
+    {
+        return frames.hasNext();
+    }
+
+    @Override
+    public Value<T> next()
+    {
+        if (!frames.hasNext())
+        {
+            throw new NoSuchElementException();
+        }
+
+        try
+        {
+            return evaluator.bind(frames.next()).eval(expression);
+        }
+        catch (EvaluationException exception)
+        {
+            throw new UncheckedEvaluationException(exception);
+        }
+    }
+
+    @Override
+    public void remove()
+    {
+        throw new UnsupportedOperationException();
+    }
+}
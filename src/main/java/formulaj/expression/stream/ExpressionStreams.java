@@ -0,0 +1,152 @@
+/**
+ * Copyright (C) 2013 - 2015 Contributors.
+ *
+ * FormulaJ is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * FormulaJ is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see [http://www.gnu.org/licenses/].
+ *
+ * Contact: formulaj-user-list@googlegroups.com.
+ */
+package formulaj.expression.stream;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Objects;
+
+import formulaj.expression.Value;
+import formulaj.expression.batch.ParallelEvaluator;
+import formulaj.expression.compiler.CompiledExpression;
+
+/**
+ * Evaluates a {@link CompiledExpression} over a sequence of frames of bindings, lazily. The frames are read only when the values are requested,
+ * so an unbounded source is processed with constant memory.
+ * 
+ * <pre>
+ * Iterator&lt;Value&lt;Decimal&gt;&gt; values = ExpressionStreams.evaluate(expression, records);
+ * Decimal total = ExpressionStreams.collect(values, Aggregators.sum());
+ * </pre>
+ * 
+ * The failures of the evaluation are thrown as {@link UncheckedEvaluationException}s.
+ */
+public final class ExpressionStreams
+{
+    /**
+     * The default number of frames of a parallel batch.
+     */
+    public static final int DEFAULT_BATCH_SIZE = 4096;
+
+    /**
+     * Private constructor to avoid instance of this class.
+     */
+    private ExpressionStreams()
+    {
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * Returns an {@link Iterator} with the values of an expression for each frame of bindings, evaluated when they are requested.
+     * 
+     * @param expression
+     *            The expression to be evaluated. Might not be <code>null</code>.
+     * @param frames
+     *            The frames of bindings. The key of a frame is the variable's name. Might not be <code>null</code>.
+     * @param <T>
+     *            The type of the expression's value.
+     * @return An {@link Iterator} with the values of the expression, in the order of the frames.
+     */
+    public static <T> Iterator<Value<T>> evaluate(CompiledExpression<T> expression, Iterator<? extends Map<String, ?>> frames)
+    {
+        return new EvaluatingIterator<>(Objects.requireNonNull(expression), Objects.requireNonNull(frames));
+    }
+
+    /**
+     * Returns an {@link Iterator} with the values of an expression for each frame of bindings. The frames are read in batches of
+     * {@link #DEFAULT_BATCH_SIZE} and each batch is evaluated in parallel.
+     * 
+     * @param expression
+     *            The expression to be evaluated. Might not be <code>null</code>.
+     * @param frames
+     *            The frames of bindings. The key of a frame is the variable's name. Might not be <code>null</code>.
+     * @param evaluator
+     *            The evaluator of the batches. Might not be <code>null</code>.
+     * @param <T>
+     *            The type of the expression's value.
+     * @return An {@link Iterator} with the values of the expression, in the order of the frames.
+     */
+    public static <T> Iterator<Value<T>> evaluateParallel(CompiledExpression<T> expression, Iterator<? extends Map<String, ?>> frames,
+            ParallelEvaluator evaluator)
+    {
+        return evaluateParallel(expression, frames, evaluator, DEFAULT_BATCH_SIZE);
+    }
+
+    /**
+     * Returns an {@link Iterator} with the values of an expression for each frame of bindings. The frames are read in batches and each batch is
+     * evaluated in parallel. An expression that calls a function that keeps state between evaluations, such as a moving average, is evaluated
+     * frame by frame, in order, as by {@link #evaluate(CompiledExpression, Iterator)}.
+     * 
+     * @param expression
+     *            The expression to be evaluated. Might not be <code>null</code>.
+     * @param frames
+     *            The frames of bindings. The key of a frame is the variable's name. Might not be <code>null</code>.
+     * @param evaluator
+     *            The evaluator of the batches. Might not be <code>null</code>.
+     * @param batchSize
+     *            The number of frames of a batch. It must be positive.
+     * @param <T>
+     *            The type of the expression's value.
+     * @return An {@link Iterator} with the values of the expression, in the order of the frames.
+     */
+    public static <T> Iterator<Value<T>> evaluateParallel(CompiledExpression<T> expression, Iterator<? extends Map<String, ?>> frames,
+            ParallelEvaluator evaluator, int batchSize)
+    {
+        if (batchSize <= 0)
+        {
+            throw new IllegalArgumentException("The size of a batch must be positive: " + batchSize);
+        }
+
+        if (expression.hasState())
+        {
+            Objects.requireNonNull(evaluator);
+            return evaluate(expression, frames);
+        }
+
+        return new ParallelEvaluatingIterator<>(Objects.requireNonNull(expression), Objects.requireNonNull(frames),
+                Objects.requireNonNull(evaluator), batchSize);
+    }
+
+    /**
+     * Reduces the values of an {@link Iterator} with an {@link Aggregator}.
+     * 
+     * @param values
+     *            The values to be reduced. Might not be <code>null</code>.
+     * @param aggregator
+     *            The reduction. Might not be <code>null</code>.
+     * @param <V>
+     *            The type of the values.
+     * @param <A>
+     *            The type of the aggregator's container.
+     * @param <R>
+     *            The type of the result.
+     * @return The result of the reduction.
+     */
+    public static <V, A, R> R collect(Iterator<? extends V> values, Aggregator<? super V, A, R> aggregator)
+    {
+        A container = aggregator.create();
+
+        while (values.hasNext())
+        {
+            aggregator.accumulate(container, values.next());
+        }
+
+        return aggregator.finish(container);
+    }
+}
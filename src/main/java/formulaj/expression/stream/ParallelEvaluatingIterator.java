@@ -0,0 +1,140 @@
+/**
+ * Copyright (C) 2013 - 2015 Contributors.
+ *
+ * FormulaJ is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * FormulaJ is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see [http://www.gnu.org/licenses/].
+ *
+ * Contact: formulaj-user-list@googlegroups.com.
+ */
+package formulaj.expression.stream;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+import formulaj.expression.EvaluationException;
+import formulaj.expression.Value;
+import formulaj.expression.batch.ParallelEvaluator;
+import formulaj.expression.compiler.CompiledExpression;
+
+/**
+ * An {@link Iterator} that reads the frames of bindings of another iterator in batches and evaluates each batch in parallel with a
+ * {@link ParallelEvaluator}. The values are returned in the order of the frames and the memory is bounded by the size of a batch.
+ * 
+ * @param <T>
+ *            The type of the expression's value.
+ */
+final class ParallelEvaluatingIterator<T> implements Iterator<Value<T>>
+{
+    /**
+     * The expression to be evaluated.
+     */
+    private final CompiledExpression<T> expression;
+
+    /**
+     * The frames of bindings.
+     */
+    private final Iterator<? extends Map<String, ?>> frames;
+
+    /**
+     * The evaluator of the batches.
+     */
+    private final ParallelEvaluator evaluator;
+
+    /**
+     * The frames of the next batch.
+     */
+    private final List<Map<String, ?>> batch;
+
+    /**
+     * The number of frames of a batch.
+     */
+    private final int batchSize;
+
+    /**
+     * The values of the current batch.
+     */
+    private List<Value<T>> values = new ArrayList<>();
+
+    /**
+     * The index of the next value of the current batch.
+     */
+    private int position;
+
+    /**
+     * Creates a {@link ParallelEvaluatingIterator}.
+     * 
+     * @param compiled
+     *            The expression to be evaluated.
+     * @param source
+     *            The frames of bindings.
+     * @param parallelEvaluator
+     *            The evaluator of the batches.
+     * @param size
+     *            The number of frames of a batch.
+     */
+    ParallelEvaluatingIterator(CompiledExpression<T> compiled, Iterator<? extends Map<String, ?>> source, ParallelEvaluator parallelEvaluator,
+            int size)
+    {
+        this.expression = compiled;
+        this.frames = source;
+        this.evaluator = parallelEvaluator;
+        this.batchSize = size;
+        this.batch = new ArrayList<>(size);
+    }
+
+    @Override
+    public boolean hasNext()
+    {
+        return position < values.size() || frames.hasNext();
+    }
+
+    @Override
+    public Value<T> next()
+    {
+        if (position == values.size())
+        {
+            if (!frames.hasNext())
+            {
+                throw new NoSuchElementException();
+            }
+
+            batch.clear();
+
+            while (batch.size() < batchSize && frames.hasNext())
+            {
+                batch.add(frames.next());
+            }
+
+            try
+            {
+                values = evaluator.evaluate(expression, batch);
+                position = 0;
+            }
+            catch (EvaluationException exception)
+            {
+                throw new UncheckedEvaluationException(exception);
+            }
+        }
+
+        return values.get(position++);
+    }
+
+    @Override
+    public void remove()
+    {
+        throw new UnsupportedOperationException();
+    }
+}
@@ -0,0 +1,138 @@
+/**
+ * Copyright (C) 2013 - 2015 Contributors.
+ *
+ * FormulaJ is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * FormulaJ is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see [http://www.gnu.org/licenses/].
+ *
+ * Contact: formulaj-user-list@googlegroups.com.
+ */
+package formulaj.expression.stream;
+
+import java.math.BigDecimal;
+import java.math.MathContext;
+
+import formulaj.expression.Decimal;
+import formulaj.expression.MutableDecimal;
+
+/**
+ * The count, sum, minimum and maximum of {@link Decimal} values. It's the container of the {@link Aggregators}.
+ */
+final class Summary
+{
+    /**
+     * The number of values.
+     */
+    private long count;
+
+    /**
+     * The sum of the values, updated in place.
+     */
+    private final MutableDecimal sum = new MutableDecimal();
+
+    /**
+     * The smallest value or <code>null</code> if there is no value.
+     */
+    private Decimal min;
+
+    /**
+     * The greatest value or <code>null</code> if there is no value.
+     */
+    private Decimal max;
+
+    /**
+     * Adds a value.
+     * 
+     * @param value
+     *            The value to be added. It's ignored if it's <code>null</code>.
+     */
+    void add(Decimal value)
+    {
+        if (value != null)
+        {
+            count++;
+            sum.add(value);
+            min = min == null ? value : min.min(value);
+            max = max == null ? value : max.max(value);
+        }
+    }
+
+    /**
+     * Adds the values of another summary.
+     * 
+     * @param other
+     *            The summary to be added.
+     * @return This summary.
+     */
+    Summary merge(Summary other)
+    {
+        if (other.count > 0)
+        {
+            count += other.count;
+            sum.add(other.sum);
+            min = min == null ? other.min : min.min(other.min);
+            max = max == null ? other.max : max.max(other.max);
+        }
+
+        return this;
+    }
+
+    /**
+     * Returns the number of values.
+     * 
+     * @return The number of values.
+     */
+    long count()
+    {
+        return count;
+    }
+
+    /**
+     * Returns the sum of the values.
+     * 
+     * @return The sum of the values or zero if there is no value.
+     */
+    Decimal sum()
+    {
+        return sum.toDecimal();
+    }
+
+    /**
+     * Returns the smallest value.
+     * 
+     * @return The smallest value or <code>null</code> if there is no value.
+     */
+    Decimal min()
+    {
+        return min;
+    }
+
+    /**
+     * Returns the greatest value.
+     * 
+     * @return The greatest value or <code>null</code> if there is no value.
+     */
+    Decimal max()
+    {
+        return max;
+    }
+
+    /**
+     * Returns the arithmetic mean of the values, with the precision of {@link MathContext#DECIMAL128}.
+     * 
+     * @return The arithmetic mean of the values or <code>null</code> if there is no value.
+     */
+    Decimal average()
+    {
+        return count == 0 ? null : Decimal.from(sum.bigDecimalValue().divide(BigDecimal.valueOf(count), MathContext.DECIMAL128));
+    }
+}
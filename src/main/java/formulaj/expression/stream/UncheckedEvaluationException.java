@@ -0,0 +1,50 @@
+/**
+ * Copyright (C) 2013 - 2015 Contributors.
+ *
+ * FormulaJ is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * FormulaJ is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see [http://www.gnu.org/licenses/].
+ *
+ * Contact: formulaj-user-list@googlegroups.com.
+ */
+package formulaj.expression.stream;
+
+import formulaj.expression.EvaluationException;
+
+/**
+ * Wraps an {@link EvaluationException} thrown while an {@link java.util.Iterator} of results is consumed, since the methods of an iterator cannot
+ * throw checked exceptions.
+ */
+public class UncheckedEvaluationException extends RuntimeException
+{
+    /**
+     * Serial code version <code>serialVersionUID</code>.
+     */
+    private static final long serialVersionUID = -6406744262467093541L;
+
+    /**
+     * Creates an {@link UncheckedEvaluationException} with the given cause.
+     * 
+     * @param cause
+     *            The {@link EvaluationException} thrown by the evaluation.
+     */
+    public UncheckedEvaluationException(EvaluationException cause)
+    {
+        super(cause.getMessage(), cause);
+    }
+
+    @Override
+    public synchronized EvaluationException getCause()
+    {
+        return (EvaluationException) super.getCause();
+    }
+}
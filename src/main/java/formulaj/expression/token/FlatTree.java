@@ -0,0 +1,569 @@
+/**
+ * Copyright (C) 2013 - 2015 Contributors.
+ *
+ * FormulaJ is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * FormulaJ is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see [http://www.gnu.org/licenses/].
+ *
+ * Contact: formulaj-user-list@googlegroups.com.
+ */
+package formulaj.expression.token;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import formulaj.common.base.MemoryFootprint;
+import formulaj.expression.Computable;
+import formulaj.expression.Decimal;
+import formulaj.expression.EvaluationException;
+import formulaj.expression.UndefinedFunctionException;
+import formulaj.expression.UndefinedVariableException;
+import formulaj.expression.Value;
+import formulaj.expression.Variable;
+import formulaj.expression.evaluator.Evaluator;
+import formulaj.expression.function.CallSite;
+import formulaj.expression.function.Function;
+import formulaj.expression.parser.AST;
+
+/**
+ * A compact encoding of an expression's tree: the nodes are packed in post-order in an <code>int[]</code>, three <code>int</code>s per node,
+ * instead of one object per node and per token. Each node has:
+ * <ol>
+ * <li>its header: the kind of the node, the type of its token and its number of children;</li>
+ * <li>the index of its text in the symbol table: the identifier, operator symbol or literal. Each text is stored once per tree and the
+ * literals are parsed once, in the constant pool;</li>
+ * <li>the index of the first node of its subtree, so the children of a node are found without pointers: its last child is the previous node
+ * and each other child ends just before the subtree of its next sibling.</li>
+ * </ol>
+ * The post-order is also the evaluation order, so {@link #evaluate(Evaluator)} runs over the array with a stack of values, with the semantics of
+ * the {@link TreeVisitor}. A {@link FlatTree} is converted from and to a {@link MathNodeToken} tree with {@link #of(AST)} and {@link #toTree()}.
+ * <p>
+ * A {@link FlatTree} is immutable, except for the state of its stateful function calls, and it can be evaluated by many threads.
+ */
+public final class FlatTree
+{
+    /**
+     * The kind of a {@link NumberToken}.
+     */
+    public static final int NUMBER = 1;
+
+    /**
+     * The kind of a {@link VarToken} that is read.
+     */
+    public static final int VARIABLE = 2;
+
+    /**
+     * The kind of an {@link UnaryToken}.
+     */
+    public static final int UNARY = 3;
+
+    /**
+     * The kind of a {@link BinaryOperatorToken}.
+     */
+    public static final int BINARY = 4;
+
+    /**
+     * The kind of a {@link FunctionToken}.
+     */
+    public static final int FUNCTION = 5;
+
+    /**
+     * The kind of an {@link AssignToken}. Its children are the assigned variable and the value.
+     */
+    public static final int ASSIGN = 6;
+
+    /**
+     * The kind of the variable that receives an assignment, which is not read.
+     */
+    public static final int TARGET = 7;
+
+    /**
+     * The number of <code>int</code>s of a node.
+     */
+    private static final int STRIDE = 3;
+
+    /**
+     * The nodes in post-order.
+     */
+    private final int[] code;
+
+    /**
+     * The texts of the nodes.
+     */
+    private final String[] symbols;
+
+    /**
+     * The values of the literals, at the indexes of their texts.
+     */
+    private final Decimal[] constants;
+
+    /**
+     * The call sites of the functions, in the order of the nodes.
+     */
+    private final CallSite[] sites;
+
+    /**
+     * The maximum number of values in the stack of an evaluation.
+     */
+    private final int maxDepth;
+
+    /**
+     * Creates a {@link FlatTree}.
+     * 
+     * @param nodes
+     *            The nodes in post-order.
+     * @param texts
+     *            The texts of the nodes.
+     * @param functionCount
+     *            The number of function calls.
+     * @param depth
+     *            The maximum number of values in the stack of an evaluation.
+     */
+    private FlatTree(int[] nodes, String[] texts, int functionCount, int depth)
+    {
+        this.code = nodes;
+        this.symbols = texts;
+        this.constants = new Decimal[texts.length];
+        this.sites = new CallSite[functionCount];
+        this.maxDepth = depth;
+
+        for (int i = 0; i < size(); i++)
+        {
+            if (kind(i) == NUMBER && constants[code[i * STRIDE + 1]] == null)
+            {
+                constants[code[i * STRIDE + 1]] = Decimal.from(text(i));
+            }
+        }
+
+        for (int i = 0; i < sites.length; i++)
+        {
+            sites[i] = new CallSite();
+        }
+    }
+
+    /**
+     * Encodes a tree.
+     * 
+     * @param root
+     *            The root of the tree. Might not be <code>null</code>.
+     * @return The encoding of the given tree.
+     */
+    public static FlatTree of(AST root)
+    {
+        return new Encoder().encode(root);
+    }
+
+    /**
+     * Returns the number of nodes of this tree.
+     * 
+     * @return The number of nodes of this tree.
+     */
+    public int size()
+    {
+        return code.length / STRIDE;
+    }
+
+    /**
+     * Returns the index of the root, which is the last node.
+     * 
+     * @return The index of the root.
+     */
+    public int root()
+    {
+        return size() - 1;
+    }
+
+    /**
+     * Returns the kind of a node: {@link #NUMBER}, {@link #VARIABLE}, {@link #UNARY}, {@link #BINARY}, {@link #FUNCTION}, {@link #ASSIGN} or
+     * {@link #TARGET}.
+     * 
+     * @param node
+     *            The index of the node.
+     * @return The kind of the node.
+     */
+    public int kind(int node)
+    {
+        return code[node * STRIDE] & 0xFF;
+    }
+
+    /**
+     * Returns the type of the token of a node.
+     * 
+     * @param node
+     *            The index of the node.
+     * @return The type of the token of the node.
+     */
+    public int tokenType(int node)
+    {
+        return (code[node * STRIDE] >>> 8) & 0xFF;
+    }
+
+    /**
+     * Returns the number of children of a node.
+     * 
+     * @param node
+     *            The index of the node.
+     * @return The number of children of the node.
+     */
+    public int arity(int node)
+    {
+        return code[node * STRIDE] >>> 16;
+    }
+
+    /**
+     * Returns the text of a node: the literal, the variable's name, the operator's symbol or the function's name.
+     * 
+     * @param node
+     *            The index of the node.
+     * @return The text of the node.
+     */
+    public String text(int node)
+    {
+        return symbols[code[node * STRIDE + 1]];
+    }
+
+    /**
+     * Returns the index of the first node of the subtree of a node. The subtree is the range from this index to the node, inclusive.
+     * 
+     * @param node
+     *            The index of the node.
+     * @return The index of the first node of the subtree.
+     */
+    public int start(int node)
+    {
+        return code[node * STRIDE + 2];
+    }
+
+    /**
+     * Returns the indexes of the children of a node, from the first to the last.
+     * 
+     * @param node
+     *            The index of the node.
+     * @return The indexes of the children of the node.
+     */
+    public int[] children(int node)
+    {
+        int[] children = new int[arity(node)];
+
+        for (int i = children.length - 1, child = node - 1; i >= 0; i--)
+        {
+            children[i] = child;
+            child = start(child) - 1;
+        }
+        return children;
+    }
+
+    /**
+     * Returns the number of distinct texts of this tree.
+     * 
+     * @return The number of distinct texts of this tree.
+     */
+    public int symbolCount()
+    {
+        return symbols.length;
+    }
+
+    /**
+     * Returns the estimated number of bytes retained by this tree. See {@link MemoryFootprint} for the layout that is assumed.
+     * 
+     * @return The estimated number of bytes retained by this tree.
+     */
+    public long footprint()
+    {
+        return MemoryFootprint.of(this);
+    }
+
+    /**
+     * Evaluates this tree resolving its variables, operators and functions with the given {@link Evaluator}.
+     * 
+     * @param evaluator
+     *            The {@link Evaluator} to resolve the variables, operators and functions. Might not be <code>null</code>.
+     * @param <T>
+     *            The type of the expression's value.
+     * @return The value of the expression.
+     * @throws EvaluationException
+     *             If the expression uses an unknown variable or function.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> Value<T> evaluate(Evaluator<?, ?> evaluator) throws EvaluationException
+    {
+        Computable<T>[] stack = (Computable<T>[]) new Computable<?>[maxDepth];
+        int top = 0;
+        int function = 0;
+
+        for (int node = 0, n = size(); node < n; node++)
+        {
+            switch (kind(node))
+            {
+            case NUMBER:
+                stack[top++] = new Value<T>((T) constants[code[node * STRIDE + 1]]);
+                break;
+            case VARIABLE:
+                Variable<T> variable = evaluator.<T> getVariableByName(text(node));
+
+                if (variable == null)
+                {
+                    throw new UndefinedVariableException(String.format("Undefined variable: %s!", text(node)));
+                }
+                stack[top++] = (Computable<T>) variable.getValue();
+                break;
+            case UNARY:
+                stack[top - 1] = evaluator.<T> getOperatorBySymbol(text(node)).evaluate(stack[top - 1]);
+                break;
+            case BINARY:
+                Computable<T> right = stack[--top];
+                stack[top - 1] = evaluator.<T> getOperatorBySymbol(text(node)).evaluate(stack[top - 1], right);
+                break;
+            case FUNCTION:
+                Function<Computable<T>> callee = evaluator.getFunctionByName(text(node));
+
+                if (callee == null)
+                {
+                    throw new UndefinedFunctionException(String.format("Undefined function: %s!", text(node)));
+                }
+
+                int arity = arity(node);
+                List<Computable<T>> args = new ArrayList<>(Arrays.asList(stack).subList(top - arity, top));
+                top -= arity;
+                stack[top++] = TreeVisitor.call(callee, sites[function++], args);
+                break;
+            case ASSIGN:
+                Variable<Value<T>> assigned = new Variable<Value<T>>(text(node));
+                assigned.setValue((Value<T>) stack[top - 1]);
+                evaluator.register(assigned);
+                break;
+            default:
+                break;
+            }
+        }
+
+        return (Value<T>) stack[0];
+    }
+
+    /**
+     * Decodes this encoding to a tree of {@link MathNodeToken}s.
+     * 
+     * @param <T>
+     *            The type of the expression's value.
+     * @return The root of the tree.
+     */
+    @SuppressWarnings({ "rawtypes", "unchecked" })
+    public <T> MathNodeToken<Value<T>, Value<T>> toTree()
+    {
+        Deque<AST> stack = new ArrayDeque<>();
+
+        for (int node = 0, n = size(); node < n; node++)
+        {
+            Token token = new Token(tokenType(node), text(node));
+
+            switch (kind(node))
+            {
+            case NUMBER:
+                stack.push(new NumberToken(token));
+                break;
+            case VARIABLE:
+            case TARGET:
+                stack.push(new VarToken(token));
+                break;
+            case UNARY:
+                stack.push(new UnaryToken(token, (ExpressionToken) stack.pop()));
+                break;
+            case BINARY:
+                ExpressionToken right = (ExpressionToken) stack.pop();
+                stack.push(new BinaryOperatorToken(token, (ExpressionToken) stack.pop(), right));
+                break;
+            case FUNCTION:
+                ExpressionToken[] args = new ExpressionToken[arity(node)];
+                for (int i = args.length - 1; i >= 0; i--)
+                {
+                    args[i] = (ExpressionToken) stack.pop();
+                }
+                stack.push(new FunctionToken(token, args));
+                break;
+            default:
+                ExpressionToken value = (ExpressionToken) stack.pop();
+                stack.push(new AssignToken((VarToken) stack.pop(), token, value));
+                break;
+            }
+        }
+
+        return (MathNodeToken<Value<T>, Value<T>>) stack.pop();
+    }
+
+    /**
+     * Writes the nodes of a tree in post-order.
+     */
+    private static final class Encoder
+    {
+        /**
+         * The nodes written.
+         */
+        private int[] code = new int[STRIDE * 16];
+
+        /**
+         * The number of nodes written.
+         */
+        private int count;
+
+        /**
+         * The index of each text.
+         */
+        private final Map<String, Integer> symbolIndex = new HashMap<>();
+
+        /**
+         * The texts in the order of their indexes.
+         */
+        private final List<String> symbols = new ArrayList<>();
+
+        /**
+         * The number of function calls.
+         */
+        private int functions;
+
+        /**
+         * Encodes a tree.
+         * 
+         * @param root
+         *            The root of the tree.
+         * @return The encoding of the tree.
+         */
+        FlatTree encode(AST root)
+        {
+            int depth = this.write(root, false);
+            return new FlatTree(Arrays.copyOf(code, count * STRIDE), symbols.toArray(new String[symbols.size()]), functions, depth);
+        }
+
+        /**
+         * Writes a node after its children.
+         * 
+         * @param node
+         *            The node to be written.
+         * @param target
+         *            Indicates whether the node is the variable that receives an assignment.
+         * @return The maximum number of values in the stack while the node is evaluated.
+         */
+        private int write(AST node, boolean target)
+        {
+            int start = count;
+            int kind;
+            int depth = 1;
+            List<? extends AST> children;
+
+            if (node instanceof NumberToken)
+            {
+                kind = NUMBER;
+                children = new ArrayList<>();
+            }
+            else if (node instanceof VarToken)
+            {
+                kind = target ? TARGET : VARIABLE;
+                children = new ArrayList<>();
+            }
+            else if (node instanceof UnaryToken)
+            {
+                kind = UNARY;
+                children = Arrays.asList(((UnaryToken<?>) node).getExpression());
+            }
+            else if (node instanceof BinaryOperatorToken)
+            {
+                kind = BINARY;
+                children = Arrays.asList(((BinaryOperatorToken<?>) node).getLeft(), ((BinaryOperatorToken<?>) node).getRight());
+            }
+            else if (node instanceof FunctionToken)
+            {
+                kind = FUNCTION;
+                children = ((FunctionToken<?>) node).getArgs();
+            }
+            else if (node instanceof AssignToken)
+            {
+                kind = ASSIGN;
+                depth = this.write(((AssignToken<?>) node).getId(), true);
+                children = Arrays.asList(((AssignToken<?>) node).getValue());
+            }
+            else
+            {
+                throw new IllegalArgumentException("Unknown node " + node.getToken().getText());
+            }
+
+            int pushed = 0;
+            for (AST child : children)
+            {
+                depth = Math.max(depth, pushed + this.write(child, false));
+                pushed++;
+            }
+
+            if (kind == FUNCTION)
+            {
+                functions++;
+            }
+
+            if (kind == TARGET)
+            {
+                depth = 0;
+            }
+
+            int arity = kind == ASSIGN ? children.size() + 1 : children.size();
+            String text = kind == ASSIGN ? ((AssignToken<?>) node).getId().name() : node.getToken().getText();
+            this.add(kind | (node.getToken().getType() & 0xFF) << 8 | arity << 16, symbol(text), start);
+
+            return Math.max(depth, 1);
+        }
+
+        /**
+         * Appends a node.
+         * 
+         * @param header
+         *            The header of the node.
+         * @param symbol
+         *            The index of the node's text.
+         * @param start
+         *            The index of the first node of the subtree.
+         */
+        private void add(int header, int symbol, int start)
+        {
+            if ((count + 1) * STRIDE > code.length)
+            {
+                code = Arrays.copyOf(code, code.length * 2);
+            }
+
+            code[count * STRIDE] = header;
+            code[count * STRIDE + 1] = symbol;
+            code[count * STRIDE + 2] = start;
+            count++;
+        }
+
+        /**
+         * Returns the index of a text, adding it to the symbol table if it's new.
+         * 
+         * @param text
+         *            The text.
+         * @return The index of the text.
+         */
+        private int symbol(String text)
+        {
+            Integer index = symbolIndex.get(text);
+
+            if (index == null)
+            {
+                index = symbols.size();
+                symbols.add(text);
+                symbolIndex.put(text, index);
+            }
+            return index;
+        }
+    }
+}
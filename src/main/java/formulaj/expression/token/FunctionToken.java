@@ -25,6 +25,7 @@ import java.util.List;
 import formulaj.expression.Computable;
 import formulaj.expression.EvaluationException;
 import formulaj.expression.Value;
+import formulaj.expression.function.CallSite;
 
 public class FunctionToken<T> extends ExpressionToken<T, Computable<T>>
 {
@@ -39,6 +40,11 @@ public class FunctionToken<T> extends ExpressionToken<T, Computable<T>>
      */
     private final List<ExpressionToken<T, Value<T>>> args = new ArrayList<>();
 
+    /**
+     * The state of a {@link formulaj.expression.function.math.StatefulFunction} at this call.
+     */
+    private final CallSite callSite = new CallSite();
+
     /**
      * Creates a {@link FunctionToken} with zero or more arguments.
      * 
@@ -86,6 +92,16 @@ public class FunctionToken<T> extends ExpressionToken<T, Computable<T>>
         return name;
     }
 
+    /**
+     * Returns the state of the function at this call.
+     * 
+     * @return The call site of this token.
+     */
+    public CallSite callSite()
+    {
+        return callSite;
+    }
+
     /**
      * Returns the arguments of the functions.
      * 
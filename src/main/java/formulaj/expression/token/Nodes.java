@@ -0,0 +1,176 @@
+/**
+ * Copyright (C) 2013 - 2015 Contributors.
+ *
+ * FormulaJ is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * FormulaJ is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see [http://www.gnu.org/licenses/].
+ *
+ * Contact: formulaj-user-list@googlegroups.com.
+ */
+package formulaj.expression.token;
+
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+import formulaj.expression.parser.AST;
+
+public final class Nodes
+{
+    /**
+     * Private constructor to avoid instance of this class.
+     */
+    private Nodes()
+    {
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * Returns the number of nodes of a given tree, including its root.
+     * 
+     * @param node
+     *            The root of the tree. It may be <code>null</code>.
+     * @return The number of nodes of the given tree or zero if it's <code>null</code>.
+     */
+    public static int count(AST node)
+    {
+        if (node instanceof BinaryOperatorToken)
+        {
+            BinaryOperatorToken<?> binary = (BinaryOperatorToken<?>) node;
+            return 1 + count(binary.getLeft()) + count(binary.getRight());
+        }
+        else if (node instanceof UnaryToken)
+        {
+            return 1 + count(((UnaryToken<?>) node).getExpression());
+        }
+        else if (node instanceof AssignToken)
+        {
+            AssignToken<?> assign = (AssignToken<?>) node;
+            return 1 + count(assign.getId()) + count(assign.getValue());
+        }
+        else if (node instanceof FunctionToken)
+        {
+            int count = 1;
+
+            for (AST arg : ((FunctionToken<?>) node).getArgs())
+            {
+                count += count(arg);
+            }
+
+            return count;
+        }
+
+        return node == null ? 0 : 1;
+    }
+
+    /**
+     * Returns the names of the variables read by a given tree, in the order that they appear. The variable that receives an assignment is not
+     * included, unless it's also read by the assigned expression.
+     * 
+     * @param node
+     *            The root of the tree. It may be <code>null</code>.
+     * @return The names of the variables read by the given tree. It's empty if the tree does not have variables or if it's <code>null</code>.
+     */
+    public static Set<String> variables(AST node)
+    {
+        Set<String> names = new LinkedHashSet<>();
+        collectVariables(node, names);
+        return names;
+    }
+
+    /**
+     * Adds the names of the variables read by a given tree in a {@link Collection}.
+     * 
+     * @param node
+     *            The root of the tree. It may be <code>null</code>.
+     * @param names
+     *            The {@link Collection} to add the names.
+     */
+    private static void collectVariables(AST node, Collection<String> names)
+    {
+        if (node instanceof VarToken)
+        {
+            names.add(((VarToken<?>) node).name());
+        }
+        else if (node instanceof BinaryOperatorToken)
+        {
+            BinaryOperatorToken<?> binary = (BinaryOperatorToken<?>) node;
+            collectVariables(binary.getLeft(), names);
+            collectVariables(binary.getRight(), names);
+        }
+        else if (node instanceof UnaryToken)
+        {
+            collectVariables(((UnaryToken<?>) node).getExpression(), names);
+        }
+        else if (node instanceof AssignToken)
+        {
+            collectVariables(((AssignToken<?>) node).getValue(), names);
+        }
+        else if (node instanceof FunctionToken)
+        {
+            for (AST arg : ((FunctionToken<?>) node).getArgs())
+            {
+                collectVariables(arg, names);
+            }
+        }
+    }
+
+    /**
+     * Returns the names of the functions called by a given tree, in the order that they appear.
+     * 
+     * @param node
+     *            The root of the tree. It may be <code>null</code>.
+     * @return The names of the functions called by the given tree. It's empty if the tree does not call functions or if it's <code>null</code>.
+     */
+    public static Set<String> functions(AST node)
+    {
+        Set<String> names = new LinkedHashSet<>();
+        collectFunctions(node, names);
+        return names;
+    }
+
+    /**
+     * Adds the names of the functions called by a given tree in a {@link Collection}.
+     * 
+     * @param node
+     *            The root of the tree. It may be <code>null</code>.
+     * @param names
+     *            The {@link Collection} to add the names.
+     */
+    private static void collectFunctions(AST node, Collection<String> names)
+    {
+        if (node instanceof FunctionToken)
+        {
+            FunctionToken<?> function = (FunctionToken<?>) node;
+            names.add(function.getName());
+
+            for (AST arg : function.getArgs())
+            {
+                collectFunctions(arg, names);
+            }
+        }
+        else if (node instanceof BinaryOperatorToken)
+        {
+            BinaryOperatorToken<?> binary = (BinaryOperatorToken<?>) node;
+            collectFunctions(binary.getLeft(), names);
+            collectFunctions(binary.getRight(), names);
+        }
+        else if (node instanceof UnaryToken)
+        {
+            collectFunctions(((UnaryToken<?>) node).getExpression(), names);
+        }
+        else if (node instanceof AssignToken)
+        {
+            collectFunctions(((AssignToken<?>) node).getValue(), names);
+        }
+    }
+}
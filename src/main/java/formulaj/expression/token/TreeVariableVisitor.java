@@ -19,6 +19,7 @@
 package formulaj.expression.token;
 
 import formulaj.expression.Computable;
+import formulaj.expression.EvaluationBudget;
 import formulaj.expression.UndefinedVariableException;
 import formulaj.expression.Value;
 import formulaj.expression.Variable;
@@ -56,6 +57,23 @@ public class TreeVariableVisitor<T> extends TreeVisitor<T>
         this.varValues = variableValues;
     }
 
+    /**
+     * Creates an instance of the visitor with the budget of the evaluation.
+     * 
+     * @param evaluator
+     *            The expression's evaluator. An evaluator is useful to get variables, operators and functions.
+     * @param budget
+     *            The limits of the evaluation. Might not be <code>null</code>.
+     * @param variableValues
+     *            The value of the variables to be assigned to each variable found in the expression. The value is assigned accordingly the variable
+     *            appears in the expression.
+     */
+    public TreeVariableVisitor(Evaluator<?, ?> evaluator, EvaluationBudget budget, Object[] variableValues)
+    {
+        super(evaluator, budget);
+        this.varValues = variableValues;
+    }
+
     @SuppressWarnings("unchecked")
     @Override
     public Computable<T> visit(VarToken<T> variable) throws UndefinedVariableException
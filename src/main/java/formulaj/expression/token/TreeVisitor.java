@@ -23,13 +23,19 @@ import java.util.List;
 
 import formulaj.expression.Computable;
 import formulaj.expression.Decimal;
+import formulaj.expression.EvaluationBudget;
 import formulaj.expression.EvaluationException;
 import formulaj.expression.UndefinedFunctionException;
 import formulaj.expression.UndefinedVariableException;
 import formulaj.expression.Value;
 import formulaj.expression.Variable;
 import formulaj.expression.evaluator.Evaluator;
+import formulaj.expression.function.CallCache;
+import formulaj.expression.function.CallSite;
 import formulaj.expression.function.Function;
+import formulaj.expression.function.math.FunctionSupport;
+import formulaj.expression.function.math.Pow;
+import formulaj.expression.function.math.StatefulFunction;
 
 @SuppressWarnings("unchecked")
 public class TreeVisitor<T> implements ExpressionVisitor<T>
@@ -39,6 +45,16 @@ public class TreeVisitor<T> implements ExpressionVisitor<T>
      */
     private final Evaluator<?, ?> evaluator;
 
+    /**
+     * The accounting of the evaluation.
+     */
+    private final EvaluationBudget.Meter meter;
+
+    /**
+     * Indicates if the values must be checked against the budget, which is not needed when it's {@link EvaluationBudget#UNLIMITED}.
+     */
+    private final boolean limited;
+
     /**
      * Creates an instance of this visitor with a given expression evaluator.
      * 
@@ -46,12 +62,28 @@ public class TreeVisitor<T> implements ExpressionVisitor<T>
      *            The expression's evaluator. An evaluator is useful to get variables, operators and functions.
      */
     public TreeVisitor(Evaluator<?, ?> eval)
+    {
+        this(eval, EvaluationBudget.UNLIMITED);
+    }
+
+    /**
+     * Creates an instance of this visitor with a given expression evaluator and the budget of the evaluation. A visitor evaluates an expression
+     * once, since the budget is counted from its creation.
+     * 
+     * @param eval
+     *            The expression's evaluator. An evaluator is useful to get variables, operators and functions.
+     * @param budget
+     *            The limits of the evaluation. Might not be <code>null</code>.
+     */
+    public TreeVisitor(Evaluator<?, ?> eval, EvaluationBudget budget)
     {
         this.evaluator = eval;
+        this.meter = budget.start();
+        this.limited = budget != EvaluationBudget.UNLIMITED;
     }
 
     /**
-     * Visits the given AST node.
+     * Visits the given AST node. Every node of a tree is visited by this method, which counts it once against the budget of the evaluation.
      * 
      * @param node
      *            The node to be visited.
@@ -63,6 +95,8 @@ public class TreeVisitor<T> implements ExpressionVisitor<T>
      */
     public <V> V visit(MathNodeToken<T, V> node) throws EvaluationException
     {
+        meter.step();
+
         if (node instanceof BinaryOperatorToken)
         {
             return (V) this.visit((BinaryOperatorToken<T>) node);
@@ -113,20 +147,82 @@ public class TreeVisitor<T> implements ExpressionVisitor<T>
 
         for (ExpressionToken<T, Value<T>> arg : functionToken.getArgs())
         {
-            Computable<T> val = arg.visit(this);
+            Computable<T> val = this.visit(arg);
             args.add(val);
         }
 
+        if (limited && (Object) function instanceof Pow && args.size() > 1)
+        {
+            meter.getBudget().checkExponent(args.get(1));
+        }
+
+        return this.checked(call(function, functionToken.callSite(), args));
+    }
+
+    /**
+     * Executes a function with its arguments already evaluated. A {@link StatefulFunction} is executed with the state of its call and a function
+     * with a {@link CallCache} is executed once for the same arguments.
+     * 
+     * @param function
+     *            The function to be executed.
+     * @param site
+     *            The call site of the function.
+     * @param args
+     *            The values of the arguments.
+     * @param <T>
+     *            The type of the arguments' value.
+     * @return The value of the function.
+     */
+    static <T> Computable<T> call(Function<Computable<T>> function, CallSite site, List<Computable<T>> args)
+    {
+        if (function instanceof StatefulFunction)
+        {
+            return (Computable<T>) ((StatefulFunction<?>) (Object) function).evaluate(site, args);
+        }
+
+        if (function instanceof FunctionSupport)
+        {
+            CallCache cache = ((FunctionSupport<?>) (Object) function).callCache();
+
+            if (cache != null)
+            {
+                return cache.evaluate(function, args);
+            }
+        }
+
         return function.evaluate(args);
     }
 
     @Override
     public Computable<T> visit(BinaryOperatorToken<T> bynaryOperator) throws EvaluationException
     {
-        Computable<T> left = bynaryOperator.getLeft().visit(this);
-        Computable<T> right = bynaryOperator.getRight().visit(this);
+        Computable<T> left = this.visit(bynaryOperator.getLeft());
+        Computable<T> right = this.visit(bynaryOperator.getRight());
+
+        if (limited && "^".equals(bynaryOperator.symbol()))
+        {
+            meter.getBudget().checkExponent(right);
+        }
+
+        return this.checked(this.evaluator.<T> getOperatorBySymbol(bynaryOperator.symbol()).evaluate(left, right));
+    }
 
-        return this.evaluator.<T> getOperatorBySymbol(bynaryOperator.symbol()).evaluate(left, right);
+    /**
+     * Checks the precision and the scale of a value computed by an operator or a function.
+     * 
+     * @param value
+     *            The computed value.
+     * @return The given value.
+     * @throws EvaluationException
+     *             If the value exceeds the budget of the evaluation.
+     */
+    private Computable<T> checked(Computable<T> value) throws EvaluationException
+    {
+        if (limited)
+        {
+            meter.getBudget().checkValue(value);
+        }
+        return value;
     }
 
     @Override
@@ -145,16 +241,17 @@ public class TreeVisitor<T> implements ExpressionVisitor<T>
     @Override
     public Computable<T> visit(UnaryToken<T> unary) throws EvaluationException
     {
-        Computable<T> value = unary.getExpression().visit(this);
-        return this.evaluator.<T> getOperatorBySymbol(unary.symbol()).evaluate(value);
+        Computable<T> value = this.visit(unary.getExpression());
+        return this.checked(this.evaluator.<T> getOperatorBySymbol(unary.symbol()).evaluate(value));
     }
 
     @Override
     public Computable<T> visit(AssignToken<T> assign) throws EvaluationException
     {
-        Value<T> value = assign.getValue().visit(this);
+        Value<T> value = this.visit(assign.getValue());
 
-        Variable<Value<T>> variable = assign.getId().getVariable();
+        // the tree can be shared by many evaluations, so the token's variable must not be changed.
+        Variable<Value<T>> variable = new Variable<Value<T>>(assign.getId().name());
         variable.setValue(value);
 
         this.evaluator.register(variable);
@@ -0,0 +1,181 @@
+/**
+ * Copyright (C) 2013 - 2015 Contributors.
+ *
+ * FormulaJ is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * FormulaJ is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see [http://www.gnu.org/licenses/].
+ *
+ * Contact: formulaj-user-list@googlegroups.com.
+ */
+package formulaj.expression.workbook;
+
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+import formulaj.expression.Value;
+import formulaj.expression.Variable;
+import formulaj.expression.compiler.CompiledExpression;
+
+/**
+ * A named cell of a {@link Workbook}. An input cell holds a value assigned by the user, whereas a formula cell holds the value of its
+ * {@link CompiledExpression}.
+ * 
+ * @param <T>
+ *            The type of the cell's value.
+ */
+final class Cell<T>
+{
+    /**
+     * The variable with the name and the current value of this cell.
+     */
+    private final Variable<T> variable;
+
+    /**
+     * The cells read by this cell's formula.
+     */
+    private final Set<Cell<T>> precedents = new LinkedHashSet<>();
+
+    /**
+     * The cells whose formula reads this cell.
+     */
+    private final Set<Cell<T>> dependents = new LinkedHashSet<>();
+
+    /**
+     * The formula of this cell or <code>null</code> if it's an input cell.
+     */
+    private CompiledExpression<T> formula;
+
+    /**
+     * The number of precedents that must be recomputed before this cell during a recalculation.
+     */
+    private int waiting;
+
+    /**
+     * Creates an input cell without value.
+     * 
+     * @param name
+     *            The name of the cell. It must be a valid variable's name.
+     */
+    Cell(String name)
+    {
+        this.variable = new Variable<T>(name);
+    }
+
+    /**
+     * Returns the name of this cell.
+     * 
+     * @return The name of this cell.
+     */
+    String name()
+    {
+        return variable.name();
+    }
+
+    /**
+     * Returns the variable that exposes this cell to the formulas.
+     * 
+     * @return The variable that exposes this cell to the formulas.
+     */
+    Variable<T> variable()
+    {
+        return variable;
+    }
+
+    /**
+     * Returns the current value of this cell.
+     * 
+     * @return The current value of this cell or <code>null</code> if it was not computed yet.
+     */
+    Value<T> value()
+    {
+        return variable.value();
+    }
+
+    /**
+     * Assigns the value of this cell.
+     * 
+     * @param value
+     *            The new value of this cell.
+     */
+    void setValue(Value<T> value)
+    {
+        variable.setValue(value);
+    }
+
+    /**
+     * Returns the formula of this cell.
+     * 
+     * @return The formula of this cell or <code>null</code> if it's an input cell.
+     */
+    CompiledExpression<T> formula()
+    {
+        return formula;
+    }
+
+    /**
+     * Replaces the formula of this cell.
+     * 
+     * @param expression
+     *            The new formula or <code>null</code> to turn this cell into an input cell.
+     */
+    void setFormula(CompiledExpression<T> expression)
+    {
+        this.formula = expression;
+    }
+
+    /**
+     * Returns the cells read by this cell's formula.
+     * 
+     * @return The cells read by this cell's formula.
+     */
+    Set<Cell<T>> precedents()
+    {
+        return precedents;
+    }
+
+    /**
+     * Returns the cells whose formula reads this cell.
+     * 
+     * @return The cells whose formula reads this cell.
+     */
+    Set<Cell<T>> dependents()
+    {
+        return dependents;
+    }
+
+    /**
+     * Returns the number of precedents that must be recomputed before this cell.
+     * 
+     * @return The number of precedents that must be recomputed before this cell.
+     */
+    int waiting()
+    {
+        return waiting;
+    }
+
+    /**
+     * Defines the number of precedents that must be recomputed before this cell.
+     * 
+     * @param count
+     *            The number of precedents that must be recomputed before this cell.
+     */
+    void setWaiting(int count)
+    {
+        this.waiting = count;
+    }
+
+    @Override
+    public String toString()
+    {
+        return formula == null ? name() : name() + " = " + formula;
+    }
+}
@@ -0,0 +1,122 @@
+/**
+ * Copyright (C) 2013 - 2015 Contributors.
+ *
+ * FormulaJ is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * FormulaJ is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see [http://www.gnu.org/licenses/].
+ *
+ * Contact: formulaj-user-list@googlegroups.com.
+ */
+package formulaj.expression.workbook;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import formulaj.expression.EvaluationException;
+import formulaj.expression.Value;
+import formulaj.expression.Variable;
+import formulaj.expression.compiler.CompiledExpression;
+import formulaj.expression.evaluator.Evaluator;
+import formulaj.expression.function.Function;
+import formulaj.expression.function.Functions;
+import formulaj.expression.operators.Operator;
+import formulaj.expression.operators.Operators;
+
+/**
+ * The {@link Evaluator} of the formulas of a {@link Workbook}. The variables are resolved to the cells of the workbook. It does not have mutable
+ * state, so the formulas can be evaluated by many threads at the same time.
+ * 
+ * @param <T>
+ *            The type of the cells' value.
+ */
+final class CellEvaluator<T> implements Evaluator<CompiledExpression<T>, Value<T>>
+{
+    /**
+     * The cells of the workbook. The key is the cell's name.
+     */
+    private final Map<String, Cell<T>> cells;
+
+    /**
+     * Creates a {@link CellEvaluator} that resolves the variables with the given cells.
+     * 
+     * @param workbookCells
+     *            The cells of the workbook. The key is the cell's name.
+     */
+    CellEvaluator(Map<String, Cell<T>> workbookCells)
+    {
+        this.cells = workbookCells;
+    }
+
+    @Override
+    public Value<T> eval(CompiledExpression<T> formula) throws EvaluationException
+    {
+        return formula.evaluate(this);
+    }
+
+    @Override
+    public Map<String, Variable<?>> variables()
+    {
+        Map<String, Variable<?>> variables = new HashMap<>();
+
+        for (Cell<T> cell : cells.values())
+        {
+            if (cell.value() != null)
+            {
+                variables.put(cell.name(), cell.variable());
+            }
+        }
+
+        return Collections.unmodifiableMap(variables);
+    }
+
+    @Override
+    public <R> Operator<R> getOperatorBySymbol(String symbol)
+    {
+        return Operators.getOperatorBySymbol(symbol);
+    }
+
+    @Override
+    public <R> Function<R> getFunctionByName(String name)
+    {
+        return Functions.<R> getFunctionByName(name);
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public <R> Variable<R> getVariableByName(String varName)
+    {
+        Cell<T> cell = cells.get(varName);
+        return cell == null || cell.value() == null ? null : (Variable<R>) cell.variable();
+    }
+
+    /**
+     * Ignores the variable. The value of an assignment is written in the workbook's cell of the formula, after its evaluation.
+     * 
+     * @param var
+     *            The variable assigned by a formula.
+     * @param <R>
+     *            The type of the variable value.
+     * @return Always <code>null</code>.
+     */
+    @Override
+    public <R> Variable<?> register(Variable<R> var)
+    {
+        return null;
+    }
+
+    @Override
+    public <R> Function<Value<R>> register(Function<Value<R>> function)
+    {
+        return Functions.register(function);
+    }
+}
@@ -0,0 +1,119 @@
+/**
+ * Copyright (C) 2013 - 2015 Contributors.
+ *
+ * FormulaJ is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * FormulaJ is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see [http://www.gnu.org/licenses/].
+ *
+ * Contact: formulaj-user-list@googlegroups.com.
+ */
+package formulaj.expression.workbook;
+
+import java.util.List;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicReference;
+
+import formulaj.expression.EvaluationException;
+
+/**
+ * Evaluates the formulas of a set of independent cells, splitting them among the threads of a {@link java.util.concurrent.ForkJoinPool}.
+ * 
+ * @param <T>
+ *            The type of the cells' value.
+ */
+final class Recompute<T> extends RecursiveAction
+{
+    /**
+     * Serial code version <code>serialVersionUID</code>.
+     */
+    private static final long serialVersionUID = -2818043262046542917L;
+
+    /**
+     * The maximum number of cells evaluated by a task without splitting it.
+     */
+    static final int THRESHOLD = 32;
+
+    /**
+     * The cells to be evaluated. None of them reads another one.
+     */
+    private final List<Cell<T>> cells;
+
+    /**
+     * The index of the first cell of this task.
+     */
+    private final int from;
+
+    /**
+     * The index after the last cell of this task.
+     */
+    private final int to;
+
+    /**
+     * The evaluator of the formulas.
+     */
+    private final CellEvaluator<T> evaluator;
+
+    /**
+     * The first failure of the evaluation.
+     */
+    private final AtomicReference<EvaluationException> failure;
+
+    /**
+     * Creates a task to evaluate the formulas of the cells between two indexes.
+     * 
+     * @param independent
+     *            The cells to be evaluated. None of them reads another one.
+     * @param start
+     *            The index of the first cell, inclusive.
+     * @param end
+     *            The index of the last cell, exclusive.
+     * @param cellEvaluator
+     *            The evaluator of the formulas.
+     * @param firstFailure
+     *            Receives the first failure of the evaluation.
+     */
+    Recompute(List<Cell<T>> independent, int start, int end, CellEvaluator<T> cellEvaluator, AtomicReference<EvaluationException> firstFailure)
+    {
+        this.cells = independent;
+        this.from = start;
+        this.to = end;
+        this.evaluator = cellEvaluator;
+        this.failure = firstFailure;
+    }
+
+    @Override
+    protected void compute()
+    {
+        if (to - from <= THRESHOLD)
+        {
+            for (int i = from; i < to; i++)
+            {
+                Cell<T> cell = cells.get(i);
+
+                try
+                {
+                    cell.setValue(evaluator.eval(cell.formula()));
+                }
+                catch (EvaluationException exception)
+                {
+                    cell.setValue(null);
+                    failure.compareAndSet(null, exception);
+                }
+            }
+        }
+        else
+        {
+            int middle = (from + to) >>> 1;
+            invokeAll(new Recompute<T>(cells, from, middle, evaluator, failure), new Recompute<T>(cells, middle, to, evaluator, failure));
+        }
+    }
+}
@@ -0,0 +1,461 @@
+/**
+ * Copyright (C) 2013 - 2015 Contributors.
+ *
+ * FormulaJ is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * FormulaJ is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see [http://www.gnu.org/licenses/].
+ *
+ * Contact: formulaj-user-list@googlegroups.com.
+ */
+package formulaj.expression.workbook;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicReference;
+
+import formulaj.expression.EvaluationException;
+import formulaj.expression.Value;
+import formulaj.expression.Variable;
+import formulaj.expression.compiler.CompiledExpression;
+import formulaj.expression.parser.AST;
+import formulaj.expression.parser.RecognitionException;
+import formulaj.expression.token.AssignToken;
+
+/**
+ * A set of named formulas that read each other. The workbook keeps the dependency graph built from the variables of each formula and, when a
+ * cell changes, {@link #recalculate()} evaluates only the formulas affected by the change, in topological order. The formulas that do not depend
+ * on each other are evaluated in parallel on a {@link ForkJoinPool}.
+ * 
+ * <pre>
+ * Workbook&lt;Decimal&gt; workbook = new Workbook&lt;&gt;();
+ * workbook.define(&quot;c = a * b&quot;);
+ * workbook.define(&quot;d&quot;, &quot;c + 1&quot;);
+ * workbook.set(&quot;a&quot;, Decimal.from(2));
+ * workbook.set(&quot;b&quot;, Decimal.from(3));
+ * workbook.recalculate(); // d = 7
+ * </pre>
+ * 
+ * A workbook is not thread-safe: it must not be changed while it is recalculated.
+ * 
+ * @param <T>
+ *            The type of the cells' value.
+ */
+public class Workbook<T>
+{
+    /**
+     * The pool used when no one is given to the constructor.
+     */
+    private static final ForkJoinPool DEFAULT_POOL = new ForkJoinPool();
+
+    /**
+     * The cells of this workbook. The key is the cell's name.
+     */
+    private final Map<String, Cell<T>> cells = new LinkedHashMap<>();
+
+    /**
+     * The cells changed since the last recalculation.
+     */
+    private final Set<Cell<T>> changed = new LinkedHashSet<>();
+
+    /**
+     * The evaluator of the formulas.
+     */
+    private final CellEvaluator<T> evaluator = new CellEvaluator<>(cells);
+
+    /**
+     * The pool that evaluates the independent formulas.
+     */
+    private final ForkJoinPool pool;
+
+    /**
+     * Creates an empty {@link Workbook} that evaluates the formulas on a pool shared by all workbooks.
+     */
+    public Workbook()
+    {
+        this(DEFAULT_POOL);
+    }
+
+    /**
+     * Creates an empty {@link Workbook} that evaluates the formulas on the given pool.
+     * 
+     * @param forkJoinPool
+     *            The pool that evaluates the independent formulas. Might not be <code>null</code>.
+     */
+    public Workbook(ForkJoinPool forkJoinPool)
+    {
+        this.pool = Objects.requireNonNull(forkJoinPool);
+    }
+
+    /**
+     * Defines the formula of a cell. The formula is evaluated by the next {@link #recalculate()}.
+     * 
+     * @param name
+     *            The name of the cell. It must be a valid variable's name.
+     * @param formula
+     *            The expression of the cell. Its variables are the name of other cells.
+     * @throws RecognitionException
+     *             If the formula is invalid.
+     * @throws IllegalArgumentException
+     *             If the formula reads the cell itself, directly or through other cells.
+     */
+    public void define(String name, String formula) throws RecognitionException
+    {
+        this.define(name, CompiledExpression.<T> compile(formula));
+    }
+
+    /**
+     * Defines the formula of a cell with an assignment statement like <code>c = a * b</code>. The formula is evaluated by the next
+     * {@link #recalculate()}.
+     * 
+     * @param statement
+     *            The assignment statement. The assigned variable is the name of the cell.
+     * @return The name of the cell.
+     * @throws RecognitionException
+     *             If the statement is invalid.
+     * @throws IllegalArgumentException
+     *             If the statement is not an assignment or if it reads the assigned cell, directly or through other cells.
+     */
+    public String define(String statement) throws RecognitionException
+    {
+        CompiledExpression<T> formula = CompiledExpression.compile(statement);
+
+        AST root = formula.root();
+
+        if (!(root instanceof AssignToken))
+        {
+            throw new IllegalArgumentException(String.format("The statement %s is not an assignment!", statement));
+        }
+
+        String name = ((AssignToken<?>) root).getId().name();
+        this.define(name, formula);
+
+        return name;
+    }
+
+    /**
+     * Defines the compiled formula of a cell.
+     * 
+     * @param name
+     *            The name of the cell.
+     * @param formula
+     *            The compiled formula of the cell.
+     */
+    private void define(String name, CompiledExpression<T> formula)
+    {
+        Cell<T> existing = cells.get(name);
+
+        for (String variable : formula.variables())
+        {
+            Cell<T> precedent = cells.get(variable);
+
+            if (name.equals(variable) || existing != null && precedent != null && reads(precedent, existing))
+            {
+                throw new IllegalArgumentException(String.format("The formula %s of %s has a circular reference!", formula, name));
+            }
+        }
+
+        Cell<T> cell = this.cellOf(name);
+        unlink(cell);
+
+        for (String variable : formula.variables())
+        {
+            Cell<T> precedent = this.cellOf(variable);
+            cell.precedents().add(precedent);
+            precedent.dependents().add(cell);
+        }
+
+        cell.setFormula(formula);
+        changed.add(cell);
+    }
+
+    /**
+     * Assigns the value of an input cell. If the cell has a formula, the formula is removed. The formulas that read the cell are evaluated by
+     * the next {@link #recalculate()}.
+     * 
+     * @param name
+     *            The name of the cell. It must be a valid variable's name.
+     * @param value
+     *            The value of the cell.
+     */
+    public void set(String name, T value)
+    {
+        Cell<T> cell = this.cellOf(name);
+
+        if (cell.formula() != null)
+        {
+            unlink(cell);
+            cell.setFormula(null);
+        }
+
+        cell.setValue(new Value<T>(value));
+        changed.add(cell);
+    }
+
+    /**
+     * Returns the value of a cell.
+     * 
+     * @param name
+     *            The name of the cell.
+     * @return The value of the cell or <code>null</code> if the cell does not exist or if it was not computed yet.
+     */
+    public Value<T> get(String name)
+    {
+        Cell<T> cell = cells.get(name);
+        return cell == null ? null : cell.value();
+    }
+
+    /**
+     * Returns the variable that holds the value of a cell.
+     * 
+     * @param name
+     *            The name of the cell.
+     * @return The variable that holds the value of the cell or <code>null</code> if the cell does not exist.
+     */
+    public Variable<T> getVariableByName(String name)
+    {
+        Cell<T> cell = cells.get(name);
+        return cell == null ? null : cell.variable();
+    }
+
+    /**
+     * Returns the number of cells of this workbook, including the input cells referenced by the formulas but not assigned yet.
+     * 
+     * @return The number of cells of this workbook.
+     */
+    public int size()
+    {
+        return cells.size();
+    }
+
+    /**
+     * Evaluates the formulas affected by the cells changed since the last recalculation. A formula is evaluated only after the formulas that it
+     * reads, and the formulas of the same level of the graph are evaluated in parallel. If a formula fails, the affected formulas that were not
+     * evaluated are kept to the next recalculation.
+     * 
+     * @return The number of formulas evaluated.
+     * @throws EvaluationException
+     *             If a formula reads a cell without value or if it is invalid.
+     */
+    public int recalculate() throws EvaluationException
+    {
+        Set<Cell<T>> dirty = affectedBy(changed);
+        changed.clear();
+
+        List<Cell<T>> wave = new ArrayList<>();
+
+        for (Cell<T> cell : dirty)
+        {
+            int waiting = 0;
+
+            for (Cell<T> precedent : cell.precedents())
+            {
+                if (dirty.contains(precedent))
+                {
+                    waiting++;
+                }
+            }
+
+            cell.setWaiting(waiting);
+
+            if (waiting == 0)
+            {
+                wave.add(cell);
+            }
+        }
+
+        int evaluated = 0;
+
+        try
+        {
+            while (!wave.isEmpty())
+            {
+                evaluate(wave);
+                evaluated += wave.size();
+
+                List<Cell<T>> next = new ArrayList<>();
+
+                for (Cell<T> cell : wave)
+                {
+                    dirty.remove(cell);
+
+                    for (Cell<T> dependent : cell.dependents())
+                    {
+                        if (dirty.contains(dependent))
+                        {
+                            dependent.setWaiting(dependent.waiting() - 1);
+
+                            if (dependent.waiting() == 0)
+                            {
+                                next.add(dependent);
+                            }
+                        }
+                    }
+                }
+
+                wave = next;
+            }
+        }
+        finally
+        {
+            changed.addAll(dirty);
+        }
+
+        return evaluated;
+    }
+
+    /**
+     * Evaluates the formulas of independent cells. Small sets are evaluated by the caller's thread.
+     * 
+     * @param independent
+     *            The cells to be evaluated.
+     * @throws EvaluationException
+     *             If one of the formulas fails.
+     */
+    private void evaluate(List<Cell<T>> independent) throws EvaluationException
+    {
+        AtomicReference<EvaluationException> failure = new AtomicReference<>();
+        Recompute<T> task = new Recompute<>(independent, 0, independent.size(), evaluator, failure);
+
+        if (independent.size() <= Recompute.THRESHOLD)
+        {
+            task.compute();
+        }
+        else
+        {
+            pool.invoke(task);
+        }
+
+        if (failure.get() != null)
+        {
+            throw failure.get();
+        }
+    }
+
+    /**
+     * Returns the formula cells that must be evaluated due to a change of the given cells.
+     * 
+     * @param changes
+     *            The changed cells.
+     * @return The changed formula cells and all the formula cells that read them, directly or through other cells.
+     */
+    private Set<Cell<T>> affectedBy(Set<Cell<T>> changes)
+    {
+        Set<Cell<T>> affected = new LinkedHashSet<>();
+        Deque<Cell<T>> pending = new ArrayDeque<>();
+
+        for (Cell<T> cell : changes)
+        {
+            if (cell.formula() == null || affected.add(cell))
+            {
+                pending.push(cell);
+            }
+        }
+
+        while (!pending.isEmpty())
+        {
+            for (Cell<T> dependent : pending.pop().dependents())
+            {
+                if (affected.add(dependent))
+                {
+                    pending.push(dependent);
+                }
+            }
+        }
+
+        return affected;
+    }
+
+    /**
+     * Returns <code>true</code> if a cell reads another one, directly or through other cells.
+     * 
+     * @param cell
+     *            The cell whose precedents are visited.
+     * @param target
+     *            The cell to be found.
+     * @param <T>
+     *            The type of the cells' value.
+     * @return <code>true</code> if the given cell is the target or if it reads the target, directly or through other cells.
+     */
+    private static <T> boolean reads(Cell<T> cell, Cell<T> target)
+    {
+        Set<Cell<T>> visited = new HashSet<>();
+        Deque<Cell<T>> pending = new ArrayDeque<>();
+        pending.push(cell);
+
+        while (!pending.isEmpty())
+        {
+            Cell<T> current = pending.pop();
+
+            if (current == target)
+            {
+                return true;
+            }
+
+            if (visited.add(current))
+            {
+                for (Cell<T> precedent : current.precedents())
+                {
+                    pending.push(precedent);
+                }
+            }
+        }
+
+        return false;
+    }
+
+    /**
+     * Removes a cell from the dependents of its precedents.
+     * 
+     * @param cell
+     *            The cell to be unlinked.
+     * @param <T>
+     *            The type of the cells' value.
+     */
+    private static <T> void unlink(Cell<T> cell)
+    {
+        for (Cell<T> precedent : cell.precedents())
+        {
+            precedent.dependents().remove(cell);
+        }
+
+        cell.precedents().clear();
+    }
+
+    /**
+     * Returns the cell with a given name, creating an input cell without value if it does not exist.
+     * 
+     * @param name
+     *            The name of the cell.
+     * @return The cell with the given name.
+     */
+    private Cell<T> cellOf(String name)
+    {
+        Cell<T> cell = cells.get(name);
+
+        if (cell == null)
+        {
+            cell = new Cell<>(name);
+            cells.put(name, cell);
+        }
+
+        return cell;
+    }
+}
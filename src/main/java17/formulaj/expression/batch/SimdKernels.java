@@ -0,0 +1,273 @@
+/**
+ * Copyright (C) 2013 - 2015 Contributors.
+ *
+ * FormulaJ is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * FormulaJ is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see [http://www.gnu.org/licenses/].
+ *
+ * Contact: formulaj-user-list@googlegroups.com.
+ */
+package formulaj.expression.batch;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * The {@link VectorKernels} implemented with the Java Vector API, which compiles each loop to the SIMD instructions of the processor. The
+ * operations whose lanewise results are exactly the ones of {@link Math} (the arithmetic, the square root, the comparisons and the logical
+ * operations) run on vectors of the preferred species; the other ones, such as the trigonometric functions, run on the loops of
+ * {@link ScalarKernels}, so both kernels produce the same values.
+ * <p>
+ * This class is compiled for Java 17 into the <code>META-INF/versions/17</code> directory of the multi-release jar and requires the
+ * <code>jdk.incubator.vector</code> module (<code>--add-modules jdk.incubator.vector</code>); without it, {@link Kernels} uses the
+ * {@link ScalarKernels}.
+ */
+public class SimdKernels extends ScalarKernels
+{
+    /**
+     * The shape of the vectors, the widest one of the processor.
+     */
+    private static final VectorSpecies<Double> SPECIES = DoubleVector.SPECIES_PREFERRED;
+
+    /**
+     * Returns <code>true</code> if a vector holds more than one value, so the vector loops are faster than the scalar ones.
+     * 
+     * @return <code>true</code> if the processor has SIMD instructions for <code>double</code>s.
+     */
+    @Override
+    public boolean isAvailable()
+    {
+        return SPECIES.length() > 1;
+    }
+
+    @Override
+    public void apply(VectorOperation operation, double[] a, int length)
+    {
+        switch (operation)
+        {
+        case NEG:
+            unary(VectorOperators.NEG, a, length);
+            break;
+        case ABS:
+            unary(VectorOperators.ABS, a, length);
+            break;
+        case SQRT:
+            unary(VectorOperators.SQRT, a, length);
+            break;
+        case SQUARE:
+            binary(VectorOperators.MUL, a, a, length);
+            break;
+        case NOT:
+            not(a, length);
+            break;
+        default:
+            super.apply(operation, a, length);
+        }
+    }
+
+    @Override
+    public void apply(VectorOperation operation, double[] a, double[] b, int length)
+    {
+        switch (operation)
+        {
+        case ADD:
+            binary(VectorOperators.ADD, a, b, length);
+            break;
+        case SUB:
+            binary(VectorOperators.SUB, a, b, length);
+            break;
+        case MUL:
+            binary(VectorOperators.MUL, a, b, length);
+            break;
+        case DIV:
+            binary(VectorOperators.DIV, a, b, length);
+            break;
+        case MAX:
+            binary(VectorOperators.MAX, a, b, length);
+            break;
+        case MIN:
+            binary(VectorOperators.MIN, a, b, length);
+            break;
+        case EQ:
+            compare(VectorOperators.EQ, a, b, length);
+            break;
+        case NE:
+            compare(VectorOperators.NE, a, b, length);
+            break;
+        case LT:
+            compare(VectorOperators.LT, a, b, length);
+            break;
+        case LE:
+            compare(VectorOperators.LE, a, b, length);
+            break;
+        case GT:
+            compare(VectorOperators.GT, a, b, length);
+            break;
+        case GE:
+            compare(VectorOperators.GE, a, b, length);
+            break;
+        case AND:
+            logical(true, a, b, length);
+            break;
+        case OR:
+            logical(false, a, b, length);
+            break;
+        default:
+            super.apply(operation, a, b, length);
+        }
+    }
+
+    /**
+     * Applies a lanewise unary operator to a vector. The values after the last full vector are processed with a mask.
+     * 
+     * @param operator
+     *            The operator.
+     * @param a
+     *            The operand. It receives the result.
+     * @param length
+     *            The number of values.
+     */
+    private static void unary(VectorOperators.Unary operator, double[] a, int length)
+    {
+        int i = 0;
+
+        for (int bound = SPECIES.loopBound(length); i < bound; i += SPECIES.length())
+        {
+            DoubleVector.fromArray(SPECIES, a, i).lanewise(operator).intoArray(a, i);
+        }
+
+        if (i < length)
+        {
+            VectorMask<Double> tail = SPECIES.indexInRange(i, length);
+            DoubleVector.fromArray(SPECIES, a, i, tail).lanewise(operator).intoArray(a, i, tail);
+        }
+    }
+
+    /**
+     * Applies a lanewise binary operator to two vectors.
+     * 
+     * @param operator
+     *            The operator.
+     * @param a
+     *            The left operand. It receives the result.
+     * @param b
+     *            The right operand.
+     * @param length
+     *            The number of values.
+     */
+    private static void binary(VectorOperators.Binary operator, double[] a, double[] b, int length)
+    {
+        int i = 0;
+
+        for (int bound = SPECIES.loopBound(length); i < bound; i += SPECIES.length())
+        {
+            DoubleVector.fromArray(SPECIES, a, i).lanewise(operator, DoubleVector.fromArray(SPECIES, b, i)).intoArray(a, i);
+        }
+
+        if (i < length)
+        {
+            VectorMask<Double> tail = SPECIES.indexInRange(i, length);
+            DoubleVector.fromArray(SPECIES, a, i, tail).lanewise(operator, DoubleVector.fromArray(SPECIES, b, i, tail)).intoArray(a, i, tail);
+        }
+    }
+
+    /**
+     * Compares two vectors and writes the mask of the comparison: <code>1.0</code> where it holds and <code>0.0</code> elsewhere.
+     * 
+     * @param comparison
+     *            The comparison.
+     * @param a
+     *            The left operand. It receives the mask.
+     * @param b
+     *            The right operand.
+     * @param length
+     *            The number of values.
+     */
+    private static void compare(VectorOperators.Comparison comparison, double[] a, double[] b, int length)
+    {
+        DoubleVector zero = DoubleVector.zero(SPECIES);
+        int i = 0;
+
+        for (int bound = SPECIES.loopBound(length); i < bound; i += SPECIES.length())
+        {
+            VectorMask<Double> mask = DoubleVector.fromArray(SPECIES, a, i).compare(comparison, DoubleVector.fromArray(SPECIES, b, i));
+            zero.blend(1.0, mask).intoArray(a, i);
+        }
+
+        if (i < length)
+        {
+            VectorMask<Double> tail = SPECIES.indexInRange(i, length);
+            VectorMask<Double> mask = DoubleVector.fromArray(SPECIES, a, i, tail).compare(comparison, DoubleVector.fromArray(SPECIES, b, i, tail));
+            zero.blend(1.0, mask).intoArray(a, i, tail);
+        }
+    }
+
+    /**
+     * Writes the mask of the values equal to zero, the logical negation of the values.
+     * 
+     * @param a
+     *            The operand. It receives the mask.
+     * @param length
+     *            The number of values.
+     */
+    private static void not(double[] a, int length)
+    {
+        DoubleVector zero = DoubleVector.zero(SPECIES);
+        int i = 0;
+
+        for (int bound = SPECIES.loopBound(length); i < bound; i += SPECIES.length())
+        {
+            zero.blend(1.0, DoubleVector.fromArray(SPECIES, a, i).compare(VectorOperators.EQ, 0.0)).intoArray(a, i);
+        }
+
+        if (i < length)
+        {
+            VectorMask<Double> tail = SPECIES.indexInRange(i, length);
+            zero.blend(1.0, DoubleVector.fromArray(SPECIES, a, i, tail).compare(VectorOperators.EQ, 0.0)).intoArray(a, i, tail);
+        }
+    }
+
+    /**
+     * Writes the mask of the conjunction or the disjunction of two vectors, read as <code>true</code> where they are not zero.
+     * 
+     * @param conjunction
+     *            <code>true</code> for the conjunction; <code>false</code> for the disjunction.
+     * @param a
+     *            The left operand. It receives the mask.
+     * @param b
+     *            The right operand.
+     * @param length
+     *            The number of values.
+     */
+    private static void logical(boolean conjunction, double[] a, double[] b, int length)
+    {
+        DoubleVector zero = DoubleVector.zero(SPECIES);
+        int i = 0;
+
+        for (int bound = SPECIES.loopBound(length); i < bound; i += SPECIES.length())
+        {
+            VectorMask<Double> left = DoubleVector.fromArray(SPECIES, a, i).compare(VectorOperators.NE, 0.0);
+            VectorMask<Double> right = DoubleVector.fromArray(SPECIES, b, i).compare(VectorOperators.NE, 0.0);
+            zero.blend(1.0, conjunction ? left.and(right) : left.or(right)).intoArray(a, i);
+        }
+
+        if (i < length)
+        {
+            VectorMask<Double> tail = SPECIES.indexInRange(i, length);
+            VectorMask<Double> left = DoubleVector.fromArray(SPECIES, a, i, tail).compare(VectorOperators.NE, 0.0);
+            VectorMask<Double> right = DoubleVector.fromArray(SPECIES, b, i, tail).compare(VectorOperators.NE, 0.0);
+            zero.blend(1.0, conjunction ? left.and(right) : left.or(right)).intoArray(a, i, tail);
+        }
+    }
+}
@@ -0,0 +1,221 @@
+/**
+ * Copyright (C) 2013 - 2015 Contributors.
+ *
+ * FormulaJ is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * FormulaJ is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see [http://www.gnu.org/licenses/].
+ *
+ * Contact: formulaj-user-list@googlegroups.com.
+ */
+package formulaj.expression.test;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import formulaj.expression.Decimal;
+import formulaj.expression.EvaluationException;
+import formulaj.expression.batch.BatchEvaluator;
+import formulaj.expression.batch.Column;
+import formulaj.expression.batch.ColumnarEvaluator;
+import formulaj.expression.batch.DecimalColumn;
+import formulaj.expression.batch.DoubleColumn;
+import formulaj.expression.batch.Kernels;
+import formulaj.expression.batch.LongColumn;
+import formulaj.expression.batch.ScalarKernels;
+import formulaj.expression.batch.ScaledLongColumn;
+import formulaj.expression.batch.VectorKernels;
+import formulaj.expression.batch.VectorOperation;
+import formulaj.expression.compiler.CompiledExpression;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class BatchEvaluatorTest extends TestSupport
+{
+    /**
+     * Tests that the batch evaluation returns the same values of the row evaluation.
+     * 
+     * @throws EvaluationException
+     *             If an expression is invalid.
+     */
+    @Test
+    public void must_evaluate_the_valid_expressions_in_batch() throws EvaluationException
+    {
+        Map<String, Column> columns = new HashMap<>();
+        columns.put("a", new DoubleColumn(new double[] {7, 7 }));
+        columns.put("b", new LongColumn(new long[] {8, 8 }));
+        columns.put("c", new ScaledLongColumn(new long[] {900, 900 }, 2));
+        columns.put("d", new DecimalColumn(new Decimal[] {Decimal.from(-8), Decimal.from(-8) }));
+        columns.put("n", new DoubleColumn(new double[] {2, 2 }));
+
+        BatchEvaluator evaluator = new ColumnarEvaluator();
+
+        for (Expression expression : expressions())
+        {
+            double[] output = new double[2];
+            evaluator.evaluate(CompiledExpression.compile(expression.getExpression()), columns, output);
+
+            Assert.assertEquals(expression.getExpression(), expression.getValue().doubleValue(), output[0], 1e-9);
+            Assert.assertEquals(expression.getExpression(), output[0], output[1], 0);
+        }
+    }
+
+    /**
+     * Tests an evaluation with many blocks and a function called row by row.
+     * 
+     * @throws EvaluationException
+     *             If the expression is invalid.
+     */
+    @Test
+    public void must_evaluate_many_blocks() throws EvaluationException
+    {
+        int rows = 5000;
+        double[] x = new double[rows];
+        long[] y = new long[rows];
+
+        for (int i = 0; i < rows; i++)
+        {
+            x[i] = i * 0.5;
+            y[i] = i;
+        }
+
+        Map<String, Column> columns = new HashMap<>();
+        columns.put("x", new DoubleColumn(x));
+        columns.put("y", new LongColumn(y));
+
+        double[] output = new double[rows];
+        new ColumnarEvaluator().evaluate(CompiledExpression.compile("sum(x) * 2 - y + max(y, 10)"), columns, output);
+
+        for (int i = 0; i < rows; i++)
+        {
+            Assert.assertEquals(Math.max(i, 10), output[i], 0);
+        }
+    }
+
+    /**
+     * Tests that a function called row by row returns {@link Double#NaN} for the rows whose arguments are not finite, instead of failing the
+     * batch.
+     * 
+     * @throws EvaluationException
+     *             If the expression is invalid.
+     */
+    @Test
+    public void must_call_functions_with_missing_values() throws EvaluationException
+    {
+        Map<String, Column> columns = new HashMap<>();
+        columns.put("x", new DoubleColumn(new double[] {4, Double.NaN, Double.POSITIVE_INFINITY, -1 }));
+
+        double[] output = new double[4];
+        new ColumnarEvaluator().evaluate(CompiledExpression.compile("sum(x) + sum(sqrt(x))"), columns, output);
+
+        Assert.assertArrayEquals(new double[] {6, Double.NaN, Double.NaN, Double.NaN }, output, 0);
+    }
+
+    /**
+     * Tests that the relational and logical kernels produce masks.
+     */
+    @Test
+    public void must_produce_masks()
+    {
+        double[] a = {1, 2, 3, 4 };
+        double[] b = {2, 2, 2, 2 };
+
+        Kernels.get().apply(VectorOperation.LE, a, b, 3);
+        Assert.assertArrayEquals(new double[] {1, 1, 0, 4 }, a, 0);
+
+        Kernels.get().apply(VectorOperation.NOT, a, 4);
+        Assert.assertArrayEquals(new double[] {0, 0, 1, 0 }, a, 0);
+    }
+
+    /**
+     * Tests that the kernels in use produce the values of the {@link ScalarKernels}, for every operation and for lengths that are not
+     * multiples of a vector, and that the Vector API kernels are used from Java 17 on.
+     */
+    @Test
+    public void must_produce_the_values_of_the_scalar_kernels()
+    {
+        VectorKernels kernels = Kernels.get();
+        VectorKernels scalar = new ScalarKernels();
+        String version = System.getProperty("java.specification.version");
+
+        if (!version.startsWith("1.") && Integer.parseInt(version) >= 17)
+        {
+            Assert.assertEquals("formulaj.expression.batch.SimdKernels", kernels.getClass().getName());
+        }
+
+        double[] special = {0, -0.0, 1, -1, 0.5, -2.5, 3, Double.NaN, Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY, 1e-300, 7.25 };
+        Random random = new Random(31);
+
+        for (int length : new int[] {0, 1, 3, 7, 8, 13, 64, 101 })
+        {
+            double[] a = new double[length];
+            double[] b = new double[length];
+
+            for (int i = 0; i < length; i++)
+            {
+                a[i] = i < special.length ? special[i] : random.nextInt(7) - 3 + random.nextDouble();
+                b[i] = special[(i * 5 + 3) % special.length];
+            }
+
+            for (VectorOperation operation : VectorOperation.values())
+            {
+                double[] expected = Arrays.copyOf(a, length + 1);
+                double[] actual = Arrays.copyOf(a, length + 1);
+                expected[length] = 42;
+                actual[length] = 42;
+
+                if (operation.arity() == 1)
+                {
+                    scalar.apply(operation, expected, length);
+                    kernels.apply(operation, actual, length);
+                }
+                else
+                {
+                    scalar.apply(operation, expected, b, length);
+                    kernels.apply(operation, actual, b, length);
+                }
+                Assert.assertArrayEquals(operation + " of " + length + " values", expected, actual, 0);
+            }
+        }
+    }
+
+    /**
+     * Tests that the values of a fixed-point column are the nearest <code>double</code>s, as the ones of {@link BigDecimal#doubleValue()}.
+     */
+    @Test
+    public void must_read_the_nearest_double_of_scaled_values()
+    {
+        long[] unscaled = new long[10000];
+        for (int i = 0; i < unscaled.length; i++)
+        {
+            unscaled[i] = i * 7919L - 20000;
+        }
+
+        double[] values = new double[unscaled.length];
+
+        for (int scale : new int[] {-3, 0, 1, 2, 5, 9, 22 })
+        {
+            new ScaledLongColumn(unscaled, scale).read(0, values, values.length);
+
+            for (int i = 0; i < unscaled.length; i++)
+            {
+                Assert.assertEquals(BigDecimal.valueOf(unscaled[i], scale).doubleValue(), values[i], 0);
+            }
+        }
+
+        new ScaledLongColumn(new long[] {35 }, 2).read(0, values, 1);
+        Assert.assertEquals(0.35, values[0], 0);
+    }
+}
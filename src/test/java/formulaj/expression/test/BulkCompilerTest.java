@@ -0,0 +1,107 @@
+/**
+ * Copyright (C) 2013 - 2015 Contributors.
+ *
+ * FormulaJ is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * FormulaJ is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see [http://www.gnu.org/licenses/].
+ *
+ * Contact: formulaj-user-list@googlegroups.com.
+ */
+package formulaj.expression.test;
+
+import java.util.AbstractMap.SimpleEntry;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import formulaj.expression.Decimal;
+import formulaj.expression.EvaluationException;
+import formulaj.expression.compiler.BulkCompiler;
+import formulaj.expression.compiler.CompilationFailure;
+import formulaj.expression.compiler.CompiledExpression;
+import formulaj.expression.compiler.FormulaCatalogue;
+import formulaj.expression.evaluator.impl.BindingEvaluator;
+import formulaj.expression.parser.RecognitionException;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class BulkCompilerTest
+{
+    /**
+     * Tests the compilation of a large batch with repeated texts.
+     * 
+     * @throws EvaluationException
+     *             If an expression could not be evaluated.
+     */
+    @Test
+    public void must_compile_each_distinct_text_once() throws EvaluationException
+    {
+        List<Map.Entry<String, String>> formulas = new ArrayList<>();
+        for (int i = 0; i < 5000; i++)
+        {
+            formulas.add(new SimpleEntry<>("f" + i, "x * " + (i % 100) + " + y"));
+        }
+
+        FormulaCatalogue catalogue = new BulkCompiler().compile(formulas.iterator());
+
+        Assert.assertEquals(5000, catalogue.size());
+        Assert.assertEquals(5000, catalogue.compiledCount());
+        Assert.assertEquals(100, catalogue.distinctCount());
+        Assert.assertTrue(catalogue.failures().isEmpty());
+        Assert.assertSame(catalogue.get("f7"), catalogue.get("f107"));
+        Assert.assertEquals(4321, catalogue.indexOf("f4321"));
+        Assert.assertEquals("f4321", catalogue.id(4321));
+
+        Map<String, Integer> frame = new HashMap<>();
+        frame.put("x", 2);
+        frame.put("y", 1);
+
+        CompiledExpression<Decimal> expression = catalogue.get(4321);
+        Assert.assertTrue(new BindingEvaluator<Decimal>().bind(frame).eval(expression).getValue().eq(43));
+    }
+
+    /**
+     * Tests that the invalid items are reported without stopping the batch.
+     */
+    @Test
+    public void must_report_the_failures_of_each_item()
+    {
+        Map<String, String> formulas = new LinkedHashMap<>();
+        formulas.put("ok", "x + 1");
+        formulas.put("incomplete", "x * (y + 1");
+        formulas.put("lexical", "x # 2");
+        formulas.put("empty", null);
+        formulas.put("window", "movsum(x, 3)");
+        formulas.put("again", "movsum(x, 3)");
+
+        FormulaCatalogue catalogue = new BulkCompiler().compile(formulas);
+
+        Assert.assertEquals(6, catalogue.size());
+        Assert.assertEquals(3, catalogue.compiledCount());
+        Assert.assertNotNull(catalogue.get("ok"));
+        Assert.assertNull(catalogue.get("incomplete"));
+        Assert.assertNull(catalogue.get("unknown"));
+
+        List<CompilationFailure> failures = catalogue.failures();
+        Assert.assertEquals(3, failures.size());
+        Assert.assertEquals("incomplete", failures.get(0).id());
+        Assert.assertEquals(1, failures.get(0).position());
+        Assert.assertTrue(failures.get(0).cause() instanceof RecognitionException);
+        Assert.assertEquals("x # 2", failures.get(1).text());
+        Assert.assertEquals("empty", failures.get(2).id());
+
+        Assert.assertNotSame("Stateful expressions must not be shared", catalogue.get("window"), catalogue.get("again"));
+    }
+}
@@ -0,0 +1,124 @@
+/**
+ * Copyright (C) 2013 - 2015 Contributors.
+ *
+ * FormulaJ is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * FormulaJ is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see [http://www.gnu.org/licenses/].
+ *
+ * Contact: formulaj-user-list@googlegroups.com.
+ */
+package formulaj.expression.test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.math.BigDecimal;
+
+import formulaj.expression.Decimal;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class CompactDecimalTest
+{
+    /**
+     * The values compared with the arithmetic of {@link BigDecimal}, compact and inflated ones.
+     */
+    private static final String[] VALUES = { "0", "0.00", "1", "-1", "2.50", "123.456", "-0.001", "1e5", "922337203685477580.7",
+            String.valueOf(Long.MAX_VALUE), String.valueOf(Long.MIN_VALUE), "99999999999999999999.99", "1e-30" };
+
+    /**
+     * Tests that the arithmetic of compact values, and its overflow to inflated ones, agrees with {@link BigDecimal}.
+     */
+    @Test
+    public void must_agree_with_big_decimal_arithmetic()
+    {
+        for (String a : VALUES)
+        {
+            for (String b : VALUES)
+            {
+                BigDecimal x = new BigDecimal(a);
+                BigDecimal y = new BigDecimal(b);
+                Decimal dx = new Decimal(a);
+                Decimal dy = new Decimal(b);
+
+                Assert.assertEquals(x.add(y), dx.plus(dy).bigDecimalValue());
+                Assert.assertEquals(x.subtract(y), dx.minus(dy).bigDecimalValue());
+                Assert.assertEquals(x.multiply(y), dx.times(dy).bigDecimalValue());
+                Assert.assertEquals(x.compareTo(y), dx.compareTo(dy));
+                Assert.assertEquals(x.doubleValue(), dx.doubleValue(), 0);
+            }
+        }
+
+        Decimal max = Decimal.from(Long.MAX_VALUE);
+        Assert.assertEquals(BigDecimal.valueOf(Long.MAX_VALUE).add(BigDecimal.ONE), max.plus(Decimal.ONE).bigDecimalValue());
+        Assert.assertEquals(BigDecimal.valueOf(Long.MAX_VALUE).multiply(BigDecimal.TEN), max.times(Decimal.from(10)).bigDecimalValue());
+    }
+
+    /**
+     * Tests that the values that compare equal have the same hash code, whatever their scale and representation.
+     */
+    @Test
+    public void must_hash_equal_values_alike()
+    {
+        String[][] equal = { { "2.0", "2.00", "2" }, { "0", "0.000", "0e3" }, { "1e18", "1000000000000000000.00", "1000000000000000000" },
+                { "123456789012345678901234567890", "123456789012345678901234567890.000" } };
+
+        for (String[] values : equal)
+        {
+            for (String a : values)
+            {
+                for (String b : values)
+                {
+                    Assert.assertEquals(new Decimal(a), new Decimal(b));
+                    Assert.assertEquals(new Decimal(a).hashCode(), new Decimal(b).hashCode());
+                }
+            }
+        }
+
+        Decimal inflated = new Decimal(new BigDecimal("12345").setScale(20));
+        Assert.assertEquals(Decimal.from(12345), inflated);
+        Assert.assertEquals(Decimal.from(12345).hashCode(), inflated.hashCode());
+        Assert.assertFalse(new Decimal("2.5").equals(new Decimal("2.50001")));
+    }
+
+    /**
+     * Tests that the small integers are shared and that a value survives the serialization.
+     * 
+     * @throws Exception
+     *             If the value cannot be serialized.
+     */
+    @Test
+    public void must_cache_small_integers_and_serialize_the_value() throws Exception
+    {
+        Assert.assertSame(Decimal.from(5), Decimal.from(5));
+        Assert.assertSame(Decimal.ONE, Decimal.from(3).minus(Decimal.from(2)));
+
+        for (String value : VALUES)
+        {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+
+            try (ObjectOutputStream out = new ObjectOutputStream(bytes))
+            {
+                out.writeObject(new Decimal(value));
+            }
+
+            try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray())))
+            {
+                Decimal read = (Decimal) in.readObject();
+                Assert.assertEquals(new BigDecimal(value), read.bigDecimalValue());
+                Assert.assertEquals(new Decimal(value).hashCode(), read.hashCode());
+            }
+        }
+    }
+}
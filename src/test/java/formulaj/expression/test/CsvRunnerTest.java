@@ -0,0 +1,194 @@
+/**
+ * Copyright (C) 2013 - 2015 Contributors.
+ *
+ * FormulaJ is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * FormulaJ is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see [http://www.gnu.org/licenses/].
+ *
+ * Contact: formulaj-user-list@googlegroups.com.
+ */
+package formulaj.expression.test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import formulaj.expression.EvaluationException;
+import formulaj.expression.batch.ParallelEvaluator;
+import formulaj.expression.compiler.CompiledExpression;
+import formulaj.expression.csv.CsvRunner;
+import formulaj.expression.csv.MappedCsvReader;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class CsvRunnerTest
+{
+    /**
+     * The folder of the files of the tests.
+     */
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    /**
+     * Tests the evaluation of a file read in many segments, with quoted, blank and exponent fields.
+     * 
+     * @throws IOException
+     *             If a file cannot be read or written.
+     * @throws EvaluationException
+     *             If an expression is invalid.
+     */
+    @Test
+    public void must_evaluate_the_rows_of_a_file() throws IOException, EvaluationException
+    {
+        Path input = folder.newFile("input.csv").toPath();
+        Files.write(input, Arrays.asList("id,name,price,quantity", "1,\"a, b\",2.5,4", "2,c,\"1e1\",3\r", "", "3,d,-0.125,", "4,e,7"),
+                StandardCharsets.UTF_8);
+
+        Path output = folder.newFile("output.csv").toPath();
+        List<CompiledExpression<?>> expressions = new ArrayList<>();
+        expressions.add(CompiledExpression.compile("price * quantity"));
+        expressions.add(CompiledExpression.compile("price / 2"));
+
+        Assert.assertEquals(4, new CsvRunner(new ParallelEvaluator(), 32).run(input, output, expressions));
+        Assert.assertEquals(Arrays.asList("\"price * quantity\",\"price / 2\"", "10,1.25", "30,5", ",-0.0625", ",3.5"),
+                Files.readAllLines(output, StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Tests that only the selected columns are parsed.
+     * 
+     * @throws IOException
+     *             If the file cannot be read.
+     * @throws EvaluationException
+     *             If a column is not in the header.
+     */
+    @Test
+    public void must_parse_only_the_selected_columns() throws IOException, EvaluationException
+    {
+        Path input = folder.newFile("input.csv").toPath();
+        Files.write(input, Arrays.asList("x,label,y", "1,not a number,0.1", "2,,123456789.987654321"), StandardCharsets.UTF_8);
+
+        try (MappedCsvReader reader = new MappedCsvReader(input))
+        {
+            Assert.assertEquals(Arrays.asList("x", "label", "y"), reader.header());
+            reader.select(Arrays.asList("y", "x"));
+
+            Assert.assertTrue(reader.next());
+            Assert.assertEquals(2, reader.rows());
+
+            double[] values = new double[2];
+            reader.column("y").read(0, values, 2);
+            Assert.assertArrayEquals(new double[] {0.1, 123456789.987654321 }, values, 0);
+            reader.column("x").read(0, values, 2);
+            Assert.assertArrayEquals(new double[] {1, 2 }, values, 0);
+
+            Assert.assertFalse(reader.next());
+        }
+    }
+
+    /**
+     * Tests that a segment does not end at a line break between quotes.
+     * 
+     * @throws IOException
+     *             If the file cannot be read.
+     * @throws EvaluationException
+     *             If a column is not in the header.
+     */
+    @Test
+    public void must_not_split_a_quoted_line_break() throws IOException, EvaluationException
+    {
+        Path input = folder.newFile("input.csv").toPath();
+        Files.write(input, Arrays.asList("x,label", "1,a", "2,\"b", "c\"", "3,d"), StandardCharsets.UTF_8);
+
+        try (MappedCsvReader reader = new MappedCsvReader(input, ',', 10))
+        {
+            reader.select(Arrays.asList("x"));
+            List<Double> rows = new ArrayList<>();
+
+            while (reader.next())
+            {
+                double[] values = new double[reader.rows()];
+                reader.column("x").read(0, values, values.length);
+
+                for (double value : values)
+                {
+                    rows.add(value);
+                }
+            }
+
+            Assert.assertEquals(Arrays.asList(1d, 2d, 3d), rows);
+        }
+    }
+
+    /**
+     * Tests that the columns grow while a segment is parsed, keeping its first rows, and that a line larger than a segment is rejected.
+     * 
+     * @throws IOException
+     *             If the file cannot be read.
+     * @throws EvaluationException
+     *             If a column is not in the header.
+     */
+    @Test
+    public void must_grow_the_columns_while_parsing_a_segment() throws IOException, EvaluationException
+    {
+        List<String> lines = new ArrayList<>();
+        lines.add("x");
+        for (int i = 0; i < 1000; i++)
+        {
+            lines.add(Integer.toString(i));
+        }
+
+        Path input = folder.newFile("input.csv").toPath();
+        Files.write(input, lines, StandardCharsets.UTF_8);
+
+        try (MappedCsvReader reader = new MappedCsvReader(input, ',', 1000))
+        {
+            reader.select(Arrays.asList("x"));
+            int expected = 0;
+
+            while (reader.next())
+            {
+                double[] values = new double[reader.rows()];
+                reader.column("x").read(0, values, values.length);
+
+                for (double value : values)
+                {
+                    Assert.assertEquals(expected++, value, 0);
+                }
+            }
+
+            Assert.assertEquals(1000, expected);
+        }
+
+        Files.write(input, Arrays.asList("x", "1", "123456789012", "2"), StandardCharsets.UTF_8);
+
+        try (MappedCsvReader reader = new MappedCsvReader(input, ',', 10))
+        {
+            reader.select(Arrays.asList("x"));
+            Assert.assertTrue(reader.next());
+            Assert.assertEquals(1, reader.rows());
+            reader.next();
+            Assert.fail("The line is larger than a segment");
+        }
+        catch (IOException expected)
+        {
+            Assert.assertTrue(expected.getMessage().contains("larger than a segment"));
+        }
+    }
+}
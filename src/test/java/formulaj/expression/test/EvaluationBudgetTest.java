@@ -0,0 +1,173 @@
+/**
+ * Copyright (C) 2013 - 2015 Contributors.
+ *
+ * FormulaJ is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * FormulaJ is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see [http://www.gnu.org/licenses/].
+ *
+ * Contact: formulaj-user-list@googlegroups.com.
+ */
+package formulaj.expression.test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import formulaj.expression.BudgetExceededException;
+import formulaj.expression.Decimal;
+import formulaj.expression.EvaluationBudget;
+import formulaj.expression.EvaluationBudget.Limit;
+import formulaj.expression.EvaluationException;
+import formulaj.expression.ExpressionBuilder;
+import formulaj.expression.compiler.CompiledExpression;
+import formulaj.expression.compiler.CostEstimator;
+import formulaj.expression.compiler.ExpressionCache;
+import formulaj.expression.evaluator.impl.BindingEvaluator;
+import formulaj.expression.evaluator.impl.ExpressionEvaluator;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class EvaluationBudgetTest
+{
+    /**
+     * The budget of the tests.
+     */
+    private static final EvaluationBudget BUDGET = EvaluationBudget.UNLIMITED.withMaxNodeVisits(100).withMaxPrecision(50).withMaxScale(50)
+            .withMaxExponent(1000);
+
+    /**
+     * Evaluates an expression within a budget and returns the limit that was exceeded.
+     * 
+     * @param text
+     *            The expression.
+     * @param budget
+     *            The budget of the evaluation.
+     * @param x
+     *            The value of the variable <code>x</code>.
+     * @return The limit that was exceeded or <code>null</code> if the evaluation was within the budget.
+     * @throws EvaluationException
+     *             If the expression is invalid.
+     */
+    private static Limit exceeded(String text, EvaluationBudget budget, Object x) throws EvaluationException
+    {
+        Map<String, Object> frame = new HashMap<>();
+        frame.put("x", x);
+
+        try
+        {
+            CompiledExpression.<Decimal> compile(text).evaluate(new BindingEvaluator<Decimal>().bind(frame), budget);
+            return null;
+        }
+        catch (BudgetExceededException exception)
+        {
+            return exception.getLimit();
+        }
+    }
+
+    /**
+     * Tests that an evaluation is aborted when it exceeds a limit.
+     * 
+     * @throws EvaluationException
+     *             If an expression is invalid.
+     */
+    @Test
+    public void must_abort_an_evaluation_that_exceeds_the_budget() throws EvaluationException
+    {
+        Assert.assertNull(exceeded("x * 2 + max(x, 3) ^ 2", BUDGET, 7));
+        Assert.assertEquals(Limit.NODE_VISITS, exceeded("x + x + x", BUDGET.withMaxNodeVisits(4), 1));
+        Assert.assertEquals(Limit.EXPONENT, exceeded("2 ^ x", BUDGET, 100000));
+        Assert.assertEquals(Limit.EXPONENT, exceeded("pow(2, x)", BUDGET, -100000));
+        Assert.assertEquals(Limit.PRECISION, exceeded("x * x * x", BUDGET, new Decimal("123456789012345678901")));
+        Assert.assertEquals(Limit.SCALE, exceeded("x * x * x", BUDGET.withMaxScale(10), new Decimal("1.0001")));
+
+        StringBuilder sum = new StringBuilder("x");
+
+        for (int i = 0; i < EvaluationBudget.DEADLINE_CHECK_INTERVAL; i++)
+        {
+            sum.append(" + x");
+        }
+        Assert.assertEquals(Limit.DEADLINE, exceeded(sum.toString(), EvaluationBudget.UNLIMITED.withTimeout(1, TimeUnit.NANOSECONDS), 1));
+    }
+
+    /**
+     * Tests that an evaluation visits each node of the tree once.
+     * 
+     * @throws EvaluationException
+     *             If an expression is invalid.
+     */
+    @Test
+    public void must_count_each_node_once() throws EvaluationException
+    {
+        for (String text : new String[] { "-x", "x + x * 2", "max(x, 2) * -x", "pow(x, 2) + 1" })
+        {
+            long nodes = CompiledExpression.compile(text).nodeCount();
+
+            Assert.assertNull(text, exceeded(text, EvaluationBudget.UNLIMITED.withMaxNodeVisits(nodes), 3));
+            Assert.assertEquals(text, Limit.NODE_VISITS, exceeded(text, EvaluationBudget.UNLIMITED.withMaxNodeVisits(nodes - 1), 3));
+        }
+    }
+
+    /**
+     * Tests that the pathological expressions are rejected when they are compiled.
+     * 
+     * @throws EvaluationException
+     *             If an expression is invalid.
+     */
+    @Test
+    public void must_reject_pathological_expressions_at_compile_time() throws EvaluationException
+    {
+        Assert.assertEquals(5, CompiledExpression.compile("(x + 1) ^ 2", BUDGET).nodeCount());
+        Assert.assertEquals(7, CompiledExpression.compile("x * x * x * x", BUDGET).nodeCount());
+        Assert.assertEquals(7, CompiledExpression.compile("x / 3 / 7 / 11", BUDGET).nodeCount());
+
+        for (String text : new String[] { "2 ^ 999999999", "pow(x, -5000)", "(x ^ 100) ^ 100", "(x + 1) ^ 60" })
+        {
+            try
+            {
+                CompiledExpression.compile(text, BUDGET);
+                Assert.fail(text);
+            }
+            catch (BudgetExceededException exception)
+            {
+                Assert.assertNotEquals(Limit.NODE_VISITS, exception.getLimit());
+            }
+        }
+    }
+
+    /**
+     * Tests the estimated digits of the divisions and of the huge literal exponents.
+     * 
+     * @throws EvaluationException
+     *             If an expression is invalid.
+     */
+    @Test
+    public void must_estimate_the_digits_of_divisions_and_huge_exponents() throws EvaluationException
+    {
+        Assert.assertEquals(34, CostEstimator.digits(CompiledExpression.compile("1 / 3 * 1234567890123456789012345 / 7").root()));
+        Assert.assertEquals(34, CostEstimator.digits(CompiledExpression.compile("1234567890123456789012345678901234567890 / 3").root()));
+        Assert.assertEquals(Long.MAX_VALUE, CostEstimator.digits(CompiledExpression.compile("2 ^ 100000000000000000000").root()));
+        Assert.assertEquals(Long.MAX_VALUE, CostEstimator.digits(CompiledExpression.compile("2 ^ 18446744073709551618").root()));
+    }
+
+    /**
+     * Tests that an {@link ExpressionEvaluator} limits its evaluations.
+     * 
+     * @throws EvaluationException
+     *             If the expression is invalid.
+     */
+    @Test(expected = BudgetExceededException.class)
+    public void must_limit_the_evaluations_of_an_evaluator() throws EvaluationException
+    {
+        ExpressionBuilder.<Decimal> newMathExpression("3 ^ 999999").evaluate(new ExpressionEvaluator<Decimal>(ExpressionCache.shared(), BUDGET));
+    }
+}
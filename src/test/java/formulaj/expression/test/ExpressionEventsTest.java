@@ -0,0 +1,150 @@
+/**
+ * Copyright (C) 2013 - 2015 Contributors.
+ *
+ * FormulaJ is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * FormulaJ is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see [http://www.gnu.org/licenses/].
+ *
+ * Contact: formulaj-user-list@googlegroups.com.
+ */
+package formulaj.expression.test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import formulaj.expression.Decimal;
+import formulaj.expression.EvaluationException;
+import formulaj.expression.ExpressionBuilder;
+import formulaj.expression.compiler.ExpressionCache;
+import formulaj.expression.evaluator.impl.ExpressionEvaluator;
+import formulaj.expression.event.ExpressionEvent;
+import formulaj.expression.event.ExpressionEvent.Outcome;
+import formulaj.expression.event.ExpressionEvent.Phase;
+import formulaj.expression.event.ExpressionEventListener;
+import formulaj.expression.event.ExpressionEvents;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ExpressionEventsTest
+{
+    /**
+     * The events received by the listener.
+     */
+    private final List<ExpressionEvent> events = new ArrayList<>();
+
+    /**
+     * A listener that records the events.
+     */
+    private final ExpressionEventListener listener = new ExpressionEventListener()
+    {
+        @Override
+        public void onEvent(ExpressionEvent event)
+        {
+            events.add(event);
+        }
+    };
+
+    /**
+     * Registers the listener.
+     */
+    @Before
+    public void setUp()
+    {
+        ExpressionEvents.register(listener);
+    }
+
+    /**
+     * Removes the listener.
+     */
+    @After
+    public void tearDown()
+    {
+        ExpressionEvents.unregister(listener);
+    }
+
+    /**
+     * Tests that the cache lookup and the evaluation of an expression are measured.
+     * 
+     * @throws EvaluationException
+     *             If the expression is invalid.
+     */
+    @Test
+    public void must_fire_lookup_and_evaluate_events() throws EvaluationException
+    {
+        ExpressionBuilder.<Decimal> newMathExpression("2 * 3 + max(1, 2)").evaluate(new ExpressionEvaluator<Decimal>());
+
+        ExpressionEvent last = events.get(events.size() - 1);
+
+        Assert.assertEquals(Phase.CACHE_LOOKUP, events.get(0).getPhase());
+        Assert.assertEquals(Phase.EVALUATE, last.getPhase());
+        Assert.assertEquals(7, last.getNodeCount());
+        Assert.assertEquals(Outcome.SUCCESS, last.getOutcome());
+
+        for (ExpressionEvent event : events)
+        {
+            Assert.assertEquals(last.getFingerprint(), event.getFingerprint());
+        }
+    }
+
+    /**
+     * Tests that an expression is parsed only once when it's evaluated many times.
+     * 
+     * @throws EvaluationException
+     *             If the expression is invalid.
+     */
+    @Test
+    public void must_parse_an_expression_once() throws EvaluationException
+    {
+        ExpressionCache cache = new ExpressionCache(ExpressionCache.DEFAULT_MAXIMUM_SIZE);
+
+        for (int i = 0; i < 3; i++)
+        {
+            ExpressionBuilder.<Decimal> newMathExpression("min(4, 5) * 7 - 1").evaluate(new ExpressionEvaluator<Decimal>(cache));
+        }
+
+        int parses = 0;
+        int hits = 0;
+
+        for (ExpressionEvent event : events)
+        {
+            parses += event.getPhase() == Phase.PARSE ? 1 : 0;
+            hits += event.getOutcome() == Outcome.HIT ? 1 : 0;
+        }
+
+        Assert.assertEquals(1, parses);
+        Assert.assertEquals(2, hits);
+    }
+
+    /**
+     * Tests that a failed evaluation is reported as a failure.
+     */
+    @Test
+    public void must_fire_failure_events_for_invalid_expressions()
+    {
+        try
+        {
+            ExpressionBuilder.<Decimal> newMathExpression("abss(1)").evaluate(new ExpressionEvaluator<Decimal>());
+            Assert.fail();
+        }
+        catch (EvaluationException expected)
+        {
+            ExpressionEvent last = events.get(events.size() - 1);
+
+            Assert.assertEquals(Phase.EVALUATE, last.getPhase());
+            Assert.assertEquals(Outcome.FAILURE, last.getOutcome());
+            Assert.assertEquals(2, last.getNodeCount());
+        }
+    }
+}
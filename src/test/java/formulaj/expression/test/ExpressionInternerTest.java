@@ -0,0 +1,159 @@
+/**
+ * Copyright (C) 2013 - 2015 Contributors.
+ *
+ * FormulaJ is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * FormulaJ is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see [http://www.gnu.org/licenses/].
+ *
+ * Contact: formulaj-user-list@googlegroups.com.
+ */
+package formulaj.expression.test;
+
+import java.math.MathContext;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+
+import formulaj.expression.Decimal;
+import formulaj.expression.EvaluationException;
+import formulaj.expression.PrecisionPolicy;
+import formulaj.expression.compiler.BulkCompiler;
+import formulaj.expression.compiler.CompiledExpression;
+import formulaj.expression.compiler.ExpressionInterner;
+import formulaj.expression.compiler.FormulaCatalogue;
+import formulaj.expression.evaluator.impl.BindingEvaluator;
+import formulaj.expression.token.BinaryOperatorToken;
+import formulaj.expression.token.FunctionToken;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class ExpressionInternerTest
+{
+    /**
+     * Returns the left operand of a binary expression.
+     * 
+     * @param expression
+     *            An expression whose root is a binary operator.
+     * @return The left operand of the root.
+     */
+    private static Object left(CompiledExpression<?> expression)
+    {
+        return ((BinaryOperatorToken<?>) (Object) expression.root()).getLeft();
+    }
+
+    /**
+     * Returns the right operand of a binary expression.
+     * 
+     * @param expression
+     *            An expression whose root is a binary operator.
+     * @return The right operand of the root.
+     */
+    private static Object right(CompiledExpression<?> expression)
+    {
+        return ((BinaryOperatorToken<?>) (Object) expression.root()).getRight();
+    }
+
+    /**
+     * Tests that the identical subtrees and literals of different expressions are shared.
+     * 
+     * @throws EvaluationException
+     *             If an expression is invalid.
+     */
+    @Test
+    public void must_share_identical_subtrees() throws EvaluationException
+    {
+        ExpressionInterner interner = new ExpressionInterner();
+
+        CompiledExpression<Decimal> first = interner.intern(CompiledExpression.<Decimal> compile("a * b + c"));
+        CompiledExpression<Decimal> second = interner.intern(CompiledExpression.<Decimal> compile("a * b - 2"));
+        CompiledExpression<Decimal> third = interner.intern(CompiledExpression.<Decimal> compile("c * 2"));
+
+        Assert.assertSame(left(first), left(second));
+        Assert.assertSame(right(first), left(third));
+        Assert.assertSame(right(second), right(third));
+        Assert.assertEquals(interner.symbol(new String("a")), "a");
+        Assert.assertEquals(8, interner.nodeCount());
+        Assert.assertEquals(5, interner.getHitCount());
+
+        Map<String, Integer> frame = new HashMap<>();
+        frame.put("a", 3);
+        frame.put("b", 4);
+        frame.put("c", 5);
+
+        Assert.assertTrue(new BindingEvaluator<Decimal>().bind(frame).eval(first).getValue().eq(17));
+        Assert.assertTrue(new BindingEvaluator<Decimal>().bind(frame).eval(second).getValue().eq(10));
+        Assert.assertEquals(first.variables(), CompiledExpression.compile("a * b + c").variables());
+    }
+
+    /**
+     * Tests that the calls of stateful functions are not shared, because each one keeps its own window.
+     * 
+     * @throws EvaluationException
+     *             If an expression is invalid.
+     */
+    @Test
+    public void must_not_share_stateful_calls() throws EvaluationException
+    {
+        ExpressionInterner interner = new ExpressionInterner();
+
+        CompiledExpression<Decimal> first = interner.intern(CompiledExpression.<Decimal> compile("movsum(x, 2) + 1"));
+        CompiledExpression<Decimal> second = interner.intern(CompiledExpression.<Decimal> compile("movsum(x, 2) + 1"));
+        CompiledExpression<Decimal> pure = interner.intern(CompiledExpression.<Decimal> compile("max(x, 2) + 1"));
+
+        Assert.assertNotSame(first.root(), second.root());
+        Assert.assertTrue(left(first) instanceof FunctionToken);
+        Assert.assertNotSame(left(first), left(second));
+        Assert.assertSame(((FunctionToken<?>) left(first)).getArgs().get(0), ((FunctionToken<?>) left(pure)).getArgs().get(0));
+        Assert.assertSame(pure.root(), interner.intern(CompiledExpression.compile("max(x, 2) + 1")).root());
+    }
+
+    /**
+     * Tests that the catalogues compiled with the same interner share their trees.
+     */
+    @Test
+    public void must_share_trees_across_catalogues()
+    {
+        ExpressionInterner interner = new ExpressionInterner();
+        BulkCompiler compiler = new BulkCompiler(new ForkJoinPool(2), interner);
+
+        Map<String, String> formulas = new HashMap<>();
+        formulas.put("score", "price * quantity");
+
+        FormulaCatalogue first = compiler.compile(formulas);
+        FormulaCatalogue second = compiler.compile(formulas);
+
+        Assert.assertNotSame(first.get("score"), second.get("score"));
+        Assert.assertSame(first.get("score").root(), second.get("score").root());
+    }
+
+    /**
+     * Tests that an interned expression keeps the precision policy of the original one.
+     * 
+     * @throws EvaluationException
+     *             If the expression is invalid.
+     */
+    @Test
+    public void must_keep_the_precision_policy() throws EvaluationException
+    {
+        ExpressionInterner interner = new ExpressionInterner();
+        PrecisionPolicy policy = PrecisionPolicy.of(new MathContext(5));
+
+        CompiledExpression<Decimal> interned = interner.intern(CompiledExpression.<Decimal> compile("x / 3").withPrecision(policy));
+        Map<String, Object> frame = new HashMap<>();
+        frame.put("x", 2);
+
+        Assert.assertEquals(policy, interned.precision());
+        Assert.assertEquals(new Decimal("0.66667"), new BindingEvaluator<Decimal>().bind(frame).eval(interned).getValue());
+        Assert.assertNull(interner.intern(CompiledExpression.<Decimal> compile("x / 3")).precision());
+    }
+}
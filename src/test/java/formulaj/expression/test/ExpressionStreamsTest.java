@@ -0,0 +1,115 @@
+/**
+ * Copyright (C) 2013 - 2015 Contributors.
+ *
+ * FormulaJ is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * FormulaJ is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see [http://www.gnu.org/licenses/].
+ *
+ * Contact: formulaj-user-list@googlegroups.com.
+ */
+package formulaj.expression.test;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.Map;
+
+import formulaj.MathExpression;
+import formulaj.expression.Decimal;
+import formulaj.expression.EvaluationException;
+import formulaj.expression.ExpressionBuilder;
+import formulaj.expression.Value;
+import formulaj.expression.Variable;
+import formulaj.expression.batch.ParallelEvaluator;
+import formulaj.expression.compiler.CompiledExpression;
+import formulaj.expression.evaluator.impl.ExpressionEvaluator;
+import formulaj.expression.stream.Aggregators;
+import formulaj.expression.stream.ExpressionStreams;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class ExpressionStreamsTest
+{
+    /**
+     * Tests the lazy evaluation of a sequence of frames.
+     * 
+     * @throws EvaluationException
+     *             If the expression is invalid.
+     */
+    @Test
+    public void must_evaluate_frames_lazily() throws EvaluationException
+    {
+        CompiledExpression<Decimal> expression = CompiledExpression.compile("x * 2");
+
+        Assert.assertEquals(Decimal.from(9900), ExpressionStreams.collect(ExpressionStreams.evaluate(expression, frames(100)), Aggregators.sum()));
+        Assert.assertEquals(Decimal.from(99), ExpressionStreams.collect(
+                ExpressionStreams.evaluateParallel(expression, frames(100), new ParallelEvaluator(), 7), Aggregators.average()));
+        Assert.assertEquals(Long.valueOf(100), ExpressionStreams.collect(ExpressionStreams.evaluate(expression, frames(100)), Aggregators.count()));
+    }
+
+    /**
+     * Tests that an expression keeps only the variables that it assigns.
+     * 
+     * @throws EvaluationException
+     *             If the expression is invalid.
+     */
+    @Test
+    public void must_not_keep_the_variables_of_the_evaluator() throws EvaluationException
+    {
+        ExpressionEvaluator<Decimal> evaluator = new ExpressionEvaluator<>();
+        evaluator.register(new Variable<>("x", new Value<>(Decimal.from(2))));
+        evaluator.register(new Variable<>("y", new Value<>(Decimal.from(3))));
+
+        MathExpression<Decimal> expression = ExpressionBuilder.newMathExpression("z = x * 2");
+
+        for (int i = 0; i < 3; i++)
+        {
+            Assert.assertEquals(Decimal.from(4), expression.evaluate(evaluator).getValue());
+        }
+
+        Assert.assertEquals(1, expression.variables().size());
+        Assert.assertEquals("z", expression.variables().iterator().next().name());
+    }
+
+    /**
+     * Returns an {@link Iterator} of frames that bind x to 0, 1, ..., count - 1, created on demand.
+     * 
+     * @param count
+     *            The number of frames.
+     * @return An {@link Iterator} of frames that bind x to 0, 1, ..., count - 1.
+     */
+    private static Iterator<Map<String, Object>> frames(final int count)
+    {
+        return new Iterator<Map<String, Object>>()
+        {
+            private int next;
+
+            @Override
+            public boolean hasNext()
+            {
+                return next < count;
+            }
+
+            @Override
+            public Map<String, Object> next()
+            {
+                return Collections.<String, Object> singletonMap("x", next++);
+            }
+
+            @Override
+            public void remove()
+            {
+                throw new UnsupportedOperationException();
+            }
+        };
+    }
+}
@@ -0,0 +1,122 @@
+/**
+ * Copyright (C) 2013 - 2015 Contributors.
+ *
+ * FormulaJ is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * FormulaJ is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see [http://www.gnu.org/licenses/].
+ *
+ * Contact: formulaj-user-list@googlegroups.com.
+ */
+package formulaj.expression.test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import formulaj.expression.Decimal;
+import formulaj.expression.EvaluationException;
+import formulaj.expression.batch.Column;
+import formulaj.expression.batch.DecimalColumn;
+import formulaj.expression.batch.DoubleColumn;
+import formulaj.expression.batch.FilterProjectPipeline;
+import formulaj.expression.batch.FilteredBatch;
+import formulaj.expression.batch.MaskedColumn;
+import formulaj.expression.batch.ValidityBitmap;
+import formulaj.expression.compiler.CompiledExpression;
+import formulaj.expression.evaluator.impl.ExpressionEvaluator;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class FilterProjectPipelineTest
+{
+    /**
+     * Tests the precedence of the relational and logical operators.
+     * 
+     * @throws EvaluationException
+     *             If the expression is invalid.
+     */
+    @Test
+    public void must_parse_relational_and_logical_operators() throws EvaluationException
+    {
+        Assert.assertEquals(Boolean.TRUE, CompiledExpression.compile("2 * 3 > 4 + 1 && 1 <= 2").evaluate(new ExpressionEvaluator<>()).getValue());
+        Assert.assertEquals(Boolean.TRUE, CompiledExpression.compile("1 > 2 || 3 - 1 == 2 && 1 <> 2").evaluate(new ExpressionEvaluator<>())
+                .getValue());
+        Assert.assertEquals(Boolean.FALSE, CompiledExpression.compile("2 >= 3").evaluate(new ExpressionEvaluator<>()).getValue());
+    }
+
+    /**
+     * Tests that the projections are evaluated over the selected rows with the validity of their variables.
+     * 
+     * @throws EvaluationException
+     *             If the expressions are invalid.
+     */
+    @Test
+    public void must_project_the_selected_rows() throws EvaluationException
+    {
+        int rows = 10000;
+        double[] age = new double[rows];
+        Decimal[] balance = new Decimal[rows];
+        double[] score = new double[rows];
+        ValidityBitmap scored = new ValidityBitmap(rows);
+
+        for (int i = 0; i < rows; i++)
+        {
+            age[i] = i % 100;
+            balance[i] = i % 7 == 0 ? null : Decimal.from(i % 10 - 2);
+            score[i] = i;
+            scored.set(i, i % 3 != 0);
+        }
+
+        Map<String, Column> columns = new HashMap<>();
+        columns.put("age", new DoubleColumn(age));
+        columns.put("balance", new DecimalColumn(balance));
+        columns.put("score", new MaskedColumn(new DoubleColumn(score), scored));
+
+        FilterProjectPipeline pipeline = FilterProjectPipeline.compile(CompiledExpression.compile("age >= 90 && balance > 0"),
+                CompiledExpression.compile("score * 2"), CompiledExpression.compile("age + balance"));
+        FilteredBatch result = pipeline.execute(columns, rows);
+
+        int expected = 0;
+        for (int i = 0; i < rows; i++)
+        {
+            if (age[i] >= 90 && balance[i] != null && balance[i].doubleValue() > 0)
+            {
+                Assert.assertEquals(i, result.selection().row(expected));
+                Assert.assertEquals(i % 3 != 0, result.validity(0).isValid(expected));
+                Assert.assertEquals(i % 3 != 0 ? 2.0 * i : Double.NaN, result.values(0)[expected], 0);
+                Assert.assertEquals(age[i] + balance[i].doubleValue(), result.values(1)[expected], 0);
+                expected++;
+            }
+        }
+
+        Assert.assertEquals(expected, result.size());
+        Assert.assertEquals(expected, result.validity(1).cardinality());
+    }
+
+    /**
+     * Tests that the validity of a column follows the changes of its array.
+     */
+    @Test
+    public void must_read_the_validity_of_a_refilled_column()
+    {
+        Decimal[] values = {Decimal.from(1), null };
+        DecimalColumn column = new DecimalColumn(values);
+
+        Assert.assertFalse(column.validity().isValid(1));
+
+        values[0] = null;
+        values[1] = Decimal.from(2);
+
+        Assert.assertFalse(column.validity().isValid(0));
+        Assert.assertTrue(column.validity().isValid(1));
+    }
+}
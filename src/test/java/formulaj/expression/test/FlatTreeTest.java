@@ -0,0 +1,154 @@
+/**
+ * Copyright (C) 2013 - 2015 Contributors.
+ *
+ * FormulaJ is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * FormulaJ is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see [http://www.gnu.org/licenses/].
+ *
+ * Contact: formulaj-user-list@googlegroups.com.
+ */
+package formulaj.expression.test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import formulaj.common.base.MemoryFootprint;
+import formulaj.expression.Decimal;
+import formulaj.expression.EvaluationException;
+import formulaj.expression.Value;
+import formulaj.expression.compiler.CompiledExpression;
+import formulaj.expression.evaluator.impl.BindingEvaluator;
+import formulaj.expression.token.FlatTree;
+import formulaj.expression.token.Nodes;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class FlatTreeTest
+{
+    /**
+     * Returns a frame of bindings.
+     * 
+     * @param x
+     *            The value of the variable <code>x</code>.
+     * @param y
+     *            The value of the variable <code>y</code>.
+     * @return The frame with the given values.
+     */
+    private static Map<String, Object> frame(int x, int y)
+    {
+        Map<String, Object> frame = new HashMap<>();
+        frame.put("x", x);
+        frame.put("y", y);
+        return frame;
+    }
+
+    /**
+     * Tests that the flat tree and the tree rebuilt from it have the values of the original tree.
+     * 
+     * @throws EvaluationException
+     *             If an expression is invalid.
+     */
+    @Test
+    public void must_evaluate_as_the_original_tree() throws EvaluationException
+    {
+        for (String text : new String[] { "x * 2 + max(y, 3)", "-x + 3", "c = x * (y - 1)", "x ^ 2 * 3 / 4" })
+        {
+            CompiledExpression<Decimal> compiled = CompiledExpression.compile(text);
+            FlatTree flat = FlatTree.of(compiled.root());
+
+            Assert.assertEquals(text, compiled.nodeCount(), flat.size());
+            Assert.assertEquals(text, compiled.nodeCount(), Nodes.count(flat.<Decimal> toTree()));
+
+            for (int x = -2; x <= 2; x++)
+            {
+                Value<Decimal> expected = new BindingEvaluator<Decimal>().bind(frame(x, 5)).eval(compiled);
+                Value<Decimal> actual = flat.evaluate(new BindingEvaluator<Decimal>().bind(frame(x, 5)));
+                Value<Decimal> rebuilt = FlatTree.of(flat.<Decimal> toTree()).evaluate(new BindingEvaluator<Decimal>().bind(frame(x, 5)));
+
+                Assert.assertTrue(text, expected.getValue().eq(actual.getValue()));
+                Assert.assertTrue(text, expected.getValue().eq(rebuilt.getValue()));
+            }
+        }
+    }
+
+    /**
+     * Tests that the nodes are in post-order, with their children before them.
+     * 
+     * @throws EvaluationException
+     *             If the expression is invalid.
+     */
+    @Test
+    public void must_encode_the_nodes_in_post_order() throws EvaluationException
+    {
+        FlatTree flat = FlatTree.of(CompiledExpression.<Decimal> compile("x * 2 + max(y, 2)").root());
+
+        Assert.assertEquals(flat.size() - 1, flat.root());
+        Assert.assertEquals(FlatTree.BINARY, flat.kind(flat.root()));
+        Assert.assertEquals("+", flat.text(flat.root()));
+        Assert.assertEquals(0, flat.start(flat.root()));
+
+        int[] children = flat.children(flat.root());
+        Assert.assertEquals(2, children.length);
+        Assert.assertEquals("*", flat.text(children[0]));
+        Assert.assertEquals(FlatTree.FUNCTION, flat.kind(children[1]));
+        Assert.assertEquals("max", flat.text(children[1]));
+        Assert.assertEquals(2, flat.arity(children[1]));
+
+        Assert.assertEquals(FlatTree.VARIABLE, flat.kind(0));
+        Assert.assertEquals("x", flat.text(0));
+
+        // x, *, 2, +, max, y
+        Assert.assertEquals(6, flat.symbolCount());
+    }
+
+    /**
+     * Tests that the functions that keep state between calls keep it when the flat tree is evaluated.
+     * 
+     * @throws EvaluationException
+     *             If the expression is invalid.
+     */
+    @Test
+    public void must_keep_the_state_of_the_calls() throws EvaluationException
+    {
+        FlatTree flat = FlatTree.of(CompiledExpression.<Decimal> compile("movsum(x, 2)").root());
+        List<Integer> sums = new ArrayList<>();
+
+        for (int x = 1; x <= 4; x++)
+        {
+            sums.add(flat.<Decimal> evaluate(new BindingEvaluator<Decimal>().bind(frame(x, 0))).getValue().intValue());
+        }
+
+        Assert.assertEquals(Arrays.asList(1, 3, 5, 7), sums);
+    }
+
+    /**
+     * Tests that the flat tree retains less memory than the tree of nodes.
+     * 
+     * @throws EvaluationException
+     *             If the expression is invalid.
+     */
+    @Test
+    public void must_be_smaller_than_the_tree_of_nodes() throws EvaluationException
+    {
+        CompiledExpression<Decimal> compiled = CompiledExpression.compile("(a + b) * (a - b) / (c + 2) + max(a, b, c) * 2");
+        FlatTree flat = FlatTree.of(compiled.root());
+
+        Assert.assertTrue(flat.footprint() > 0);
+        Assert.assertTrue(flat.footprint() < MemoryFootprint.of(compiled.root()));
+        Assert.assertTrue(compiled.footprint() > MemoryFootprint.of(compiled.root()));
+        Assert.assertEquals(MemoryFootprint.of(compiled.root()), MemoryFootprint.of(compiled.root(), compiled.root()));
+    }
+}
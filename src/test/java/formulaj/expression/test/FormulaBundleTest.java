@@ -0,0 +1,229 @@
+/**
+ * Copyright (C) 2013 - 2015 Contributors.
+ *
+ * FormulaJ is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * FormulaJ is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see [http://www.gnu.org/licenses/].
+ *
+ * Contact: formulaj-user-list@googlegroups.com.
+ */
+package formulaj.expression.test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import formulaj.expression.Decimal;
+import formulaj.expression.EvaluationException;
+import formulaj.expression.UndefinedFunctionException;
+import formulaj.expression.compiler.CompiledExpression;
+import formulaj.expression.compiler.FormulaBundle;
+import formulaj.expression.evaluator.impl.BindingEvaluator;
+import formulaj.expression.function.Functions;
+import formulaj.expression.function.math.FunctionSupport;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class FormulaBundleTest
+{
+    /**
+     * The folder of the files of the tests.
+     */
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    /**
+     * Tests that the expressions of a bundle are loaded lazily and evaluated as the compiled ones.
+     * 
+     * @throws IOException
+     *             If the bundle could not be written or read.
+     * @throws EvaluationException
+     *             If an expression is invalid.
+     */
+    @Test
+    public void must_load_the_expressions_written_to_a_bundle() throws IOException, EvaluationException
+    {
+        String[] texts = {"x * 2 + y", "max(x, y) - 1", "-x + 3", "c = x * (y - 1)", "x > y && y <> 0", "x * 2 + y" };
+
+        Map<String, CompiledExpression<Decimal>> expressions = new LinkedHashMap<>();
+        for (int i = 0; i < texts.length; i++)
+        {
+            expressions.put("f" + i, CompiledExpression.<Decimal> compile(texts[i]));
+        }
+
+        Path file = folder.newFile("formulas.bundle").toPath();
+        FormulaBundle.write(file, expressions);
+
+        FormulaBundle bundle = FormulaBundle.open(file);
+        Assert.assertEquals(texts.length, bundle.size());
+        Assert.assertEquals(0, bundle.loadedCount());
+        Assert.assertEquals("f3", bundle.id(3));
+        Assert.assertTrue(bundle.functions().contains("max"));
+
+        Map<String, Object> frame = new HashMap<>();
+        frame.put("x", 4);
+        frame.put("y", 3);
+
+        for (Map.Entry<String, CompiledExpression<Decimal>> entry : expressions.entrySet())
+        {
+            CompiledExpression<Decimal> loaded = bundle.get(entry.getKey());
+
+            Assert.assertEquals(entry.getValue().expression(), loaded.expression());
+            Assert.assertEquals(entry.getValue().variables(), loaded.variables());
+            Assert.assertEquals(entry.getValue().nodeCount(), loaded.nodeCount());
+            Assert.assertEquals(new BindingEvaluator<Decimal>().bind(frame).eval(entry.getValue()),
+                    new BindingEvaluator<Decimal>().bind(frame).eval(loaded));
+        }
+
+        Assert.assertEquals(texts.length, bundle.loadedCount());
+        Assert.assertSame(bundle.get("f0"), bundle.get(0));
+        Assert.assertNull(bundle.get("unknown"));
+    }
+
+    /**
+     * Tests that each request of an expression that keeps state gets its own state, so two callers do not share a window.
+     * 
+     * @throws IOException
+     *             If the bundle could not be written or read.
+     * @throws EvaluationException
+     *             If the expression is invalid.
+     */
+    @Test
+    public void must_not_share_the_state_of_a_loaded_expression() throws IOException, EvaluationException
+    {
+        Map<String, CompiledExpression<Decimal>> expressions = new LinkedHashMap<>();
+        expressions.put("sum", CompiledExpression.<Decimal> compile("movsum(x, 3)"));
+
+        Path file = folder.newFile("stateful.bundle").toPath();
+        FormulaBundle.write(file, expressions);
+        FormulaBundle bundle = FormulaBundle.open(file);
+
+        CompiledExpression<Decimal> first = bundle.get("sum");
+        CompiledExpression<Decimal> second = bundle.get("sum");
+
+        for (int i = 1; i <= 3; i++)
+        {
+            Assert.assertEquals(Decimal.from(i), new BindingEvaluator<Decimal>().bind(frame(1)).eval(first).getValue());
+            Assert.assertEquals(Decimal.from(100 * i), new BindingEvaluator<Decimal>().bind(frame(100)).eval(second).getValue());
+        }
+    }
+
+    /**
+     * Returns the bindings of a frame with the variable <code>x</code>.
+     * 
+     * @param x
+     *            The value of <code>x</code>.
+     * @return The bindings of the frame.
+     */
+    private static Map<String, Object> frame(int x)
+    {
+        Map<String, Object> frame = new HashMap<>();
+        frame.put("x", x);
+        return frame;
+    }
+
+    /**
+     * Tests that a bundle is not opened if a function that it calls is not registered.
+     * 
+     * @throws IOException
+     *             If the bundle could not be written or read.
+     * @throws EvaluationException
+     *             If the function is not registered, as expected.
+     */
+    @Test(expected = UndefinedFunctionException.class)
+    public void must_verify_the_functions_of_a_bundle() throws IOException, EvaluationException
+    {
+        Functions.register(new FunctionSupport<Decimal>(1, "twice")
+        {
+            @Override
+            protected Decimal eval(Decimal[] args)
+            {
+                return args[0].times(2);
+            }
+        });
+
+        Path file = folder.newFile("twice.bundle").toPath();
+
+        try
+        {
+            Map<String, CompiledExpression<Decimal>> expressions = new HashMap<>();
+            expressions.put("twice", CompiledExpression.<Decimal> compile("twice(x)"));
+            FormulaBundle.write(file, expressions);
+        }
+        finally
+        {
+            Functions.unregister("twice");
+        }
+
+        FormulaBundle.open(file);
+    }
+
+    /**
+     * Tests that a file that is not a bundle is rejected.
+     * 
+     * @throws IOException
+     *             Because the file is not a bundle.
+     * @throws EvaluationException
+     *             Never.
+     */
+    @Test(expected = IOException.class)
+    public void must_not_open_a_file_that_is_not_a_bundle() throws IOException, EvaluationException
+    {
+        Path file = folder.newFile("formulas.txt").toPath();
+        Files.write(file, "x * 2 + y and other formulas".getBytes("UTF-8"));
+
+        FormulaBundle.open(file);
+    }
+
+    /**
+     * Tests that a bundle cut at any position, even inside its header or its symbol table, is rejected with an {@link IOException}.
+     * 
+     * @throws IOException
+     *             If the bundle could not be written.
+     * @throws EvaluationException
+     *             If an expression is invalid.
+     */
+    @Test
+    public void must_not_open_a_truncated_bundle() throws IOException, EvaluationException
+    {
+        Map<String, CompiledExpression<Decimal>> expressions = new LinkedHashMap<>();
+        expressions.put("f0", CompiledExpression.<Decimal> compile("max(x, y) * 2 + 1"));
+        expressions.put("f1", CompiledExpression.<Decimal> compile("c = x - y"));
+
+        Path file = folder.newFile("complete.bundle").toPath();
+        FormulaBundle.write(file, expressions);
+        byte[] bytes = Files.readAllBytes(file);
+
+        for (int length = 0; length < bytes.length; length++)
+        {
+            Path truncated = folder.newFile("truncated-" + length + ".bundle").toPath();
+            Files.write(truncated, Arrays.copyOf(bytes, length));
+
+            try
+            {
+                FormulaBundle.open(truncated);
+                Assert.fail("A bundle truncated to " + length + " bytes was opened");
+            }
+            catch (IOException expected)
+            {
+                Assert.assertNotNull(expected.getMessage());
+            }
+        }
+    }
+}
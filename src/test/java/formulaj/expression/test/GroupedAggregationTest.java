@@ -0,0 +1,99 @@
+/**
+ * Copyright (C) 2013 - 2015 Contributors.
+ *
+ * FormulaJ is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * FormulaJ is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see [http://www.gnu.org/licenses/].
+ *
+ * Contact: formulaj-user-list@googlegroups.com.
+ */
+package formulaj.expression.test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import formulaj.expression.Decimal;
+import formulaj.expression.EvaluationException;
+import formulaj.expression.batch.Aggregation;
+import formulaj.expression.batch.Column;
+import formulaj.expression.batch.DecimalColumn;
+import formulaj.expression.batch.DoubleColumn;
+import formulaj.expression.batch.GroupedAggregation;
+import formulaj.expression.batch.GroupedResult;
+import formulaj.expression.compiler.CompiledExpression;
+import formulaj.expression.function.Functions;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class GroupedAggregationTest
+{
+    /**
+     * Tests the aggregation of many rows in parallel, with a key expression and missing values.
+     * 
+     * @throws EvaluationException
+     *             If the expressions are invalid.
+     */
+    @Test
+    public void must_aggregate_the_values_by_key() throws EvaluationException
+    {
+        int rows = 200000;
+        double[] region = new double[rows];
+        Decimal[] price = new Decimal[rows];
+
+        for (int i = 0; i < rows; i++)
+        {
+            region[i] = i % 10;
+            price[i] = i % 4 == 3 ? null : Decimal.from(i % 100);
+        }
+
+        Map<String, Column> columns = new HashMap<>();
+        columns.put("region", new DoubleColumn(region));
+        columns.put("price", new DecimalColumn(price));
+
+        GroupedResult result = GroupedAggregation.compile(CompiledExpression.compile("price * 2"), CompiledExpression.compile("region % 5"))
+                .execute(columns, rows);
+
+        Assert.assertEquals(5, result.size());
+
+        for (int key = 0; key < 5; key++)
+        {
+            long count = 0;
+            double sum = 0;
+            double min = Double.POSITIVE_INFINITY;
+            double max = Double.NEGATIVE_INFINITY;
+
+            for (int i = 0; i < rows; i++)
+            {
+                if (region[i] % 5 == key && price[i] != null)
+                {
+                    double value = price[i].doubleValue() * 2;
+                    count++;
+                    sum += value;
+                    min = Math.min(min, value);
+                    max = Math.max(max, value);
+                }
+            }
+
+            int group = result.group(key);
+            Assert.assertEquals(key, result.key(group), 0);
+            Assert.assertEquals(count, result.value(Aggregation.COUNT, group), 0);
+            Assert.assertEquals(sum, result.value(Aggregation.SUM, group), 0);
+            Assert.assertEquals(sum / count, result.value(Aggregation.AVG, group), 1e-9);
+            Assert.assertEquals(min, result.value(Aggregation.MIN, group), 0);
+            Assert.assertEquals(max, result.value(Aggregation.MAX, group), 0);
+        }
+
+        Assert.assertEquals(-1, result.group(7));
+        Assert.assertEquals(Aggregation.SUM, Aggregation.of(Functions.getFunctionByName("sum")));
+    }
+}
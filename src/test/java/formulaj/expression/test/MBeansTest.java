@@ -0,0 +1,130 @@
+/**
+ * Copyright (C) 2013 - 2015 Contributors.
+ *
+ * FormulaJ is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * FormulaJ is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see [http://www.gnu.org/licenses/].
+ *
+ * Contact: formulaj-user-list@googlegroups.com.
+ */
+package formulaj.expression.test;
+
+import java.lang.management.ManagementFactory;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.openmbean.TabularData;
+
+import formulaj.expression.Decimal;
+import formulaj.expression.EvaluationException;
+import formulaj.expression.ExpressionBuilder;
+import formulaj.expression.compiler.ExpressionCache;
+import formulaj.expression.evaluator.impl.ExpressionEvaluator;
+import formulaj.expression.management.MBeans;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class MBeansTest
+{
+    /**
+     * The platform {@link MBeanServer}.
+     */
+    private final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+
+    /**
+     * Registers the management beans.
+     * 
+     * @throws JMException
+     *             If the beans could not be registered.
+     */
+    @Before
+    public void setUp() throws JMException
+    {
+        MBeans.register();
+    }
+
+    /**
+     * Removes the management beans.
+     * 
+     * @throws JMException
+     *             If the beans could not be removed.
+     */
+    @After
+    public void tearDown() throws JMException
+    {
+        MBeans.unregister();
+    }
+
+    /**
+     * Tests the attributes and operations of the registries' bean.
+     * 
+     * @throws JMException
+     *             If the bean is not registered.
+     */
+    @Test
+    public void must_expose_the_registries() throws JMException
+    {
+        ObjectName name = new ObjectName(MBeans.REGISTRIES);
+
+        Assert.assertTrue((Integer) server.getAttribute(name, "FunctionCount") > 0);
+        Assert.assertNotNull(((TabularData) server.getAttribute(name, "Operators")).get(new Object[] {"*" }));
+
+        Assert.assertEquals(Boolean.TRUE, server.invoke(name, "unregisterFunction", new Object[] {"sqrt" }, new String[] {String.class.getName() }));
+        Assert.assertEquals("sqrt", server.invoke(name, "registerFunction", new Object[] {"formulaj.expression.function.math.Sqrt" },
+                new String[] {String.class.getName() }));
+    }
+
+    /**
+     * Tests the evaluation statistics and the cache's bean.
+     * 
+     * @throws JMException
+     *             If the bean is not registered.
+     * @throws EvaluationException
+     *             If the expression is invalid.
+     */
+    @Test
+    public void must_count_evaluations_and_clear_the_cache() throws JMException, EvaluationException
+    {
+        ExpressionBuilder.<Decimal> newMathExpression("3 * 3").evaluate(new ExpressionEvaluator<Decimal>(ExpressionCache.shared()));
+        ExpressionBuilder.<Decimal> newMathExpression("3 * 3").evaluate(new ExpressionEvaluator<Decimal>(ExpressionCache.shared()));
+
+        ObjectName statistics = new ObjectName(MBeans.EVALUATION_STATISTICS);
+        Assert.assertEquals(2L, server.getAttribute(statistics, "EvaluationCount"));
+
+        ObjectName cache = new ObjectName(MBeans.EXPRESSION_CACHE);
+        Assert.assertTrue((Long) server.getAttribute(cache, "HitCount") > 0);
+
+        server.invoke(cache, "clear", null, null);
+        Assert.assertEquals(0, server.getAttribute(cache, "Size"));
+    }
+
+    /**
+     * Tests that the evaluators do not use the shared cache unless it is given to them.
+     * 
+     * @throws EvaluationException
+     *             If the expression is invalid.
+     */
+    @Test
+    public void must_not_use_the_shared_cache_by_default() throws EvaluationException
+    {
+        ExpressionCache.shared().clear();
+
+        ExpressionBuilder.<Decimal> newMathExpression("4 * 4").evaluate(new ExpressionEvaluator<Decimal>());
+        ExpressionBuilder.<Decimal> newMathExpression("4 * 4").evaluate();
+
+        Assert.assertEquals(0, ExpressionCache.shared().size());
+    }
+}
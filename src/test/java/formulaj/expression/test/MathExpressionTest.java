@@ -19,12 +19,17 @@
 package formulaj.expression.test;
 
 import formulaj.MathExpression;
+import formulaj.expression.BudgetExceededException;
 import formulaj.expression.Decimal;
+import formulaj.expression.EvaluationBudget;
+import formulaj.expression.EvaluationBudget.Limit;
 import formulaj.expression.EvaluationException;
 import formulaj.expression.ExpressionBuilder;
+import formulaj.expression.MathExpressionImpl;
 import formulaj.expression.UndefinedFunctionException;
 import formulaj.expression.UndefinedVariableException;
 import formulaj.expression.Value;
+import formulaj.expression.compiler.ExpressionCache;
 import formulaj.expression.evaluator.impl.ExpressionEvaluator;
 
 import org.junit.Assert;
@@ -129,4 +134,92 @@ public class MathExpressionTest extends TestSupport
     {
         ExpressionBuilder.<Decimal> newMathExpression("max(2,3,4)").evaluate(new ExpressionEvaluator<Decimal>());
     }
+
+    /**
+     * Tests that the composition groups the operands and does not modify them.
+     * 
+     * @throws EvaluationException
+     *             If the expression is invalid.
+     */
+    @Test
+    public void must_group_the_operands_of_a_composition() throws EvaluationException
+    {
+        MathExpression<Decimal> sum = ExpressionBuilder.<Decimal> newMathExpression("a+b").withVariable("a", Decimal.from(1)).withVariable("b",
+                Decimal.from(2));
+        MathExpression<Decimal> product = sum.multiply(ExpressionBuilder.<Decimal> newMathExpression("c").withVariable("c", Decimal.from(3)));
+
+        Assert.assertEquals("a+b", sum.expression());
+        Assert.assertEquals("(a+b)*c", product.expression());
+        Assert.assertEquals(Decimal.from(9), product.evaluate().getValue());
+        Assert.assertEquals(Decimal.from(3), sum.evaluate().getValue());
+
+        MathExpression<Decimal> power = ExpressionBuilder.<Decimal> newMathExpression("-2").pow(ExpressionBuilder.<Decimal> newMathExpression("2"));
+        Assert.assertEquals(Decimal.from(4), power.evaluate().getValue());
+
+        MathExpression<Decimal> quotient = ExpressionBuilder.<Decimal> newMathExpression("12").divide(
+                ExpressionBuilder.<Decimal> newMathExpression("2 * 3"));
+        Assert.assertEquals(Decimal.from(2), quotient.evaluate().getValue());
+    }
+
+    /**
+     * Tests that a composed expression is evaluated without parsing its text.
+     * 
+     * @throws EvaluationException
+     *             If the expression is invalid.
+     */
+    @Test
+    public void must_not_parse_a_composed_expression() throws EvaluationException
+    {
+        MathExpression<Decimal> x = ExpressionBuilder.<Decimal> newMathExpression("x + 1");
+        MathExpression<Decimal> product = x;
+
+        for (int i = 1; i < 100; i++)
+        {
+            product = product.multiply(x);
+        }
+
+        ExpressionCache cache = new ExpressionCache(ExpressionCache.DEFAULT_MAXIMUM_SIZE);
+        Value<Decimal> value = product.withVariable("x", Decimal.from(0)).evaluate(new ExpressionEvaluator<Decimal>(cache));
+
+        Assert.assertEquals(Decimal.from(1), value.getValue());
+        Assert.assertEquals(0, cache.size());
+        Assert.assertEquals(0, cache.getMissCount());
+    }
+
+    /**
+     * Tests that an assignment cannot be composed.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void must_not_compose_an_assignment()
+    {
+        ExpressionBuilder.<Decimal> newMathExpression("a = 2").multiply(ExpressionBuilder.<Decimal> newMathExpression("3"));
+    }
+
+    /**
+     * Tests that a composed expression is evaluated by an evaluator like the one of its left operand.
+     * 
+     * @throws EvaluationException
+     *             If the expression is invalid.
+     */
+    @Test
+    public void must_evaluate_a_composition_with_the_evaluator_of_its_left_operand() throws EvaluationException
+    {
+        ExpressionEvaluator<Decimal> evaluator = new ExpressionEvaluator<>(new ExpressionCache(0), EvaluationBudget.UNLIMITED.withMaxNodeVisits(4));
+        MathExpression<Decimal> square = new MathExpressionImpl<Decimal>("x*x", evaluator).withVariable("x", Decimal.from(2));
+        MathExpression<Decimal> cube = square.multiply(ExpressionBuilder.<Decimal> newMathExpression("x"));
+
+        Assert.assertEquals(Decimal.from(4), square.evaluate().getValue());
+
+        try
+        {
+            cube.evaluate();
+            Assert.fail("The composition exceeds the budget of the left operand's evaluator");
+        }
+        catch (BudgetExceededException expected)
+        {
+            Assert.assertEquals(Limit.NODE_VISITS, expected.getLimit());
+        }
+
+        Assert.assertEquals(Decimal.from(8), cube.evaluate(new ExpressionEvaluator<Decimal>()).getValue());
+    }
 }
@@ -0,0 +1,204 @@
+/**
+ * Copyright (C) 2013 - 2015 Contributors.
+ *
+ * FormulaJ is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * FormulaJ is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see [http://www.gnu.org/licenses/].
+ *
+ * Contact: formulaj-user-list@googlegroups.com.
+ */
+package formulaj.expression.test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import formulaj.expression.Decimal;
+import formulaj.expression.EvaluationException;
+import formulaj.expression.Value;
+import formulaj.expression.compiler.CompiledExpression;
+import formulaj.expression.evaluator.impl.BindingEvaluator;
+import formulaj.expression.function.CallCache;
+import formulaj.expression.function.Functions;
+import formulaj.expression.function.math.FunctionSupport;
+import formulaj.expression.function.math.Pow;
+import formulaj.expression.function.math.Random;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class MemoizationTest
+{
+    /**
+     * A pure function that counts its executions.
+     */
+    private static final class Lookup extends FunctionSupport<Decimal>
+    {
+        /**
+         * The number of executions.
+         */
+        private final AtomicInteger executions = new AtomicInteger();
+
+        /**
+         * Creates the function <code>lookup(x)</code>.
+         */
+        Lookup()
+        {
+            super(1, "lookup");
+        }
+
+        @Override
+        protected Decimal eval(Decimal[] args)
+        {
+            executions.incrementAndGet();
+            return args[0].times(10);
+        }
+    }
+
+    /**
+     * Removes the function registered by the tests.
+     */
+    @After
+    public void tearDown()
+    {
+        Functions.unregister("lookup");
+    }
+
+    /**
+     * Evaluates an expression with a value of the variable <code>x</code>.
+     * 
+     * @param expression
+     *            The expression to be evaluated.
+     * @param x
+     *            The value of <code>x</code>.
+     * @return The value of the expression.
+     * @throws EvaluationException
+     *             If the expression could not be evaluated.
+     */
+    private static Decimal evaluate(CompiledExpression<Decimal> expression, Object x) throws EvaluationException
+    {
+        return new BindingEvaluator<Decimal>().bind(Collections.singletonMap("x", x)).eval(expression).getValue();
+    }
+
+    /**
+     * Tests that a memoized function is executed once for the same arguments.
+     * 
+     * @throws EvaluationException
+     *             If the expression could not be evaluated.
+     */
+    @Test
+    public void must_execute_a_memoized_function_once_per_arguments() throws EvaluationException
+    {
+        Lookup lookup = new Lookup();
+        Functions.register(lookup);
+        Assert.assertNull(lookup.callCache());
+
+        lookup.setCacheSize(2);
+        CompiledExpression<Decimal> expression = CompiledExpression.compile("lookup(x) + 1");
+
+        Assert.assertTrue(evaluate(expression, 1).eq(11));
+        Assert.assertTrue(evaluate(expression, 1.0).eq(11));
+        Assert.assertTrue(evaluate(expression, 2).eq(21));
+        Assert.assertTrue(evaluate(expression, 2).eq(21));
+        Assert.assertTrue(evaluate(expression, 3).eq(31));
+        Assert.assertTrue(evaluate(expression, 1).eq(11));
+
+        CallCache cache = lookup.callCache();
+        Assert.assertEquals(4, lookup.executions.get());
+        Assert.assertEquals(2, cache.getHitCount());
+        Assert.assertEquals(4, cache.getMissCount());
+        Assert.assertEquals(2, cache.getEvictionCount());
+        Assert.assertEquals(2, cache.size());
+
+        lookup.setCacheSize(0);
+        Assert.assertNull(lookup.callCache());
+        evaluate(expression, 1);
+        Assert.assertEquals(5, lookup.executions.get());
+    }
+
+    /**
+     * Tests that the stripes of a large cache keep it within its maximum size while many threads call the function.
+     * 
+     * @throws Exception
+     *             If a call fails.
+     */
+    @Test
+    public void must_bound_a_cache_shared_by_many_threads() throws Exception
+    {
+        final Lookup lookup = new Lookup();
+        final CallCache cache = new CallCache(1024);
+        List<Callable<Boolean>> tasks = new ArrayList<>();
+
+        for (int t = 0; t < 4; t++)
+        {
+            tasks.add(new Callable<Boolean>()
+            {
+                @Override
+                public Boolean call()
+                {
+                    boolean valid = true;
+
+                    for (int i = 0; i < 3000; i++)
+                    {
+                        Value<Decimal> value = cache.evaluate(lookup, Collections.singletonList(new Value<>(Decimal.from(i))));
+                        valid &= value.getValue().eq(i * 10);
+                    }
+                    return valid;
+                }
+            });
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(tasks.size());
+
+        try
+        {
+            for (Future<Boolean> result : executor.invokeAll(tasks))
+            {
+                Assert.assertTrue(result.get());
+            }
+        }
+        finally
+        {
+            executor.shutdown();
+        }
+
+        Assert.assertTrue(cache.size() <= 1024);
+        Assert.assertTrue(cache.size() + cache.getEvictionCount() <= cache.getMissCount());
+        Assert.assertEquals(4 * 3000, cache.getHitCount() + cache.getMissCount());
+    }
+
+    /**
+     * Tests the default cache policies of the system functions.
+     */
+    @Test
+    public void must_memoize_only_the_pure_functions()
+    {
+        Assert.assertNotNull(((Pow) (Object) Functions.getFunctionByName("pow")).callCache());
+        Assert.assertNull(((Random) (Object) Functions.getFunctionByName("random")).callCache());
+
+        try
+        {
+            new Random().setCacheSize(10);
+            Assert.fail("An impure function might not be memoized!");
+        }
+        catch (IllegalStateException expected)
+        {
+            Assert.assertTrue(expected.getMessage().contains("random"));
+        }
+    }
+}
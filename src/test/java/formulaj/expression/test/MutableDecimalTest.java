@@ -0,0 +1,115 @@
+/**
+ * Copyright (C) 2013 - 2015 Contributors.
+ *
+ * FormulaJ is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * FormulaJ is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see [http://www.gnu.org/licenses/].
+ *
+ * Contact: formulaj-user-list@googlegroups.com.
+ */
+package formulaj.expression.test;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import formulaj.expression.Decimal;
+import formulaj.expression.EvaluationException;
+import formulaj.expression.MutableDecimal;
+import formulaj.expression.batch.Aggregation;
+import formulaj.expression.batch.Column;
+import formulaj.expression.batch.DoubleColumn;
+import formulaj.expression.batch.GroupedAggregation;
+import formulaj.expression.batch.GroupedResult;
+import formulaj.expression.compiler.CompiledExpression;
+import formulaj.expression.evaluator.impl.BindingEvaluator;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class MutableDecimalTest
+{
+    /**
+     * Tests that the accumulator adds, subtracts and multiplies exactly, through the overflow of a <code>long</code> and back.
+     */
+    @Test
+    public void must_accumulate_exactly_in_place()
+    {
+        MutableDecimal sum = new MutableDecimal();
+        BigDecimal expected = BigDecimal.ZERO;
+
+        String[] values = { "1.5", "-0.25", String.valueOf(Long.MAX_VALUE), "1e-20", "12345678901234567890.5", "7" };
+
+        for (String value : values)
+        {
+            sum.add(new Decimal(value));
+            expected = expected.add(new BigDecimal(value));
+            Assert.assertEquals(expected, sum.bigDecimalValue());
+        }
+
+        for (String value : values)
+        {
+            sum.subtract(new Decimal(value));
+        }
+        Assert.assertEquals(0, sum.toDecimal().compareTo(Decimal.ZERO));
+
+        sum.reset().multiplyAdd(new Decimal("2.5"), new Decimal("4")).multiplyAdd(Decimal.from(Long.MAX_VALUE), Decimal.from(3));
+        Assert.assertEquals(new BigDecimal("10.0").add(BigDecimal.valueOf(Long.MAX_VALUE).multiply(BigDecimal.valueOf(3))), sum.bigDecimalValue());
+
+        MutableDecimal other = new MutableDecimal(Decimal.from(5));
+        Assert.assertEquals(Decimal.from(15), other.add(new MutableDecimal(Decimal.from(10))).toDecimal());
+    }
+
+    /**
+     * Tests that the sums of {@link Decimal} and of the <code>sum</code> function agree with the accumulator.
+     * 
+     * @throws EvaluationException
+     *             If the expression is invalid.
+     */
+    @Test
+    public void must_sum_decimals() throws EvaluationException
+    {
+        Iterable<Decimal> values = Arrays.asList(new Decimal("1.25"), new Decimal("2.5"), Decimal.from(3));
+
+        Assert.assertEquals(new Decimal("6.75"), Decimal.sum(Arrays.asList(new Decimal("1.25"), new Decimal("2.5"), Decimal.from(3))));
+        Assert.assertEquals(new Decimal("7.75"), Decimal.ONE.sum(values));
+
+        CompiledExpression<Decimal> sum = CompiledExpression.compile("sum(1.5, 2, 3)");
+        Assert.assertEquals(new Decimal("6.5"), new BindingEvaluator<Decimal>().bind(new HashMap<String, Object>()).eval(sum).getValue());
+    }
+
+    /**
+     * Tests that the grouped sums of <code>double</code> values keep the low-order values that a plain summation loses.
+     * 
+     * @throws EvaluationException
+     *             If the expressions are invalid.
+     */
+    @Test
+    public void must_compensate_the_rounding_of_grouped_sums() throws EvaluationException
+    {
+        int rows = 10002;
+        double[] values = new double[rows];
+        Arrays.fill(values, 1.0);
+        values[0] = 1e16;
+        values[rows - 1] = -1e16;
+
+        Map<String, Column> columns = new HashMap<>();
+        columns.put("x", new DoubleColumn(values));
+        columns.put("k", new DoubleColumn(new double[rows]));
+
+        GroupedResult result = GroupedAggregation.compile(CompiledExpression.compile("x"), CompiledExpression.compile("k")).execute(columns,
+                rows);
+
+        Assert.assertEquals(rows - 2, result.value(Aggregation.SUM, result.group(0)), 0);
+    }
+}
@@ -0,0 +1,111 @@
+/**
+ * Copyright (C) 2013 - 2015 Contributors.
+ *
+ * FormulaJ is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * FormulaJ is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see [http://www.gnu.org/licenses/].
+ *
+ * Contact: formulaj-user-list@googlegroups.com.
+ */
+package formulaj.expression.test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.Map;
+
+import formulaj.expression.EvaluationException;
+import formulaj.expression.batch.BatchProgram;
+import formulaj.expression.batch.Column;
+import formulaj.expression.batch.OffHeapColumn;
+import formulaj.expression.batch.ParallelEvaluator;
+import formulaj.expression.compiler.CompiledExpression;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class OffHeapColumnTest
+{
+    /**
+     * The folder of the files of the tests.
+     */
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    /**
+     * Tests the parallel evaluation from and to off-heap columns.
+     * 
+     * @throws EvaluationException
+     *             If the expression is invalid.
+     * @throws IOException
+     *             If the output cannot be mapped.
+     */
+    @Test
+    public void must_evaluate_off_heap_columns_in_place() throws EvaluationException, IOException
+    {
+        int rows = 50000;
+        BatchProgram program = BatchProgram.compile(CompiledExpression.compile("x * y + 1"));
+
+        try (OffHeapColumn x = OffHeapColumn.allocate(rows); OffHeapColumn y = OffHeapColumn.allocate(rows);
+                OffHeapColumn output = OffHeapColumn.map(folder.newFile("output").toPath(), rows))
+        {
+            for (int i = 0; i < rows; i++)
+            {
+                x.set(i, i);
+                y.set(i, 2);
+            }
+
+            Map<String, Column> columns = new HashMap<>();
+            columns.put("x", x);
+            columns.put("y", y);
+
+            new ParallelEvaluator().evaluate(program, program.bind(columns), rows, output);
+
+            for (int i = 0; i < rows; i++)
+            {
+                Assert.assertEquals(2 * i + 1, output.get(i), 0);
+            }
+            Assert.assertEquals(rows * 8, output.buffer().remaining());
+        }
+    }
+
+    /**
+     * Tests that a closed column cannot be read.
+     */
+    @Test(expected = IllegalStateException.class)
+    public void must_not_read_a_closed_column()
+    {
+        OffHeapColumn column = OffHeapColumn.allocate(10);
+        column.close();
+        column.close();
+
+        Assert.assertTrue(column.isClosed());
+        column.read(0, new double[10], 10);
+    }
+
+    /**
+     * Tests that the view of a column stays readable after the column is closed.
+     */
+    @Test
+    public void must_keep_the_view_of_a_closed_column_readable()
+    {
+        OffHeapColumn column = OffHeapColumn.allocate(10);
+        column.set(3, 7.5);
+
+        ByteBuffer view = column.buffer();
+        column.close();
+
+        Assert.assertEquals(7.5, view.getDouble(3 * 8), 0);
+    }
+}
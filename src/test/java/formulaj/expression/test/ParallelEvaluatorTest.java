@@ -0,0 +1,99 @@
+/**
+ * Copyright (C) 2013 - 2015 Contributors.
+ *
+ * FormulaJ is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * FormulaJ is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see [http://www.gnu.org/licenses/].
+ *
+ * Contact: formulaj-user-list@googlegroups.com.
+ */
+package formulaj.expression.test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import formulaj.expression.Decimal;
+import formulaj.expression.EvaluationException;
+import formulaj.expression.Value;
+import formulaj.expression.batch.Column;
+import formulaj.expression.batch.ColumnarEvaluator;
+import formulaj.expression.batch.DoubleColumn;
+import formulaj.expression.batch.ParallelEvaluator;
+import formulaj.expression.compiler.CompiledExpression;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class ParallelEvaluatorTest
+{
+    /**
+     * Tests that the parallel evaluation of columns returns the values of the sequential evaluation, in order.
+     * 
+     * @throws EvaluationException
+     *             If the expression is invalid.
+     */
+    @Test
+    public void must_evaluate_columns_in_order() throws EvaluationException
+    {
+        int rows = 200000;
+        double[] x = new double[rows];
+
+        for (int i = 0; i < rows; i++)
+        {
+            x[i] = i;
+        }
+
+        Map<String, Column> columns = new HashMap<>();
+        columns.put("x", new DoubleColumn(x));
+
+        CompiledExpression<Decimal> expression = CompiledExpression.compile("x * 2 + sqrt(x)");
+        double[] expected = new double[rows];
+        double[] actual = new double[rows];
+
+        new ColumnarEvaluator().evaluate(expression, columns, expected);
+
+        ParallelEvaluator evaluator = new ParallelEvaluator();
+        evaluator.evaluate(expression, columns, actual);
+
+        Assert.assertArrayEquals(expected, actual, 0);
+        Assert.assertTrue(evaluator.getLastChunkSize() > 0);
+    }
+
+    /**
+     * Tests the parallel evaluation of binding frames.
+     * 
+     * @throws EvaluationException
+     *             If the expression is invalid.
+     */
+    @Test
+    public void must_evaluate_frames_in_order() throws EvaluationException
+    {
+        List<Map<String, Object>> frames = new ArrayList<>();
+
+        for (int i = 0; i < 1000; i++)
+        {
+            Map<String, Object> frame = new HashMap<>();
+            frame.put("a", i);
+            frame.put("b", Decimal.from(2));
+            frames.add(frame);
+        }
+
+        List<Value<Decimal>> values = new ParallelEvaluator().evaluate(CompiledExpression.<Decimal> compile("a * b + 1"), frames);
+
+        for (int i = 0; i < frames.size(); i++)
+        {
+            Assert.assertEquals(Decimal.from(i * 2 + 1), values.get(i).getValue());
+        }
+    }
+}
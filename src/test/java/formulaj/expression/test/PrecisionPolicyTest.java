@@ -0,0 +1,188 @@
+/**
+ * Copyright (C) 2013 - 2015 Contributors.
+ *
+ * FormulaJ is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * FormulaJ is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see [http://www.gnu.org/licenses/].
+ *
+ * Contact: formulaj-user-list@googlegroups.com.
+ */
+package formulaj.expression.test;
+
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.math.RoundingMode;
+import java.util.HashMap;
+import java.util.Map;
+
+import formulaj.expression.Decimal;
+import formulaj.expression.EvaluationException;
+import formulaj.expression.ExpressionBuilder;
+import formulaj.expression.PrecisionPolicy;
+import formulaj.expression.compiler.CompiledExpression;
+import formulaj.expression.compiler.ResultCache;
+import formulaj.expression.evaluator.impl.BindingEvaluator;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class PrecisionPolicyTest
+{
+    /**
+     * Evaluates an expression with the variable <code>x</code>.
+     * 
+     * @param expression
+     *            The expression to be evaluated.
+     * @param x
+     *            The value of <code>x</code>.
+     * @return The value of the expression.
+     * @throws EvaluationException
+     *             If the expression is invalid.
+     */
+    private static Decimal eval(CompiledExpression<Decimal> expression, Object x) throws EvaluationException
+    {
+        Map<String, Object> frame = new HashMap<>();
+        frame.put("x", x);
+        return new BindingEvaluator<Decimal>().bind(frame).eval(expression).getValue();
+    }
+
+    /**
+     * Tests that the quotients that do not terminate are rounded and the other ones are exact.
+     * 
+     * @throws EvaluationException
+     *             If the expression is invalid.
+     */
+    @Test
+    public void must_round_non_terminating_quotients() throws EvaluationException
+    {
+        Decimal third = ExpressionBuilder.<Decimal> evaluate("1 / 3");
+
+        Assert.assertEquals(MathContext.DECIMAL128.getPrecision(), third.bigDecimalValue().precision());
+        Assert.assertEquals(new Decimal("2.5"), ExpressionBuilder.<Decimal> evaluate("10 / 4"));
+        Assert.assertEquals(new Decimal("0.3333333333333333333333333333333333"), Decimal.ONE.div(Decimal.from(3)));
+    }
+
+    /**
+     * Tests that the policy of an expression bounds its values, without changing the other expressions.
+     * 
+     * @throws EvaluationException
+     *             If the expression is invalid.
+     */
+    @Test
+    public void must_apply_the_policy_of_an_expression() throws EvaluationException
+    {
+        PrecisionPolicy policy = PrecisionPolicy.of(new MathContext(5, RoundingMode.HALF_EVEN));
+        CompiledExpression<Decimal> exact = CompiledExpression.compile("x * x * x");
+
+        Assert.assertEquals(new Decimal("1.881676371789154860897069"), eval(exact, "1.23456789"));
+        Assert.assertEquals(new Decimal("1.8818"), eval(exact.withPrecision(policy), "1.23456789"));
+        Assert.assertEquals(new Decimal("0.25"), eval(CompiledExpression.<Decimal> compile("x ^ -2").withPrecision(policy), 2));
+        Assert.assertEquals(PrecisionPolicy.DEFAULT, PrecisionPolicy.current());
+
+        CompiledExpression<Decimal> root = CompiledExpression.compile("sqrt(x) * 1");
+        Assert.assertTrue(eval(root.withPrecision(PrecisionPolicy.of(new MathContext(6))), 2).bigDecimalValue().precision() <= 6);
+    }
+
+    /**
+     * Tests that the values cached by a function and by a {@link ResultCache} are not reused by the evaluations with another policy.
+     * 
+     * @throws EvaluationException
+     *             If the expression is invalid.
+     */
+    @Test
+    public void must_not_reuse_values_of_another_policy() throws EvaluationException
+    {
+        PrecisionPolicy policy = PrecisionPolicy.of(new MathContext(5));
+        CompiledExpression<Decimal> power = CompiledExpression.compile("pow(1.1, x)");
+        BigDecimal exact = new BigDecimal("1.1").pow(50);
+
+        Assert.assertEquals(new Decimal("117.39"), eval(power.withPrecision(policy), 50));
+        Assert.assertEquals(0, exact.compareTo(eval(power, 50).bigDecimalValue()));
+        Assert.assertEquals(new Decimal("117.39"), eval(power.withPrecision(policy), 50));
+
+        ResultCache results = new ResultCache();
+        Map<String, Object> frame = new HashMap<>();
+        frame.put("x", 50);
+        PrecisionPolicy previous = PrecisionPolicy.getDefault();
+
+        Assert.assertEquals(0, exact.compareTo(results.evaluate(power, frame).getValue().bigDecimalValue()));
+        PrecisionPolicy.setDefault(policy);
+
+        try
+        {
+            Assert.assertEquals(new Decimal("117.39"), results.evaluate(power, frame).getValue());
+        }
+        finally
+        {
+            PrecisionPolicy.setDefault(previous);
+        }
+        Assert.assertEquals(0, exact.compareTo(results.evaluate(power, frame).getValue().bigDecimalValue()));
+    }
+
+    /**
+     * Tests the context of an operator and the global policy.
+     * 
+     * @throws EvaluationException
+     *             If the expression is invalid.
+     */
+    @Test
+    public void must_apply_the_context_of_an_operator() throws EvaluationException
+    {
+        PrecisionPolicy policy = PrecisionPolicy.DEFAULT.withOperator("/", new MathContext(4));
+        PrecisionPolicy previous = PrecisionPolicy.getDefault();
+
+        Assert.assertEquals(new MathContext(4), policy.context("/"));
+        Assert.assertEquals(MathContext.UNLIMITED, policy.context("*"));
+
+        PrecisionPolicy.setDefault(policy);
+
+        try
+        {
+            Assert.assertEquals(new Decimal("0.6667"), ExpressionBuilder.<Decimal> evaluate("2 / 3"));
+            Assert.assertEquals(new Decimal("123456789.123456789"), ExpressionBuilder.<Decimal> evaluate("123456789.123456789 * 1"));
+        }
+        finally
+        {
+            PrecisionPolicy.setDefault(previous);
+        }
+    }
+
+    /**
+     * Tests that an expression combined from others keeps their policy and that the operands of different policies are not combined.
+     * 
+     * @throws EvaluationException
+     *             If the expression is invalid.
+     */
+    @Test
+    public void must_keep_the_policy_of_the_operands_of_a_combination() throws EvaluationException
+    {
+        PrecisionPolicy policy = PrecisionPolicy.of(new MathContext(5));
+        CompiledExpression<Decimal> root = CompiledExpression.<Decimal> compile("sqrt(x)").withPrecision(policy);
+        CompiledExpression<Decimal> product = CompiledExpression.combine(root, "*", CompiledExpression.<Decimal> compile("3"));
+
+        Assert.assertEquals(policy, product.precision());
+        Assert.assertEquals(policy, CompiledExpression.combine(CompiledExpression.<Decimal> compile("3"), "*", root).precision());
+        Assert.assertEquals(new Decimal("4.2426"), eval(product, 2));
+        Assert.assertNull(CompiledExpression.combine(CompiledExpression.<Decimal> compile("3"), "*", CompiledExpression.<Decimal> compile("x"))
+                .precision());
+
+        try
+        {
+            CompiledExpression.combine(root, "*", CompiledExpression.<Decimal> compile("3").withPrecision(PrecisionPolicy.of(new MathContext(6))));
+            Assert.fail("The operands have different precision policies");
+        }
+        catch (IllegalArgumentException expected)
+        {
+            Assert.assertTrue(expected.getMessage().contains("precision"));
+        }
+    }
+}
@@ -0,0 +1,414 @@
+/**
+ * Copyright (C) 2013 - 2015 Contributors.
+ *
+ * FormulaJ is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * FormulaJ is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see [http://www.gnu.org/licenses/].
+ *
+ * Contact: formulaj-user-list@googlegroups.com.
+ */
+package formulaj.expression.test;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.Executor;
+
+import formulaj.expression.Decimal;
+import formulaj.expression.Value;
+import formulaj.expression.Variable;
+import formulaj.expression.compiler.CompiledExpression;
+import formulaj.expression.parser.RecognitionException;
+import formulaj.expression.reactive.Flow.Subscriber;
+import formulaj.expression.reactive.Flow.Subscription;
+import formulaj.expression.reactive.ReactiveExpression;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class ReactiveExpressionTest
+{
+    /**
+     * The tasks submitted to the executor and not run yet.
+     */
+    private final Queue<Runnable> tasks = new ArrayDeque<>();
+
+    /**
+     * An {@link Executor} that runs the tasks only when {@link #runTasks()} is called.
+     */
+    private final Executor executor = new Executor()
+    {
+        @Override
+        public void execute(Runnable command)
+        {
+            tasks.add(command);
+        }
+    };
+
+    /**
+     * Tests that a burst of changes is evaluated once and that the subscriber receives only the requested values.
+     * 
+     * @throws RecognitionException
+     *             If the expression is invalid.
+     */
+    @Test
+    public void must_coalesce_changes_and_respect_the_demand() throws RecognitionException
+    {
+        Variable<Decimal> price = new Variable<>("price");
+        Variable<Decimal> qty = new Variable<>("qty", new Value<>(Decimal.from(2)));
+
+        ReactiveExpression<Decimal> total = ReactiveExpression.bind(CompiledExpression.<Decimal> compile("price * qty"), executor, price, qty);
+        runTasks();
+        Assert.assertNull(total.lastValue());
+
+        final List<Value<Decimal>> received = new ArrayList<>();
+        final Subscription[] subscription = new Subscription[1];
+
+        total.subscribe(new Subscriber<Value<Decimal>>()
+        {
+            @Override
+            public void onSubscribe(Subscription s)
+            {
+                subscription[0] = s;
+            }
+
+            @Override
+            public void onNext(Value<Decimal> item)
+            {
+                received.add(item);
+            }
+
+            @Override
+            public void onError(Throwable throwable)
+            {
+                Assert.fail(throwable.getMessage());
+            }
+
+            @Override
+            public void onComplete()
+            {
+            }
+        });
+
+        price.setValue(Decimal.from(10));
+        price.setValue(Decimal.from(11));
+        price.setValue(Decimal.from(12));
+        runTasks();
+
+        Assert.assertEquals(1, total.getEvaluationCount());
+        Assert.assertTrue(received.isEmpty());
+
+        qty.setValue(Decimal.from(3));
+        runTasks();
+
+        subscription[0].request(5);
+        Assert.assertEquals(1, received.size());
+        Assert.assertEquals(Decimal.from(36), received.get(0).getValue());
+
+        price.setValue(Decimal.from(1));
+        runTasks();
+        Assert.assertEquals(Decimal.from(3), received.get(1).getValue());
+
+        total.close();
+        price.setValue(Decimal.from(2));
+        Assert.assertTrue(tasks.isEmpty());
+    }
+
+    /**
+     * Tests that an assignment of the same value is not evaluated and that a result equal to the last one is not published.
+     * 
+     * @throws RecognitionException
+     *             If the expression is invalid.
+     */
+    @Test
+    public void must_not_publish_an_unchanged_value() throws RecognitionException
+    {
+        Variable<Decimal> price = new Variable<>("price", new Value<>(Decimal.from(10)));
+        Variable<Decimal> qty = new Variable<>("qty", new Value<>(Decimal.from(2)));
+
+        ReactiveExpression<Decimal> total = ReactiveExpression.bind(CompiledExpression.<Decimal> compile("price * qty"), executor, price, qty);
+        Recorder recorder = new Recorder();
+        total.subscribe(recorder);
+        recorder.subscription.request(Long.MAX_VALUE);
+        runTasks();
+
+        Assert.assertEquals(1, total.getEvaluationCount());
+        Assert.assertEquals(1, recorder.received.size());
+
+        price.setValue(Decimal.from(10));
+        Assert.assertTrue(tasks.isEmpty());
+
+        price.setValue(Decimal.from(5));
+        qty.setValue(Decimal.from(4));
+        runTasks();
+
+        Assert.assertEquals(2, total.getEvaluationCount());
+        Assert.assertEquals(1, recorder.received.size());
+
+        qty.setValue(Decimal.from(5));
+        runTasks();
+
+        Assert.assertEquals(3, total.getEvaluationCount());
+        Assert.assertEquals(2, recorder.received.size());
+        Assert.assertEquals(Decimal.from(25), recorder.received.get(1).getValue());
+    }
+
+    /**
+     * Tests that a cancelled subscription does not receive the next values, while the other subscriptions still do.
+     * 
+     * @throws RecognitionException
+     *             If the expression is invalid.
+     */
+    @Test
+    public void must_stop_the_delivery_after_cancel() throws RecognitionException
+    {
+        Variable<Decimal> x = new Variable<>("x", new Value<>(Decimal.from(1)));
+
+        ReactiveExpression<Decimal> doubled = ReactiveExpression.bind(CompiledExpression.<Decimal> compile("x * 2"), executor, x);
+        Recorder cancelled = new Recorder();
+        Recorder active = new Recorder();
+        doubled.subscribe(cancelled);
+        doubled.subscribe(active);
+        cancelled.subscription.request(Long.MAX_VALUE);
+        active.subscription.request(Long.MAX_VALUE);
+        runTasks();
+
+        Assert.assertEquals(1, cancelled.received.size());
+
+        cancelled.subscription.cancel();
+        x.setValue(Decimal.from(2));
+        runTasks();
+
+        Assert.assertEquals(1, cancelled.received.size());
+        Assert.assertEquals(2, active.received.size());
+
+        doubled.close();
+        Assert.assertFalse(cancelled.completed);
+        Assert.assertTrue(active.completed);
+    }
+
+    /**
+     * Tests that a subscriber receives no more values than it has requested, and only the most recent value when it requests again.
+     * 
+     * @throws RecognitionException
+     *             If the expression is invalid.
+     */
+    @Test
+    public void must_deliver_only_the_requested_values() throws RecognitionException
+    {
+        Variable<Decimal> x = new Variable<>("x", new Value<>(Decimal.from(1)));
+
+        ReactiveExpression<Decimal> increment = ReactiveExpression.bind(CompiledExpression.<Decimal> compile("x + 1"), executor, x);
+        Recorder recorder = new Recorder();
+        increment.subscribe(recorder);
+        recorder.subscription.request(1);
+        runTasks();
+
+        for (int i = 2; i <= 4; i++)
+        {
+            x.setValue(Decimal.from(i));
+            runTasks();
+        }
+
+        Assert.assertEquals(4, increment.getEvaluationCount());
+        Assert.assertEquals(1, recorder.received.size());
+        Assert.assertEquals(Decimal.from(2), recorder.received.get(0).getValue());
+
+        recorder.subscription.request(2);
+        Assert.assertEquals(2, recorder.received.size());
+        Assert.assertEquals(Decimal.from(5), recorder.received.get(1).getValue());
+
+        x.setValue(Decimal.from(5));
+        runTasks();
+        x.setValue(Decimal.from(6));
+        runTasks();
+
+        Assert.assertEquals(3, recorder.received.size());
+        Assert.assertEquals(Decimal.from(6), recorder.received.get(2).getValue());
+
+        recorder.subscription.request(0);
+        Assert.assertTrue(recorder.error instanceof IllegalArgumentException);
+        Assert.assertEquals(3, recorder.received.size());
+    }
+
+    /**
+     * Tests that an error of the evaluation ends the subscriptions with {@link Subscriber#onError(Throwable)}.
+     * 
+     * @throws RecognitionException
+     *             If the expression is invalid.
+     */
+    @Test
+    public void must_send_an_evaluation_error_to_the_subscribers() throws RecognitionException
+    {
+        Variable<Decimal> x = new Variable<>("x", new Value<>(Decimal.from(1)));
+        Variable<Decimal> y = new Variable<>("y", new Value<>(Decimal.from(2)));
+
+        ReactiveExpression<Decimal> ratio = ReactiveExpression.bind(CompiledExpression.<Decimal> compile("x / y"), executor, x, y);
+        Recorder recorder = new Recorder();
+        ratio.subscribe(recorder);
+        recorder.subscription.request(Long.MAX_VALUE);
+        runTasks();
+
+        Assert.assertEquals(1, recorder.received.size());
+        Assert.assertNull(recorder.error);
+
+        y.setValue(Decimal.from(0));
+        runTasks();
+
+        Assert.assertNotNull(recorder.error);
+        Assert.assertFalse(recorder.completed);
+
+        y.setValue(Decimal.from(4));
+        runTasks();
+        Assert.assertEquals(1, recorder.received.size());
+    }
+
+    /**
+     * Tests that a change is detected from the value given by the notification, not from the value read from the variable afterwards.
+     * 
+     * @throws RecognitionException
+     *             If the expression is invalid.
+     */
+    @Test
+    public void must_compare_the_values_of_the_notification() throws RecognitionException
+    {
+        Variable<Decimal> x = new Variable<>("x", new Value<>(Decimal.from(1)));
+        ReactiveExpression<Decimal> square = ReactiveExpression.bind(CompiledExpression.<Decimal> compile("x * x"), executor, x);
+        runTasks();
+
+        square.valueChanged(x, x.value(), new Value<>(Decimal.from(1)));
+        Assert.assertTrue(tasks.isEmpty());
+
+        square.valueChanged(x, x.value(), new Value<>(Decimal.from(2)));
+        Assert.assertFalse(tasks.isEmpty());
+        runTasks();
+
+        Assert.assertEquals(2, square.getEvaluationCount());
+    }
+
+    /**
+     * Tests that the subscribers that subscribe while the values change receive each value once, in order, up to the last one.
+     * 
+     * @throws Exception
+     *             If the expression is invalid or the thread of the changes is interrupted.
+     */
+    @Test
+    public void must_deliver_each_value_once_to_concurrent_subscribers() throws Exception
+    {
+        final int changes = 20000;
+        final Variable<Decimal> x = new Variable<>("x", new Value<>(Decimal.from(0)));
+        ReactiveExpression<Decimal> identity = ReactiveExpression.bind(CompiledExpression.<Decimal> compile("x + 0"), new Executor()
+        {
+            @Override
+            public void execute(Runnable command)
+            {
+                command.run();
+            }
+        }, x);
+
+        Thread writer = new Thread()
+        {
+            @Override
+            public void run()
+            {
+                for (int i = 1; i <= changes; i++)
+                {
+                    x.setValue(Decimal.from(i));
+                }
+            }
+        };
+
+        List<Recorder> recorders = new ArrayList<>();
+        writer.start();
+
+        for (int i = 0; i < 200; i++)
+        {
+            Recorder recorder = new Recorder();
+            identity.subscribe(recorder);
+            recorder.subscription.request(Long.MAX_VALUE);
+            recorders.add(recorder);
+            Thread.yield();
+        }
+        writer.join();
+
+        for (Recorder recorder : recorders)
+        {
+            for (int i = 1; i < recorder.received.size(); i++)
+            {
+                Assert.assertTrue(recorder.received.get(i - 1).getValue().lt(recorder.received.get(i).getValue()));
+            }
+            Assert.assertEquals(Decimal.from(changes), recorder.received.get(recorder.received.size() - 1).getValue());
+        }
+    }
+
+    /**
+     * Runs the tasks submitted to the executor.
+     */
+    private void runTasks()
+    {
+        while (!tasks.isEmpty())
+        {
+            tasks.poll().run();
+        }
+    }
+
+    /**
+     * A {@link Subscriber} that records the signals it receives.
+     */
+    private static final class Recorder implements Subscriber<Value<Decimal>>
+    {
+        /**
+         * The values received.
+         */
+        private final List<Value<Decimal>> received = new ArrayList<>();
+
+        /**
+         * The subscription of this subscriber.
+         */
+        private Subscription subscription;
+
+        /**
+         * The error received or <code>null</code> if there was no error.
+         */
+        private Throwable error;
+
+        /**
+         * Flag that indicates if the subscription was completed.
+         */
+        private boolean completed;
+
+        @Override
+        public void onSubscribe(Subscription s)
+        {
+            subscription = s;
+        }
+
+        @Override
+        public void onNext(Value<Decimal> item)
+        {
+            received.add(item);
+        }
+
+        @Override
+        public void onError(Throwable throwable)
+        {
+            error = throwable;
+        }
+
+        @Override
+        public void onComplete()
+        {
+            completed = true;
+        }
+    }
+}
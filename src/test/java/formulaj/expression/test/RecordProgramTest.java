@@ -0,0 +1,118 @@
+/**
+ * Copyright (C) 2013 - 2015 Contributors.
+ *
+ * FormulaJ is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * FormulaJ is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see [http://www.gnu.org/licenses/].
+ *
+ * Contact: formulaj-user-list@googlegroups.com.
+ */
+package formulaj.expression.test;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import formulaj.expression.EvaluationException;
+import formulaj.expression.UndefinedVariableException;
+import formulaj.expression.batch.FieldType;
+import formulaj.expression.batch.RecordLayout;
+import formulaj.expression.batch.RecordProgram;
+import formulaj.expression.compiler.CompiledExpression;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class RecordProgramTest
+{
+    /**
+     * The layout of the records of the tests, with padding.
+     */
+    private final RecordLayout layout = new RecordLayout.Builder().order(ByteOrder.LITTLE_ENDIAN).field("id", FieldType.LONG)
+            .field("temperature", FieldType.FLOAT).field("pressure", FieldType.SHORT).size(16).build();
+
+    /**
+     * Tests the evaluation over records, to an array, to a buffer and one by one.
+     * 
+     * @throws EvaluationException
+     *             If the expression is invalid.
+     */
+    @Test
+    public void must_evaluate_the_fields_of_records() throws EvaluationException
+    {
+        ByteBuffer records = ByteBuffer.allocate(3 * 16 + 16 + 5).order(ByteOrder.LITTLE_ENDIAN);
+        records.position(16);
+
+        for (int i = 0; i < 3; i++)
+        {
+            records.putLong(i).putFloat(i + 0.5f).putShort((short) (10 * i)).putShort((short) -1);
+        }
+        records.flip().position(16);
+
+        RecordProgram program = RecordProgram.compile(CompiledExpression.compile("pressure + temperature * 2"), layout);
+
+        double[] values = new double[3];
+        Assert.assertEquals(3, program.evaluate(records, values));
+        Assert.assertArrayEquals(new double[] {1, 13, 25 }, values, 0);
+
+        ByteBuffer output = ByteBuffer.allocate(3 * 4);
+        Assert.assertEquals(3, program.evaluate(records, output, FieldType.INT));
+        Assert.assertEquals(12, output.position());
+        Assert.assertEquals(13, output.getInt(4));
+
+        Assert.assertEquals(25, program.evaluate(records, 2), 0);
+        Assert.assertEquals(16, records.position());
+    }
+
+    /**
+     * Tests the evaluation of the records one by one, from a buffer that grows and from another buffer.
+     * 
+     * @throws EvaluationException
+     *             If the expression is invalid.
+     */
+    @Test
+    public void must_evaluate_the_records_one_by_one() throws EvaluationException
+    {
+        RecordProgram program = RecordProgram.compile(CompiledExpression.compile("id * 2"), layout);
+        ByteBuffer records = ByteBuffer.allocate(4 * 16).order(ByteOrder.LITTLE_ENDIAN);
+
+        for (int i = 0; i < 4; i++)
+        {
+            records.putLong(i * 16, i + 1);
+        }
+
+        records.limit(2 * 16);
+        Assert.assertEquals(2, program.evaluate(records, 0), 0);
+        Assert.assertEquals(4, program.evaluate(records, 1), 0);
+
+        records.limit(4 * 16);
+        Assert.assertEquals(8, program.evaluate(records, 3), 0);
+
+        records.position(16);
+        Assert.assertEquals(6, program.evaluate(records, 1), 0);
+
+        ByteBuffer other = ByteBuffer.allocate(16).order(ByteOrder.LITTLE_ENDIAN);
+        other.putLong(0, 21);
+        Assert.assertEquals(42, program.evaluate(other, 0), 0);
+    }
+
+    /**
+     * Tests that the variables are resolved to fields when the program is compiled.
+     * 
+     * @throws EvaluationException
+     *             Always, because the variable is not a field.
+     */
+    @Test(expected = UndefinedVariableException.class)
+    public void must_not_compile_an_undefined_field() throws EvaluationException
+    {
+        RecordProgram.compile(CompiledExpression.compile("humidity * 2"), layout);
+    }
+}
@@ -0,0 +1,151 @@
+/**
+ * Copyright (C) 2013 - 2015 Contributors.
+ *
+ * FormulaJ is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * FormulaJ is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see [http://www.gnu.org/licenses/].
+ *
+ * Contact: formulaj-user-list@googlegroups.com.
+ */
+package formulaj.expression.test;
+
+import java.math.BigDecimal;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import formulaj.expression.Decimal;
+import formulaj.expression.EvaluationException;
+import formulaj.expression.Value;
+import formulaj.expression.compiler.CompiledExpression;
+import formulaj.expression.compiler.ResultCache;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class ResultCacheTest
+{
+    /**
+     * Returns a frame of bindings with the variables <code>x</code> and <code>y</code>.
+     * 
+     * @param x
+     *            The value of <code>x</code>.
+     * @param y
+     *            The value of <code>y</code>.
+     * @return A frame of bindings.
+     */
+    private static Map<String, Object> frame(Object x, Object y)
+    {
+        Map<String, Object> frame = new HashMap<>();
+        frame.put("x", x);
+        frame.put("y", y);
+        return frame;
+    }
+
+    /**
+     * Tests that equal values have the same hash code, whatever their scale.
+     */
+    @Test
+    public void must_hash_equal_decimals_alike()
+    {
+        Assert.assertEquals(new Decimal("2.0"), new Decimal("2.00"));
+        Assert.assertEquals(new Decimal("2.0").hashCode(), new Decimal("2.00").hashCode());
+        Assert.assertEquals(new Decimal("0.000").hashCode(), Decimal.ZERO.hashCode());
+        Assert.assertEquals(new Decimal("1E+2").hashCode(), Decimal.from(100).hashCode());
+    }
+
+    /**
+     * Tests that the same inputs, with any type or scale, are evaluated once.
+     * 
+     * @throws EvaluationException
+     *             If the expression is invalid.
+     */
+    @Test
+    public void must_evaluate_the_same_inputs_once() throws EvaluationException
+    {
+        ResultCache cache = new ResultCache();
+        CompiledExpression<Decimal> expression = CompiledExpression.compile("x * 2 + y");
+
+        Value<Decimal> first = cache.evaluate(expression, frame(3, 1));
+        Assert.assertTrue(first.getValue().eq(7));
+
+        Assert.assertSame(first, cache.evaluate(expression, frame(3L, new BigDecimal("1.00"))));
+        Assert.assertSame(first, cache.evaluate(expression, frame(3.0, Decimal.ONE)));
+
+        Map<String, Object> extra = frame(3, 1);
+        extra.put("z", 42);
+        Assert.assertSame(first, cache.evaluate(expression, extra));
+
+        Assert.assertTrue(cache.evaluate(expression, frame(4, 1)).getValue().eq(9));
+
+        Assert.assertEquals(3, cache.getHitCount());
+        Assert.assertEquals(2, cache.getMissCount());
+        Assert.assertEquals(2, cache.size());
+    }
+
+    /**
+     * Tests that the expressions that call impure functions are not cached.
+     * 
+     * @throws EvaluationException
+     *             If the expression is invalid.
+     */
+    @Test
+    public void must_not_cache_impure_expressions() throws EvaluationException
+    {
+        CompiledExpression<Decimal> random = CompiledExpression.compile("x + random()");
+        CompiledExpression<Decimal> window = CompiledExpression.compile("movsum(x, 2)");
+
+        Assert.assertFalse(ResultCache.isCacheable(random));
+        Assert.assertFalse(ResultCache.isCacheable(window));
+        Assert.assertTrue(ResultCache.isCacheable(CompiledExpression.compile("max(x, 2)")));
+
+        ResultCache cache = new ResultCache();
+        Map<String, Integer> frame = Collections.singletonMap("x", 1);
+
+        cache.evaluate(random, frame);
+        cache.evaluate(random, frame);
+        Assert.assertTrue(cache.evaluate(window, frame).getValue().eq(1));
+        Assert.assertTrue(cache.evaluate(window, frame).getValue().eq(2));
+
+        Assert.assertEquals(0, cache.size());
+        Assert.assertEquals(4, cache.getBypassCount());
+        Assert.assertEquals(0, cache.getHitCount());
+    }
+
+    /**
+     * Tests that the inputs seen once are evicted before the inputs that repeat.
+     * 
+     * @throws EvaluationException
+     *             If the expression is invalid.
+     */
+    @Test
+    public void must_evict_the_inputs_seen_once_first() throws EvaluationException
+    {
+        ResultCache cache = new ResultCache(10);
+        CompiledExpression<Decimal> expression = CompiledExpression.compile("x + y");
+
+        Value<Decimal> hot = cache.evaluate(expression, frame(0, 0));
+        Assert.assertSame(hot, cache.evaluate(expression, frame(0, 0)));
+
+        for (int i = 1; i <= 100; i++)
+        {
+            cache.evaluate(expression, frame(i, 0));
+        }
+
+        Assert.assertEquals(10, cache.size());
+        Assert.assertEquals(91, cache.getEvictionCount());
+        Assert.assertSame(hot, cache.evaluate(expression, frame(0, 0)));
+
+        cache.setMaximumSize(0);
+        Assert.assertEquals(0, cache.size());
+    }
+}
@@ -0,0 +1,244 @@
+/**
+ * Copyright (C) 2013 - 2015 Contributors.
+ *
+ * FormulaJ is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * FormulaJ is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see [http://www.gnu.org/licenses/].
+ *
+ * Contact: formulaj-user-list@googlegroups.com.
+ */
+package formulaj.expression.test;
+
+import java.math.MathContext;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import formulaj.MathExpression;
+import formulaj.expression.Decimal;
+import formulaj.expression.EvaluationException;
+import formulaj.expression.ExpressionBuilder;
+import formulaj.expression.PrecisionPolicy;
+import formulaj.expression.Value;
+import formulaj.expression.batch.BatchProgram;
+import formulaj.expression.batch.ParallelEvaluator;
+import formulaj.expression.compiler.CompiledExpression;
+import formulaj.expression.evaluator.impl.BindingEvaluator;
+import formulaj.expression.stream.ExpressionStreams;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class WindowFunctionsTest
+{
+    /**
+     * The sequence of values of the tests.
+     */
+    private static final int[] SERIES = {5, 1, 4, 2, 8, 3 };
+
+    /**
+     * Evaluates an expression over {@link #SERIES}, in order.
+     * 
+     * @param expression
+     *            The expression with the variable <code>x</code>.
+     * @return The values of the expression as <code>double</code>s.
+     * @throws EvaluationException
+     *             If the expression is invalid.
+     */
+    private static double[] evaluate(String expression) throws EvaluationException
+    {
+        List<Map<String, ?>> frames = new ArrayList<>();
+        for (int x : SERIES)
+        {
+            frames.add(Collections.singletonMap("x", x));
+        }
+
+        CompiledExpression<Decimal> compiled = CompiledExpression.compile(expression);
+        Iterator<Value<Decimal>> values = ExpressionStreams.evaluate(compiled, frames.iterator());
+
+        double[] result = new double[SERIES.length];
+        for (int i = 0; i < result.length; i++)
+        {
+            result[i] = values.next().getValue().doubleValue();
+        }
+        return result;
+    }
+
+    /**
+     * Tests the window functions over an ordered sequence.
+     * 
+     * @throws EvaluationException
+     *             If an expression is invalid.
+     */
+    @Test
+    public void must_update_the_windows_in_order() throws EvaluationException
+    {
+        Assert.assertArrayEquals(new double[] {5, 5, 5, 1, 4, 2 }, evaluate("lag(x, 2)"), 0);
+        Assert.assertArrayEquals(new double[] {0, -4, 3, -2, 6, -5 }, evaluate("delta(x)"), 0);
+        Assert.assertArrayEquals(new double[] {5, 6, 10, 7, 14, 13 }, evaluate("movsum(x, 3)"), 0);
+        Assert.assertArrayEquals(new double[] {5, 3, 10 / 3.0, 7 / 3.0, 14 / 3.0, 13 / 3.0 }, evaluate("movavg(x, 3)"), 1e-12);
+        Assert.assertArrayEquals(new double[] {5, 1, 1, 1, 2, 2 }, evaluate("movmin(x, 3)"), 0);
+        Assert.assertArrayEquals(new double[] {5, 5, 5, 4, 8, 8 }, evaluate("movmax(x, 3)"), 0);
+        Assert.assertArrayEquals(new double[] {5, 3, 3.5, 2.75, 5.375, 4.1875 }, evaluate("ewma(x, 0.5)"), 0);
+    }
+
+    /**
+     * Tests that each call of a function keeps its own state.
+     * 
+     * @throws EvaluationException
+     *             If the expression is invalid.
+     */
+    @Test
+    public void must_keep_a_state_per_call() throws EvaluationException
+    {
+        Assert.assertArrayEquals(new double[] {10, 12, 15, 18, 25, 28 }, evaluate("movsum(x, 2) + movsum(x, 4)"), 0);
+    }
+
+    /**
+     * Tests that two expressions with the same text keep their own windows, although their text is compiled by the same cache.
+     * 
+     * @throws EvaluationException
+     *             If the expression is invalid.
+     */
+    @Test
+    public void must_not_share_the_state_of_expressions_with_the_same_text() throws EvaluationException
+    {
+        MathExpression<Decimal> first = ExpressionBuilder.<Decimal> newMathExpression("movsum(x, 3)");
+        MathExpression<Decimal> second = ExpressionBuilder.<Decimal> newMathExpression("movsum(x, 3)");
+
+        for (int i = 1; i <= 3; i++)
+        {
+            Assert.assertEquals(Decimal.from(i), first.withVariable("x", Decimal.ONE).evaluate().getValue());
+            Assert.assertEquals(Decimal.from(100 * i), second.withVariable("x", Decimal.from(100)).evaluate().getValue());
+        }
+    }
+
+    /**
+     * Tests that the window functions are evaluated in order by a parallel stream, and rejected by the parallel evaluation of a list of frames.
+     * 
+     * @throws EvaluationException
+     *             If the expression is invalid.
+     */
+    @Test
+    public void must_not_evaluate_window_functions_out_of_order() throws EvaluationException
+    {
+        List<Map<String, ?>> frames = new ArrayList<>();
+        for (int i = 0; i < 20000; i++)
+        {
+            frames.add(Collections.singletonMap("x", i));
+        }
+
+        Iterator<Value<Decimal>> values = ExpressionStreams.evaluateParallel(CompiledExpression.<Decimal> compile("lag(x, 1)"), frames.iterator(),
+                new ParallelEvaluator(), 256);
+
+        Assert.assertEquals(0, values.next().getValue().intValue());
+        for (int i = 1; i < frames.size(); i++)
+        {
+            Assert.assertEquals(i - 1, values.next().getValue().intValue());
+        }
+
+        try
+        {
+            new ParallelEvaluator().evaluate(CompiledExpression.<Decimal> compile("lag(x, 1)"), frames);
+            Assert.fail("The frames of a stateful expression must not be evaluated in parallel");
+        }
+        catch (EvaluationException expected)
+        {
+            Assert.assertTrue(expected.getMessage().contains("lag(x, 1)"));
+        }
+    }
+
+    /**
+     * Tests that the window functions are not compiled for batches, whose rows might be evaluated out of order.
+     * 
+     * @throws EvaluationException
+     *             Always, because the function keeps state.
+     */
+    @Test(expected = EvaluationException.class)
+    public void must_not_compile_window_functions_for_batches() throws EvaluationException
+    {
+        BatchProgram.compile(CompiledExpression.compile("movavg(x, 3)"));
+    }
+
+    /**
+     * Evaluates a compiled expression with the variables <code>x</code> and <code>n</code>.
+     * 
+     * @param expression
+     *            The expression to be evaluated.
+     * @param x
+     *            The value of <code>x</code>.
+     * @param n
+     *            The value of <code>n</code>.
+     * @return The value of the expression.
+     * @throws EvaluationException
+     *             If the expression is invalid.
+     */
+    private static Decimal eval(CompiledExpression<Decimal> expression, Object x, Object n) throws EvaluationException
+    {
+        Map<String, Object> frame = new HashMap<>();
+        frame.put("x", x);
+        frame.put("n", n);
+        return new BindingEvaluator<Decimal>().bind(frame).eval(expression).getValue();
+    }
+
+    /**
+     * Tests that the arguments of every call are checked, and that a window keeps the size given by its first call.
+     * 
+     * @throws EvaluationException
+     *             If an expression is invalid.
+     */
+    @Test
+    public void must_check_the_arguments_of_every_call() throws EvaluationException
+    {
+        for (String text : new String[] {"lag(x, n)", "movsum(x, n)", "movavg(x, n)", "movmin(x, n)", "movmax(x, n)", "ewma(x, n / 10)" })
+        {
+            CompiledExpression<Decimal> expression = CompiledExpression.compile(text);
+            Assert.assertEquals(text, Decimal.ONE, eval(expression, 1, 2));
+
+            try
+            {
+                eval(expression, 1, text.startsWith("ewma") ? 20 : 3);
+                Assert.fail(text);
+            }
+            catch (IllegalArgumentException expected)
+            {
+                Assert.assertTrue(expected.getMessage(), expected.getMessage().contains(text.substring(0, text.indexOf('('))));
+            }
+            Assert.assertNotNull(text, eval(expression, 1, 2));
+        }
+    }
+
+    /**
+     * Tests that the averages are rounded to the context of the <code>/</code> operator of the current policy.
+     * 
+     * @throws EvaluationException
+     *             If an expression is invalid.
+     */
+    @Test
+    public void must_round_the_averages_to_the_current_policy() throws EvaluationException
+    {
+        CompiledExpression<Decimal> average = CompiledExpression.<Decimal> compile("movavg(x, n)").withPrecision(
+                PrecisionPolicy.of(new MathContext(4)));
+        CompiledExpression<Decimal> smoothed = CompiledExpression.<Decimal> compile("ewma(x, n)").withPrecision(
+                PrecisionPolicy.DEFAULT.withOperator("/", new MathContext(3)));
+
+        Assert.assertEquals(Decimal.ONE, eval(average, 1, 3));
+        Assert.assertEquals(Decimal.ONE, eval(average, 1, 3));
+        Assert.assertEquals(new Decimal("1.667"), eval(average, 3, 3));
+
+        Assert.assertEquals(Decimal.ONE, eval(smoothed, 1, new Decimal("0.333")));
+        Assert.assertEquals(new Decimal("1.67"), eval(smoothed, 3, new Decimal("0.333")));
+    }
+}
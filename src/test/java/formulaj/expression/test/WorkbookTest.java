@@ -0,0 +1,114 @@
+/**
+ * Copyright (C) 2013 - 2015 Contributors.
+ *
+ * FormulaJ is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * FormulaJ is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see [http://www.gnu.org/licenses/].
+ *
+ * Contact: formulaj-user-list@googlegroups.com.
+ */
+package formulaj.expression.test;
+
+import formulaj.expression.Decimal;
+import formulaj.expression.EvaluationException;
+import formulaj.expression.parser.RecognitionException;
+import formulaj.expression.workbook.Workbook;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class WorkbookTest
+{
+    /**
+     * Tests that only the formulas affected by a change are evaluated.
+     * 
+     * @throws EvaluationException
+     *             If a formula is invalid.
+     */
+    @Test
+    public void must_recompute_only_the_affected_formulas() throws EvaluationException
+    {
+        Workbook<Decimal> workbook = new Workbook<>();
+        Assert.assertEquals("c", workbook.define("c = a * b"));
+        workbook.define("d", "c + 1");
+        workbook.define("e", "a + 100");
+        workbook.set("a", Decimal.from(2));
+        workbook.set("b", Decimal.from(3));
+
+        Assert.assertEquals(3, workbook.recalculate());
+        Assert.assertEquals(Decimal.from(7), workbook.get("d").getValue());
+        Assert.assertEquals(Decimal.from(102), workbook.get("e").getValue());
+
+        workbook.set("b", Decimal.from(4));
+        Assert.assertEquals(2, workbook.recalculate());
+        Assert.assertEquals(Decimal.from(9), workbook.get("d").getValue());
+
+        Assert.assertEquals(0, workbook.recalculate());
+    }
+
+    /**
+     * Tests the evaluation of many independent formulas.
+     * 
+     * @throws EvaluationException
+     *             If a formula is invalid.
+     */
+    @Test
+    public void must_evaluate_independent_formulas_in_parallel() throws EvaluationException
+    {
+        Workbook<Decimal> workbook = new Workbook<>();
+
+        for (int i = 0; i < 500; i++)
+        {
+            workbook.define(name(i), "a * " + i);
+        }
+
+        workbook.define("total", name(499) + " - " + name(1));
+        workbook.set("a", Decimal.from(2));
+
+        Assert.assertEquals(501, workbook.recalculate());
+        Assert.assertEquals(Decimal.from(996), workbook.get("total").getValue());
+    }
+
+    /**
+     * Tests that a circular reference is rejected.
+     * 
+     * @throws RecognitionException
+     *             If a formula is invalid.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void must_reject_a_circular_reference() throws RecognitionException
+    {
+        Workbook<Decimal> workbook = new Workbook<>();
+        workbook.define("b", "a + 1");
+        workbook.define("c", "b * 2");
+        workbook.define("a", "c - 1");
+    }
+
+    /**
+     * Returns a name made of letters for a given number, since the names of the variables cannot have digits.
+     * 
+     * @param number
+     *            The number to be converted.
+     * @return A name made of letters for the given number.
+     */
+    private static String name(int number)
+    {
+        StringBuilder name = new StringBuilder("x");
+
+        for (char digit : String.valueOf(number).toCharArray())
+        {
+            name.append((char) ('a' + digit - '0'));
+        }
+
+        return name.toString();
+    }
+}
@@ -24,6 +24,7 @@ import java.util.List;
 
 import formulaj.expression.Variable;
 import formulaj.expression.lexer.ExpressionLexer;
+import formulaj.expression.parser.AST;
 import formulaj.expression.parser.ExpressionParser;
 import formulaj.expression.parser.RecognitionException;
 import formulaj.expression.test.TestSupport;
@@ -102,6 +103,43 @@ public class ExpressionParserTest extends TestSupport
         }
     }
 
+    /**
+     * Tests that the arguments of a function are whole expressions, with arithmetic, relational and logical operators.
+     * 
+     * @throws RecognitionException
+     *             If it's an invalid expression.
+     */
+    @Test
+    public void must_parse_comparisons_in_function_arguments() throws RecognitionException
+    {
+        String[][] calls = {{"max(x > 1, 5)", ">", "5" }, {"max(x + 1, -y)", "+", "-" }, {"max(2 * x, y <= 3 && x <> 0)", "*", "&&" },
+                {"max(min(a, b) - 1, (c))", "-", "c" } };
+
+        for (String[] call : calls)
+        {
+            MathNodeToken<BigDecimal, BigDecimal> stat = new ExpressionParser<BigDecimal>(new ExpressionLexer(call[0])).stat();
+            Assert.assertEquals(call[0], FunctionToken.class, stat.getClass());
+
+            List<? extends AST> args = ((FunctionToken<?>) (Object) stat).getArgs();
+            Assert.assertEquals(call[0], 2, args.size());
+            Assert.assertEquals(call[0], call[1], args.get(0).getToken().getText());
+            Assert.assertEquals(call[0], call[2], args.get(1).getToken().getText());
+        }
+
+        for (String invalid : new String[] {"max(, 1)", "max(1, )", "max(x > , 1)" })
+        {
+            try
+            {
+                new ExpressionParser<BigDecimal>(new ExpressionLexer(invalid)).stat();
+                Assert.fail("The expression " + invalid + " is invalid");
+            }
+            catch (RecognitionException expected)
+            {
+                Assert.assertNotNull(expected.getMessage());
+            }
+        }
+    }
+
     /**
      * Tests the parsing of invalid expressions.
      * @throws RecognitionException when the expression is invalid.